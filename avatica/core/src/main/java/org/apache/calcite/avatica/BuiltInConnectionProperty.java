@@ -66,7 +66,24 @@ public enum BuiltInConnectionProperty implements ConnectionProperty {
   PRINCIPAL("principal", Type.STRING, null, false),
 
   /** Keytab to use to perform Kerberos login. */
-  KEYTAB("keytab", Type.STRING, null, false);
+  KEYTAB("keytab", Type.STRING, null, false),
+
+  /** Number of frames of a result set that the remote driver fetches ahead
+   * of the application, on a background thread; the rows waiting for the
+   * application are limited to this number times the fetch size. Default 0
+   * (no prefetch). */
+  PREFETCH_FRAMES("prefetchFrames", Type.NUMBER, 0, false),
+
+  /** Whether the remote driver combines requests into pipelined requests,
+   * saving round trips. The server must support pipelined requests.
+   * Default false. */
+  PIPELINE("pipeline", Type.BOOLEAN, false, false),
+
+  /** Whether the remote driver asks the server to send the rows of result
+   * sets column by column. Only applies to protobuf serialization; if the
+   * server does not support it, the driver falls back to rows. Default
+   * false. */
+  COLUMNAR("columnar", Type.BOOLEAN, false, false);
 
   private final String camelName;
   private final Type type;
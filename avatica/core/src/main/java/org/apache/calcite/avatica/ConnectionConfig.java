@@ -47,6 +47,12 @@ public interface ConnectionConfig {
   String kerberosPrincipal();
   /** @see BuiltInConnectionProperty#KEYTAB */
   File kerberosKeytab();
+  /** @see BuiltInConnectionProperty#PREFETCH_FRAMES */
+  int prefetchFrames();
+  /** @see BuiltInConnectionProperty#PIPELINE */
+  boolean pipeline();
+  /** @see BuiltInConnectionProperty#COLUMNAR */
+  boolean columnar();
 }
 
 // End ConnectionConfig.java
@@ -92,6 +92,18 @@ public File kerberosKeytab() {
     return keytab;
   }
 
+  public int prefetchFrames() {
+    return BuiltInConnectionProperty.PREFETCH_FRAMES.wrap(properties).getInt();
+  }
+
+  public boolean pipeline() {
+    return BuiltInConnectionProperty.PIPELINE.wrap(properties).getBoolean();
+  }
+
+  public boolean columnar() {
+    return BuiltInConnectionProperty.COLUMNAR.wrap(properties).getBoolean();
+  }
+
   /** Converts a {@link Properties} object containing (name, value)
    * pairs into a map whose keys are
    * {@link org.apache.calcite.avatica.InternalProperty} objects.
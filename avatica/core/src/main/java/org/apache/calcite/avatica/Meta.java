@@ -874,6 +874,12 @@ class Frame {
         .getDescriptor().findFieldByNumber(Common.ColumnValue.HAS_ARRAY_VALUE_FIELD_NUMBER);
     private static final FieldDescriptor SCALAR_VALUE_DESCRIPTOR = Common.ColumnValue
         .getDescriptor().findFieldByNumber(Common.ColumnValue.SCALAR_VALUE_FIELD_NUMBER);
+    /** Protobuf representation of a null value; immutable, so shared. */
+    private static final Common.TypedValue NULL_TYPED_VALUE = Common.TypedValue.newBuilder()
+        .setType(Common.Rep.NULL).setNull(true).build();
+    /** Protobuf representation of a column whose value is null. */
+    private static final Common.ColumnValue NULL_COLUMN_VALUE = Common.ColumnValue.newBuilder()
+        .setHasArrayValue(false).setScalarValue(NULL_TYPED_VALUE).build();
     /** Frame that has zero rows and is the last frame. */
     public static final Frame EMPTY =
         new Frame(0, true, Collections.emptyList());
@@ -912,6 +918,13 @@ public Common.Frame toProto() {
 
       builder.setDone(done).setOffset(offset);
 
+      // Builders are re-used across rows and columns; each build() hands back
+      // an immutable message, so clearing the builder afterwards is safe and
+      // saves an allocation per cell on wide results.
+      final Common.Row.Builder rowBuilder = Common.Row.newBuilder();
+      final Common.ColumnValue.Builder columnBuilder = Common.ColumnValue.newBuilder();
+      final Common.TypedValue.Builder valueBuilder = Common.TypedValue.newBuilder();
+
       for (Object row : this.rows) {
         if (null == row) {
           // Does this need to be persisted for some reason?
@@ -919,31 +932,35 @@ public Common.Frame toProto() {
         }
 
         if (row instanceof Object[]) {
-          final Common.Row.Builder rowBuilder = Common.Row.newBuilder();
-
           for (Object element : (Object[]) row) {
-            final Common.ColumnValue.Builder columnBuilder = Common.ColumnValue.newBuilder();
+            if (null == element) {
+              // Nulls are common and always serialize identically.
+              rowBuilder.addValue(NULL_COLUMN_VALUE);
+              continue;
+            }
 
             if (element instanceof List) {
               columnBuilder.setHasArrayValue(true);
               List<?> list = (List<?>) element;
               // Add each element in the list/array to the column's value
               for (Object listItem : list) {
-                columnBuilder.addArrayValue(serializeScalar(listItem));
+                columnBuilder.addArrayValue(serializeScalar(valueBuilder, listItem));
               }
             } else {
               // The default value, but still explicit.
               columnBuilder.setHasArrayValue(false);
               // Only one value for this column, a scalar.
-              columnBuilder.setScalarValue(serializeScalar(element));
+              columnBuilder.setScalarValue(serializeScalar(valueBuilder, element));
             }
 
             // Add value to row
             rowBuilder.addValue(columnBuilder.build());
+            columnBuilder.clear();
           }
 
           // Collect all rows
           builder.addRows(rowBuilder.build());
+          rowBuilder.clear();
         } else {
           // Can a "row" be a primitive? A struct? Only an Array?
           throw new RuntimeException("Only arrays are supported");
@@ -954,12 +971,23 @@ public Common.Frame toProto() {
     }
 
     static Common.TypedValue serializeScalar(Object element) {
-      final Common.TypedValue.Builder valueBuilder = Common.TypedValue.newBuilder();
+      return serializeScalar(Common.TypedValue.newBuilder(), element);
+    }
+
+    /** Serializes a scalar value using the given (re-usable) builder. The
+     * builder is left clear when this method returns. */
+    private static Common.TypedValue serializeScalar(
+        Common.TypedValue.Builder valueBuilder, Object element) {
+      if (null == element) {
+        return NULL_TYPED_VALUE;
+      }
 
       // Let TypedValue handle the serialization for us.
       TypedValue.toProto(valueBuilder, element);
 
-      return valueBuilder.build();
+      final Common.TypedValue value = valueBuilder.build();
+      valueBuilder.clear();
+      return value;
     }
 
     public static Frame fromProto(Common.Frame proto) {
@@ -1066,8 +1094,9 @@ static Object deserializeScalarValue(Common.TypedValue protoElement) {
         // TypedValue's benefit
         return protoElement.getBytesValue().toByteArray();
       }
-      // Again, let TypedValue deserialize things for us.
-      return TypedValue.fromProto(protoElement).value;
+      // Again, let TypedValue deserialize things for us. We want the serial
+      // value, so there is no need to allocate an intermediate TypedValue.
+      return TypedValue.getSerialFromProto(protoElement);
     }
 
     @Override public int hashCode() {
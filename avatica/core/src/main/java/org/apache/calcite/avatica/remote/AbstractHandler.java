@@ -58,6 +58,17 @@ public AbstractHandler(Service service) {
    * @return An {@link ErrorResponse}.
    */
   ErrorResponse unwrapException(Exception e) {
+    return unwrapException(e, metadata);
+  }
+
+  /**
+   * Unwrap Avatica-specific context about a given exception.
+   *
+   * @param e A caught exception throw by Avatica implementation.
+   * @param metadata Server metadata to include in the response.
+   * @return An {@link ErrorResponse}.
+   */
+  static ErrorResponse unwrapException(Exception e, RpcMetadataResponse metadata) {
     // By default, we know nothing extra.
     int errorCode = ErrorResponse.UNKNOWN_ERROR_CODE;
     String sqlState = ErrorResponse.UNKNOWN_SQL_STATE;
@@ -92,7 +103,20 @@ ErrorResponse unwrapException(Exception e) {
   public HandlerResponse<T> apply(T serializedRequest) {
     try {
       final Service.Request request = decode(serializedRequest);
-      final Service.Response response = request.accept(service);
+      final Service.Response response;
+      try {
+        response = request.accept(service);
+      } catch (Exception e) {
+        if (request instanceof ColumnarFrames.ColumnarRequest) {
+          // Return the error inside the envelope. A client takes a bare
+          // error in reply to a ColumnarRequest to mean that the server
+          // does not support columnar frames.
+          return new HandlerResponse<>(
+              encode(new ColumnarFrames.ColumnarResponse(unwrapException(e))),
+              HTTP_INTERNAL_SERVER_ERROR);
+        }
+        throw e;
+      }
       return new HandlerResponse<>(encode(response), HTTP_OK);
     } catch (Exception e) {
       return convertToErrorResponse(e);
@@ -130,7 +154,7 @@ public HandlerResponse<T> convertToErrorResponse(Exception e) {
    * @param e The Exception to summarize.
    * @return A summary message for the Exception.
    */
-  private String getCausalChain(Exception e) {
+  private static String getCausalChain(Exception e) {
     StringBuilder sb = new StringBuilder(16);
     Throwable curr = e;
     // Could use Guava, but that would increase dependency set unnecessarily.
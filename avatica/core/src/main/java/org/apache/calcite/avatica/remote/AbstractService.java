@@ -150,6 +150,31 @@ ExecuteResponse finagle(ExecuteResponse r) {
     return new ExecuteResponse(results, r.missingStatement, rpcMetadata);
   }
 
+  PipelinedResponse finagle(PipelinedResponse r) {
+    final List<Response> responses = new ArrayList<>();
+    int changeCount = 0;
+    for (Response response : r.responses) {
+      final Response response2;
+      if (response instanceof ResultSetResponse) {
+        response2 = finagle((ResultSetResponse) response);
+      } else if (response instanceof PrepareResponse) {
+        response2 = finagle((PrepareResponse) response);
+      } else if (response instanceof ExecuteResponse) {
+        response2 = finagle((ExecuteResponse) response);
+      } else {
+        response2 = response;
+      }
+      if (response2 != response) {
+        ++changeCount;
+      }
+      responses.add(response2);
+    }
+    if (changeCount == 0) {
+      return r;
+    }
+    return new PipelinedResponse(responses, r.error, rpcMetadata);
+  }
+
   @Override public void setRpcMetadata(RpcMetadataResponse metadata) {
     // OK if this is null
     this.rpcMetadata = metadata;
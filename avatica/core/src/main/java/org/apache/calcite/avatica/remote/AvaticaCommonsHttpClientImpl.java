@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.avatica.remote;
 
+import org.apache.http.Header;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.auth.AuthScope;
@@ -75,6 +76,11 @@ public class AvaticaCommonsHttpClientImpl implements AvaticaHttpClient,
   protected final HttpRequestExecutor httpExecutor;
   protected final BasicAuthCache authCache;
   protected final CloseableHttpClient client;
+  protected final int requestCompressionThreshold;
+
+  /** Whether the server has said, in its most recent response, that it
+   * accepts compressed requests. */
+  protected volatile boolean serverAcceptsGzip;
   final PoolingHttpClientConnectionManager pool;
 
   protected UsernamePasswordCredentials credentials = null;
@@ -106,8 +112,12 @@ public AvaticaCommonsHttpClientImpl(URL url) {
 
     this.authCache = new BasicAuthCache();
 
-    // A single thread-safe HttpClient, pooling connections via the ConnectionManager
+    // A single thread-safe HttpClient, pooling connections via the ConnectionManager.
+    // Its default configuration advertises "Accept-Encoding: gzip,deflate" and
+    // transparently decompresses responses.
     this.client = HttpClients.custom().setConnectionManager(pool).build();
+
+    this.requestCompressionThreshold = HttpCompression.requestThreshold();
   }
 
   public byte[] send(byte[] request) {
@@ -122,7 +132,15 @@ public byte[] send(byte[] request) {
       context.setAuthCache(authCache);
     }
 
-    ByteArrayEntity entity = new ByteArrayEntity(request, ContentType.APPLICATION_OCTET_STREAM);
+    final ByteArrayEntity entity;
+    if (serverAcceptsGzip
+        && HttpCompression.shouldCompress(request.length, requestCompressionThreshold)) {
+      entity = new ByteArrayEntity(HttpCompression.gzip(request),
+          ContentType.APPLICATION_OCTET_STREAM);
+      entity.setContentEncoding(HttpCompression.GZIP);
+    } else {
+      entity = new ByteArrayEntity(request, ContentType.APPLICATION_OCTET_STREAM);
+    }
 
     // Create the client with the AuthSchemeRegistry and manager
     HttpPost post = new HttpPost(toURI(url));
@@ -130,6 +148,10 @@ public byte[] send(byte[] request) {
 
     try (CloseableHttpResponse response = client.execute(post, context)) {
       final int statusCode = response.getStatusLine().getStatusCode();
+      final Header acceptEncoding =
+          response.getFirstHeader(HttpCompression.ACCEPT_ENCODING);
+      serverAcceptsGzip = null != acceptEncoding
+          && HttpCompression.acceptsGzip(acceptEncoding.getValue());
       if (HttpURLConnection.HTTP_OK == statusCode
           || HttpURLConnection.HTTP_INTERNAL_ERROR == statusCode) {
         return EntityUtils.toByteArray(response.getEntity());
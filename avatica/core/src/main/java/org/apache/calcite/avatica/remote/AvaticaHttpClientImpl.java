@@ -30,9 +30,15 @@
  */
 public class AvaticaHttpClientImpl implements AvaticaHttpClient {
   protected final URL url;
+  protected final int requestCompressionThreshold;
+
+  /** Whether the server has said, in its most recent response, that it
+   * accepts compressed requests. */
+  protected volatile boolean serverAcceptsGzip;
 
   public AvaticaHttpClientImpl(URL url) {
     this.url = url;
+    this.requestCompressionThreshold = HttpCompression.requestThreshold();
   }
 
   public byte[] send(byte[] request) {
@@ -43,8 +49,15 @@ public byte[] send(byte[] request) {
         connection.setRequestMethod("POST");
         connection.setDoInput(true);
         connection.setDoOutput(true);
+        connection.setRequestProperty(HttpCompression.ACCEPT_ENCODING, HttpCompression.GZIP);
+        byte[] body = request;
+        if (serverAcceptsGzip
+            && HttpCompression.shouldCompress(request.length, requestCompressionThreshold)) {
+          connection.setRequestProperty(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+          body = HttpCompression.gzip(request);
+        }
         try (DataOutputStream wr = new DataOutputStream(connection.getOutputStream())) {
-          wr.write(request);
+          wr.write(body);
           wr.flush();
           wr.close();
         }
@@ -53,12 +66,16 @@ public byte[] send(byte[] request) {
         if (responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
           // Could be sitting behind a load-balancer, try again.
           continue;
-        } else if (responseCode != HttpURLConnection.HTTP_OK) {
+        }
+        serverAcceptsGzip = HttpCompression.acceptsGzip(
+            connection.getHeaderField(HttpCompression.ACCEPT_ENCODING));
+        if (responseCode != HttpURLConnection.HTTP_OK) {
           inputStream = connection.getErrorStream();
         } else {
           inputStream = connection.getInputStream();
         }
-        return AvaticaUtils.readFullyToBytes(inputStream);
+        return AvaticaUtils.readFullyToBytes(
+            HttpCompression.decode(connection.getContentEncoding(), inputStream));
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -0,0 +1,652 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.proto.Common;
+import org.apache.calcite.avatica.proto.Common.WireMessage;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encodes the rows of a {@link Meta.Frame} column by column, and decodes
+ * them.
+ *
+ * <p>Each column is sent as a {@code ColumnVector}: a bitmap of the rows
+ * that are null, and the other values packed into a single field: integers
+ * as zig-zag varints, floating-point numbers as fixed 64-bit values, and
+ * strings and decimals as a dictionary of distinct values plus a code per
+ * row. For wide numeric results this is much smaller than a
+ * {@code TypedValue} per cell, and far fewer objects are allocated on either
+ * side.
+ *
+ * <p>A frame is only encoded this way if its rows are arrays and each column
+ * holds values of a single supported type; otherwise it keeps its rows.
+ *
+ * <p>The client asks for columnar frames by wrapping a request in a
+ * {@link ColumnarRequest}. A server that supports columnar frames always
+ * answers with a {@link ColumnarResponse}, even if the request fails, in
+ * which case the envelope holds the {@link Service.ErrorResponse}; this is
+ * how the client learns that the server supports them. A server that does
+ * not know these messages rejects the envelope, before executing anything,
+ * with a bare {@code ErrorResponse}; the client then sends the request again
+ * unwrapped, and stops asking. See {@link RemoteProtobufService}.
+ */
+final class ColumnarFrames {
+  private ColumnarFrames() {}
+
+  /** Returns whether the response to a request can contain frames, and
+   * therefore whether it is worth wrapping in a {@link ColumnarRequest}. */
+  static boolean hasFrames(Service.Request request) {
+    return request instanceof Service.FetchRequest
+        || request instanceof Service.ExecuteRequest
+        || request instanceof Service.PrepareAndExecuteRequest;
+  }
+
+  /** Encodes the rows of a frame as a {@code ColumnarFrame}, or returns null
+   * if the frame cannot be encoded. */
+  static DynamicMessage encode(Meta.Frame frame) {
+    final List<Object[]> rows = new ArrayList<>();
+    int columnCount = -1;
+    for (Object row : frame.rows) {
+      if (!(row instanceof Object[])) {
+        return null;
+      }
+      final Object[] values = (Object[]) row;
+      if (columnCount < 0) {
+        columnCount = values.length;
+      } else if (values.length != columnCount) {
+        return null;
+      }
+      rows.add(values);
+    }
+    if (rows.isEmpty()) {
+      return null;
+    }
+    final DynamicMessage.Builder builder =
+        DynamicMessage.newBuilder(ColumnarMessages.FRAME)
+            .setField(ColumnarMessages.ROW_COUNT, rows.size());
+    for (int i = 0; i < columnCount; i++) {
+      final DynamicMessage column = encodeColumn(rows, i);
+      if (column == null) {
+        return null;
+      }
+      builder.addRepeatedField(ColumnarMessages.COLUMNS, column);
+    }
+    return builder.build();
+  }
+
+  private static DynamicMessage encodeColumn(List<Object[]> rows,
+      int ordinal) {
+    // First pass: find the nulls, and check that the other values have the
+    // same class.
+    final BitSet nulls = new BitSet(rows.size());
+    Class<?> clazz = null;
+    Common.Rep type = Common.Rep.NULL;
+    for (int r = 0; r < rows.size(); r++) {
+      final Object value = rows.get(r)[ordinal];
+      if (value == null) {
+        nulls.set(r);
+      } else if (clazz == null) {
+        clazz = value.getClass();
+        type = rep(value);
+        if (type == null) {
+          return null;
+        }
+      } else if (value.getClass() != clazz) {
+        return null;
+      }
+    }
+
+    final DynamicMessage.Builder builder =
+        DynamicMessage.newBuilder(ColumnarMessages.VECTOR)
+            .setField(ColumnarMessages.TYPE, type.getValueDescriptor());
+    if (!nulls.isEmpty()) {
+      builder.setField(ColumnarMessages.NULLS,
+          ByteString.copyFrom(nulls.toByteArray()));
+    }
+
+    // Second pass: write the values that are not null.
+    final ByteString.Output out = ByteString.newOutput();
+    final CodedOutputStream coded = CodedOutputStream.newInstance(out);
+    final FieldDescriptor field;
+    try {
+      switch (type) {
+      case BYTE:
+      case SHORT:
+      case INTEGER:
+      case LONG:
+        field = ColumnarMessages.LONG_VALUES;
+        for (int r = nulls.nextClearBit(0); r < rows.size(); r = nulls.nextClearBit(r + 1)) {
+          coded.writeSInt64NoTag(((Number) rows.get(r)[ordinal]).longValue());
+        }
+        break;
+      case FLOAT:
+      case DOUBLE:
+        field = ColumnarMessages.DOUBLE_VALUES;
+        for (int r = nulls.nextClearBit(0); r < rows.size(); r = nulls.nextClearBit(r + 1)) {
+          coded.writeDoubleNoTag(((Number) rows.get(r)[ordinal]).doubleValue());
+        }
+        break;
+      case BOOLEAN:
+        field = ColumnarMessages.BOOL_VALUES;
+        for (int r = nulls.nextClearBit(0); r < rows.size(); r = nulls.nextClearBit(r + 1)) {
+          coded.writeBoolNoTag((Boolean) rows.get(r)[ordinal]);
+        }
+        break;
+      case STRING:
+      case CHARACTER:
+      case BIG_DECIMAL:
+        field = ColumnarMessages.CODES;
+        final Map<Object, Integer> codes = new HashMap<>();
+        for (int r = nulls.nextClearBit(0); r < rows.size(); r = nulls.nextClearBit(r + 1)) {
+          final Object value = rows.get(r)[ordinal];
+          Integer code = codes.get(value);
+          if (code == null) {
+            code = codes.size();
+            codes.put(value, code);
+            builder.addRepeatedField(ColumnarMessages.DICTIONARY, value.toString());
+          }
+          coded.writeUInt32NoTag(code);
+        }
+        break;
+      case BYTE_STRING:
+        for (int r = nulls.nextClearBit(0); r < rows.size(); r = nulls.nextClearBit(r + 1)) {
+          builder.addRepeatedField(ColumnarMessages.BYTES_VALUES,
+              ByteString.copyFrom((byte[]) rows.get(r)[ordinal]));
+        }
+        return builder.build();
+      default:
+        // Every value is null
+        return builder.build();
+      }
+      coded.flush();
+    } catch (IOException e) {
+      // Writing to memory does not fail
+      throw new RuntimeException(e);
+    }
+    return builder.setField(field, out.toByteString()).build();
+  }
+
+  /** Returns the type of a column that holds values of the same class as a
+   * given value, or null if such a column cannot be encoded. The types are
+   * those that {@link TypedValue#toProto(Common.TypedValue.Builder, Object)}
+   * would give each value. */
+  private static Common.Rep rep(Object value) {
+    if (value instanceof Byte) {
+      return Common.Rep.BYTE;
+    } else if (value instanceof Short) {
+      return Common.Rep.SHORT;
+    } else if (value instanceof Integer) {
+      return Common.Rep.INTEGER;
+    } else if (value instanceof Long) {
+      return Common.Rep.LONG;
+    } else if (value instanceof Float) {
+      return Common.Rep.FLOAT;
+    } else if (value instanceof Double) {
+      return Common.Rep.DOUBLE;
+    } else if (value instanceof Boolean) {
+      return Common.Rep.BOOLEAN;
+    } else if (value instanceof String) {
+      return Common.Rep.STRING;
+    } else if (value instanceof Character) {
+      return Common.Rep.CHARACTER;
+    } else if (value instanceof BigDecimal) {
+      return Common.Rep.BIG_DECIMAL;
+    } else if (value instanceof byte[]) {
+      return Common.Rep.BYTE_STRING;
+    }
+    return null;
+  }
+
+  /** Decodes a {@code ColumnarFrame} into a list of rows.
+   *
+   * <p>Each column is decoded once, into an array; each row is a view that
+   * reads the arrays, so the cursor over the rows reads the columns
+   * directly. The values are those that a frame sent as rows would give. */
+  static List<Object> decode(Message msg) {
+    final int rowCount = (Integer) msg.getField(ColumnarMessages.ROW_COUNT);
+    final int columnCount = msg.getRepeatedFieldCount(ColumnarMessages.COLUMNS);
+    final Column[] columns = new Column[columnCount];
+    try {
+      for (int i = 0; i < columnCount; i++) {
+        columns[i] = decodeColumn(
+            (Message) msg.getRepeatedField(ColumnarMessages.COLUMNS, i),
+            rowCount);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return new ColumnarRows(rowCount, columns);
+  }
+
+  private static Column decodeColumn(Message msg, int rowCount)
+      throws IOException {
+    final Common.Rep type = Common.Rep.valueOf(
+        ((EnumValueDescriptor) msg.getField(ColumnarMessages.TYPE)).getNumber());
+    final BitSet nulls = BitSet.valueOf(
+        ((ByteString) msg.getField(ColumnarMessages.NULLS)).asReadOnlyByteBuffer());
+    final CodedInputStream in;
+    switch (type) {
+    case BYTE:
+    case SHORT:
+    case INTEGER:
+    case LONG:
+      in = input(msg, ColumnarMessages.LONG_VALUES);
+      final long[] longs = new long[rowCount];
+      for (int r = nulls.nextClearBit(0); r < rowCount; r = nulls.nextClearBit(r + 1)) {
+        longs[r] = in.readSInt64();
+      }
+      return new LongColumn(nulls, type, longs);
+    case FLOAT:
+    case DOUBLE:
+      in = input(msg, ColumnarMessages.DOUBLE_VALUES);
+      final double[] doubles = new double[rowCount];
+      for (int r = nulls.nextClearBit(0); r < rowCount; r = nulls.nextClearBit(r + 1)) {
+        doubles[r] = in.readDouble();
+      }
+      return new DoubleColumn(nulls, type, doubles);
+    case BOOLEAN:
+      in = input(msg, ColumnarMessages.BOOL_VALUES);
+      final boolean[] booleans = new boolean[rowCount];
+      for (int r = nulls.nextClearBit(0); r < rowCount; r = nulls.nextClearBit(r + 1)) {
+        booleans[r] = in.readBool();
+      }
+      return new BooleanColumn(nulls, booleans);
+    case STRING:
+    case CHARACTER:
+    case BIG_DECIMAL:
+      final int size = msg.getRepeatedFieldCount(ColumnarMessages.DICTIONARY);
+      final Object[] dictionary = new Object[size];
+      for (int i = 0; i < size; i++) {
+        final String s =
+            (String) msg.getRepeatedField(ColumnarMessages.DICTIONARY, i);
+        dictionary[i] = type == Common.Rep.STRING ? s
+            : type == Common.Rep.CHARACTER ? (Object) s.charAt(0)
+            : new BigDecimal(s);
+      }
+      in = input(msg, ColumnarMessages.CODES);
+      final int[] codes = new int[rowCount];
+      for (int r = nulls.nextClearBit(0); r < rowCount; r = nulls.nextClearBit(r + 1)) {
+        codes[r] = in.readUInt32();
+      }
+      return new DictionaryColumn(nulls, dictionary, codes);
+    case BYTE_STRING:
+      final byte[][] bytes = new byte[rowCount][];
+      int i = 0;
+      for (int r = nulls.nextClearBit(0); r < rowCount; r = nulls.nextClearBit(r + 1)) {
+        bytes[r] = ((ByteString) msg.getRepeatedField(ColumnarMessages.BYTES_VALUES, i++))
+            .toByteArray();
+      }
+      return new BytesColumn(nulls, bytes);
+    case NULL:
+      return new NullColumn(nulls);
+    default:
+      throw new IllegalArgumentException("Unhandled type in columnar frame: " + type);
+    }
+  }
+
+  private static CodedInputStream input(Message msg, FieldDescriptor field) {
+    final CodedInputStream in = ((ByteString) msg.getField(field)).newCodedInput();
+    in.setSizeLimit(Integer.MAX_VALUE);
+    return in;
+  }
+
+  /** Applies a function to each frame in a response, and returns a response
+   * with the frames that it returns. The response is unchanged if it has no
+   * frames. */
+  static Service.Response mapFrames(Service.Response response,
+      FrameFunction function) {
+    if (response instanceof Service.FetchResponse) {
+      final Service.FetchResponse fetch = (Service.FetchResponse) response;
+      if (fetch.frame == null) {
+        return fetch;
+      }
+      return new Service.FetchResponse(function.apply(fetch.frame),
+          fetch.missingStatement, fetch.missingResults, fetch.rpcMetadata);
+    } else if (response instanceof Service.ResultSetResponse) {
+      return mapFrames((Service.ResultSetResponse) response, function);
+    } else if (response instanceof Service.ExecuteResponse) {
+      final Service.ExecuteResponse execute = (Service.ExecuteResponse) response;
+      if (execute.results == null) {
+        return execute;
+      }
+      final List<Service.ResultSetResponse> results =
+          new ArrayList<>(execute.results.size());
+      for (Service.ResultSetResponse result : execute.results) {
+        results.add(mapFrames(result, function));
+      }
+      return new Service.ExecuteResponse(results, execute.missingStatement,
+          execute.rpcMetadata);
+    }
+    return response;
+  }
+
+  private static Service.ResultSetResponse mapFrames(
+      Service.ResultSetResponse r, FrameFunction function) {
+    if (r.firstFrame == null) {
+      return r;
+    }
+    return new Service.ResultSetResponse(r.connectionId, r.statementId,
+        r.ownStatement, r.signature, function.apply(r.firstFrame),
+        r.updateCount, r.rpcMetadata);
+  }
+
+  /** Function that converts one frame to another. */
+  interface FrameFunction {
+    Meta.Frame apply(Meta.Frame frame);
+  }
+
+  /** Request that asks for the frames in the response to another request to
+   * be sent as {@code ColumnarFrame}s. */
+  static class ColumnarRequest extends Service.Request {
+    final Service.Request request;
+
+    ColumnarRequest() {
+      this.request = null;
+    }
+
+    ColumnarRequest(Service.Request request) {
+      this.request = Objects.requireNonNull(request);
+    }
+
+    @Override ColumnarResponse accept(Service service) {
+      return new ColumnarResponse(request.accept(service));
+    }
+
+    @Override ColumnarRequest deserialize(Message genericMsg) {
+      final Message msg =
+          ProtobufTranslationImpl.cast(genericMsg, ColumnarMessages.REQUEST);
+      final WireMessage wireMsg = ProtobufTranslationImpl.convert(
+          msg.getField(ColumnarMessages.WRAPPED_REQUEST), WireMessage.parser());
+      try {
+        return new ColumnarRequest(
+            ProtobufTranslationImpl.getParserForRequest(wireMsg.getName())
+                .transform(wireMsg.getWrappedMessage()));
+      } catch (InvalidProtocolBufferException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override Message serialize() {
+      return DynamicMessage.newBuilder(ColumnarMessages.REQUEST)
+          .setField(ColumnarMessages.WRAPPED_REQUEST,
+              ProtobufTranslationImpl.wrap(request.serialize()))
+          .build();
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(request);
+    }
+
+    @Override public boolean equals(Object o) {
+      return o == this
+          || o instanceof ColumnarRequest
+          && Objects.equals(request, ((ColumnarRequest) o).request);
+    }
+  }
+
+  /** Response to a {@link ColumnarRequest}.
+   *
+   * <p>When serialized, the rows of each frame that can be encoded move to a
+   * {@code ColumnarFrame}. When deserialized, the response that it wraps has
+   * those frames' rows restored. */
+  static class ColumnarResponse extends Service.Response {
+    final Service.Response response;
+
+    ColumnarResponse() {
+      this.response = null;
+    }
+
+    ColumnarResponse(Service.Response response) {
+      this.response = Objects.requireNonNull(response);
+    }
+
+    @Override ColumnarResponse deserialize(Message genericMsg) {
+      final Message msg =
+          ProtobufTranslationImpl.cast(genericMsg, ColumnarMessages.RESPONSE);
+      final WireMessage wireMsg = ProtobufTranslationImpl.convert(
+          msg.getField(ColumnarMessages.WRAPPED_RESPONSE), WireMessage.parser());
+      final Service.Response wrapped;
+      try {
+        wrapped = ProtobufTranslationImpl.getParserForResponse(wireMsg.getName())
+            .transform(wireMsg.getWrappedMessage());
+      } catch (InvalidProtocolBufferException e) {
+        throw new RuntimeException(e);
+      }
+      final Service.Response restored = mapFrames(wrapped,
+          new FrameFunction() {
+            int i = 0;
+
+            public Meta.Frame apply(Meta.Frame frame) {
+              if (i >= msg.getRepeatedFieldCount(ColumnarMessages.FRAMES)) {
+                // A fetch response that had no frame is given an empty one
+                return frame;
+              }
+              final Message columnar =
+                  (Message) msg.getRepeatedField(ColumnarMessages.FRAMES, i++);
+              if (columnar.getRepeatedFieldCount(ColumnarMessages.COLUMNS) == 0) {
+                // The frame kept its rows
+                return frame;
+              }
+              return new Meta.Frame(frame.offset, frame.done, decode(columnar));
+            }
+          });
+      return new ColumnarResponse(restored);
+    }
+
+    @Override Message serialize() {
+      final DynamicMessage.Builder builder =
+          DynamicMessage.newBuilder(ColumnarMessages.RESPONSE);
+      final Service.Response stripped = mapFrames(response,
+          new FrameFunction() {
+            public Meta.Frame apply(Meta.Frame frame) {
+              final DynamicMessage columnar = encode(frame);
+              if (columnar == null) {
+                builder.addRepeatedField(ColumnarMessages.FRAMES,
+                    DynamicMessage.getDefaultInstance(ColumnarMessages.FRAME));
+                return frame;
+              }
+              builder.addRepeatedField(ColumnarMessages.FRAMES, columnar);
+              return new Meta.Frame(frame.offset, frame.done,
+                  Collections.emptyList());
+            }
+          });
+      return builder.setField(ColumnarMessages.WRAPPED_RESPONSE,
+          ProtobufTranslationImpl.wrap(stripped.serialize())).build();
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(response);
+    }
+
+    @Override public boolean equals(Object o) {
+      return o == this
+          || o instanceof ColumnarResponse
+          && Objects.equals(response, ((ColumnarResponse) o).response);
+    }
+  }
+
+  /** Rows of a decoded {@code ColumnarFrame}. */
+  private static class ColumnarRows extends AbstractList<Object> {
+    private final int rowCount;
+    private final Column[] columns;
+
+    ColumnarRows(int rowCount, Column[] columns) {
+      this.rowCount = rowCount;
+      this.columns = columns;
+    }
+
+    @Override public Object get(final int row) {
+      if (row < 0 || row >= rowCount) {
+        throw new IndexOutOfBoundsException("row " + row + " of " + rowCount);
+      }
+      return new AbstractList<Object>() {
+        @Override public Object get(int ordinal) {
+          return columns[ordinal].get(row);
+        }
+
+        @Override public int size() {
+          return columns.length;
+        }
+      };
+    }
+
+    @Override public int size() {
+      return rowCount;
+    }
+  }
+
+  /** Values of a column of a decoded {@code ColumnarFrame}. */
+  private abstract static class Column {
+    private final BitSet nulls;
+
+    Column(BitSet nulls) {
+      this.nulls = nulls;
+    }
+
+    Object get(int row) {
+      return nulls.get(row) ? null : value(row);
+    }
+
+    /** Returns the value in a row that is not null. */
+    abstract Object value(int row);
+  }
+
+  /** Column of integers. */
+  private static class LongColumn extends Column {
+    private final Common.Rep type;
+    private final long[] values;
+
+    LongColumn(BitSet nulls, Common.Rep type, long[] values) {
+      super(nulls);
+      this.type = type;
+      this.values = values;
+    }
+
+    @Override Object value(int row) {
+      switch (type) {
+      case BYTE:
+        return (byte) values[row];
+      case SHORT:
+        return (short) values[row];
+      case INTEGER:
+        return (int) values[row];
+      default:
+        return values[row];
+      }
+    }
+  }
+
+  /** Column of floating-point numbers. */
+  private static class DoubleColumn extends Column {
+    private final Common.Rep type;
+    private final double[] values;
+
+    DoubleColumn(BitSet nulls, Common.Rep type, double[] values) {
+      super(nulls);
+      this.type = type;
+      this.values = values;
+    }
+
+    @Override Object value(int row) {
+      if (type == Common.Rep.FLOAT) {
+        return (float) values[row];
+      }
+      return values[row];
+    }
+  }
+
+  /** Column of booleans. */
+  private static class BooleanColumn extends Column {
+    private final boolean[] values;
+
+    BooleanColumn(BitSet nulls, boolean[] values) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override Object value(int row) {
+      return values[row];
+    }
+  }
+
+  /** Column whose values are codes into a dictionary of distinct values. */
+  private static class DictionaryColumn extends Column {
+    private final Object[] dictionary;
+    private final int[] codes;
+
+    DictionaryColumn(BitSet nulls, Object[] dictionary, int[] codes) {
+      super(nulls);
+      this.dictionary = dictionary;
+      this.codes = codes;
+    }
+
+    @Override Object value(int row) {
+      return dictionary[codes[row]];
+    }
+  }
+
+  /** Column of byte strings. */
+  private static class BytesColumn extends Column {
+    private final byte[][] values;
+
+    BytesColumn(BitSet nulls, byte[][] values) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override Object value(int row) {
+      return values[row];
+    }
+  }
+
+  /** Column whose values are all null. */
+  private static class NullColumn extends Column {
+    NullColumn(BitSet nulls) {
+      super(nulls);
+    }
+
+    @Override Object get(int row) {
+      return null;
+    }
+
+    @Override Object value(int row) {
+      return null;
+    }
+  }
+}
+
+// End ColumnarFrames.java
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.proto.Common;
+import org.apache.calcite.avatica.proto.Common.WireMessage;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto.Label;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto.Type;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+/**
+ * Protocol buffer messages for columnar frames: {@code ColumnarFrame} and
+ * {@code ColumnVector}, and the {@code ColumnarRequest} and
+ * {@code ColumnarResponse} that carry them.
+ *
+ * <p>The messages are declared in {@code common.proto},
+ * {@code requests.proto} and {@code responses.proto}. As in
+ * {@link PipelineMessages}, their descriptors are built here rather than
+ * generated by protoc.
+ *
+ * <p>The packed repeated fields of {@code ColumnVector}
+ * ({@code long_values}, {@code double_values}, {@code bool_values} and
+ * {@code codes}) are described here as {@code bytes} fields. On the wire a
+ * packed field is a length-delimited run of values, so the bytes are the
+ * same; {@link ColumnarFrames} reads and writes the values directly, without
+ * boxing each one.
+ */
+final class ColumnarMessages {
+  /** Name of the {@code ColumnarRequest} message in a
+   * {@link WireMessage}. */
+  static final String REQUEST_NAME =
+      "org.apache.calcite.avatica.proto.Requests$ColumnarRequest";
+
+  /** Name of the {@code ColumnarResponse} message in a
+   * {@link WireMessage}. */
+  static final String RESPONSE_NAME =
+      "org.apache.calcite.avatica.proto.Responses$ColumnarResponse";
+
+  private static final ByteString REQUEST_NAME_BYTES =
+      ByteString.copyFromUtf8(REQUEST_NAME);
+  private static final ByteString RESPONSE_NAME_BYTES =
+      ByteString.copyFromUtf8(RESPONSE_NAME);
+
+  static final Descriptor FRAME;
+  static final Descriptor VECTOR;
+  static final Descriptor REQUEST;
+  static final Descriptor RESPONSE;
+
+  /** {@code uint32 row_count = 1} in {@code ColumnarFrame} */
+  static final FieldDescriptor ROW_COUNT;
+  /** {@code repeated ColumnVector columns = 2} in {@code ColumnarFrame} */
+  static final FieldDescriptor COLUMNS;
+
+  /** {@code Rep type = 1} in {@code ColumnVector} */
+  static final FieldDescriptor TYPE;
+  /** {@code bytes nulls = 2} in {@code ColumnVector} */
+  static final FieldDescriptor NULLS;
+  /** {@code repeated sint64 long_values = 3} in {@code ColumnVector} */
+  static final FieldDescriptor LONG_VALUES;
+  /** {@code repeated double double_values = 4} in {@code ColumnVector} */
+  static final FieldDescriptor DOUBLE_VALUES;
+  /** {@code repeated bool bool_values = 5} in {@code ColumnVector} */
+  static final FieldDescriptor BOOL_VALUES;
+  /** {@code repeated string dictionary = 6} in {@code ColumnVector} */
+  static final FieldDescriptor DICTIONARY;
+  /** {@code repeated uint32 codes = 7} in {@code ColumnVector} */
+  static final FieldDescriptor CODES;
+  /** {@code repeated bytes bytes_values = 8} in {@code ColumnVector} */
+  static final FieldDescriptor BYTES_VALUES;
+
+  /** {@code WireMessage request = 1} in {@code ColumnarRequest} */
+  static final FieldDescriptor WRAPPED_REQUEST;
+  /** {@code WireMessage response = 1} in {@code ColumnarResponse} */
+  static final FieldDescriptor WRAPPED_RESPONSE;
+  /** {@code repeated ColumnarFrame frames = 2} in {@code ColumnarResponse} */
+  static final FieldDescriptor FRAMES;
+
+  static {
+    final FileDescriptorProto file = FileDescriptorProto.newBuilder()
+        .setName("columnar.proto")
+        .setSyntax("proto3")
+        .addDependency(Common.getDescriptor().getName())
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("ColumnarFrame")
+                .addField(field("row_count", 1, Label.LABEL_OPTIONAL, Type.TYPE_UINT32, null))
+                .addField(
+                    field("columns", 2, Label.LABEL_REPEATED, Type.TYPE_MESSAGE,
+                        ".ColumnVector")))
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("ColumnVector")
+                .addField(field("type", 1, Label.LABEL_OPTIONAL, Type.TYPE_ENUM, ".Rep"))
+                .addField(field("nulls", 2, Label.LABEL_OPTIONAL, Type.TYPE_BYTES, null))
+                .addField(field("long_values", 3, Label.LABEL_OPTIONAL, Type.TYPE_BYTES, null))
+                .addField(field("double_values", 4, Label.LABEL_OPTIONAL, Type.TYPE_BYTES, null))
+                .addField(field("bool_values", 5, Label.LABEL_OPTIONAL, Type.TYPE_BYTES, null))
+                .addField(field("dictionary", 6, Label.LABEL_REPEATED, Type.TYPE_STRING, null))
+                .addField(field("codes", 7, Label.LABEL_OPTIONAL, Type.TYPE_BYTES, null))
+                .addField(
+                    field("bytes_values", 8, Label.LABEL_REPEATED, Type.TYPE_BYTES, null)))
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("ColumnarRequest")
+                .addField(
+                    field("request", 1, Label.LABEL_OPTIONAL, Type.TYPE_MESSAGE,
+                        ".WireMessage")))
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("ColumnarResponse")
+                .addField(
+                    field("response", 1, Label.LABEL_OPTIONAL, Type.TYPE_MESSAGE,
+                        ".WireMessage"))
+                .addField(
+                    field("frames", 2, Label.LABEL_REPEATED, Type.TYPE_MESSAGE,
+                        ".ColumnarFrame")))
+        .build();
+    final FileDescriptor fileDescriptor;
+    try {
+      fileDescriptor = FileDescriptor.buildFrom(file,
+          new FileDescriptor[] {Common.getDescriptor()});
+    } catch (DescriptorValidationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+    FRAME = fileDescriptor.findMessageTypeByName("ColumnarFrame");
+    VECTOR = fileDescriptor.findMessageTypeByName("ColumnVector");
+    REQUEST = fileDescriptor.findMessageTypeByName("ColumnarRequest");
+    RESPONSE = fileDescriptor.findMessageTypeByName("ColumnarResponse");
+    ROW_COUNT = FRAME.findFieldByNumber(1);
+    COLUMNS = FRAME.findFieldByNumber(2);
+    TYPE = VECTOR.findFieldByNumber(1);
+    NULLS = VECTOR.findFieldByNumber(2);
+    LONG_VALUES = VECTOR.findFieldByNumber(3);
+    DOUBLE_VALUES = VECTOR.findFieldByNumber(4);
+    BOOL_VALUES = VECTOR.findFieldByNumber(5);
+    DICTIONARY = VECTOR.findFieldByNumber(6);
+    CODES = VECTOR.findFieldByNumber(7);
+    BYTES_VALUES = VECTOR.findFieldByNumber(8);
+    WRAPPED_REQUEST = REQUEST.findFieldByNumber(1);
+    WRAPPED_RESPONSE = RESPONSE.findFieldByNumber(1);
+    FRAMES = RESPONSE.findFieldByNumber(2);
+  }
+
+  private ColumnarMessages() {}
+
+  private static FieldDescriptorProto field(String name, int number,
+      Label label, Type type, String typeName) {
+    final FieldDescriptorProto.Builder builder = FieldDescriptorProto.newBuilder()
+        .setName(name)
+        .setNumber(number)
+        .setLabel(label)
+        .setType(type);
+    if (typeName != null) {
+      builder.setTypeName(typeName);
+    }
+    return builder.build();
+  }
+
+  /** Returns the name under which a message of the given type is wrapped
+   * in a {@link WireMessage}, or null if it is not a columnar request or
+   * response. */
+  static ByteString nameBytes(Descriptor descriptor) {
+    if (descriptor == REQUEST) {
+      return REQUEST_NAME_BYTES;
+    } else if (descriptor == RESPONSE) {
+      return RESPONSE_NAME_BYTES;
+    }
+    return null;
+  }
+}
+
+// End ColumnarMessages.java
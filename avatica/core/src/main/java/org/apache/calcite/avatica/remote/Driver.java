@@ -95,7 +95,8 @@ protected DriverVersion createDriverVersion() {
     // Create a single Service and set it on the Connection instance
     final Service service = createService(connection, config);
     connection.setService(service);
-    return new RemoteMeta(connection, service);
+    return new RemoteMeta(connection, service, config.prefetchFrames(),
+        config.pipeline());
   }
 
   KerberosConnection createKerberosUtility(ConnectionConfig config) {
@@ -128,7 +129,8 @@ Service createService(AvaticaConnection connection, ConnectionConfig config) {
         service = new RemoteService(httpClient);
         break;
       case PROTOBUF:
-        service = new RemoteProtobufService(httpClient, new ProtobufTranslationImpl());
+        service = new RemoteProtobufService(httpClient, new ProtobufTranslationImpl(),
+            config.columnar());
         break;
       default:
         throw new IllegalArgumentException("Unhandled serialization type: " + serializationType);
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.AvaticaStatement;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.apache.calcite.avatica.MissingResultsException;
+import org.apache.calcite.avatica.NoSuchStatementException;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the frames of a result set on a background thread, ahead of the
+ * consumer, so that the round-trip for frame N+1 overlaps with the
+ * processing of frame N.
+ *
+ * <p>The frames waiting for the consumer hold at most {@code maxRows} rows,
+ * plus one frame: once that many rows are waiting, the background thread
+ * waits until the consumer takes a frame. The bound is in rows, not bytes,
+ * because a frame arrives already decoded; the size of a row is that of its
+ * values, which the caller knows better than the prefetcher.
+ *
+ * <p>If the consumer takes nothing for {@link #IDLE_MILLIS} while the
+ * background thread is waiting (for example because the application dropped
+ * its result set without closing it), the background thread stops, so that
+ * it is not pinned forever. The frames it has fetched remain available to
+ * {@link #next(long)}; after them, {@code next} returns null, and the
+ * caller fetches synchronously from where the prefetcher stopped. The owner
+ * must still {@link #close()} the prefetcher, when the statement or its
+ * connection is closed, to release those frames.
+ *
+ * <p>The consumer must ask for frames in order, by offset. If it asks for an
+ * offset that the prefetcher is not positioned at (for example because the
+ * statement was reset), {@link #next(long)} returns null and the caller
+ * should {@link #close()} the prefetcher and fetch synchronously.
+ */
+class FramePrefetcher implements Runnable {
+  /** How long, in milliseconds, the background thread waits for the
+   * consumer to take a frame before it stops. */
+  static final long IDLE_MILLIS = 60000;
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+              final Thread thread =
+                  new Thread(r, "avatica-prefetch-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+  private final FrameSource source;
+  private final int fetchMaxRowCount;
+  private final long maxRows;
+  private final long idleNanos;
+  private final long firstOffset;
+
+  // Guarded by "this"
+  private final Deque<Result> queue = new ArrayDeque<>();
+  private long queuedRows;
+  private long lastTakenNanos;
+  private boolean closed;
+  private boolean stopped;
+
+  // Accessed only by the consumer thread
+  private long nextOffset;
+  private boolean exhausted;
+
+  FramePrefetcher(FrameSource source, long offset, int fetchMaxRowCount,
+      long maxRows, long idleMillis) {
+    this.source = source;
+    this.firstOffset = offset;
+    this.nextOffset = offset;
+    this.fetchMaxRowCount = fetchMaxRowCount;
+    this.maxRows = maxRows;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    this.lastTakenNanos = System.nanoTime();
+  }
+
+  /** Creates a prefetcher that holds up to {@code frames} frames' worth of
+   * rows, and starts it on a background thread. */
+  static FramePrefetcher start(FrameSource source, long offset,
+      int fetchMaxRowCount, int frames) {
+    return start(source, offset, fetchMaxRowCount,
+        maxRows(frames, fetchMaxRowCount), IDLE_MILLIS);
+  }
+
+  static FramePrefetcher start(FrameSource source, long offset,
+      int fetchMaxRowCount, long maxRows, long idleMillis) {
+    final FramePrefetcher prefetcher =
+        new FramePrefetcher(source, offset, fetchMaxRowCount, maxRows,
+            idleMillis);
+    EXECUTOR.execute(prefetcher);
+    return prefetcher;
+  }
+
+  /** Returns the number of rows in {@code frames} frames of up to
+   * {@code fetchMaxRowCount} rows each. */
+  static long maxRows(int frames, int fetchMaxRowCount) {
+    return (long) frames
+        * (fetchMaxRowCount > 0 ? fetchMaxRowCount
+            : AvaticaStatement.DEFAULT_FETCH_SIZE);
+  }
+
+  public void run() {
+    long offset = firstOffset;
+    try {
+      for (;;) {
+        if (!awaitRoom()) {
+          break;
+        }
+        Result result;
+        try {
+          result = new Result(source.fetch(offset, fetchMaxRowCount), null);
+        } catch (Exception e) {
+          result = new Result(null, e);
+        }
+        synchronized (this) {
+          if (closed) {
+            break;
+          }
+          queue.add(result);
+          queuedRows += result.rowCount;
+          notifyAll();
+        }
+        if (result.isLast()) {
+          break;
+        }
+        offset += result.rowCount;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (this) {
+        stopped = true;
+        notifyAll();
+      }
+    }
+  }
+
+  /** Waits until there is room for another frame. Returns false if the
+   * prefetcher has been closed, or if the consumer has taken nothing for
+   * {@link #IDLE_MILLIS}. */
+  private synchronized boolean awaitRoom() throws InterruptedException {
+    while (!closed && queuedRows >= maxRows) {
+      final long remaining = lastTakenNanos + idleNanos - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+    return !closed;
+  }
+
+  /** Returns the frame that starts at {@code offset}, waiting for it to
+   * arrive if necessary; or null if this prefetcher is not positioned at
+   * {@code offset} or has nothing more to give. */
+  Frame next(long offset)
+      throws NoSuchStatementException, MissingResultsException {
+    if (exhausted || offset != nextOffset) {
+      return null;
+    }
+    final Result result;
+    synchronized (this) {
+      try {
+        while (queue.isEmpty() && !stopped) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      result = queue.poll();
+      if (result == null) {
+        // The background thread stopped before the end of the result set
+        return null;
+      }
+      queuedRows -= result.rowCount;
+      lastTakenNanos = System.nanoTime();
+      notifyAll();
+    }
+    if (result.isLast()) {
+      exhausted = true;
+    }
+    if (result.e != null) {
+      if (result.e instanceof NoSuchStatementException) {
+        throw (NoSuchStatementException) result.e;
+      } else if (result.e instanceof MissingResultsException) {
+        throw (MissingResultsException) result.e;
+      } else if (result.e instanceof RuntimeException) {
+        throw (RuntimeException) result.e;
+      }
+      throw new RuntimeException(result.e);
+    }
+    nextOffset += result.rowCount;
+    return result.frame;
+  }
+
+  /** Returns whether the last frame has been handed to the consumer. */
+  boolean isExhausted() {
+    return exhausted;
+  }
+
+  /** Returns whether the background thread has finished. */
+  synchronized boolean isStopped() {
+    return stopped;
+  }
+
+  /** Stops fetching, discards the frames that are waiting, and waits for any
+   * request that is in flight to complete, so that the caller can safely
+   * issue other requests against the same statement. */
+  synchronized void close() {
+    closed = true;
+    queue.clear();
+    queuedRows = 0;
+    notifyAll();
+    try {
+      while (!stopped) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  static long rowCount(Frame frame) {
+    if (frame.rows instanceof Collection) {
+      return ((Collection) frame.rows).size();
+    }
+    long count = 0;
+    for (Object ignored : frame.rows) {
+      ++count;
+    }
+    return count;
+  }
+
+  /** Fetches a frame; typically a call to {@link RemoteMeta#fetch}. */
+  interface FrameSource {
+    Frame fetch(long offset, int fetchMaxRowCount)
+        throws NoSuchStatementException, MissingResultsException;
+  }
+
+  /** Outcome of fetching one frame: either a frame or an exception. */
+  private static class Result {
+    final Frame frame;
+    final Exception e;
+    final long rowCount;
+
+    Result(Frame frame, Exception e) {
+      this.frame = frame;
+      this.e = e;
+      this.rowCount = frame == null ? 0 : rowCount(frame);
+    }
+
+    boolean isLast() {
+      return e != null || frame == null || frame.done;
+    }
+  }
+}
+
+// End FramePrefetcher.java
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.AvaticaUtils;
+import org.apache.calcite.avatica.util.UnsynchronizedBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utilities for compressing the bodies of Avatica HTTP requests and
+ * responses.
+ *
+ * <p>Compression is negotiated using the standard HTTP headers: a client
+ * advertises that it can decode a compressed response with
+ * {@code Accept-Encoding: gzip}, and either side marks a compressed body with
+ * {@code Content-Encoding: gzip}. A server advertises that it can decode a
+ * compressed request by sending {@code Accept-Encoding: gzip} in its
+ * responses (RFC 7694), and a client compresses its requests only after it
+ * has received such a response on the same connection. Peers that do not
+ * send the headers keep exchanging uncompressed bodies, so old clients and
+ * servers are unaffected.
+ */
+public class HttpCompression {
+  /** Name of the HTTP header that describes the encoding of a body. */
+  public static final String CONTENT_ENCODING = "Content-Encoding";
+
+  /** Name of the HTTP header that lists the encodings a client accepts. */
+  public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+  /** Name of the HTTP header that lists the request headers that a response
+   * depends on. */
+  public static final String VARY = "Vary";
+
+  /** The only encoding currently supported. */
+  public static final String GZIP = "gzip";
+
+  /** System property that sets the minimum size, in bytes, of a response
+   * body before the server compresses it. A negative value disables
+   * response compression. */
+  public static final String RESPONSE_THRESHOLD_KEY =
+      "avatica.http.response.compression.threshold";
+
+  /** System property that sets the minimum size, in bytes, of a request
+   * body before the client compresses it. The client compresses requests
+   * only if the server has said that it accepts them. A negative value
+   * disables request compression. */
+  public static final String REQUEST_THRESHOLD_KEY =
+      "avatica.http.request.compression.threshold";
+
+  /** Default value of {@link #RESPONSE_THRESHOLD_KEY}. Bodies smaller than
+   * this rarely shrink enough to be worth the CPU. */
+  public static final int DEFAULT_RESPONSE_THRESHOLD = 1024;
+
+  /** Default value of {@link #REQUEST_THRESHOLD_KEY}. */
+  public static final int DEFAULT_REQUEST_THRESHOLD = 1024;
+
+  private HttpCompression() {}
+
+  /** Returns the response compression threshold configured via system
+   * properties. */
+  public static int responseThreshold() {
+    return Integer.getInteger(RESPONSE_THRESHOLD_KEY, DEFAULT_RESPONSE_THRESHOLD);
+  }
+
+  /** Returns the request compression threshold configured via system
+   * properties. */
+  public static int requestThreshold() {
+    return Integer.getInteger(REQUEST_THRESHOLD_KEY, DEFAULT_REQUEST_THRESHOLD);
+  }
+
+  /** Returns whether a body of the given length should be compressed, given
+   * a threshold; a negative threshold means never. */
+  public static boolean shouldCompress(int length, int threshold) {
+    return threshold >= 0 && length >= threshold;
+  }
+
+  /** Returns whether the value of an {@code Accept-Encoding} header allows a
+   * gzip-encoded body. */
+  public static boolean acceptsGzip(String acceptEncoding) {
+    if (null == acceptEncoding) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      // Strip any quality value, e.g. "gzip;q=0.8"; "q=0" means refused.
+      final int semicolon = coding.indexOf(';');
+      if (semicolon >= 0) {
+        if (quality(coding.substring(semicolon + 1)) <= 0D) {
+          continue;
+        }
+        coding = coding.substring(0, semicolon);
+      }
+      if (coding.trim().equalsIgnoreCase(GZIP)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double quality(String parameter) {
+    final String p = parameter.trim();
+    if (!p.startsWith("q=")) {
+      return 1D;
+    }
+    try {
+      return Double.parseDouble(p.substring(2));
+    } catch (NumberFormatException e) {
+      return 0D;
+    }
+  }
+
+  /** Returns whether the value of a {@code Content-Encoding} header says the
+   * body is gzip-encoded. */
+  public static boolean isGzip(String contentEncoding) {
+    return null != contentEncoding && contentEncoding.trim().equalsIgnoreCase(GZIP);
+  }
+
+  /** Wraps a stream so that it is decompressed if the
+   * {@code Content-Encoding} requires it. */
+  public static InputStream decode(String contentEncoding, InputStream inputStream)
+      throws IOException {
+    if (isGzip(contentEncoding)) {
+      return new GZIPInputStream(inputStream);
+    }
+    return inputStream;
+  }
+
+  /** Compresses an array of bytes using gzip. */
+  public static byte[] gzip(byte[] bytes) {
+    // Compressed output is usually much smaller than the input
+    final UnsynchronizedBuffer buffer = new UnsynchronizedBuffer(
+        Math.max(64, bytes.length / 4));
+    try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      // UnsynchronizedBuffer does not throw
+      throw new RuntimeException(e);
+    }
+    return buffer.toArray();
+  }
+
+  /** Decompresses an array of gzip-encoded bytes. */
+  public static byte[] gunzip(byte[] bytes) {
+    try (InputStream inputStream =
+             new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return AvaticaUtils.readFullyToBytes(inputStream);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
+
+// End HttpCompression.java
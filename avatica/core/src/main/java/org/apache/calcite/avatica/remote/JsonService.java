@@ -238,6 +238,14 @@ public ExecuteBatchResponse apply(ExecuteBatchRequest request) {
       throw handle(e);
     }
   }
+
+  public PipelinedResponse apply(PipelinedRequest request) {
+    try {
+      return finagle(decode(apply(encode(request)), PipelinedResponse.class));
+    } catch (IOException e) {
+      throw handle(e);
+    }
+  }
 }
 
 // End JsonService.java
@@ -385,6 +385,27 @@ public ExecuteBatchResponse apply(ExecuteBatchRequest request) {
           serverLevelRpcMetadata);
     }
   }
+
+  public PipelinedResponse apply(PipelinedRequest request) {
+    for (Request r : request.requests) {
+      if (r instanceof PipelinedRequest) {
+        throw new IllegalArgumentException("Pipelined requests cannot be nested");
+      }
+    }
+    final List<Response> responses = new ArrayList<>(request.requests.size());
+    for (Request r : request.requests) {
+      try {
+        responses.add(r.accept(this));
+      } catch (Exception e) {
+        // The requests before this one have taken effect; return their
+        // responses with the error, and skip the rest.
+        return new PipelinedResponse(responses,
+            AbstractHandler.unwrapException(e, serverLevelRpcMetadata),
+            serverLevelRpcMetadata);
+      }
+    }
+    return new PipelinedResponse(responses, null, serverLevelRpcMetadata);
+  }
 }
 
 // End LocalService.java
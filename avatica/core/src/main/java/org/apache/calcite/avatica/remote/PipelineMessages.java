@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.proto.Common;
+import org.apache.calcite.avatica.proto.Common.WireMessage;
+import org.apache.calcite.avatica.proto.Responses;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+/**
+ * Protocol buffer messages for {@link Service.PipelinedRequest} and
+ * {@link Service.PipelinedResponse}.
+ *
+ * <p>The messages are declared in {@code requests.proto} and
+ * {@code responses.proto}. Their descriptors are built here, when the class
+ * is loaded, rather than generated by protoc, and instances are
+ * {@code DynamicMessage}s. The bytes on the wire are the same.
+ */
+final class PipelineMessages {
+  /** Name of the {@code PipelinedRequest} message in a {@link WireMessage};
+   * the name of the class that protoc generates for it. */
+  static final String REQUEST_NAME =
+      "org.apache.calcite.avatica.proto.Requests$PipelinedRequest";
+
+  /** Name of the {@code PipelinedResponse} message in a
+   * {@link WireMessage}. */
+  static final String RESPONSE_NAME =
+      "org.apache.calcite.avatica.proto.Responses$PipelinedResponse";
+
+  private static final ByteString REQUEST_NAME_BYTES =
+      ByteString.copyFromUtf8(REQUEST_NAME);
+  private static final ByteString RESPONSE_NAME_BYTES =
+      ByteString.copyFromUtf8(RESPONSE_NAME);
+
+  static final Descriptor REQUEST;
+  static final Descriptor RESPONSE;
+
+  /** {@code repeated WireMessage requests = 1} */
+  static final FieldDescriptor REQUESTS;
+  /** {@code repeated WireMessage responses = 1} */
+  static final FieldDescriptor RESPONSES;
+  /** {@code ErrorResponse error = 2} */
+  static final FieldDescriptor ERROR;
+  /** {@code RpcMetadata metadata = 3} */
+  static final FieldDescriptor METADATA;
+
+  static {
+    final FileDescriptorProto file = FileDescriptorProto.newBuilder()
+        .setName("pipeline.proto")
+        .setSyntax("proto3")
+        .addDependency(Common.getDescriptor().getName())
+        .addDependency(Responses.getDescriptor().getName())
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("PipelinedRequest")
+                .addField(
+                    field("requests", 1, FieldDescriptorProto.Label.LABEL_REPEATED,
+                        ".WireMessage")))
+        .addMessageType(
+            DescriptorProto.newBuilder()
+                .setName("PipelinedResponse")
+                .addField(
+                    field("responses", 1, FieldDescriptorProto.Label.LABEL_REPEATED,
+                        ".WireMessage"))
+                .addField(
+                    field("error", 2, FieldDescriptorProto.Label.LABEL_OPTIONAL,
+                        ".ErrorResponse"))
+                .addField(
+                    field("metadata", 3, FieldDescriptorProto.Label.LABEL_OPTIONAL,
+                        ".RpcMetadata")))
+        .build();
+    final FileDescriptor fileDescriptor;
+    try {
+      fileDescriptor = FileDescriptor.buildFrom(file,
+          new FileDescriptor[] {Common.getDescriptor(), Responses.getDescriptor()});
+    } catch (DescriptorValidationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+    REQUEST = fileDescriptor.findMessageTypeByName("PipelinedRequest");
+    RESPONSE = fileDescriptor.findMessageTypeByName("PipelinedResponse");
+    REQUESTS = REQUEST.findFieldByNumber(1);
+    RESPONSES = RESPONSE.findFieldByNumber(1);
+    ERROR = RESPONSE.findFieldByNumber(2);
+    METADATA = RESPONSE.findFieldByNumber(3);
+  }
+
+  private PipelineMessages() {}
+
+  private static FieldDescriptorProto field(String name, int number,
+      FieldDescriptorProto.Label label, String typeName) {
+    return FieldDescriptorProto.newBuilder()
+        .setName(name)
+        .setNumber(number)
+        .setLabel(label)
+        .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+        .setTypeName(typeName)
+        .build();
+  }
+
+  /** Returns the name under which a message of the given type is wrapped
+   * in a {@link WireMessage}, or null if it is not a pipeline message. */
+  static ByteString nameBytes(Descriptor descriptor) {
+    if (descriptor == REQUEST) {
+      return REQUEST_NAME_BYTES;
+    } else if (descriptor == RESPONSE) {
+      return RESPONSE_NAME_BYTES;
+    }
+    return null;
+  }
+}
+
+// End PipelineMessages.java
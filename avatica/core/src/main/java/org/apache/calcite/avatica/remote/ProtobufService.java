@@ -117,6 +117,10 @@ public abstract class ProtobufService extends AbstractService {
     return (ExecuteBatchResponse) _apply(request);
   }
 
+  @Override public PipelinedResponse apply(PipelinedRequest request) {
+    return finagle((PipelinedResponse) _apply(request));
+  }
+
   /**
    * Checks if the provided {@link Message} is an instance of the Class given by
    * <code>expectedType</code>. Throws an IllegalArgumentException if the message is not of the
@@ -61,8 +61,13 @@
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.HBaseZeroCopyByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
 import com.google.protobuf.TextFormat;
 
 import org.slf4j.Logger;
@@ -140,6 +145,12 @@ public class ProtobufTranslationImpl implements ProtobufTranslation {
     reqParsers.put(ExecuteBatchRequest.class.getName(),
         new RequestTranslator(ExecuteBatchRequest.parser(),
             new Service.ExecuteBatchRequest()));
+    reqParsers.put(PipelineMessages.REQUEST_NAME,
+        new RequestTranslator(dynamicParser(PipelineMessages.REQUEST),
+            new Service.PipelinedRequest()));
+    reqParsers.put(ColumnarMessages.REQUEST_NAME,
+        new RequestTranslator(dynamicParser(ColumnarMessages.REQUEST),
+            new ColumnarFrames.ColumnarRequest()));
 
     REQUEST_PARSERS = Collections.unmodifiableMap(reqParsers);
 
@@ -182,6 +193,12 @@ public class ProtobufTranslationImpl implements ProtobufTranslation {
         new ResponseTranslator(RollbackResponse.parser(), new Service.RollbackResponse()));
     respParsers.put(ExecuteBatchResponse.class.getName(),
         new ResponseTranslator(ExecuteBatchResponse.parser(), new Service.ExecuteBatchResponse()));
+    respParsers.put(PipelineMessages.RESPONSE_NAME,
+        new ResponseTranslator(dynamicParser(PipelineMessages.RESPONSE),
+            new Service.PipelinedResponse()));
+    respParsers.put(ColumnarMessages.RESPONSE_NAME,
+        new ResponseTranslator(dynamicParser(ColumnarMessages.RESPONSE),
+            new ColumnarFrames.ColumnarResponse()));
 
     RESPONSE_PARSERS = Collections.unmodifiableMap(respParsers);
 
@@ -330,14 +347,61 @@ void serializeMessage(OutputStream out, Message msg) throws IOException {
     }
 
     // Wrap the serialized message in a WireMessage
-    WireMessage wireMsg = WireMessage.newBuilder().setNameBytes(getClassNameBytes(msg.getClass()))
+    WireMessage wireMsg = WireMessage.newBuilder().setNameBytes(getNameBytes(msg))
         .setWrappedMessage(serializedMsg).build();
 
     // Write the WireMessage to the provided OutputStream
     wireMsg.writeTo(out);
   }
 
-  ByteString getClassNameBytes(Class<?> clz) {
+  /** Wraps a message in a {@link WireMessage}, as a request or response is
+   * wrapped inside a pipelined request or response. */
+  static WireMessage wrap(Message msg) {
+    return WireMessage.newBuilder().setNameBytes(getNameBytes(msg))
+        .setWrappedMessage(msg.toByteString()).build();
+  }
+
+  private static ByteString getNameBytes(Message msg) {
+    ByteString byteString = PipelineMessages.nameBytes(msg.getDescriptorForType());
+    if (null == byteString) {
+      byteString = ColumnarMessages.nameBytes(msg.getDescriptorForType());
+    }
+    if (null != byteString) {
+      return byteString;
+    }
+    return getClassNameBytes(msg.getClass());
+  }
+
+  /** Returns a parser for messages of a type whose descriptor is built at
+   * runtime, such as those in {@link PipelineMessages} and
+   * {@link ColumnarMessages}. */
+  static Parser<DynamicMessage> dynamicParser(Descriptor descriptor) {
+    return DynamicMessage.getDefaultInstance(descriptor).getParserForType();
+  }
+
+  /** Checks that a message is of the given type, and returns it. */
+  static DynamicMessage cast(Message msg, Descriptor descriptor) {
+    if (!(msg instanceof DynamicMessage)
+        || msg.getDescriptorForType() != descriptor) {
+      throw new IllegalArgumentException("Expected instance of "
+          + descriptor.getFullName() + ", but got "
+          + msg.getDescriptorForType().getFullName());
+    }
+    return (DynamicMessage) msg;
+  }
+
+  /** Converts the value of a message field of a {@link DynamicMessage},
+   * which is itself a {@link DynamicMessage} once parsed, to the generated
+   * class. */
+  static <T extends Message> T convert(Object value, Parser<T> parser) {
+    try {
+      return parser.parseFrom(((MessageLite) value).toByteString());
+    } catch (InvalidProtocolBufferException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static ByteString getClassNameBytes(Class<?> clz) {
     ByteString byteString = MESSAGE_CLASSES.get(clz);
     if (null == byteString) {
       throw new IllegalArgumentException("Missing ByteString for " + clz.getName());
@@ -33,19 +33,72 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of {@link org.apache.calcite.avatica.Meta} for the remote
  * driver.
  */
 class RemoteMeta extends MetaImpl {
+  /** When pipelining, the number of closed statements that may wait for the
+   * next request; once this many are waiting, they are sent at once. */
+  static final int MAX_PENDING_CLOSES = 16;
+
+  /** When pipelining, the longest time, in milliseconds, that a closed
+   * statement waits for the next request before its close is sent on its
+   * own. */
+  static final long PENDING_CLOSE_MILLIS = 1000;
+
+  private static final ScheduledExecutorService CLOSE_TIMER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+              final Thread thread = new Thread(r, "avatica-close");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
   final Service service;
   final Map<String, ConnectionPropertiesImpl> propsMap = new HashMap<>();
   private Map<DatabaseProperty, Object> databaseProperties;
 
+  /** Maximum number of frames to fetch ahead of the consumer; 0 disables
+   * prefetching. */
+  final int prefetchFrames;
+
+  /** Active prefetchers, keyed by statement id. */
+  private final Map<Integer, FramePrefetcher> prefetchers = new HashMap<>();
+
+  /** Whether to combine requests into a {@link Service.PipelinedRequest}. */
+  final boolean pipeline;
+
+  /** When pipelining, statements that have been closed but whose
+   * {@link Service.CloseStatementRequest} has not been sent yet; they are
+   * sent after the next request, or by {@link #flushCloses()} if there is
+   * no request within {@link #PENDING_CLOSE_MILLIS} or if
+   * {@link #MAX_PENDING_CLOSES} are waiting. */
+  private final List<Service.CloseStatementRequest> pendingCloses =
+      new ArrayList<>();
+
+  /** Task that will call {@link #flushCloses()}, or null if there are no
+   * pending closes. Guarded by {@link #pendingCloses}. */
+  private ScheduledFuture<?> flushTask;
+
   public RemoteMeta(AvaticaConnection connection, Service service) {
+    this(connection, service, 0, false);
+  }
+
+  public RemoteMeta(AvaticaConnection connection, Service service,
+      int prefetchFrames, boolean pipeline) {
     super(connection);
     this.service = service;
+    this.prefetchFrames = prefetchFrames;
+    this.pipeline = pipeline;
   }
 
   private MetaResultSet toResultSet(Class clazz,
@@ -84,15 +137,30 @@ private MetaResultSet toResultSet(Class clazz,
         new CallableWithoutException<StatementHandle>() {
           public StatementHandle call() {
             // sync connection state if necessary
-            connectionSync(ch, new ConnectionPropertiesImpl());
             final Service.CreateStatementResponse response =
-                service.apply(new Service.CreateStatementRequest(ch.id));
+                (Service.CreateStatementResponse) send(ch, true,
+                    new Service.CreateStatementRequest(ch.id));
             return new StatementHandle(response.connectionId, response.statementId, null);
           }
         });
   }
 
   @Override public void closeStatement(final StatementHandle h) {
+    closePrefetcher(h);
+    if (pipeline) {
+      final boolean full;
+      synchronized (pendingCloses) {
+        pendingCloses.add(new Service.CloseStatementRequest(h.connectionId, h.id));
+        full = pendingCloses.size() >= MAX_PENDING_CLOSES;
+        if (!full) {
+          scheduleFlush();
+        }
+      }
+      if (full) {
+        flushCloses();
+      }
+      return;
+    }
     connection.invokeWithRetries(
         new CallableWithoutException<Void>() {
           public Void call() {
@@ -116,6 +184,9 @@ public Void call() {
   }
 
   @Override public void closeConnection(final ConnectionHandle ch) {
+    closeAllPrefetchers();
+    // The server closes the connection's statements with it
+    takePendingCloses();
     connection.invokeWithRetries(
         new CallableWithoutException<Void>() {
           public Void call() {
@@ -132,12 +203,7 @@ public Void call() {
     return connection.invokeWithRetries(
         new CallableWithoutException<ConnectionProperties>() {
           public ConnectionProperties call() {
-            ConnectionPropertiesImpl localProps = propsMap.get(ch.id);
-            if (localProps == null) {
-              localProps = new ConnectionPropertiesImpl();
-              localProps.setDirty(true);
-              propsMap.put(ch.id, localProps);
-            }
+            final ConnectionPropertiesImpl localProps = localProps(ch);
 
             // Only make an RPC if necessary. RPC is necessary when we have local changes that need
             // flushed to the server (be sure to introduce any new changes from connProps before
@@ -155,6 +221,139 @@ public ConnectionProperties call() {
         });
   }
 
+  private ConnectionPropertiesImpl localProps(ConnectionHandle ch) {
+    ConnectionPropertiesImpl localProps = propsMap.get(ch.id);
+    if (localProps == null) {
+      localProps = new ConnectionPropertiesImpl();
+      localProps.setDirty(true);
+      propsMap.put(ch.id, localProps);
+    }
+    return localProps;
+  }
+
+  /** Sends a request to the server, and returns its response.
+   *
+   * <p>If {@code sync}, first sends any local changes to the connection's
+   * properties. If {@link #pipeline} is set, those changes, the request and
+   * the statements closed since the last request go to the server in a
+   * single {@link Service.PipelinedRequest}; otherwise each is a separate
+   * round trip. */
+  private Service.Response send(ConnectionHandle ch, boolean sync,
+      Service.Request request) {
+    if (!pipeline) {
+      if (sync) {
+        connectionSync(ch, new ConnectionPropertiesImpl());
+      }
+      return request.accept(service);
+    }
+    final List<Service.Request> requests = new ArrayList<>();
+    if (sync) {
+      final ConnectionPropertiesImpl localProps = localProps(ch);
+      if (localProps.isDirty()) {
+        requests.add(new Service.ConnectionSyncRequest(ch.id, localProps));
+      }
+    }
+    final int index = requests.size();
+    requests.add(request);
+    final List<Service.CloseStatementRequest> closes = takePendingCloses();
+    requests.addAll(closes);
+    if (requests.size() == 1) {
+      return request.accept(service);
+    }
+
+    final Service.PipelinedResponse response;
+    try {
+      response = service.apply(new Service.PipelinedRequest(requests));
+    } catch (RuntimeException e) {
+      requeue(closes);
+      throw e;
+    }
+    final List<Service.Response> responses = response.responses;
+    if (index > 0 && responses.size() > 0) {
+      final Service.ConnectionSyncResponse syncResponse =
+          (Service.ConnectionSyncResponse) responses.get(0);
+      propsMap.put(ch.id, (ConnectionPropertiesImpl) syncResponse.connProps);
+    }
+    if (responses.size() <= index) {
+      // The request did not execute, nor did the closes after it
+      requeue(closes);
+      throw response.error.toException();
+    }
+    if (response.error != null) {
+      // A close failed; the request succeeded, so return its response. Try
+      // again to close the statements after the one that failed.
+      requeue(closes.subList(responses.size() - index, closes.size()));
+    }
+    return responses.get(index);
+  }
+
+  /** Removes and returns the pending closes, and cancels the task that
+   * would have sent them. */
+  private List<Service.CloseStatementRequest> takePendingCloses() {
+    synchronized (pendingCloses) {
+      final List<Service.CloseStatementRequest> closes =
+          new ArrayList<>(pendingCloses);
+      pendingCloses.clear();
+      if (flushTask != null) {
+        flushTask.cancel(false);
+        flushTask = null;
+      }
+      return closes;
+    }
+  }
+
+  private void requeue(List<Service.CloseStatementRequest> closes) {
+    synchronized (pendingCloses) {
+      pendingCloses.addAll(0, closes);
+      if (!pendingCloses.isEmpty()) {
+        scheduleFlush();
+      }
+    }
+  }
+
+  /** Ensures that the pending closes are sent within
+   * {@link #PENDING_CLOSE_MILLIS}. Caller must hold {@link #pendingCloses}. */
+  private void scheduleFlush() {
+    if (flushTask == null) {
+      flushTask = CLOSE_TIMER.schedule(
+          new Runnable() {
+            public void run() {
+              try {
+                flushCloses();
+              } catch (RuntimeException e) {
+                // Nobody is waiting for these closes. The statements stay
+                // open on the server until their connection is closed.
+              }
+            }
+          }, PENDING_CLOSE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Sends the pending closes now, in a request of their own.
+   *
+   * <p>Unlike other requests, does not re-open a connection that the server
+   * has lost; its statements are gone with it. */
+  void flushCloses() {
+    final List<Service.CloseStatementRequest> closes = takePendingCloses();
+    if (closes.isEmpty()) {
+      return;
+    }
+    if (closes.size() == 1) {
+      service.apply(closes.get(0));
+      return;
+    }
+    final Service.PipelinedResponse response =
+        service.apply(
+            new Service.PipelinedRequest(new ArrayList<Service.Request>(closes)));
+    if (response.error != null) {
+      // Try again to close the statements after the one that failed
+      requeue(
+          closes.subList(Math.min(response.responses.size() + 1, closes.size()),
+              closes.size()));
+      throw response.error.toException();
+    }
+  }
+
   @Override public MetaResultSet getCatalogs(final ConnectionHandle ch) {
     return connection.invokeWithRetries(
         new CallableWithoutException<MetaResultSet>() {
@@ -234,10 +433,10 @@ public MetaResultSet call() {
     return connection.invokeWithRetries(
         new CallableWithoutException<StatementHandle>() {
           public StatementHandle call() {
-            connectionSync(ch,
-                new ConnectionPropertiesImpl()); // sync connection state if necessary
-            final Service.PrepareResponse response = service.apply(
-                new Service.PrepareRequest(ch.id, sql, maxRowCount));
+            // sync connection state if necessary
+            final Service.PrepareResponse response =
+                (Service.PrepareResponse) send(ch, true,
+                    new Service.PrepareRequest(ch.id, sql, maxRowCount));
             return response.statement;
           }
         });
@@ -251,17 +450,18 @@ public StatementHandle call() {
   @Override public ExecuteResult prepareAndExecute(final StatementHandle h, final String sql,
       final long maxRowCount, int maxRowsInFirstFrame, final PrepareCallback callback)
       throws NoSuchStatementException {
+    closePrefetcher(h);
     try {
       return connection.invokeWithRetries(
           new CallableWithoutException<ExecuteResult>() {
             public ExecuteResult call() {
-              // sync connection state if necessary
-              connectionSync(new ConnectionHandle(h.connectionId), new ConnectionPropertiesImpl());
               final Service.ExecuteResponse response;
               try {
                 synchronized (callback.getMonitor()) {
                   callback.clear();
-                  response = service.apply(
+                  // sync connection state if necessary
+                  response = (Service.ExecuteResponse) send(
+                      new ConnectionHandle(h.connectionId), true,
                       new Service.PrepareAndExecuteRequest(h.connectionId,
                           h.id, sql, maxRowCount));
                   if (response.missingStatement) {
@@ -295,6 +495,85 @@ public ExecuteResult call() {
 
   @Override public Frame fetch(final StatementHandle h, final long offset,
       final int fetchMaxRowCount) throws NoSuchStatementException, MissingResultsException {
+    if (prefetchFrames <= 0) {
+      return fetchNow(h, offset, fetchMaxRowCount);
+    }
+    final FramePrefetcher prefetcher;
+    synchronized (prefetchers) {
+      prefetcher = prefetchers.get(h.id);
+    }
+    if (prefetcher != null) {
+      final Frame frame;
+      try {
+        frame = prefetcher.next(offset);
+      } catch (NoSuchStatementException | MissingResultsException | RuntimeException e) {
+        // The caller will recover (say by re-executing) and start again.
+        closePrefetcher(h);
+        throw e;
+      }
+      if (frame != null) {
+        if (prefetcher.isExhausted()) {
+          closePrefetcher(h);
+        }
+        return frame;
+      }
+      // The consumer moved somewhere we did not expect, or the prefetcher
+      // stopped because the consumer was idle; carry on from here.
+      closePrefetcher(h);
+    }
+    final Frame frame = fetchNow(h, offset, fetchMaxRowCount);
+    if (frame != null && !frame.done) {
+      startPrefetcher(h, offset + FramePrefetcher.rowCount(frame), fetchMaxRowCount);
+    }
+    return frame;
+  }
+
+  private void startPrefetcher(final StatementHandle h, long offset,
+      int fetchMaxRowCount) {
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(
+            new FramePrefetcher.FrameSource() {
+              public Frame fetch(long nextOffset, int maxRowCount)
+                  throws NoSuchStatementException, MissingResultsException {
+                return fetchNow(h, nextOffset, maxRowCount);
+              }
+            }, offset, fetchMaxRowCount, prefetchFrames);
+    final FramePrefetcher previous;
+    synchronized (prefetchers) {
+      previous = prefetchers.put(h.id, prefetcher);
+    }
+    if (previous != null) {
+      previous.close();
+    }
+  }
+
+  /** Stops prefetching for a statement. Must be called before any request
+   * that changes the statement's result set, so that a fetch in flight does
+   * not consume rows from the new one. */
+  private void closePrefetcher(StatementHandle h) {
+    final FramePrefetcher prefetcher;
+    synchronized (prefetchers) {
+      prefetcher = prefetchers.remove(h.id);
+    }
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
+  }
+
+  private void closeAllPrefetchers() {
+    final List<FramePrefetcher> list;
+    synchronized (prefetchers) {
+      list = new ArrayList<>(prefetchers.values());
+      prefetchers.clear();
+    }
+    for (FramePrefetcher prefetcher : list) {
+      prefetcher.close();
+    }
+  }
+
+  /** Fetches a frame from the server, synchronously. */
+  private Frame fetchNow(final StatementHandle h, final long offset,
+      final int fetchMaxRowCount) throws NoSuchStatementException, MissingResultsException {
     try {
       return connection.invokeWithRetries(
           new CallableWithoutException<Frame>() {
@@ -330,12 +609,15 @@ public Frame call() {
   @Override public ExecuteResult execute(final StatementHandle h,
       final List<TypedValue> parameterValues, final int maxRowsInFirstFrame)
       throws NoSuchStatementException {
+    closePrefetcher(h);
     try {
       return connection.invokeWithRetries(
           new CallableWithoutException<ExecuteResult>() {
             public ExecuteResult call() {
-              final Service.ExecuteResponse response = service.apply(
-                  new Service.ExecuteRequest(h, parameterValues, maxRowsInFirstFrame));
+              final Service.ExecuteResponse response =
+                  (Service.ExecuteResponse) send(
+                      new ConnectionHandle(h.connectionId), false,
+                      new Service.ExecuteRequest(h, parameterValues, maxRowsInFirstFrame));
 
               if (response.missingStatement) {
                 throw new RuntimeException(new NoSuchStatementException(h));
@@ -360,6 +642,7 @@ public ExecuteResult call() {
 
   @Override public boolean syncResults(final StatementHandle h, final QueryState state,
       final long offset) throws NoSuchStatementException {
+    closePrefetcher(h);
     try {
       return connection.invokeWithRetries(
           new CallableWithoutException<Boolean>() {
@@ -404,6 +687,7 @@ public Void call() {
 
   @Override public ExecuteBatchResult prepareAndExecuteBatch(final StatementHandle h,
       final List<String> sqlCommands) throws NoSuchStatementException {
+    closePrefetcher(h);
     return connection.invokeWithRetries(new CallableWithoutException<ExecuteBatchResult>() {
       @Override public ExecuteBatchResult call() {
         Service.ExecuteBatchResponse response =
@@ -416,6 +700,7 @@ public Void call() {
 
   @Override public ExecuteBatchResult executeBatch(final StatementHandle h,
       final List<List<TypedValue>> parameterValues) throws NoSuchStatementException {
+    closePrefetcher(h);
     return connection.invokeWithRetries(new CallableWithoutException<ExecuteBatchResult>() {
       @Override public ExecuteBatchResult call() {
         Service.ExecuteBatchResponse response =
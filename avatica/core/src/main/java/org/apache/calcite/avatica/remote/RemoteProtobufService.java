@@ -32,13 +32,49 @@ public class RemoteProtobufService extends ProtobufService {
   private final AvaticaHttpClient client;
   private final ProtobufTranslation translation;
 
+  /** Whether to ask the server to send frames column by column. Cleared if
+   * the server turns out not to support it. */
+  private volatile boolean columnar;
+
+  /** Whether the server has answered a request for columnar frames with a
+   * {@link ColumnarFrames.ColumnarResponse}, and therefore supports them. */
+  private volatile boolean columnarSupported;
+
   public RemoteProtobufService(AvaticaHttpClient client, ProtobufTranslation translation) {
+    this(client, translation, false);
+  }
+
+  public RemoteProtobufService(AvaticaHttpClient client, ProtobufTranslation translation,
+      boolean columnar) {
     this.client = client;
     this.translation = translation;
+    this.columnar = columnar;
   }
 
   @Override public Response _apply(Request request) {
-    final Response resp;
+    if (columnar && ColumnarFrames.hasFrames(request)) {
+      final Response response =
+          exchange(new ColumnarFrames.ColumnarRequest(request));
+      if (response instanceof ColumnarFrames.ColumnarResponse) {
+        columnarSupported = true;
+        return checked(((ColumnarFrames.ColumnarResponse) response).response);
+      }
+      if (!(response instanceof ErrorResponse) || columnarSupported) {
+        return checked(response);
+      }
+      // A server that supports columnar frames puts even its errors in a
+      // ColumnarResponse. This server rejected the envelope without
+      // executing the request; send it again without asking for columnar
+      // frames, now and from now on.
+      LOG.debug("Server does not support columnar frames");
+      columnar = false;
+    }
+    return checked(exchange(request));
+  }
+
+  /** Sends a request to the server and returns its response, which may be
+   * an {@link ErrorResponse}. */
+  private Response exchange(Request request) {
     byte[] response = null;
     try {
       response = client.send(translation.serializeRequest(request));
@@ -49,13 +85,15 @@ public RemoteProtobufService(AvaticaHttpClient client, ProtobufTranslation trans
     }
 
     try {
-      resp = translation.parseResponse(response);
+      return translation.parseResponse(response);
     } catch (IOException e) {
       LOG.debug("Failed to deserialize reponse to {}. '{}'", request, new String(response));
       // Not a protobuf that we could parse.
       throw new RuntimeException(e);
     }
+  }
 
+  private static Response checked(Response resp) {
     // The server had an error, throw an Exception for that.
     if (resp instanceof ErrorResponse) {
       throw ((ErrorResponse) resp).toException();
@@ -34,7 +34,9 @@
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
 import com.google.protobuf.HBaseZeroCopyByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 
 import java.io.PrintWriter;
@@ -75,6 +77,7 @@ public interface Service {
   RollbackResponse apply(RollbackRequest request);
   ExecuteBatchResponse apply(PrepareAndExecuteBatchRequest request);
   ExecuteBatchResponse apply(ExecuteBatchRequest request);
+  PipelinedResponse apply(PipelinedRequest request);
 
   /**
    * Sets server-level metadata for RPCs. This includes information that is static across all RPCs.
@@ -141,7 +144,8 @@ protected static int p(int result, long v) {
       @JsonSubTypes.Type(value = RollbackRequest.class, name = "rollback"),
       @JsonSubTypes.Type(value = PrepareAndExecuteBatchRequest.class,
           name = "prepareAndExecuteBatch"),
-      @JsonSubTypes.Type(value = ExecuteBatchRequest.class, name = "executeBatch") })
+      @JsonSubTypes.Type(value = ExecuteBatchRequest.class, name = "executeBatch"),
+      @JsonSubTypes.Type(value = PipelinedRequest.class, name = "pipelined") })
   abstract class Request extends Base {
     abstract Response accept(Service service);
     abstract Request deserialize(Message genericMsg);
@@ -172,7 +176,8 @@ abstract class Request extends Base {
       @JsonSubTypes.Type(value = RpcMetadataResponse.class, name = "rpcMetadata"),
       @JsonSubTypes.Type(value = CommitResponse.class, name = "commit"),
       @JsonSubTypes.Type(value = RollbackResponse.class, name = "rollback"),
-      @JsonSubTypes.Type(value = ExecuteBatchResponse.class, name = "executeBatch") })
+      @JsonSubTypes.Type(value = ExecuteBatchResponse.class, name = "executeBatch"),
+      @JsonSubTypes.Type(value = PipelinedResponse.class, name = "pipelined") })
   abstract class Response extends Base {
     abstract Response deserialize(Message genericMsg);
     abstract Message serialize();
@@ -3106,6 +3111,175 @@ public ExecuteBatchResponse(@JsonProperty("connectionId") String connectionId,
       return builder.setConnectionId(connectionId).setStatementId(statementId).build();
     }
   }
+
+  /**
+   * Request that carries several requests, to be executed by the server one
+   * after another, in a single round-trip.
+   *
+   * <p>The requests must not depend on values that only the server knows;
+   * for example, a client can send a {@link PrepareAndExecuteRequest}, the
+   * {@link FetchRequest}s for the frames after the first, and a
+   * {@link CloseStatementRequest} for a statement it has already created.
+   *
+   * <p>If a request fails, the requests after it are not executed; the
+   * {@link PipelinedResponse} holds the responses to the requests before it,
+   * and the error.
+   */
+  class PipelinedRequest extends Request {
+    public final List<Request> requests;
+
+    PipelinedRequest() {
+      this.requests = null;
+    }
+
+    @JsonCreator
+    public PipelinedRequest(@JsonProperty("requests") List<Request> requests) {
+      this.requests = requests;
+    }
+
+    @Override PipelinedResponse accept(Service service) {
+      return service.apply(this);
+    }
+
+    @Override PipelinedRequest deserialize(Message genericMsg) {
+      final Message msg =
+          ProtobufTranslationImpl.cast(genericMsg, PipelineMessages.REQUEST);
+      final int count = msg.getRepeatedFieldCount(PipelineMessages.REQUESTS);
+      final List<Request> requests = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final Common.WireMessage wireMsg = ProtobufTranslationImpl.convert(
+            msg.getRepeatedField(PipelineMessages.REQUESTS, i),
+            Common.WireMessage.parser());
+        try {
+          requests.add(
+              ProtobufTranslationImpl.getParserForRequest(wireMsg.getName())
+                  .transform(wireMsg.getWrappedMessage()));
+        } catch (InvalidProtocolBufferException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return new PipelinedRequest(requests);
+    }
+
+    @Override Message serialize() {
+      final DynamicMessage.Builder builder =
+          DynamicMessage.newBuilder(PipelineMessages.REQUEST);
+      for (Request request : requests) {
+        builder.addRepeatedField(PipelineMessages.REQUESTS,
+            ProtobufTranslationImpl.wrap(request.serialize()));
+      }
+      return builder.build();
+    }
+
+    @Override public int hashCode() {
+      int result = 1;
+      result = p(result, requests);
+      return result;
+    }
+
+    @Override public boolean equals(Object o) {
+      return this == o
+          || o instanceof PipelinedRequest
+          && Objects.equals(requests, ((PipelinedRequest) o).requests);
+    }
+  }
+
+  /**
+   * Response to a {@link PipelinedRequest}: the response to each request,
+   * in the same order.
+   *
+   * <p>If a request failed, {@link #error} describes the failure, and
+   * {@link #responses} holds the responses to the requests before it; the
+   * requests after it were not executed.
+   */
+  class PipelinedResponse extends Response {
+    public final List<Response> responses;
+    public final ErrorResponse error;
+    public final RpcMetadataResponse rpcMetadata;
+
+    PipelinedResponse() {
+      this.responses = null;
+      this.error = null;
+      this.rpcMetadata = null;
+    }
+
+    @JsonCreator
+    public PipelinedResponse(@JsonProperty("responses") List<Response> responses,
+        @JsonProperty("error") ErrorResponse error,
+        @JsonProperty("rpcMetadata") RpcMetadataResponse rpcMetadata) {
+      this.responses = responses;
+      this.error = error;
+      this.rpcMetadata = rpcMetadata;
+    }
+
+    @Override PipelinedResponse deserialize(Message genericMsg) {
+      final Message msg =
+          ProtobufTranslationImpl.cast(genericMsg, PipelineMessages.RESPONSE);
+      final int count = msg.getRepeatedFieldCount(PipelineMessages.RESPONSES);
+      final List<Response> responses = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final Common.WireMessage wireMsg = ProtobufTranslationImpl.convert(
+            msg.getRepeatedField(PipelineMessages.RESPONSES, i),
+            Common.WireMessage.parser());
+        try {
+          responses.add(
+              ProtobufTranslationImpl.getParserForResponse(wireMsg.getName())
+                  .transform(wireMsg.getWrappedMessage()));
+        } catch (InvalidProtocolBufferException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      ErrorResponse error = null;
+      if (msg.hasField(PipelineMessages.ERROR)) {
+        error = new ErrorResponse().deserialize(
+            ProtobufTranslationImpl.convert(msg.getField(PipelineMessages.ERROR),
+                Responses.ErrorResponse.parser()));
+      }
+
+      RpcMetadataResponse metadata = null;
+      if (msg.hasField(PipelineMessages.METADATA)) {
+        metadata = RpcMetadataResponse.fromProto(
+            ProtobufTranslationImpl.convert(msg.getField(PipelineMessages.METADATA),
+                Responses.RpcMetadata.parser()));
+      }
+
+      return new PipelinedResponse(responses, error, metadata);
+    }
+
+    @Override Message serialize() {
+      final DynamicMessage.Builder builder =
+          DynamicMessage.newBuilder(PipelineMessages.RESPONSE);
+      for (Response response : responses) {
+        builder.addRepeatedField(PipelineMessages.RESPONSES,
+            ProtobufTranslationImpl.wrap(response.serialize()));
+      }
+
+      if (null != error) {
+        builder.setField(PipelineMessages.ERROR, error.serialize());
+      }
+
+      if (null != rpcMetadata) {
+        builder.setField(PipelineMessages.METADATA, rpcMetadata.serialize());
+      }
+
+      return builder.build();
+    }
+
+    @Override public int hashCode() {
+      int result = 1;
+      result = p(result, responses);
+      result = p(result, error);
+      return result;
+    }
+
+    @Override public boolean equals(Object o) {
+      return this == o
+          || o instanceof PipelinedResponse
+          && Objects.equals(responses, ((PipelinedResponse) o).responses)
+          && Objects.equals(error, ((PipelinedResponse) o).error);
+    }
+  }
 }
 
 // End Service.java
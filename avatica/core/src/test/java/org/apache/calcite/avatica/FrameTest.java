@@ -104,6 +104,24 @@ public void testMultipleRows() {
     serializeAndTestEquality(singleRow);
   }
 
+  @Test public void testRowsWithNullsAndArrays() {
+    // Builders are re-used between cells; make sure nothing leaks from one
+    // row or column into the next.
+    ArrayList<Object> rows = new ArrayList<>();
+    rows.add(new Object[] {null, "a", Arrays.asList(1L, 2L), true});
+    rows.add(new Object[] {"b", null, Arrays.asList(3L), false});
+    rows.add(new Object[] {null, null, null, null});
+    Frame frame = new Frame(0, true, rows);
+
+    serializeAndTestEquality(frame);
+
+    Common.Frame protoFrame = frame.toProto();
+    assertEquals(3, protoFrame.getRowsCount());
+    assertTrue(protoFrame.getRows(2).getValue(0).getScalarValue().getNull());
+    assertFalse(protoFrame.getRows(1).getValue(0).getHasArrayValue());
+    assertEquals(1, protoFrame.getRows(1).getValue(2).getArrayValueCount());
+  }
+
   @Test public void testMalformedColumnValue() {
     // Invalid ColumnValue: has an array and scalar
     final ColumnValue bothAttributesColumnValue = ColumnValue.newBuilder().setHasArrayValue(true)
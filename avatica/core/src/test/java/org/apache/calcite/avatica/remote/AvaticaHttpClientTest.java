@@ -65,6 +65,75 @@ public void testRetryOnUnavailable() throws Exception {
     assertArrayEquals(RESPONSE.getBytes(StandardCharsets.UTF_8), response);
   }
 
+  @Test
+  public void testCompressedResponse() throws Exception {
+    URL url = new URL("http://127.0.0.1:8765");
+    final HttpURLConnection cnxn = Mockito.mock(HttpURLConnection.class);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ByteArrayInputStream bais = new ByteArrayInputStream(
+        HttpCompression.gzip(RESPONSE.getBytes(StandardCharsets.UTF_8)));
+
+    AvaticaHttpClientImpl client = new AvaticaHttpClientImpl(url) {
+      @Override HttpURLConnection openConnection() throws IOException {
+        return cnxn;
+      }
+    };
+
+    Mockito.when(cnxn.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
+    Mockito.when(cnxn.getContentEncoding()).thenReturn(HttpCompression.GZIP);
+    Mockito.when(cnxn.getOutputStream()).thenReturn(baos);
+    Mockito.when(cnxn.getInputStream()).thenReturn(bais);
+
+    byte[] response = client.send(REQUEST.getBytes(StandardCharsets.UTF_8));
+
+    assertArrayEquals(RESPONSE.getBytes(StandardCharsets.UTF_8), response);
+    // The server has not said that it accepts compressed requests; the body
+    // goes out as-is
+    assertArrayEquals(REQUEST.getBytes(StandardCharsets.UTF_8), baos.toByteArray());
+    Mockito.verify(cnxn).setRequestProperty(HttpCompression.ACCEPT_ENCODING,
+        HttpCompression.GZIP);
+  }
+
+  /** Tests that the client compresses requests only after a response from
+   * the server has said that it accepts them. */
+  @Test
+  public void testCompressedRequestNegotiated() throws Exception {
+    URL url = new URL("http://127.0.0.1:8765");
+    final HttpURLConnection cnxn = Mockito.mock(HttpURLConnection.class);
+    final ByteArrayOutputStream baos1 = new ByteArrayOutputStream();
+    final ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
+    final byte[] responseBytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+    AvaticaHttpClientImpl client = new AvaticaHttpClientImpl(url) {
+      @Override HttpURLConnection openConnection() throws IOException {
+        return cnxn;
+      }
+    };
+
+    Mockito.when(cnxn.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
+    Mockito.when(cnxn.getHeaderField(HttpCompression.ACCEPT_ENCODING))
+        .thenReturn(HttpCompression.GZIP);
+    Mockito.when(cnxn.getOutputStream()).thenReturn(baos1, baos2);
+    Mockito.when(cnxn.getInputStream()).thenReturn(
+        new ByteArrayInputStream(responseBytes),
+        new ByteArrayInputStream(responseBytes));
+
+    final StringBuilder sb = new StringBuilder();
+    while (sb.length() < HttpCompression.DEFAULT_REQUEST_THRESHOLD) {
+      sb.append(REQUEST);
+    }
+    final byte[] request = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+    // The first request goes out as-is; the response says that the server
+    // accepts compressed requests, so the second is compressed
+    assertArrayEquals(responseBytes, client.send(request));
+    assertArrayEquals(request, baos1.toByteArray());
+    assertArrayEquals(responseBytes, client.send(request));
+    assertArrayEquals(request, HttpCompression.gunzip(baos2.toByteArray()));
+    Mockito.verify(cnxn).setRequestProperty(HttpCompression.CONTENT_ENCODING,
+        HttpCompression.GZIP);
+  }
+
   @Test(expected = RuntimeException.class)
   public void testServerError() throws Exception {
     // HTTP 500 should error out
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.AvaticaClientRuntimeException;
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.metrics.noop.NoopMetricsSystem;
+import org.apache.calcite.avatica.remote.ColumnarFrames.ColumnarRequest;
+import org.apache.calcite.avatica.remote.ColumnarFrames.ColumnarResponse;
+import org.apache.calcite.avatica.remote.Service.ExecuteResponse;
+import org.apache.calcite.avatica.remote.Service.FetchRequest;
+import org.apache.calcite.avatica.remote.Service.FetchResponse;
+import org.apache.calcite.avatica.remote.Service.Request;
+import org.apache.calcite.avatica.remote.Service.Response;
+import org.apache.calcite.avatica.remote.Service.ResultSetResponse;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ColumnarFrames}.
+ */
+public class ColumnarFramesTest {
+  private static final ProtobufTranslation TRANSLATION = new ProtobufTranslationImpl();
+
+  private static Meta.Frame frame(Object[]... rows) {
+    return new Meta.Frame(0, true, Arrays.<Object>asList((Object[]) rows));
+  }
+
+  /** Sends a response as a server does in answer to a
+   * {@link ColumnarRequest}, and receives it as a client does. */
+  private static Response roundTrip(Response response) throws IOException {
+    final Response response2 = TRANSLATION.parseResponse(
+        TRANSLATION.serializeResponse(new ColumnarResponse(response)));
+    assertTrue(response2 instanceof ColumnarResponse);
+    return ((ColumnarResponse) response2).response;
+  }
+
+  @Test public void testRoundTrip() throws IOException {
+    final Meta.Frame frame = frame(
+        new Object[] {1, 10L, 1.5D, "a", new BigDecimal("1.10"), true, 'x',
+            (short) 2, (byte) 3, 2.5F, null},
+        new Object[] {null, -10L, null, "b", new BigDecimal("1.1"), false, 'y',
+            (short) -2, (byte) -3, null, null},
+        new Object[] {3, Long.MAX_VALUE, -0.25D, "a", null, null, 'x',
+            null, null, 0F, null});
+    assertNotNull(ColumnarFrames.encode(frame));
+
+    final FetchResponse response = new FetchResponse(frame, false, false,
+        new Service.RpcMetadataResponse("localhost:8765"));
+    final Response response2 = roundTrip(response);
+    assertTrue(response2 instanceof FetchResponse);
+    assertEquals(response, response2);
+  }
+
+  @Test public void testBytes() throws IOException {
+    final byte[] bytes = {1, 2, 3};
+    final Meta.Frame frame = frame(new Object[] {bytes}, new Object[] {null},
+        new Object[] {new byte[0]});
+    final FetchResponse response = (FetchResponse)
+        roundTrip(new FetchResponse(frame, false, false, null));
+    final List<Object> rows = new ArrayList<>();
+    for (Object row : response.frame.rows) {
+      rows.add(((List) row).get(0));
+    }
+    assertEquals(3, rows.size());
+    assertArrayEquals(bytes, (byte[]) rows.get(0));
+    assertNull(rows.get(1));
+    assertArrayEquals(new byte[0], (byte[]) rows.get(2));
+  }
+
+  /** Tests that a frame that cannot be sent column by column keeps its
+   * rows. */
+  @Test public void testFallback() throws IOException {
+    // Values of different types in the same column
+    final Meta.Frame mixed = frame(new Object[] {1, "a"}, new Object[] {2L, "b"});
+    assertNull(ColumnarFrames.encode(mixed));
+    final FetchResponse response = new FetchResponse(mixed, false, false, null);
+    assertEquals(response, roundTrip(response));
+
+    // An array column
+    final Meta.Frame array = frame(new Object[] {Arrays.asList(1, 2), "a"});
+    assertNull(ColumnarFrames.encode(array));
+    final FetchResponse response2 = new FetchResponse(array, false, false, null);
+    assertEquals(response2, roundTrip(response2));
+
+    // No rows
+    final FetchResponse response3 =
+        new FetchResponse(Meta.Frame.EMPTY, false, false, null);
+    assertEquals(response3, roundTrip(response3));
+  }
+
+  /** Tests an execute response with several result sets, some of which have
+   * no frame or a frame that keeps its rows. */
+  @Test public void testExecuteResponse() throws IOException {
+    final ResultSetResponse first = new ResultSetResponse("cnxn", 1, false,
+        null, frame(new Object[] {1, "a"}, new Object[] {2, null}), -1, null);
+    final ResultSetResponse update = new ResultSetResponse("cnxn", 1, false,
+        null, null, 5, null);
+    final ResultSetResponse mixed = new ResultSetResponse("cnxn", 1, false,
+        null, frame(new Object[] {1}, new Object[] {2L}), -1, null);
+    final ResultSetResponse last = new ResultSetResponse("cnxn", 1, false,
+        null, frame(new Object[] {0.5D}), -1, null);
+    final ExecuteResponse response = new ExecuteResponse(
+        Arrays.asList(first, update, mixed, last), false, null);
+    assertEquals(response, roundTrip(response));
+  }
+
+  /** Tests that a wide numeric frame is much smaller column by column. */
+  @Test public void testSize() throws IOException {
+    final List<Object> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final Object[] row = new Object[20];
+      for (int j = 0; j < row.length; j++) {
+        row[j] = (long) i * j;
+      }
+      rows.add(row);
+    }
+    final FetchResponse response =
+        new FetchResponse(new Meta.Frame(0, true, rows), false, false, null);
+    final int size = TRANSLATION.serializeResponse(response).length;
+    final int columnarSize =
+        TRANSLATION.serializeResponse(new ColumnarResponse(response)).length;
+    assertTrue("row size " + size + ", columnar size " + columnarSize,
+        columnarSize * 2 < size);
+    assertEquals(response, roundTrip(response));
+  }
+
+  @Test public void testRequestRoundTrip() throws IOException {
+    final ColumnarRequest request =
+        new ColumnarRequest(new FetchRequest("cnxn", 1, 100, 100));
+    assertEquals(request,
+        TRANSLATION.parseRequest(TRANSLATION.serializeRequest(request)));
+  }
+
+  /** Creates a client that sends its requests, via a
+   * {@link ProtobufHandler}, to a service, and records them. */
+  private static RemoteProtobufService client(Service service,
+      final List<Request> received) {
+    final ProtobufHandler handler = new ProtobufHandler(service, TRANSLATION,
+        NoopMetricsSystem.getInstance());
+    return new RemoteProtobufService(
+        new AvaticaHttpClient() {
+          public byte[] send(byte[] bytes) {
+            try {
+              received.add(TRANSLATION.parseRequest(bytes));
+            } catch (IOException e) {
+              throw new RuntimeException(e);
+            }
+            return handler.apply(bytes).getResponse();
+          }
+        }, TRANSLATION, true);
+  }
+
+  /** Tests a server that supports columnar frames. */
+  @Test public void testServer() {
+    final FetchResponse response = new FetchResponse(
+        frame(new Object[] {1, "a"}, new Object[] {2, "b"}), false, false, null);
+    final Service service = Mockito.mock(Service.class);
+    Mockito.when(service.apply(Mockito.any(FetchRequest.class)))
+        .thenReturn(response);
+    final List<Request> received = new ArrayList<>();
+    final RemoteProtobufService client = client(service, received);
+
+    assertEquals(response, client.apply(new FetchRequest("cnxn", 1, 0, 100)));
+    assertEquals(1, received.size());
+    assertTrue(received.get(0) instanceof ColumnarRequest);
+  }
+
+  /** Tests that an error in a request, from a server that supports columnar
+   * frames, reaches the client, which neither sends the request again nor
+   * stops asking for columnar frames. */
+  @Test public void testServerError() {
+    final FetchResponse response = new FetchResponse(
+        frame(new Object[] {1, "a"}, new Object[] {2, "b"}), false, false, null);
+    final Service service = Mockito.mock(Service.class);
+    Mockito.when(service.apply(Mockito.any(FetchRequest.class)))
+        .thenThrow(new IllegalStateException("Cannot find request parser for "
+            + ColumnarMessages.REQUEST_NAME))
+        .thenReturn(response);
+    final List<Request> received = new ArrayList<>();
+    final RemoteProtobufService client = client(service, received);
+
+    try {
+      client.apply(new FetchRequest("cnxn", 1, 0, 100));
+      fail("expected error");
+    } catch (AvaticaClientRuntimeException e) {
+      assertThat(e.getMessage(), containsString("IllegalStateException"));
+    }
+    assertEquals(response, client.apply(new FetchRequest("cnxn", 1, 0, 100)));
+    assertEquals(2, received.size());
+    assertTrue(received.get(0) instanceof ColumnarRequest);
+    assertTrue(received.get(1) instanceof ColumnarRequest);
+  }
+
+  /** Tests a server that does not know columnar requests; the client sends
+   * the request again without asking for columnar frames, and does not ask
+   * again. */
+  @Test public void testServerUnsupported() {
+    final FetchResponse response = new FetchResponse(
+        frame(new Object[] {1, "a"}, new Object[] {2, "b"}), false, false, null);
+    final List<Request> received = new ArrayList<>();
+    final RemoteProtobufService client =
+        new RemoteProtobufService(new AvaticaHttpClient() {
+          public byte[] send(byte[] bytes) {
+            try {
+              final Request request = TRANSLATION.parseRequest(bytes);
+              received.add(request);
+              if (request instanceof ColumnarRequest) {
+                // What an older server sends, not knowing the message
+                return TRANSLATION.serializeResponse(
+                    AbstractHandler.unwrapException(
+                        new IllegalArgumentException("Cannot find request parser for "
+                            + ColumnarMessages.REQUEST_NAME), null));
+              }
+              return TRANSLATION.serializeResponse(response);
+            } catch (IOException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        }, TRANSLATION, true);
+
+    assertEquals(response, client.apply(new FetchRequest("cnxn", 1, 0, 100)));
+    assertEquals(response, client.apply(new FetchRequest("cnxn", 1, 2, 100)));
+    assertEquals(3, received.size());
+    assertTrue(received.get(0) instanceof ColumnarRequest);
+    assertTrue(received.get(1) instanceof FetchRequest);
+    assertTrue(received.get(2) instanceof FetchRequest);
+  }
+}
+
+// End ColumnarFramesTest.java
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.apache.calcite.avatica.MissingResultsException;
+import org.apache.calcite.avatica.NoSuchStatementException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link FramePrefetcher}.
+ */
+public class FramePrefetcherTest {
+  /** Source that returns frames of {@code frameSize} rows until it has
+   * returned {@code total} rows. */
+  private static FramePrefetcher.FrameSource source(final int total,
+      final AtomicInteger calls) {
+    return new FramePrefetcher.FrameSource() {
+      public Frame fetch(long offset, int fetchMaxRowCount) {
+        calls.incrementAndGet();
+        final List<Object> rows = new ArrayList<>();
+        for (long i = offset; i < Math.min(total, offset + fetchMaxRowCount); i++) {
+          rows.add(new Object[] {i});
+        }
+        return new Frame(offset, offset + rows.size() >= total, rows);
+      }
+    };
+  }
+
+  @Test public void testFetchesAllFramesInOrder() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(source(25, calls), 0, 10, 2);
+    long offset = 0;
+    int frames = 0;
+    while (true) {
+      final Frame frame = prefetcher.next(offset);
+      assertEquals(offset, frame.offset);
+      offset += FramePrefetcher.rowCount(frame);
+      frames++;
+      if (frame.done) {
+        break;
+      }
+    }
+    assertEquals(25, offset);
+    assertEquals(3, frames);
+    assertTrue(prefetcher.isExhausted());
+    assertNull(prefetcher.next(offset));
+    prefetcher.close();
+    assertEquals(3, calls.get());
+  }
+
+  @Test public void testUnexpectedOffset() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(source(1000, calls), 10, 10, 1);
+    assertNull(prefetcher.next(0));
+    assertFalse(prefetcher.isExhausted());
+    prefetcher.close();
+    // Bounded: one frame in the queue, at most one more being offered
+    assertTrue(calls.get() <= 2);
+  }
+
+  /** Waits up to 10 seconds for a prefetcher's background thread to
+   * finish. */
+  private static void awaitStopped(FramePrefetcher prefetcher)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (!prefetcher.isStopped()) {
+      assertTrue("prefetcher did not stop",
+          System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /** Tests that if the consumer takes nothing, the background thread stops
+   * rather than waiting forever, and that the frame it has fetched is still
+   * handed to the consumer. */
+  @Test public void testIdleConsumer() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(source(1000, calls), 0, 10, 10L, 50L);
+    awaitStopped(prefetcher);
+    assertEquals(1, calls.get());
+    assertEquals(0, prefetcher.next(0).offset);
+    // The prefetcher has nothing more; the caller fetches from offset 10
+    assertNull(prefetcher.next(10));
+    assertFalse(prefetcher.isExhausted());
+    prefetcher.close();
+    assertEquals(1, calls.get());
+  }
+
+  /** Tests that the bound is in rows: a frame larger than the fetch size
+   * uses up the room of several frames. */
+  @Test public void testRowBound() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final FramePrefetcher.FrameSource source = source(1000, calls);
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(
+            new FramePrefetcher.FrameSource() {
+              public Frame fetch(long offset, int fetchMaxRowCount)
+                  throws NoSuchStatementException, MissingResultsException {
+                // Ignore the fetch size, and return 25 rows
+                return source.fetch(offset, 25);
+              }
+            }, 0, 10, FramePrefetcher.maxRows(2, 10), 50L);
+    awaitStopped(prefetcher);
+    assertEquals(1, calls.get());
+    assertEquals(25, FramePrefetcher.rowCount(prefetcher.next(0)));
+    prefetcher.close();
+  }
+
+  /** Tests that closing a prefetcher whose background thread is waiting for
+   * room stops the thread at once. */
+  @Test public void testCloseWhileWaiting() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(source(1000, calls), 0, 10, 1);
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (calls.get() == 0) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+    prefetcher.close();
+    assertTrue(prefetcher.isStopped());
+    assertEquals(1, calls.get());
+  }
+
+  @Test public void testErrorIsRethrown() throws Exception {
+    final Meta.StatementHandle h = new Meta.StatementHandle("c", 1, null);
+    final FramePrefetcher prefetcher =
+        FramePrefetcher.start(
+            new FramePrefetcher.FrameSource() {
+              public Frame fetch(long offset, int fetchMaxRowCount)
+                  throws NoSuchStatementException {
+                throw new NoSuchStatementException(h);
+              }
+            }, 0, 10, 4);
+    try {
+      prefetcher.next(0);
+      fail("expected error");
+    } catch (NoSuchStatementException e) {
+      // ok
+    }
+    assertTrue(prefetcher.isExhausted());
+    prefetcher.close();
+  }
+}
+
+// End FramePrefetcherTest.java
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HttpCompression}.
+ */
+public class HttpCompressionTest {
+
+  @Test public void testRoundTrip() {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("{\"value\":").append(i).append("},");
+    }
+    final byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+    final byte[] compressed = HttpCompression.gzip(bytes);
+    assertTrue(compressed.length < bytes.length);
+    assertArrayEquals(bytes, HttpCompression.gunzip(compressed));
+
+    assertArrayEquals(new byte[0], HttpCompression.gunzip(HttpCompression.gzip(new byte[0])));
+  }
+
+  @Test public void testAcceptsGzip() {
+    assertTrue(HttpCompression.acceptsGzip("gzip"));
+    assertTrue(HttpCompression.acceptsGzip("GZIP"));
+    assertTrue(HttpCompression.acceptsGzip("deflate, gzip;q=0.5"));
+    assertFalse(HttpCompression.acceptsGzip(null));
+    assertFalse(HttpCompression.acceptsGzip(""));
+    assertFalse(HttpCompression.acceptsGzip("deflate"));
+    assertFalse(HttpCompression.acceptsGzip("gzip;q=0"));
+    assertFalse(HttpCompression.acceptsGzip("gzip;q=0.0, identity"));
+  }
+
+  @Test public void testShouldCompress() {
+    assertTrue(HttpCompression.shouldCompress(1024, 1024));
+    assertTrue(HttpCompression.shouldCompress(0, 0));
+    assertFalse(HttpCompression.shouldCompress(1023, 1024));
+    assertFalse(HttpCompression.shouldCompress(1 << 20, -1));
+  }
+}
+
+// End HttpCompressionTest.java
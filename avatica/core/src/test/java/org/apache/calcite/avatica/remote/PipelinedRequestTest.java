@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.remote;
+
+import org.apache.calcite.avatica.AvaticaSeverity;
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.remote.Service.CloseStatementRequest;
+import org.apache.calcite.avatica.remote.Service.CommitRequest;
+import org.apache.calcite.avatica.remote.Service.CommitResponse;
+import org.apache.calcite.avatica.remote.Service.ErrorResponse;
+import org.apache.calcite.avatica.remote.Service.FetchRequest;
+import org.apache.calcite.avatica.remote.Service.PipelinedRequest;
+import org.apache.calcite.avatica.remote.Service.PipelinedResponse;
+import org.apache.calcite.avatica.remote.Service.Request;
+import org.apache.calcite.avatica.remote.Service.Response;
+import org.apache.calcite.avatica.remote.Service.RollbackRequest;
+import org.apache.calcite.avatica.remote.Service.RollbackResponse;
+import org.apache.calcite.avatica.remote.Service.RpcMetadataResponse;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link PipelinedRequest}.
+ */
+public class PipelinedRequestTest {
+
+  @Test public void testJsonRoundTrip() throws Exception {
+    final PipelinedRequest request = new PipelinedRequest(
+        Arrays.<Request>asList(new FetchRequest("cnxn", 1, 100, 100),
+            new CloseStatementRequest("cnxn", 1)));
+    final String json = JsonService.encode(request);
+    final Request request2 = JsonService.MAPPER.readValue(json, Request.class);
+    assertEquals(request, request2);
+
+    final PipelinedResponse response = new PipelinedResponse(
+        Arrays.asList(new CommitResponse(), new RollbackResponse()), null, null);
+    final PipelinedResponse response2 =
+        JsonService.decode(JsonService.encode(response), PipelinedResponse.class);
+    assertEquals(response, response2);
+  }
+
+  /** Tests that pipelined requests and responses survive protobuf
+   * serialization, which is the default. */
+  @Test public void testProtobufRoundTrip() throws Exception {
+    final ProtobufTranslation translation = new ProtobufTranslationImpl();
+    final PipelinedRequest request = new PipelinedRequest(
+        Arrays.<Request>asList(new FetchRequest("cnxn", 1, 100, 100),
+            new CloseStatementRequest("cnxn", 1)));
+    assertEquals(request,
+        translation.parseRequest(translation.serializeRequest(request)));
+
+    final RpcMetadataResponse metadata = new RpcMetadataResponse("localhost:8765");
+    final PipelinedResponse response = new PipelinedResponse(
+        Arrays.asList(new CommitResponse(), new RollbackResponse()), null,
+        metadata);
+    final PipelinedResponse response2 = (PipelinedResponse)
+        translation.parseResponse(translation.serializeResponse(response));
+    assertEquals(response, response2);
+    assertEquals(metadata, response2.rpcMetadata);
+
+    final ErrorResponse error = new ErrorResponse(
+        Collections.singletonList("stacktrace"), "error message", 42, "00000",
+        AvaticaSeverity.ERROR, metadata);
+    final PipelinedResponse response3 = new PipelinedResponse(
+        Collections.<Response>singletonList(new CommitResponse()), error,
+        metadata);
+    assertEquals(response3,
+        translation.parseResponse(translation.serializeResponse(response3)));
+  }
+
+  @Test public void testRequestsExecutedInOrder() {
+    final Meta meta = Mockito.mock(Meta.class);
+    final LocalService service = new LocalService(meta);
+
+    final PipelinedResponse response = service.apply(
+        new PipelinedRequest(
+            Arrays.<Request>asList(new CommitRequest("cnxn"),
+                new RollbackRequest("cnxn"))));
+
+    assertEquals(2, response.responses.size());
+    assertTrue(response.responses.get(0) instanceof CommitResponse);
+    assertTrue(response.responses.get(1) instanceof RollbackResponse);
+    final InOrder inOrder = Mockito.inOrder(meta);
+    inOrder.verify(meta).commit(Mockito.any(Meta.ConnectionHandle.class));
+    inOrder.verify(meta).rollback(Mockito.any(Meta.ConnectionHandle.class));
+  }
+
+  /** Tests that when a request fails, the responses to the requests before
+   * it are returned with the error, and the requests after it are not
+   * executed. */
+  @Test public void testPartialResults() {
+    final Meta meta = Mockito.mock(Meta.class);
+    Mockito.doThrow(new RuntimeException("rollback failed"))
+        .when(meta).rollback(Mockito.any(Meta.ConnectionHandle.class));
+    final LocalService service = new LocalService(meta);
+
+    final PipelinedResponse response = service.apply(
+        new PipelinedRequest(
+            Arrays.<Request>asList(new CommitRequest("cnxn"),
+                new RollbackRequest("cnxn"), new CommitRequest("cnxn"))));
+
+    assertEquals(1, response.responses.size());
+    assertTrue(response.responses.get(0) instanceof CommitResponse);
+    assertNotNull(response.error);
+    assertTrue(response.error.errorMessage.contains("rollback failed"));
+    Mockito.verify(meta, Mockito.times(1))
+        .commit(Mockito.any(Meta.ConnectionHandle.class));
+  }
+
+  @Test public void testNestedPipelineRejected() {
+    final LocalService service = new LocalService(Mockito.mock(Meta.class));
+    final PipelinedRequest nested = new PipelinedRequest(
+        Collections.<Request>singletonList(
+            new PipelinedRequest(Collections.<Request>emptyList())));
+    try {
+      service.apply(nested);
+      fail("expected error");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("nested"));
+    }
+  }
+}
+
+// End PipelinedRequestTest.java
@@ -50,6 +50,8 @@
 import org.apache.calcite.avatica.remote.Service.FetchResponse;
 import org.apache.calcite.avatica.remote.Service.OpenConnectionRequest;
 import org.apache.calcite.avatica.remote.Service.OpenConnectionResponse;
+import org.apache.calcite.avatica.remote.Service.PipelinedRequest;
+import org.apache.calcite.avatica.remote.Service.PipelinedResponse;
 import org.apache.calcite.avatica.remote.Service.PrepareAndExecuteBatchRequest;
 import org.apache.calcite.avatica.remote.Service.PrepareAndExecuteRequest;
 import org.apache.calcite.avatica.remote.Service.PrepareRequest;
@@ -223,6 +225,16 @@ private static List<Request> getRequests() {
     List<String> commands = Arrays.asList("command1", "command2", "command3");
     requests.add(new PrepareAndExecuteBatchRequest("connectionId", 12345, commands));
 
+    requests.add(
+        new PipelinedRequest(
+            Arrays.<Request>asList(new CommitRequest("connectionId"),
+                new PrepareRequest("connectionId", "sql", 100L),
+                new RollbackRequest("connectionId"))));
+
+    requests.add(
+        new ColumnarFrames.ColumnarRequest(
+            new FetchRequest("connectionId", Integer.MAX_VALUE, 100, 200)));
+
     return requests;
   }
 
@@ -362,6 +374,18 @@ private static List<Response> getResponses() {
     responses.add(
         new ExecuteBatchResponse("connectionId", 12345, updateCounts, false, rpcMetadata));
 
+    responses.add(
+        new PipelinedResponse(
+            Arrays.<Response>asList(new CommitResponse(),
+                new FetchResponse(frame, false, false, rpcMetadata)),
+            null, rpcMetadata));
+    responses.add(
+        new PipelinedResponse(
+            Collections.<Response>singletonList(new CommitResponse()),
+            new ErrorResponse(Arrays.asList("stacktrace1"), "message", 1,
+                ErrorResponse.UNKNOWN_SQL_STATE, AvaticaSeverity.ERROR, rpcMetadata),
+            rpcMetadata));
+
     return responses;
   }
 
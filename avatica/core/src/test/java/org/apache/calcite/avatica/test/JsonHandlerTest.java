@@ -137,6 +137,10 @@ public static class NoopService implements Service {
     @Override public ExecuteBatchResponse apply(PrepareAndExecuteBatchRequest request) {
       return null;
     }
+
+    @Override public PipelinedResponse apply(PipelinedRequest request) {
+      return null;
+    }
   }
 
   /**
@@ -65,6 +65,7 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -208,6 +209,14 @@ public JdbcMeta(String url, Properties info, MetricsSystem metrics)
     });
   }
 
+  /** Returns the default concurrency level (number of independently locked
+   * segments) of a cache: the given minimum, or more on machines with many
+   * cores, so that threads running on different cores rarely contend. */
+  static String defaultConcurrencyLevel(int minimum) {
+    final int cores = Runtime.getRuntime().availableProcessors();
+    return String.valueOf(Math.max(minimum, cores * 4));
+  }
+
   // For testing purposes
   protected AtomicInteger getStatementIdGenerator() {
     return statementIdGenerator;
@@ -608,16 +617,26 @@ public StatementHandle createStatement(ConnectionHandle ch) {
       fullInfo.putAll(info);
     }
 
-    synchronized (this) {
+    // Opening a connection can be slow, so do not hold a lock while doing
+    // it; connections with different ids must not wait for each other.
+    final ConcurrentMap<String, Connection> cacheAsMap = connectionCache.asMap();
+    if (cacheAsMap.containsKey(ch.id)) {
+      throw new RuntimeException("Connection already exists: " + ch.id);
+    }
+    final Connection conn;
+    try {
+      conn = DriverManager.getConnection(url, fullInfo);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    if (cacheAsMap.putIfAbsent(ch.id, conn) != null) {
+      // Another request opened a connection with the same id first.
       try {
-        if (connectionCache.asMap().containsKey(ch.id)) {
-          throw new RuntimeException("Connection already exists: " + ch.id);
-        }
-        Connection conn = DriverManager.getConnection(url, fullInfo);
-        connectionCache.put(ch.id, conn);
+        conn.close();
       } catch (SQLException e) {
-        throw new RuntimeException(e);
+        LOG.debug("failed to close duplicate connection {}", ch, e);
       }
+      throw new RuntimeException("Connection already exists: " + ch.id);
     }
   }
 
@@ -976,7 +995,8 @@ private static String[] toArray(List<String> typeList) {
   /** Configurable statement cache settings. */
   public enum StatementCacheSettings {
     /** JDBC connection property for setting connection cache concurrency level. */
-    CONCURRENCY_LEVEL(STMT_CACHE_KEY_BASE + ".concurrency", "100"),
+    CONCURRENCY_LEVEL(STMT_CACHE_KEY_BASE + ".concurrency",
+        defaultConcurrencyLevel(100)),
 
     /** JDBC connection property for setting connection cache initial capacity. */
     INITIAL_CAPACITY(STMT_CACHE_KEY_BASE + ".initialcapacity", "1000"),
@@ -1018,7 +1038,8 @@ public String defaultValue() {
   /** Configurable connection cache settings. */
   public enum ConnectionCacheSettings {
     /** JDBC connection property for setting connection cache concurrency level. */
-    CONCURRENCY_LEVEL(CONN_CACHE_KEY_BASE + ".concurrency", "10"),
+    CONCURRENCY_LEVEL(CONN_CACHE_KEY_BASE + ".concurrency",
+        defaultConcurrencyLevel(10)),
 
     /** JDBC connection property for setting connection cache initial capacity. */
     INITIAL_CAPACITY(CONN_CACHE_KEY_BASE + ".initialcapacity", "100"),
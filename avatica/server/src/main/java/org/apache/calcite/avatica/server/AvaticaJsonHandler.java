@@ -32,11 +32,12 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -48,6 +49,10 @@
 public class AvaticaJsonHandler extends AbstractAvaticaHandler {
   private static final Logger LOG = LoggerFactory.getLogger(AvaticaJsonHandler.class);
 
+  /** Written after each response, as {@link java.io.PrintWriter#println()}
+   * would. */
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
   final Service service;
   final JsonHandler jsonHandler;
 
@@ -58,6 +63,8 @@ public class AvaticaJsonHandler extends AbstractAvaticaHandler {
 
   final AvaticaServerConfiguration serverConfig;
 
+  final HttpCompressor compressor;
+
   public AvaticaJsonHandler(Service service) {
     this(service, NoopMetricsSystem.getInstance(), null);
   }
@@ -84,6 +91,7 @@ public AvaticaJsonHandler(Service service, MetricsSystem metrics,
     };
 
     this.serverConfig = serverConfig;
+    this.compressor = new HttpCompressor(this.metrics, AvaticaJsonHandler.class);
   }
 
   public void handle(String target, Request baseRequest,
@@ -105,7 +113,7 @@ public void handle(String target, Request baseRequest,
         if (rawRequest == null) {
           // Avoid a new buffer creation for every HTTP request
           final UnsynchronizedBuffer buffer = threadLocalBuffer.get();
-          try (ServletInputStream inputStream = request.getInputStream()) {
+          try (InputStream inputStream = compressor.getInputStream(request)) {
             rawRequest = AvaticaUtils.readFully(inputStream, buffer);
           } finally {
             // Reset the offset into the buffer after we're done
@@ -135,9 +143,11 @@ public void handle(String target, Request baseRequest,
 
         LOG.trace("response: {}", jsonResponse);
         baseRequest.setHandled(true);
-        // Set the status code and write out the response.
+        // Set the status code and write out the response. As before
+        // compression, the body ends with a line separator.
         response.setStatus(jsonResponse.getStatusCode());
-        response.getWriter().println(jsonResponse.getResponse());
+        final String body = jsonResponse.getResponse() + LINE_SEPARATOR;
+        compressor.write(request, response, body.getBytes(StandardCharsets.UTF_8));
       }
     }
   }
@@ -35,11 +35,11 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -55,6 +55,7 @@ public class AvaticaProtobufHandler extends AbstractAvaticaHandler {
   private final MetricsSystem metrics;
   private final Timer requestTimer;
   private final AvaticaServerConfiguration serverConfig;
+  private final HttpCompressor compressor;
 
   final ThreadLocal<UnsynchronizedBuffer> threadLocalBuffer;
 
@@ -75,6 +76,8 @@ public AvaticaProtobufHandler(Service service, MetricsSystem metrics,
         MetricsHelper.concat(AvaticaProtobufHandler.class,
             MetricsAwareAvaticaHandler.REQUEST_TIMER_NAME));
 
+    this.compressor = new HttpCompressor(this.metrics, AvaticaProtobufHandler.class);
+
     this.protobufTranslation = new ProtobufTranslationImpl();
     this.pbHandler = new ProtobufHandler(service, protobufTranslation, metrics);
 
@@ -104,7 +107,7 @@ public void handle(String target, Request baseRequest,
         final byte[] requestBytes;
         // Avoid a new buffer creation for every HTTP request
         final UnsynchronizedBuffer buffer = threadLocalBuffer.get();
-        try (ServletInputStream inputStream = request.getInputStream()) {
+        try (InputStream inputStream = compressor.getInputStream(request)) {
           requestBytes = AvaticaUtils.readFullyToBytes(inputStream, buffer);
         } finally {
           buffer.reset();
@@ -131,7 +134,7 @@ public void handle(String target, Request baseRequest,
 
         baseRequest.setHandled(true);
         response.setStatus(handlerResponse.getStatusCode());
-        response.getOutputStream().write(handlerResponse.getResponse());
+        compressor.write(request, response, handlerResponse.getResponse());
       }
     }
   }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.server;
+
+import org.apache.calcite.avatica.metrics.Histogram;
+import org.apache.calcite.avatica.metrics.MetricsSystem;
+import org.apache.calcite.avatica.metrics.Timer;
+import org.apache.calcite.avatica.metrics.Timer.Context;
+import org.apache.calcite.avatica.remote.HttpCompression;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.apache.calcite.avatica.remote.MetricsHelper.concat;
+
+/**
+ * Reads possibly-compressed request bodies and writes response bodies,
+ * compressing them when the client accepts it and they are large enough to
+ * be worth it.
+ *
+ * <p>Every response carries {@code Accept-Encoding: gzip}, which tells the
+ * client that it may compress its subsequent requests.
+ */
+class HttpCompressor {
+  private final int threshold;
+  private final Timer compressionTimer;
+  private final Histogram compressionRatio;
+
+  HttpCompressor(MetricsSystem metrics, Class<?> handlerClass) {
+    this(metrics, handlerClass, HttpCompression.responseThreshold());
+  }
+
+  HttpCompressor(MetricsSystem metrics, Class<?> handlerClass, int threshold) {
+    this.threshold = threshold;
+    this.compressionTimer = metrics.getTimer(
+        concat(handlerClass, MetricsAwareAvaticaHandler.COMPRESSION_TIMER_NAME));
+    this.compressionRatio = metrics.getHistogram(
+        concat(handlerClass, MetricsAwareAvaticaHandler.COMPRESSION_RATIO_NAME));
+  }
+
+  /** Returns the body of a request, decompressing it if the client sent it
+   * compressed. */
+  InputStream getInputStream(HttpServletRequest request) throws IOException {
+    return HttpCompression.decode(request.getHeader(HttpCompression.CONTENT_ENCODING),
+        request.getInputStream());
+  }
+
+  /** Writes the body of a response, compressing it if the client accepts
+   * gzip and the body is at least as large as the threshold. */
+  void write(HttpServletRequest request, HttpServletResponse response, byte[] body)
+      throws IOException {
+    response.setHeader(HttpCompression.ACCEPT_ENCODING, HttpCompression.GZIP);
+    if (HttpCompression.shouldCompress(body.length, threshold)) {
+      // Whether this response is compressed depends on the request's
+      // Accept-Encoding; caches must not serve it to other clients.
+      response.setHeader(HttpCompression.VARY, HttpCompression.ACCEPT_ENCODING);
+      if (HttpCompression.acceptsGzip(request.getHeader(HttpCompression.ACCEPT_ENCODING))) {
+        final byte[] compressed;
+        try (final Context ctx = compressionTimer.start()) {
+          compressed = HttpCompression.gzip(body);
+        }
+        if (compressed.length < body.length) {
+          // Percentage of the original size that went over the wire
+          compressionRatio.update(100L * compressed.length / body.length);
+          response.setHeader(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+          response.getOutputStream().write(compressed);
+          return;
+        }
+      }
+    }
+    response.getOutputStream().write(body);
+  }
+}
+
+// End HttpCompressor.java
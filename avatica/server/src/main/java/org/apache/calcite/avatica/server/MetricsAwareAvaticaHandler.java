@@ -33,6 +33,17 @@ public interface MetricsAwareAvaticaHandler extends AvaticaHandler {
    */
   String REQUEST_TIMER_NAME = HANDLER_PREFIX + "RequestTimings";
 
+  /**
+   * Name for timing the compression of responses
+   */
+  String COMPRESSION_TIMER_NAME = HANDLER_PREFIX + "CompressionTimings";
+
+  /**
+   * Name for the distribution of compressed response sizes, as a percentage of
+   * the uncompressed size
+   */
+  String COMPRESSION_RATIO_NAME = HANDLER_PREFIX + "CompressionRatio";
+
   /**
    * @return An instance of the {@link MetricsSystem} for this AvaticaHandler.
    */
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.jdbc;
+
+import org.apache.calcite.avatica.Meta;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of {@link JdbcMeta} when many client threads,
+ * each with its own connection, use it at the same time, as they would
+ * behind an Avatica server.
+ *
+ * <p>Run with a varying number of threads (e.g. {@code -t 1} and
+ * {@code -t 16}) to see how well the shared connection and statement caches
+ * scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class JdbcMetaBenchmark {
+  private static final String SQL = "select * from emp where deptno = 10";
+
+  /** State shared by all threads: a single {@link JdbcMeta}, as in a
+   * server. */
+  @State(Scope.Benchmark)
+  public static class SharedMeta {
+    final String url = "jdbc:hsqldb:mem:" + UUID.randomUUID();
+    final AtomicInteger connectionIds = new AtomicInteger();
+    JdbcMeta meta;
+    Connection keepAlive;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+      // Keep a connection open so the in-memory database is not dropped.
+      keepAlive = DriverManager.getConnection(url, "SA", "");
+      try (Statement statement = keepAlive.createStatement()) {
+        statement.execute("create table emp (empno int, deptno int)");
+        for (int i = 0; i < 100; i++) {
+          statement.execute("insert into emp values (" + i + ", "
+              + (i % 3) * 10 + ")");
+        }
+      }
+      meta = new JdbcMeta(url, "SA", "");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+      keepAlive.close();
+    }
+
+    Meta.ConnectionHandle newConnectionHandle() {
+      return new Meta.ConnectionHandle("c" + connectionIds.incrementAndGet());
+    }
+  }
+
+  /** Per-thread state: the connection that a client thread uses. */
+  @State(Scope.Thread)
+  public static class ClientConnection {
+    Meta.ConnectionHandle ch;
+
+    @Setup(Level.Trial)
+    public void setUp(SharedMeta shared) {
+      ch = shared.newConnectionHandle();
+      shared.meta.openConnection(ch, Collections.<String, String>emptyMap());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(SharedMeta shared) {
+      shared.meta.closeConnection(ch);
+    }
+  }
+
+  @Benchmark
+  public Meta.ConnectionHandle openAndCloseConnection(SharedMeta shared) {
+    final Meta.ConnectionHandle ch = shared.newConnectionHandle();
+    shared.meta.openConnection(ch, Collections.<String, String>emptyMap());
+    shared.meta.closeConnection(ch);
+    return ch;
+  }
+
+  @Benchmark
+  public int executeQuery(SharedMeta shared, ClientConnection client)
+      throws Exception {
+    final JdbcMeta meta = shared.meta;
+    final Meta.StatementHandle h = meta.createStatement(client.ch);
+    try {
+      Meta.ExecuteResult result =
+          meta.prepareAndExecute(h, SQL, -1, 10, null);
+      Meta.Frame frame = result.resultSets.get(0).firstFrame;
+      int rowCount = 0;
+      for (;;) {
+        for (Object row : frame.rows) {
+          ++rowCount;
+        }
+        if (frame.done) {
+          return rowCount;
+        }
+        frame = meta.fetch(h, rowCount, 10);
+      }
+    } finally {
+      meta.closeStatement(h);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(JdbcMetaBenchmark.class.getSimpleName())
+        .forks(1)
+        .build();
+
+    new Runner(opt).run();
+  }
+}
+
+// End JdbcMetaBenchmark.java
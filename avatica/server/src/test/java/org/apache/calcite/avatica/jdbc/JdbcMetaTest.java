@@ -31,6 +31,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -118,6 +119,24 @@ public class JdbcMetaTest {
     // Verify we called setMaxRows with the right value
     Mockito.verify(statement).setMaxRows(maxRows);
   }
+
+  @Test public void testDuplicateConnectionId() throws Exception {
+    final String url = "jdbc:hsqldb:mem:" + UUID.randomUUID();
+    final JdbcMeta meta = new JdbcMeta(url, "SA", "");
+    final ConnectionHandle ch = new ConnectionHandle("c1");
+    meta.openConnection(ch, Collections.<String, String>emptyMap());
+    final Connection connection = meta.getConnection(ch.id);
+    try {
+      meta.openConnection(ch, Collections.<String, String>emptyMap());
+      fail("Expected an exception to be thrown");
+    } catch (RuntimeException e) {
+      assertThat(e.getMessage(), is("Connection already exists: c1"));
+    }
+    // The original connection is still registered, and still usable
+    assertThat(meta.getConnection(ch.id), is(connection));
+    assertThat(connection.isClosed(), is(false));
+    meta.closeConnection(ch);
+  }
 }
 
 // End JdbcMetaTest.java
@@ -70,6 +70,7 @@
 import java.util.Properties;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -78,6 +79,7 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -163,6 +165,14 @@ private static Connection getConnection(JdbcMeta m, String id) throws Exception
     return connectionCache.getIfPresent(id);
   }
 
+  private static Object getStatement(JdbcMeta m, int id) throws Exception {
+    Field f = JdbcMeta.class.getDeclaredField("statementCache");
+    f.setAccessible(true);
+    //noinspection unchecked
+    Cache<Integer, ?> statementCache = (Cache<Integer, ?>) f.get(m);
+    return statementCache.getIfPresent(id);
+  }
+
   @Test public void testRemoteExecuteMaxRowCount() throws Exception {
     ConnectionSpec.getDatabaseLock().lock();
     try (AvaticaConnection conn = (AvaticaConnection) DriverManager.getConnection(url)) {
@@ -270,6 +280,146 @@ private static String longString(String fragment, int length) {
     }
   }
 
+  /** Tests that with pipelining, changes to connection properties and
+   * statement closes are sent with the next request. */
+  @Test public void testPipelinedRequests() throws Exception {
+    ConnectionSpec.getDatabaseLock().lock();
+    try (AvaticaConnection conn =
+             (AvaticaConnection) DriverManager.getConnection(url + ";pipeline=true")) {
+      final String id = conn.id;
+      final Map<String, ConnectionPropertiesImpl> m = ((RemoteMeta) getMeta(conn)).propsMap;
+      final JdbcMeta jdbcMeta = FullyRemoteJdbcMetaFactory.getInstance();
+      final Statement stmt = conn.createStatement();
+      assertTrue(stmt.execute("select count(1) from EMP"));
+      final Connection remoteConn = getConnection(jdbcMeta, id);
+      final boolean defaultAutoCommit = remoteConn.getAutoCommit();
+
+      conn.setAutoCommit(!defaultAutoCommit);
+      stmt.close();
+      final int closedId = ((AvaticaStatement) stmt).getId();
+      assertNotNull("close has not been sent yet", getStatement(jdbcMeta, closedId));
+
+      // The next request carries the sync and the close
+      try (final Statement stmt2 = conn.createStatement()) {
+        assertEquals(!defaultAutoCommit, remoteConn.getAutoCommit());
+        assertFalse("local values should be clean", m.get(id).isDirty());
+        assertNull("statement has been closed", getStatement(jdbcMeta, closedId));
+        final ResultSet rs = stmt2.executeQuery("select count(1) from EMP");
+        assertTrue(rs.next());
+        assertEquals(14, rs.getInt(1));
+      }
+    } finally {
+      ConnectionSpec.getDatabaseLock().unlock();
+    }
+  }
+
+  /** Tests how many HTTP round trips a query on a new statement takes: three
+   * without pipelining (create, prepare and execute, close), and two with
+   * it, because each close goes with the next request. */
+  @Test public void testPipelinedRoundTrips() throws Exception {
+    ConnectionSpec.getDatabaseLock().lock();
+    final String url2 =
+        url + ";httpclient_impl=" + CountingHttpClient.class.getName();
+    try (Connection conn = DriverManager.getConnection(url2);
+         Connection pipelinedConn =
+             DriverManager.getConnection(url2 + ";pipeline=true")) {
+      assertEquals(15, roundTrips(conn, 5));
+      assertEquals(10, roundTrips(pipelinedConn, 5));
+    } finally {
+      ConnectionSpec.getDatabaseLock().unlock();
+    }
+  }
+
+  /** Runs a query on a new statement {@code n} times, after running it once
+   * to synchronize the connection, and returns the number of HTTP round
+   * trips. */
+  private static int roundTrips(Connection conn, int n) throws SQLException {
+    countQuery(conn);
+    final int before = CountingHttpClient.COUNT.get();
+    for (int i = 0; i < n; i++) {
+      countQuery(conn);
+    }
+    return CountingHttpClient.COUNT.get() - before;
+  }
+
+  private static void countQuery(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      final ResultSet rs = stmt.executeQuery("select count(1) from EMP");
+      assertTrue(rs.next());
+      assertEquals(14, rs.getInt(1));
+    }
+  }
+
+  /** Tests that with pipelining, closes are sent without waiting for another
+   * request, once enough of them are waiting or after a while. */
+  @Test public void testPipelinedClosesFlushed() throws Exception {
+    ConnectionSpec.getDatabaseLock().lock();
+    try (Connection conn = DriverManager.getConnection(url
+        + ";pipeline=true;httpclient_impl=" + CountingHttpClient.class.getName())) {
+      final JdbcMeta jdbcMeta = FullyRemoteJdbcMetaFactory.getInstance();
+
+      // The last of MAX_PENDING_CLOSES closes sends them all, in one request
+      final List<AvaticaStatement> statements = new ArrayList<>();
+      for (int i = 0; i < RemoteMeta.MAX_PENDING_CLOSES; i++) {
+        statements.add((AvaticaStatement) conn.createStatement());
+      }
+      final int before = CountingHttpClient.COUNT.get();
+      for (AvaticaStatement statement : statements) {
+        statement.close();
+      }
+      assertEquals(1, CountingHttpClient.COUNT.get() - before);
+      for (AvaticaStatement statement : statements) {
+        assertNull(getStatement(jdbcMeta, statement.getId()));
+      }
+
+      // A single close is sent on its own after PENDING_CLOSE_MILLIS
+      final AvaticaStatement statement = (AvaticaStatement) conn.createStatement();
+      statement.close();
+      assertNotNull("close has not been sent yet",
+          getStatement(jdbcMeta, statement.getId()));
+      final long deadline = System.currentTimeMillis()
+          + RemoteMeta.PENDING_CLOSE_MILLIS * 10;
+      while (getStatement(jdbcMeta, statement.getId()) != null) {
+        assertTrue("close was not sent", System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+    } finally {
+      ConnectionSpec.getDatabaseLock().unlock();
+    }
+  }
+
+  /** Tests that a result set sent column by column has the same values as
+   * one sent by rows, including nulls and the frames after the first. */
+  @Test public void testColumnarFrames() throws Exception {
+    ConnectionSpec.getDatabaseLock().lock();
+    try (Connection conn = DriverManager.getConnection(url);
+         Connection conn2 = DriverManager.getConnection(url + ";columnar=true")) {
+      final String sql = "select * from EMP order by EMPNO";
+      assertEquals(rows(conn, sql), rows(conn2, sql));
+    } finally {
+      ConnectionSpec.getDatabaseLock().unlock();
+    }
+  }
+
+  private static List<List<Object>> rows(Connection conn, String sql)
+      throws SQLException {
+    final List<List<Object>> rows = new ArrayList<>();
+    try (Statement stmt = conn.createStatement()) {
+      stmt.setFetchSize(4);
+      final ResultSet rs = stmt.executeQuery(sql);
+      final int columnCount = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        final List<Object> row = new ArrayList<>();
+        for (int i = 1; i <= columnCount; i++) {
+          row.add(rs.getObject(i));
+        }
+        rows.add(row);
+      }
+    }
+    assertEquals(14, rows.size());
+    return rows;
+  }
+
   @Test public void testRemoteStatementInsert() throws Exception {
     ConnectionSpec.getDatabaseLock().lock();
     try {
@@ -683,6 +833,20 @@ private int getSales(Connection conn, String salesTable, int productId) throws E
     }
   }
 
+  /** HTTP client that counts the requests it sends. */
+  public static class CountingHttpClient extends AvaticaHttpClientImpl {
+    static final AtomicInteger COUNT = new AtomicInteger();
+
+    public CountingHttpClient(URL url) {
+      super(url);
+    }
+
+    @Override public byte[] send(byte[] request) {
+      COUNT.incrementAndGet();
+      return super.send(request);
+    }
+  }
+
   /** Factory that provides a {@link JdbcMeta}. */
   public static class FullyRemoteJdbcMetaFactory implements Meta.Factory {
 
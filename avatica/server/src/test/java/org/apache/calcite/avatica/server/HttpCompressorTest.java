@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.avatica.server;
+
+import org.apache.calcite.avatica.metrics.noop.NoopMetricsSystem;
+import org.apache.calcite.avatica.remote.HttpCompression;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link HttpCompressor}.
+ */
+public class HttpCompressorTest {
+  private static final byte[] BODY;
+
+  static {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("{\"value\":").append(i).append("},");
+    }
+    BODY = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private HttpCompressor compressor;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private ServletOutputStream os;
+
+  @Before public void setup() throws Exception {
+    compressor = new HttpCompressor(NoopMetricsSystem.getInstance(),
+        AvaticaJsonHandler.class, 100);
+    request = mock(HttpServletRequest.class);
+    response = mock(HttpServletResponse.class);
+    os = mock(ServletOutputStream.class);
+    when(response.getOutputStream()).thenReturn(os);
+  }
+
+  @Test public void testCompressed() throws Exception {
+    when(request.getHeader(HttpCompression.ACCEPT_ENCODING)).thenReturn("gzip");
+    compressor.write(request, response, BODY);
+    verify(response).setHeader(HttpCompression.CONTENT_ENCODING, HttpCompression.GZIP);
+    verify(response).setHeader(HttpCompression.VARY, HttpCompression.ACCEPT_ENCODING);
+    verify(response).setHeader(HttpCompression.ACCEPT_ENCODING, HttpCompression.GZIP);
+    verify(os).write(HttpCompression.gzip(BODY));
+  }
+
+  /** A client that does not accept gzip gets the body as is; the response
+   * still varies with Accept-Encoding. */
+  @Test public void testNotAccepted() throws Exception {
+    compressor.write(request, response, BODY);
+    verify(response, never()).setHeader(HttpCompression.CONTENT_ENCODING,
+        HttpCompression.GZIP);
+    verify(response).setHeader(HttpCompression.VARY, HttpCompression.ACCEPT_ENCODING);
+    verify(os).write(BODY);
+  }
+
+  /** A body below the threshold is never compressed, so the response does
+   * not vary, but the server still says that it accepts compressed
+   * requests. */
+  @Test public void testSmall() throws Exception {
+    when(request.getHeader(HttpCompression.ACCEPT_ENCODING)).thenReturn("gzip");
+    final byte[] body = Arrays.copyOf(BODY, 99);
+    compressor.write(request, response, body);
+    verify(response, never()).setHeader(HttpCompression.CONTENT_ENCODING,
+        HttpCompression.GZIP);
+    verify(response, never()).setHeader(HttpCompression.VARY,
+        HttpCompression.ACCEPT_ENCODING);
+    verify(response).setHeader(HttpCompression.ACCEPT_ENCODING, HttpCompression.GZIP);
+    verify(os).write(body);
+  }
+}
+
+// End HttpCompressorTest.java
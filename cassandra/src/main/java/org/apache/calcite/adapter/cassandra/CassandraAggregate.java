@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.cassandra;
+
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link org.apache.calcite.rel.core.Aggregate}
+ * relational expression in Cassandra.
+ *
+ * <p>Only aggregates without GROUP BY are supported, and only the COUNT,
+ * MIN and MAX functions, which CQL evaluates on the server.
+ */
+public class CassandraAggregate extends Aggregate implements CassandraRel {
+  public CassandraAggregate(RelOptCluster cluster, RelTraitSet traitSet,
+      RelNode child, boolean indicator, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls)
+      throws InvalidRelException {
+    super(cluster, traitSet, child, indicator, groupSet, groupSets, aggCalls);
+    assert getConvention() == CassandraRel.CONVENTION;
+    assert getConvention() == child.getConvention();
+
+    if (!groupSet.isEmpty() || getGroupType() != Group.SIMPLE) {
+      throw new InvalidRelException("GROUP BY not supported");
+    }
+    for (AggregateCall aggCall : aggCalls) {
+      if (!CassandraRules.isSupportedAggregate(aggCall)) {
+        throw new InvalidRelException("unsupported aggregate: " + aggCall);
+      }
+    }
+  }
+
+  @Override public Aggregate copy(RelTraitSet traitSet, RelNode input,
+      boolean indicator, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+    try {
+      return new CassandraAggregate(getCluster(), traitSet, input, indicator,
+          groupSet, groupSets, aggCalls);
+    } catch (InvalidRelException e) {
+      // Semantic error not possible. Must be a bug. Convert to
+      // internal error.
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    // Returning one row instead of the whole partition saves a lot of
+    // network traffic
+    return super.computeSelfCost(planner, mq).multiplyBy(0.1);
+  }
+
+  public void implement(Implementor implementor) {
+    implementor.visitChild(0, getInput());
+
+    // Names of the input fields as Cassandra knows them
+    final List<String> inNames;
+    if (implementor.selectFields.isEmpty()) {
+      inNames = CassandraRules.cassandraFieldNames(getInput().getRowType());
+    } else {
+      inNames = new ArrayList<String>(implementor.selectFields.keySet());
+    }
+
+    final Map<String, String> fields = new LinkedHashMap<String, String>();
+    for (Pair<AggregateCall, String> pair : getNamedAggCalls()) {
+      final AggregateCall aggCall = pair.left;
+      final List<String> args = new ArrayList<String>();
+      for (int arg : aggCall.getArgList()) {
+        args.add(inNames.get(arg));
+      }
+      final String expression = aggCall.getAggregation().getName()
+          + (args.isEmpty() ? "(*)" : Util.toString(args, "(", ", ", ")"));
+      // Generated names such as "EXPR$0" are not valid CQL identifiers
+      // unless quoted
+      fields.put(expression, "\"" + pair.right + "\"");
+    }
+    implementor.selectFields.clear();
+    implementor.add(fields, null);
+  }
+}
+
+// End CassandraAggregate.java
@@ -33,6 +33,8 @@
 
 /** Enumerator that reads from a Cassandra column family. */
 class CassandraEnumerator implements Enumerator<Object> {
+  private final ResultSet results;
+  private final int prefetchThreshold;
   private Iterator<Row> iterator;
   private Row current;
   private List<RelDataTypeField> fieldTypes;
@@ -43,6 +45,22 @@ class CassandraEnumerator implements Enumerator<Object> {
    * @param protoRowType The type of resulting rows
    */
   public CassandraEnumerator(ResultSet results, RelProtoDataType protoRowType) {
+    this(results, protoRowType, 0);
+  }
+
+  /** Creates a CassandraEnumerator that fetches the next page of results in
+   * the background.
+   *
+   * @param results Cassandra result set ({@link com.datastax.driver.core.ResultSet})
+   * @param protoRowType The type of resulting rows
+   * @param prefetchThreshold When this many rows of the current page remain
+   *   to be read, start fetching the next page; if 0, pages are fetched only
+   *   when needed
+   */
+  public CassandraEnumerator(ResultSet results, RelProtoDataType protoRowType,
+      int prefetchThreshold) {
+    this.results = results;
+    this.prefetchThreshold = prefetchThreshold;
     this.iterator = results.iterator();
     this.current = null;
 
@@ -93,6 +111,12 @@ private Object currentRowField(int index, SqlTypeName typeName) {
   }
 
   public boolean moveNext() {
+    if (prefetchThreshold > 0
+        && results.getAvailableWithoutFetching() == prefetchThreshold
+        && !results.isFullyFetched()) {
+      // Asynchronous; the driver will not fetch the same page twice
+      results.fetchMoreResults();
+    }
     if (iterator.hasNext()) {
       current = iterator.next();
       return true;
@@ -24,12 +24,16 @@
 import org.apache.calcite.plan.RelOptRuleOperand;
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.logical.LogicalAggregate;
 import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalProject;
 import org.apache.calcite.rel.type.RelDataType;
@@ -61,7 +65,9 @@ private CassandraRules() {}
     CassandraFilterRule.INSTANCE,
     CassandraProjectRule.INSTANCE,
     CassandraSortRule.INSTANCE,
-    CassandraLimitRule.INSTANCE
+    CassandraLimitRule.INSTANCE,
+    CassandraAggregateRule.INSTANCE,
+    CassandraAggregateRule.PROJECT_INSTANCE
   };
 
   static List<String> cassandraFieldNames(final RelDataType rowType) {
@@ -77,6 +83,25 @@ static List<String> cassandraFieldNames(final RelDataType rowType) {
         });
   }
 
+  /** Returns whether Cassandra can evaluate an aggregate call.
+   *
+   * <p>SUM and AVG are not pushed down: CQL computes them in the type of the
+   * column, so they may overflow or truncate where SQL would not. */
+  static boolean isSupportedAggregate(AggregateCall aggCall) {
+    if (aggCall.isDistinct() || aggCall.filterArg >= 0) {
+      return false;
+    }
+    switch (aggCall.getAggregation().getKind()) {
+    case COUNT:
+      return aggCall.getArgList().size() <= 1;
+    case MIN:
+    case MAX:
+      return aggCall.getArgList().size() == 1;
+    default:
+      return false;
+    }
+  }
+
   /** Translator from {@link RexNode} to strings in Cassandra's expression
    * language. */
   static class RexToCassandraTranslator extends RexVisitorImpl<String> {
@@ -414,6 +439,81 @@ public void onMatch(RelOptRuleCall call) {
       }
     }
   }
+
+  /**
+   * Rule to convert a {@link org.apache.calcite.rel.logical.LogicalAggregate}
+   * to a {@link CassandraAggregate}.
+   *
+   * <p>Only aggregates over a single partition are converted; an aggregate
+   * over a whole table would make Cassandra scan every node.
+   */
+  private static class CassandraAggregateRule extends RelOptRule {
+    private static final Predicate<LogicalAggregate> AGGREGATE_PREDICATE =
+        new Predicate<LogicalAggregate>() {
+          public boolean apply(LogicalAggregate input) {
+            if (!input.getGroupSet().isEmpty()
+                || input.getGroupType() != Aggregate.Group.SIMPLE) {
+              return false;
+            }
+            for (AggregateCall aggCall : input.getAggCallList()) {
+              if (!isSupportedAggregate(aggCall)) {
+                return false;
+              }
+            }
+            return true;
+          }
+        };
+    private static final Predicate<CassandraFilter> FILTER_PREDICATE =
+        new Predicate<CassandraFilter>() {
+          public boolean apply(CassandraFilter input) {
+            return input.isSinglePartition();
+          }
+        };
+
+    private static final CassandraAggregateRule INSTANCE =
+        new CassandraAggregateRule(
+            operand(CassandraToEnumerableConverter.class,
+                operand(CassandraFilter.class, null, FILTER_PREDICATE, any())),
+            "CassandraAggregateRule");
+
+    private static final CassandraAggregateRule PROJECT_INSTANCE =
+        new CassandraAggregateRule(
+            operand(CassandraToEnumerableConverter.class,
+                operand(CassandraProject.class,
+                    operand(CassandraFilter.class, null, FILTER_PREDICATE,
+                        any()))),
+            "CassandraAggregateRule:project");
+
+    private CassandraAggregateRule(RelOptRuleOperand cassandraOp,
+        String description) {
+      super(
+          operand(LogicalAggregate.class, null, AGGREGATE_PREDICATE,
+              cassandraOp),
+          description);
+    }
+
+    public RelNode convert(LogicalAggregate aggregate) {
+      final RelTraitSet traitSet =
+          aggregate.getTraitSet().replace(CassandraRel.CONVENTION);
+      try {
+        return new CassandraAggregate(aggregate.getCluster(), traitSet,
+            convert(aggregate.getInput(), CassandraRel.CONVENTION),
+            aggregate.indicator, aggregate.getGroupSet(),
+            aggregate.getGroupSets(), aggregate.getAggCallList());
+      } catch (InvalidRelException e) {
+        return null;
+      }
+    }
+
+    /** @see org.apache.calcite.rel.convert.ConverterRule */
+    public void onMatch(RelOptRuleCall call) {
+      final LogicalAggregate aggregate = call.rel(0);
+      final RelNode converted = convert(aggregate);
+      if (converted != null) {
+        call.transformTo(converted);
+      }
+    }
+  }
 }
 
 // End CassandraRules.java
@@ -68,11 +68,16 @@
 public class CassandraSchema extends AbstractSchema {
   final Session session;
   final String keyspace;
+  final int fetchSize;
   private final SchemaPlus parentSchema;
   final String name;
 
   protected static final Logger LOGGER = CalciteTrace.getPlannerTracer();
 
+  /** Default number of rows in each page of results fetched from
+   * Cassandra. */
+  public static final int DEFAULT_FETCH_SIZE = 5000;
+
   /**
    * Creates a Cassandra schema.
    *
@@ -80,9 +85,22 @@ public class CassandraSchema extends AbstractSchema {
    * @param keyspace Cassandra keyspace name, e.g. "twissandra"
    */
   public CassandraSchema(String host, String keyspace, SchemaPlus parentSchema, String name) {
+    this(host, keyspace, parentSchema, name, DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Creates a Cassandra schema.
+   *
+   * @param host Cassandra host, e.g. "localhost"
+   * @param keyspace Cassandra keyspace name, e.g. "twissandra"
+   * @param fetchSize Number of rows in each page of results
+   */
+  public CassandraSchema(String host, String keyspace, SchemaPlus parentSchema,
+      String name, int fetchSize) {
     super();
 
     this.keyspace = keyspace;
+    this.fetchSize = fetchSize;
     try {
       Cluster cluster = Cluster.builder().addContactPoint(host).build();
       this.session = cluster.connect(keyspace);
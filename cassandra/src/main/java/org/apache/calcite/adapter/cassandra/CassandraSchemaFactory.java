@@ -35,7 +35,11 @@ public Schema create(SchemaPlus parentSchema, String name,
     Map map = (Map) operand;
     String host = (String) map.get("host");
     String keyspace = (String) map.get("keyspace");
-    return new CassandraSchema(host, keyspace, parentSchema, name);
+    int fetchSize = CassandraSchema.DEFAULT_FETCH_SIZE;
+    if (map.get("fetchSize") instanceof Number) {
+      fetchSize = ((Number) map.get("fetchSize")).intValue();
+    }
+    return new CassandraSchema(host, keyspace, parentSchema, name, fetchSize);
   }
 }
 
@@ -29,6 +29,7 @@
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.rel.type.RelProtoDataType;
@@ -42,6 +43,8 @@
 
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -120,7 +123,12 @@ public Enumerable<Object> query(final Session session, List<Map.Entry<String, Cl
 
     Function1<String, Void> addField = new Function1<String, Void>() {
       public Void apply(String fieldName) {
-        SqlTypeName typeName = rowType.getField(fieldName, true, false).getType().getSqlTypeName();
+        final RelDataTypeField field = rowType.getField(fieldName, true, false);
+        // Expressions such as "COUNT(*)" are not columns of the table; the
+        // enumerator uses the type returned by Cassandra
+        SqlTypeName typeName = field == null
+            ? SqlTypeName.ANY
+            : field.getType().getSqlTypeName();
         fieldInfo.add(fieldName, typeFactory.createSqlType(typeName)).nullable(true);
         return null;
       }
@@ -189,13 +197,19 @@ public Iterator<String> iterator() {
     }
     queryBuilder.append(" ALLOW FILTERING");
     final String query = queryBuilder.toString();
+    final int fetchSize = schema.fetchSize;
 
     return new AbstractEnumerable<Object>() {
       public Enumerator<Object> enumerator() {
-        final ResultSet results = session.execute(query);
+        final Statement statement = new SimpleStatement(query);
+        statement.setFetchSize(fetchSize);
+        final ResultSet results = session.execute(statement);
         // Skip results until we get to the right offset
         int skip = 0;
-        Enumerator<Object> enumerator = new CassandraEnumerator(results, resultRowType);
+        // Start fetching the next page when a quarter of this one remains, so
+        // that the network round trip overlaps with processing rows
+        Enumerator<Object> enumerator =
+            new CassandraEnumerator(results, resultRowType, fetchSize / 4);
         while (skip < offset && enumerator.moveNext()) { skip++; }
 
         return enumerator;
@@ -158,6 +158,28 @@ protected boolean enabled() {
                + "tweet_id=f3e4182e-d05b-11e5-b58b-90e2ba530b12\n");
   }
 
+  @Test public void testAggregate() {
+    CalciteAssert.that()
+        .enable(enabled())
+        .with(TWISSANDRA)
+        .query("select count(*) as c, max(\"time\") as m from \"userline\" "
+             + "where \"username\"='!PUBLIC!'")
+        .returnsCount(1)
+        .explainContains("PLAN=CassandraToEnumerableConverter\n"
+            + "  CassandraAggregate(group=[{}], C=[COUNT()], M=[MAX($0)])\n"
+            + "    CassandraProject(time=[$1])\n"
+            + "      CassandraFilter(condition=[=(CAST($0):VARCHAR(8) CHARACTER SET \"ISO-8859-1\" COLLATE \"ISO-8859-1$en_US$primary\", '!PUBLIC!')])\n");
+  }
+
+  @Test public void testAggregateCount() {
+    CalciteAssert.that()
+        .enable(enabled())
+        .with(TWISSANDRA)
+        .query("select count(*) as c from \"userline\" "
+             + "where \"username\"='!PUBLIC!'")
+        .returns("C=146\n");
+  }
+
   @Test public void testMaterializedView() {
     CalciteAssert.that()
         .enable(enabled())
@@ -25,15 +25,19 @@
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.Queryable;
 import org.apache.calcite.linq4j.tree.Primitive;
+import org.apache.calcite.plan.RelOptSamplingParameters;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.runtime.Sampler;
+import org.apache.calcite.schema.SampleableTable;
 import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Statistic;
 import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.schema.impl.AbstractTableQueryable;
 import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Pair;
@@ -55,7 +59,8 @@
  * values in the column; see {@link Representation} and
  * {@link RepresentationType}.
  */
-class ArrayTable extends AbstractQueryableTable implements ScannableTable {
+class ArrayTable extends AbstractQueryableTable
+    implements ScannableTable, SampleableTable {
   private final RelProtoDataType protoRowType;
   private final Supplier<Content> supplier;
 
@@ -91,6 +96,29 @@ public Enumerator<Object[]> enumerator() {
     };
   }
 
+  /** {@inheritDoc}
+   *
+   * <p>Rows are read by position, so in system mode the scan skips each
+   * block that is not chosen, and in Bernoulli mode it builds only the rows
+   * that are chosen. */
+  public ScannableTable sample(RelOptSamplingParameters params) {
+    final boolean bernoulli = params.isBernoulli();
+    final double rate = params.getSamplingPercentage();
+    final Integer seed =
+        params.isRepeatable() ? params.getRepeatableSeed() : null;
+    return new SampledTable() {
+      public Enumerable<Object[]> scan(DataContext root) {
+        return new AbstractEnumerable<Object[]>() {
+          public Enumerator<Object[]> enumerator() {
+            final Content content = supplier.get();
+            return content.arrayEnumerator(
+                new Sampler(bernoulli, rate, seed));
+          }
+        };
+      }
+    };
+  }
+
   public <T> Queryable<T> asQueryable(final QueryProvider queryProvider,
       SchemaPlus schema, String tableName) {
     return new AbstractTableQueryable<T>(queryProvider, schema, this,
@@ -103,6 +131,14 @@ public Enumerator<T> enumerator() {
     };
   }
 
+  /** Sample of the rows of this table. */
+  private abstract class SampledTable extends AbstractTable
+      implements ScannableTable {
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return ArrayTable.this.getRowType(typeFactory);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static <T> Pair<Object, T> toPair(Object dataSet) {
     return (Pair<Object, T>) dataSet;
@@ -832,6 +868,11 @@ public Enumerator<Object[]> arrayEnumerator() {
       return new ArrayEnumerator(size, columns);
     }
 
+    /** Returns an enumerator over the rows chosen by a sampler. */
+    public Enumerator<Object[]> arrayEnumerator(Sampler sampler) {
+      return new SampleArrayEnumerator(size, columns, sampler);
+    }
+
     /** Enumerator over a table with a single column; each element
      * returned is an object. */
     private static class ObjectEnumerator implements Enumerator<Object> {
@@ -894,6 +935,41 @@ public void reset() {
       public void close() {
       }
     }
+
+    /** Enumerator over the rows of a table chosen by a {@link Sampler};
+     * each element returned is an array of objects. */
+    private static class SampleArrayEnumerator extends ArrayEnumerator {
+      final Sampler sampler;
+
+      SampleArrayEnumerator(int rowCount, List<Column> columns,
+          Sampler sampler) {
+        super(rowCount, columns);
+        this.sampler = sampler;
+      }
+
+      @Override public boolean moveNext() {
+        for (;;) {
+          if (++i >= rowCount) {
+            return false;
+          }
+          if (!sampler.isBlock()) {
+            if (sampler.next()) {
+              return true;
+            }
+          } else if (i % Sampler.BLOCK_SIZE != 0 || sampler.nextBlock()) {
+            return true;
+          } else {
+            // Skip the rest of the block
+            i += Sampler.BLOCK_SIZE - 1;
+          }
+        }
+      }
+
+      @Override public void reset() {
+        super.reset();
+        sampler.reset();
+      }
+    }
   }
 }
 
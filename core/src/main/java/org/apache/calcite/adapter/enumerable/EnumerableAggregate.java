@@ -46,6 +46,7 @@
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import java.lang.reflect.Type;
@@ -429,6 +430,7 @@ public RexToLixTranslator rowTranslator() {
                       accumulatorAdder,
                       resultSelector))));
     } else if (aggCalls.isEmpty()
+        && watermarkField() < 0
         && groupSet.equals(
             ImmutableBitSet.range(child.getRowType().getFieldCount()))) {
       builder.add(
@@ -451,18 +453,46 @@ public RexToLixTranslator rowTranslator() {
                   resultBlock.toBlock(),
                   key_,
                   acc_));
-      builder.add(
-          Expressions.return_(null,
-              Expressions.call(childExp,
-                  BuiltInMethod.GROUP_BY2.method,
-                  Expressions.list(keySelector_,
-                      accumulatorInitializer,
-                      accumulatorAdder,
-                      resultSelector_)
-                      .appendIfNotNull(keyPhysType.comparer()))));
+      if (watermarkField() >= 0) {
+        final Expression watermarkSelector_ =
+            builder.append("watermarkSelector",
+                inputPhysType.generateSelector(parameter,
+                    ImmutableList.of(watermarkField()),
+                    JavaRowFormat.SCALAR));
+        builder.add(
+            Expressions.return_(null,
+                Expressions.call(BuiltInMethod.STREAM_GROUP_BY.method,
+                    Expressions.list(childExp,
+                        keySelector_,
+                        watermarkSelector_,
+                        accumulatorInitializer,
+                        accumulatorAdder,
+                        resultSelector_)
+                        .appendIfNotNull(keyPhysType.comparer()))));
+      } else {
+        builder.add(
+            Expressions.return_(null,
+                Expressions.call(childExp,
+                    BuiltInMethod.GROUP_BY2.method,
+                    Expressions.list(keySelector_,
+                        accumulatorInitializer,
+                        accumulatorAdder,
+                        resultSelector_)
+                        .appendIfNotNull(keyPhysType.comparer()))));
+      }
     }
     return implementor.result(physType, builder.toBlock());
   }
+
+  /** Returns the ordinal of the input field that tells when a group is
+   * complete, or -1 if groups are complete only at the end of the input.
+   *
+   * <p>If the ordinal is not negative, the field must be a grouping key, and
+   * its value must never decrease; all groups with a smaller value are
+   * emitted as soon as a row with a greater value arrives. */
+  protected int watermarkField() {
+    return -1;
+  }
 }
 
 // End EnumerableAggregate.java
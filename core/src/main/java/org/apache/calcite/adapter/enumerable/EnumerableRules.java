@@ -57,6 +57,16 @@ private EnumerableRules() {
   public static final EnumerableAggregateRule ENUMERABLE_AGGREGATE_RULE =
       new EnumerableAggregateRule();
 
+  /** Rule that implements a streaming aggregation, emitting each window's
+   * groups as soon as the window is complete. */
+  public static final RelOptRule ENUMERABLE_STREAM_AGGREGATE_RULE =
+      new EnumerableStreamAggregateRule();
+
+  /** Rule that implements a join between a stream and a table by probing an
+   * in-memory index of the table. */
+  public static final RelOptRule ENUMERABLE_STREAM_JOIN_RULE =
+      new EnumerableStreamJoinRule();
+
   public static final EnumerableSortRule ENUMERABLE_SORT_RULE =
       new EnumerableSortRule();
 
@@ -78,6 +88,9 @@ private EnumerableRules() {
   public static final EnumerableValuesRule ENUMERABLE_VALUES_RULE =
       new EnumerableValuesRule();
 
+  public static final EnumerableSampleRule ENUMERABLE_SAMPLE_RULE =
+      new EnumerableSampleRule();
+
   public static final EnumerableWindowRule ENUMERABLE_WINDOW_RULE =
       new EnumerableWindowRule();
 
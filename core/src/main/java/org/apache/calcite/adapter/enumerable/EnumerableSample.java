@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptSamplingParameters;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Sample;
+import org.apache.calcite.rel.metadata.RelMdCollation;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.BuiltInMethod;
+
+import com.google.common.base.Supplier;
+
+import java.util.List;
+
+/** Implementation of {@link org.apache.calcite.rel.core.Sample} in
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}.
+ *
+ * <p>Reads all rows of its input and keeps those chosen by a
+ * {@link org.apache.calcite.runtime.Sampler}. Tables that can sample their
+ * own rows more cheaply implement
+ * {@link org.apache.calcite.schema.SampleableTable}, and
+ * {@link org.apache.calcite.rel.rules.SampleTableScanRule} pushes the sample
+ * into their scan. */
+public class EnumerableSample extends Sample implements EnumerableRel {
+  /** Creates an EnumerableSample.
+   *
+   * <p>Use {@link #create} unless you know what you're doing. */
+  public EnumerableSample(RelOptCluster cluster, RelTraitSet traitSet,
+      RelNode input, RelOptSamplingParameters params) {
+    super(cluster, traitSet, input, params);
+    assert getConvention() instanceof EnumerableConvention;
+  }
+
+  /** Creates an EnumerableSample. */
+  public static EnumerableSample create(final RelNode input,
+      RelOptSamplingParameters params) {
+    final RelOptCluster cluster = input.getCluster();
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final RelTraitSet traitSet =
+        cluster.traitSetOf(EnumerableConvention.INSTANCE)
+            .replaceIfs(
+                RelCollationTraitDef.INSTANCE,
+                new Supplier<List<RelCollation>>() {
+                  public List<RelCollation> get() {
+                    return RelMdCollation.filter(mq, input);
+                  }
+                });
+    return new EnumerableSample(cluster, traitSet, input, params);
+  }
+
+  @Override public EnumerableSample copy(RelTraitSet traitSet,
+      List<RelNode> inputs) {
+    return new EnumerableSample(getCluster(), traitSet, sole(inputs),
+        getSamplingParameters());
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    final BlockBuilder builder = new BlockBuilder();
+    final EnumerableRel child = (EnumerableRel) getInput();
+    final Result result = implementor.visitChild(this, 0, child, pref);
+    final PhysType physType =
+        PhysTypeImpl.of(
+            implementor.getTypeFactory(),
+            getRowType(),
+            result.format);
+
+    final RelOptSamplingParameters params = getSamplingParameters();
+    final Expression v = builder.append("child", result.block);
+    builder.add(
+        Expressions.return_(
+            null,
+            Expressions.call(
+                BuiltInMethod.SAMPLE.method,
+                v,
+                Expressions.constant(params.isBernoulli()),
+                Expressions.constant(
+                    (double) params.getSamplingPercentage()),
+                Expressions.constant(
+                    params.isRepeatable() ? params.getRepeatableSeed() : null,
+                    Integer.class))));
+    return implementor.result(physType, builder.toBlock());
+  }
+}
+
+// End EnumerableSample.java
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.Convention;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.Sample;
+
+/** Rule to convert a {@link org.apache.calcite.rel.core.Sample} to an
+ * {@link EnumerableSample}. */
+class EnumerableSampleRule extends ConverterRule {
+  EnumerableSampleRule() {
+    super(Sample.class, Convention.NONE, EnumerableConvention.INSTANCE,
+        "EnumerableSampleRule");
+  }
+
+  public RelNode convert(RelNode rel) {
+    final Sample sample = (Sample) rel;
+    final RelTraitSet traitSet =
+        sample.getInput().getTraitSet().replace(EnumerableConvention.INSTANCE);
+    return EnumerableSample.create(convert(sample.getInput(), traitSet),
+        sample.getSamplingParameters());
+  }
+}
+
+// End EnumerableSampleRule.java
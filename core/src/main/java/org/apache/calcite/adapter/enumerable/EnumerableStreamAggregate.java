@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.List;
+
+/** Implementation of {@link org.apache.calcite.rel.core.Aggregate} over a
+ * stream, in {@link EnumerableConvention enumerable calling convention}.
+ *
+ * <p>Unlike {@link EnumerableAggregate}, it does not wait for the end of its
+ * input, which may never come. One of the grouping keys, the watermark, is
+ * known to arrive in ascending order, typically because it is the start of
+ * a tumbling window such as {@code FLOOR(rowtime TO HOUR)}. When the
+ * watermark advances, the groups of earlier windows are emitted and their
+ * state discarded. */
+public class EnumerableStreamAggregate extends EnumerableAggregate {
+  private final int watermarkField;
+
+  public EnumerableStreamAggregate(RelOptCluster cluster,
+      RelTraitSet traitSet, RelNode child, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls,
+      int watermarkField) throws InvalidRelException {
+    super(cluster, traitSet, child, false, groupSet, groupSets, aggCalls);
+    this.watermarkField = watermarkField;
+    assert groupSet.get(watermarkField);
+    if (getGroupType() != Group.SIMPLE) {
+      throw new InvalidRelException(
+          "grouping sets not supported in streaming aggregate");
+    }
+  }
+
+  @Override public EnumerableStreamAggregate copy(RelTraitSet traitSet,
+      RelNode input, boolean indicator, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+    assert !indicator;
+    try {
+      return new EnumerableStreamAggregate(getCluster(), traitSet, input,
+          groupSet, groupSets, aggCalls, watermarkField);
+    } catch (InvalidRelException e) {
+      // Semantic error not possible. Must be a bug. Convert to
+      // internal error.
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .item("watermark", watermarkField);
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    // Holds only the groups of open windows, so is preferred to an
+    // EnumerableAggregate, which would read all of the stream before
+    // emitting anything.
+    return super.computeSelfCost(planner, mq).multiplyBy(0.5);
+  }
+
+  @Override protected int watermarkField() {
+    return watermarkField;
+  }
+}
+
+// End EnumerableStreamAggregate.java
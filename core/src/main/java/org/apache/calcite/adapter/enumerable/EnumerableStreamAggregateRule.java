@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.stream.LogicalDelta;
+
+import java.util.List;
+
+/**
+ * Rule to convert a {@link LogicalDelta} on a {@link LogicalAggregate} (that
+ * is, a streaming aggregation) to an {@link EnumerableStreamAggregate}.
+ *
+ * <p>The rule applies only if one of the grouping keys is known to arrive in
+ * ascending order.
+ */
+class EnumerableStreamAggregateRule extends RelOptRule {
+  EnumerableStreamAggregateRule() {
+    super(
+        operand(LogicalDelta.class,
+            operand(LogicalAggregate.class, any())),
+        "EnumerableStreamAggregateRule");
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final LogicalDelta delta = call.rel(0);
+    final LogicalAggregate aggregate = call.rel(1);
+    if (aggregate.indicator
+        || aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
+      return;
+    }
+    final int watermarkField = watermarkField(aggregate);
+    if (watermarkField < 0) {
+      return;
+    }
+    final RelNode input =
+        convert(LogicalDelta.create(aggregate.getInput()),
+            EnumerableConvention.INSTANCE);
+    try {
+      call.transformTo(
+          new EnumerableStreamAggregate(aggregate.getCluster(),
+              delta.getTraitSet().replace(EnumerableConvention.INSTANCE),
+              input, aggregate.getGroupSet(), aggregate.getGroupSets(),
+              aggregate.getAggCallList(), watermarkField));
+    } catch (InvalidRelException e) {
+      EnumerableRules.LOGGER.debug(e.toString());
+    }
+  }
+
+  /** Returns a grouping key of an aggregate whose values arrive in
+   * ascending order, or -1 if there is none. */
+  private static int watermarkField(Aggregate aggregate) {
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final List<RelCollation> collations = mq.collations(aggregate.getInput());
+    if (collations != null) {
+      for (RelCollation collation : collations) {
+        if (collation.getFieldCollations().isEmpty()) {
+          continue;
+        }
+        final RelFieldCollation fieldCollation =
+            collation.getFieldCollations().get(0);
+        switch (fieldCollation.getDirection()) {
+        case ASCENDING:
+        case STRICTLY_ASCENDING:
+          if (aggregate.getGroupSet().get(fieldCollation.getFieldIndex())) {
+            return fieldCollation.getFieldIndex();
+          }
+          break;
+        default:
+          break;
+        }
+      }
+    }
+    return -1;
+  }
+}
+
+// End EnumerableStreamAggregateRule.java
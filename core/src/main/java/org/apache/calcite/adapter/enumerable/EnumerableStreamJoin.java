@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.CorrelationId;
+import org.apache.calcite.rel.core.JoinInfo;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.ImmutableIntList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/** Implementation of a join between a stream (on the left) and a table (on
+ * the right) in {@link EnumerableConvention enumerable calling convention}.
+ *
+ * <p>The table is read into an in-memory index, which is probed for each row
+ * of the stream, and re-read every {@code refreshMillis} milliseconds so
+ * that the stream sees changes to the table. */
+public class EnumerableStreamJoin extends EnumerableJoin {
+  private final long refreshMillis;
+
+  public EnumerableStreamJoin(RelOptCluster cluster, RelTraitSet traits,
+      RelNode left, RelNode right, RexNode condition,
+      ImmutableIntList leftKeys, ImmutableIntList rightKeys,
+      JoinRelType joinType, long refreshMillis) throws InvalidRelException {
+    super(cluster, traits, left, right, condition, leftKeys, rightKeys,
+        ImmutableSet.<CorrelationId>of(), joinType);
+    this.refreshMillis = refreshMillis;
+    if (joinType.generatesNullsOnLeft()) {
+      throw new InvalidRelException(
+          "stream join does not support join type " + joinType);
+    }
+  }
+
+  @Override public EnumerableStreamJoin copy(RelTraitSet traitSet,
+      RexNode condition, RelNode left, RelNode right, JoinRelType joinType,
+      boolean semiJoinDone) {
+    final JoinInfo joinInfo = JoinInfo.of(left, right, condition);
+    assert joinInfo.isEqui();
+    try {
+      return new EnumerableStreamJoin(getCluster(), traitSet, left, right,
+          condition, joinInfo.leftKeys, joinInfo.rightKeys, joinType,
+          refreshMillis);
+    } catch (InvalidRelException e) {
+      // Semantic error not possible. Must be a bug. Convert to
+      // internal error.
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .item("refresh", refreshMillis);
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    // Reads the table once per refresh interval, not once per query, and
+    // never buffers the stream; so preferred to EnumerableJoin.
+    return super.computeSelfCost(planner, mq).multiplyBy(0.5);
+  }
+
+  @Override public Result implement(EnumerableRelImplementor implementor,
+      Prefer pref) {
+    final BlockBuilder builder = new BlockBuilder();
+    final Result leftResult =
+        implementor.visitChild(this, 0, (EnumerableRel) left, pref);
+    final Expression leftExpression =
+        builder.append("left", leftResult.block);
+    final Result rightResult =
+        implementor.visitChild(this, 1, (EnumerableRel) right, pref);
+    final Expression rightExpression =
+        builder.append("right", rightResult.block);
+    final PhysType physType =
+        PhysTypeImpl.of(
+            implementor.getTypeFactory(), getRowType(), pref.preferArray());
+    return implementor.result(
+        physType,
+        builder.append(
+            Expressions.call(
+                BuiltInMethod.STREAM_JOIN.method,
+                leftExpression,
+                rightExpression,
+                leftResult.physType.generateAccessor(leftKeys),
+                rightResult.physType.generateAccessor(rightKeys),
+                EnumUtils.joinSelector(joinType,
+                    physType,
+                    ImmutableList.of(
+                        leftResult.physType, rightResult.physType)),
+                Expressions.constant(refreshMillis),
+                Expressions.constant(joinType.generatesNullsOnRight())))
+            .toBlock());
+  }
+}
+
+// End EnumerableStreamJoin.java
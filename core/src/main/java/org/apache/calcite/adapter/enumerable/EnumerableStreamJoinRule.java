@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.config.CalciteConnectionConfig;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.volcano.RelSubset;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.JoinInfo;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.stream.Delta;
+import org.apache.calcite.rel.stream.LogicalDelta;
+import org.apache.calcite.schema.StreamableTable;
+
+/**
+ * Rule to convert a {@link LogicalDelta} on a {@link LogicalJoin} whose left
+ * input is a stream and whose right input is a table into an
+ * {@link EnumerableStreamJoin}.
+ */
+class EnumerableStreamJoinRule extends RelOptRule {
+  EnumerableStreamJoinRule() {
+    super(
+        operand(LogicalDelta.class,
+            operand(LogicalJoin.class, any())),
+        "EnumerableStreamJoinRule");
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final LogicalDelta delta = call.rel(0);
+    final LogicalJoin join = call.rel(1);
+    switch (join.getJoinType()) {
+    case INNER:
+    case LEFT:
+      break;
+    default:
+      return;
+    }
+    if (isStatic(join.getLeft()) || !isStatic(join.getRight())) {
+      return;
+    }
+    final JoinInfo info = JoinInfo.of(join.getLeft(), join.getRight(),
+        join.getCondition());
+    if (!info.isEqui()) {
+      return;
+    }
+    final RelNode left =
+        convert(LogicalDelta.create(join.getLeft()),
+            EnumerableConvention.INSTANCE);
+    final RelNode right =
+        convert(join.getRight(), EnumerableConvention.INSTANCE);
+    try {
+      call.transformTo(
+          new EnumerableStreamJoin(join.getCluster(),
+              delta.getTraitSet().replace(EnumerableConvention.INSTANCE),
+              left, right, join.getCondition(), info.leftKeys,
+              info.rightKeys, join.getJoinType(), refreshMillis(call)));
+    } catch (InvalidRelException e) {
+      EnumerableRules.LOGGER.debug(e.toString());
+    }
+  }
+
+  private static long refreshMillis(RelOptRuleCall call) {
+    final CalciteConnectionConfig config =
+        call.getPlanner().getContext().unwrap(CalciteConnectionConfig.class);
+    if (config != null) {
+      return config.streamJoinRefresh();
+    }
+    return Long.parseLong(
+        (String) CalciteConnectionProperty.STREAM_JOIN_REFRESH.defaultValue());
+  }
+
+  /** Returns whether a relational expression reads no streams. */
+  private static boolean isStatic(RelNode rel) {
+    if (rel instanceof RelSubset) {
+      rel = ((RelSubset) rel).getOriginal();
+    }
+    if (rel instanceof Delta) {
+      return false;
+    }
+    if (rel instanceof TableScan) {
+      return rel.getTable().unwrap(StreamableTable.class) == null;
+    }
+    for (RelNode input : rel.getInputs()) {
+      if (!isStatic(input)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
+
+// End EnumerableStreamJoinRule.java
@@ -20,6 +20,7 @@
 import org.apache.calcite.adapter.enumerable.impl.WinAggResetContextImpl;
 import org.apache.calcite.adapter.enumerable.impl.WinAggResultContextImpl;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.BinaryExpression;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.BlockStatement;
@@ -34,6 +35,7 @@
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.prepare.CalcitePrepareImpl;
+import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
@@ -48,6 +50,7 @@
 import org.apache.calcite.runtime.SortedMultiMap;
 import org.apache.calcite.sql.SqlAggFunction;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
@@ -64,6 +67,11 @@
 /** Implementation of {@link org.apache.calcite.rel.core.Window} in
  * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}. */
 public class EnumerableWindow extends Window implements EnumerableRel {
+  /** Maximum number of rows in a ROWS window frame of fixed size for which
+   * aggregates are re-computed for each row. Over a larger frame that slides
+   * forward, invertible aggregates remove the rows that leave the frame. */
+  private static final int MAX_RECOMPUTE_FRAME_ROWS = 16;
+
   /** Creates an EnumerableWindowRel. */
   EnumerableWindow(RelOptCluster cluster, RelTraitSet traits, RelNode child,
       List<RexLiteral> constants, RelDataType rowType, List<Group> groups) {
@@ -131,7 +139,14 @@ private void sampleOfTheGeneratedWindowedAggregate() {
       if (start != prevStart || end != prevEnd) {
         // builder5
         int actualStart = 0;
-        if (start != prevStart || end < prevEnd) {
+        if (prevStart >= 0 && start >= prevStart && start <= prevEnd + 1
+            && end >= prevEnd) {
+          // only if the frame slides and all aggregates are invertible
+          for (int k = prevStart; k < start; k++) {
+            // implementRemove
+          }
+          actualStart = prevEnd + 1;
+        } else if (start != prevStart || end < prevEnd) {
           // builder6
           // recompute
           actualStart = start;
@@ -197,9 +212,10 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
               inputPhysType.generateComparator(
                   group.collation()));
 
+      // Only the input of the first group arrives in its original order
       Pair<Expression, Expression> partitionIterator =
           getPartitionIterator(builder, source_, inputPhysType, group,
-              comparator_);
+              comparator_, windowIdx == 0 && isInputSorted(group));
       final Expression collectionExpr = partitionIterator.left;
       final Expression iterator_ = partitionIterator.right;
 
@@ -225,10 +241,13 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
       final Expression list_ =
           builder.append(
               "list",
-              Expressions.new_(
-                  ArrayList.class,
-                  Expressions.call(
-                      collectionExpr, BuiltInMethod.COLLECTION_SIZE.method)),
+              collectionExpr == null
+                  ? Expressions.new_(ArrayList.class)
+                  : Expressions.new_(
+                      ArrayList.class,
+                      Expressions.call(
+                          collectionExpr,
+                          BuiltInMethod.COLLECTION_SIZE.method)),
               false);
 
       Pair<Expression, Expression> collationKey =
@@ -284,8 +303,9 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                 outputPhysType.getJavaFieldType(i)));
       }
 
+      final boolean sliding = isSliding(group);
       declareAndResetState(typeFactory, builder, result, windowIdx, aggs,
-          outputPhysType, outputRow);
+          outputPhysType, outputRow, sliding);
 
       // There are assumptions that minX==0. If ever change this, look for
       // frameRowCount, bounds checking, etc
@@ -372,6 +392,37 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
       ParameterExpression actualStart = Expressions.parameter(
           0, int.class, builder5.newName("actualStart"));
 
+      final DeclarationStatement jDecl =
+          Expressions.declare(0, "j", actualStart);
+
+      final PhysType inputPhysTypeFinal = inputPhysType;
+      final Function<BlockBuilder, WinAggFrameResultContext>
+          resultContextBuilder =
+          getBlockBuilderWinAggFrameResultContextFunction(typeFactory, result,
+              translatedConstants, comparator_, rows_, i_, startX, endX,
+              minX, maxX,
+              hasRows, frameRowCount, partitionRowCount,
+              jDecl, inputPhysTypeFinal);
+
+      final Function<AggImpState, List<RexNode>> rexArguments =
+          new Function<AggImpState, List<RexNode>>() {
+            public List<RexNode> apply(AggImpState agg) {
+              List<Integer> argList = agg.call.getArgList();
+              List<RelDataType> inputTypes =
+                  EnumUtils.fieldRowTypes(
+                      result.physType.getRowType(),
+                      constants,
+                      argList);
+              List<RexNode> args = new ArrayList<RexNode>(
+                  inputTypes.size());
+              for (int i = 0; i < argList.size(); i++) {
+                Integer idx = argList.get(i);
+                args.add(new RexInputRef(idx, inputTypes.get(i)));
+              }
+              return args;
+            }
+          };
+
       final BlockBuilder builder6 = new BlockBuilder(true, builder5);
       builder6.add(
           Expressions.statement(Expressions.assign(actualStart, startX)));
@@ -391,7 +442,51 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
           Expressions.lessThan(endX, prevEnd));
 
       BlockStatement resetWindowState = builder6.toBlock();
-      if (resetWindowState.statements.size() == 1) {
+      BlockStatement slideWindowState = null;
+      if (sliding && isInvertible(aggs)) {
+        // Remove the rows that have left the frame; the rows that have
+        // entered it are added below.
+        final BlockBuilder builder8 = new BlockBuilder(true, builder5);
+        final DeclarationStatement kDecl =
+            Expressions.declare(0, "k", prevStart);
+        implementRemove(aggs, builder8,
+            getBlockBuilderWinAggFrameResultContextFunction(typeFactory,
+                result, translatedConstants, comparator_, rows_, i_, startX,
+                endX, minX, maxX, hasRows, frameRowCount, partitionRowCount,
+                kDecl, inputPhysTypeFinal),
+            rexArguments, kDecl);
+        final BlockStatement removeBlock = builder8.toBlock();
+        if (!removeBlock.statements.isEmpty()) {
+          slideWindowState =
+              Expressions.block(
+                  Expressions.for_(
+                      Arrays.asList(kDecl),
+                      Expressions.lessThan(kDecl.parameter, startX),
+                      Expressions.preIncrementAssign(kDecl.parameter),
+                      removeBlock),
+                  Expressions.statement(
+                      Expressions.assign(actualStart,
+                          Expressions.add(prevEnd, Expressions.constant(1)))));
+        }
+      }
+      if (slideWindowState != null) {
+        // The frame slides if it overlaps the previous frame, and neither
+        // of its bounds has moved backwards
+        final Expression canSlide =
+            Expressions.foldAnd(
+                ImmutableList.of(
+                    Expressions.greaterThanOrEqual(prevStart,
+                        Expressions.constant(0)),
+                    Expressions.greaterThanOrEqual(startX, prevStart),
+                    Expressions.lessThanOrEqual(startX,
+                        Expressions.add(prevEnd, Expressions.constant(1))),
+                    Expressions.greaterThanOrEqual(endX, prevEnd)));
+        builder5.add(
+            Expressions.declare(0, actualStart, null));
+        builder5.add(
+            Expressions.ifThenElse(canSlide, slideWindowState,
+                resetWindowState));
+      } else if (resetWindowState.statements.size() == 1) {
         builder5.add(
             Expressions.declare(0, actualStart,
                 Expressions.condition(needRecomputeWindow, startX,
@@ -415,37 +510,6 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
           Expressions.statement(Expressions.assign(prevEnd, endX)));
 
       final BlockBuilder builder7 = new BlockBuilder(true, builder5);
-      final DeclarationStatement jDecl =
-          Expressions.declare(0, "j", actualStart);
-
-      final PhysType inputPhysTypeFinal = inputPhysType;
-      final Function<BlockBuilder, WinAggFrameResultContext>
-          resultContextBuilder =
-          getBlockBuilderWinAggFrameResultContextFunction(typeFactory, result,
-              translatedConstants, comparator_, rows_, i_, startX, endX,
-              minX, maxX,
-              hasRows, frameRowCount, partitionRowCount,
-              jDecl, inputPhysTypeFinal);
-
-      final Function<AggImpState, List<RexNode>> rexArguments =
-          new Function<AggImpState, List<RexNode>>() {
-            public List<RexNode> apply(AggImpState agg) {
-              List<Integer> argList = agg.call.getArgList();
-              List<RelDataType> inputTypes =
-                  EnumUtils.fieldRowTypes(
-                      result.physType.getRowType(),
-                      constants,
-                      argList);
-              List<RexNode> args = new ArrayList<RexNode>(
-                  inputTypes.size());
-              for (int i = 0; i < argList.size(); i++) {
-                Integer idx = argList.get(i);
-                args.add(new RexInputRef(idx, inputTypes.get(i)));
-              }
-              return args;
-            }
-          };
-
       implementAdd(aggs, builder7, resultContextBuilder, rexArguments, jDecl);
 
       BlockStatement forBlock = builder7.toBlock();
@@ -496,11 +560,13 @@ public List<RexNode> apply(AggImpState agg) {
                   iterator_,
                   BuiltInMethod.ITERATOR_HAS_NEXT.method),
               builder3.toBlock()));
-      builder.add(
-          Expressions.statement(
-              Expressions.call(
-                  collectionExpr,
-                  BuiltInMethod.MAP_CLEAR.method)));
+      if (collectionExpr != null) {
+        builder.add(
+            Expressions.statement(
+                Expressions.call(
+                    collectionExpr,
+                    BuiltInMethod.MAP_CLEAR.method)));
+      }
 
       // We're not assigning to "source". For each group, create a new
       // final variable called "source" or "sourceN".
@@ -641,7 +707,38 @@ private Pair<Expression, Expression> getPartitionIterator(
       Expression source_,
       PhysType inputPhysType,
       Group group,
-      Expression comparator_) {
+      Expression comparator_,
+      boolean sorted) {
+    if (sorted) {
+      // The input is sorted on the partition keys then the sort keys. Read
+      // one partition at a time, and do not sort.
+      //
+      //   Iterator<Employee[]> iterator =
+      //       Enumerables.partitionArrays(source,
+      //           new Function1<Employee, Integer>() {
+      //             public Integer apply(Employee v) {
+      //               return v.deptno;
+      //             }
+      //           });
+      //   final List<Xxx> list = new ArrayList<Xxx>();
+      final Expression keySelector_;
+      if (group.keys.isEmpty()) {
+        keySelector_ = Expressions.constant(null, Function1.class);
+      } else {
+        final ParameterExpression v_ =
+            Expressions.parameter(inputPhysType.getJavaRowType(), "v");
+        keySelector_ =
+            inputPhysType.generateSelector(v_, group.keys.toList(),
+                JavaRowFormat.CUSTOM);
+      }
+      return Pair.<Expression, Expression>of(null,
+          builder.append(
+              "iterator",
+              Expressions.call(
+                  BuiltInMethod.PARTITION_ARRAYS.method,
+                  source_,
+                  keySelector_)));
+    }
     // Populate map of lists, one per partition
     //   final Map<Integer, List<Employee>> multiMap =
     //     new SortedMultiMap<Integer, List<Employee>>();
@@ -726,6 +823,112 @@ private Pair<Expression, Expression> getPartitionIterator(
             comparator_)));
   }
 
+  /** Returns whether the input arrives sorted on a group's partition keys
+   * (in any order and direction) followed by its sort keys, so that each
+   * partition can be read in turn, and need not be sorted. */
+  private boolean isInputSorted(Group group) {
+    final List<RelFieldCollation> orderKeys =
+        group.collation().getFieldCollations();
+    final int keyCount = group.keys.cardinality();
+    final int n = keyCount + orderKeys.size();
+    if (n == 0) {
+      return false;
+    }
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final List<RelCollation> collations = mq.collations(getInput());
+    if (collations == null) {
+      return false;
+    }
+  outer:
+    for (RelCollation collation : collations) {
+      final List<RelFieldCollation> fieldCollations =
+          collation.getFieldCollations();
+      if (fieldCollations.size() < n) {
+        continue;
+      }
+      final ImmutableBitSet.Builder leadingKeys = ImmutableBitSet.builder();
+      for (RelFieldCollation fieldCollation
+          : fieldCollations.subList(0, keyCount)) {
+        leadingKeys.set(fieldCollation.getFieldIndex());
+      }
+      if (!leadingKeys.build().equals(group.keys)) {
+        continue;
+      }
+      for (int i = 0; i < orderKeys.size(); i++) {
+        final RelFieldCollation orderKey = orderKeys.get(i);
+        final RelFieldCollation fieldCollation =
+            fieldCollations.get(keyCount + i);
+        if (fieldCollation.getFieldIndex() != orderKey.getFieldIndex()
+            || fieldCollation.getDirection() != orderKey.getDirection()
+            || fieldCollation.nullDirection.nullComparison
+                != orderKey.nullDirection.nullComparison) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns whether a group's window frame slides forward with the current
+   * row, and is large enough that it is better to remove rows that leave the
+   * frame from invertible aggregates than to re-compute them. */
+  private boolean isSliding(Group group) {
+    if (group.lowerBound.isUnbounded()) {
+      return false;
+    }
+    if (group.isRows) {
+      final Integer lower = rowOffset(group.lowerBound);
+      final Integer upper = rowOffset(group.upperBound);
+      if (lower != null
+          && upper != null
+          && upper - lower + 1 <= MAX_RECOMPUTE_FRAME_ROWS) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the offset of a ROWS window bound from the current row
+   * (negative if preceding), or null if the bound is unbounded or its offset
+   * is not constant. */
+  private Integer rowOffset(RexWindowBound bound) {
+    if (bound.isUnbounded()) {
+      return null;
+    }
+    if (bound.isCurrentRow()) {
+      return 0;
+    }
+    RexNode offset = bound.getOffset();
+    if (offset instanceof RexInputRef) {
+      // Offsets are references to constants, which follow the input fields
+      final int i = ((RexInputRef) offset).getIndex()
+          - getInput().getRowType().getFieldCount();
+      if (i >= 0 && i < constants.size()) {
+        offset = constants.get(i);
+      }
+    }
+    if (!(offset instanceof RexLiteral)
+        || !(((RexLiteral) offset).getValue() instanceof Number)) {
+      return null;
+    }
+    final int rows = ((Number) ((RexLiteral) offset).getValue()).intValue();
+    return bound.isPreceding() ? -rows : rows;
+  }
+
+  /** Returns whether all aggregates can remove rows that leave the window
+   * frame. */
+  private static boolean isInvertible(List<AggImpState> aggs) {
+    for (AggImpState agg : aggs) {
+      if (!(agg.implementor instanceof InvertibleAggImplementor)
+          || !((InvertibleAggImplementor) agg.implementor)
+              .canRemove(agg.context)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private Pair<Expression, Expression> getRowCollationKey(
       BlockBuilder builder, PhysType inputPhysType,
       Group group, int windowIdx) {
@@ -746,10 +949,14 @@ private Pair<Expression, Expression> getRowCollationKey(
   private void declareAndResetState(final JavaTypeFactory typeFactory,
       BlockBuilder builder, final Result result, int windowIdx,
       List<AggImpState> aggs, PhysType outputPhysType,
-      List<Expression> outputRow) {
+      List<Expression> outputRow, final boolean sliding) {
     for (final AggImpState agg : aggs) {
       agg.context =
           new WinAggContext() {
+            public boolean isSliding() {
+              return sliding;
+            }
+
             public SqlAggFunction aggregation() {
               return agg.call.getAggregation();
             }
@@ -820,24 +1027,42 @@ private void implementAdd(List<AggImpState> aggs,
       final Function<AggImpState, List<RexNode>> rexArguments,
       final DeclarationStatement jDecl) {
     for (final AggImpState agg : aggs) {
-      final WinAggAddContext addContext =
-          new WinAggAddContextImpl(builder7, agg.state, frame) {
-            public Expression currentPosition() {
-              return jDecl.parameter;
-            }
-
-            public List<RexNode> rexArguments() {
-              return rexArguments.apply(agg);
-            }
+      agg.implementor.implementAdd(agg.context,
+          addContext(agg, builder7, frame, rexArguments, jDecl));
+    }
+  }
 
-            public RexNode rexFilterArgument() {
-              return null; // REVIEW
-            }
-          };
-      agg.implementor.implementAdd(agg.context, addContext);
+  private void implementRemove(List<AggImpState> aggs,
+      final BlockBuilder builder8,
+      final Function<BlockBuilder, WinAggFrameResultContext> frame,
+      final Function<AggImpState, List<RexNode>> rexArguments,
+      final DeclarationStatement kDecl) {
+    for (final AggImpState agg : aggs) {
+      ((InvertibleAggImplementor) agg.implementor).implementRemove(
+          agg.context, addContext(agg, builder8, frame, rexArguments, kDecl));
     }
   }
 
+  private WinAggAddContext addContext(final AggImpState agg,
+      BlockBuilder builder,
+      Function<BlockBuilder, WinAggFrameResultContext> frame,
+      final Function<AggImpState, List<RexNode>> rexArguments,
+      final DeclarationStatement decl) {
+    return new WinAggAddContextImpl(builder, agg.state, frame) {
+      public Expression currentPosition() {
+        return decl.parameter;
+      }
+
+      public List<RexNode> rexArguments() {
+        return rexArguments.apply(agg);
+      }
+
+      public RexNode rexFilterArgument() {
+        return null; // REVIEW
+      }
+    };
+  }
+
   private boolean implementResult(List<AggImpState> aggs,
       final BlockBuilder builder,
       final Function<BlockBuilder, WinAggFrameResultContext> frame,
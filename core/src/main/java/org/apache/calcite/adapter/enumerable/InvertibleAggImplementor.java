@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+/**
+ * Implements an aggregate function whose accumulator can remove a row that
+ * was previously added, as well as add one.
+ *
+ * <p>{@link EnumerableWindow} uses such functions when the window frame
+ * slides forward: rather than re-computing the aggregate over the whole frame
+ * for each row, it removes the rows that have left the frame and adds the
+ * rows that have entered it.
+ *
+ * @see org.apache.calcite.adapter.enumerable.RexImpTable.CountWinImplementor
+ * @see org.apache.calcite.adapter.enumerable.RexImpTable.SumImplementor
+ * @see org.apache.calcite.adapter.enumerable.RexImpTable.MinMaxImplementor
+ */
+public interface InvertibleAggImplementor extends AggImplementor {
+  /**
+   * Returns whether rows can be removed from the accumulator of a given
+   * aggregate call.
+   * @param info Aggregate context
+   * @return whether {@link #implementRemove} may be called
+   */
+  boolean canRemove(AggContext info);
+
+  /**
+   * Generates code to remove a row from the accumulator; the inverse of
+   * {@link #implementAdd(AggContext, AggAddContext)}.
+   * Rows are removed in the order that they were added.
+   * @param info Aggregate context
+   * @param remove Context of the row to remove; in window context, a
+   *   {@link WinAggAddContext}
+   */
+  void implementRemove(AggContext info, AggAddContext remove);
+}
+
+// End InvertibleAggImplementor.java
@@ -39,7 +39,11 @@
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.runtime.HyperLogLog;
+import org.apache.calcite.runtime.SlidingMinMax;
+import org.apache.calcite.runtime.SpaceSaving;
 import org.apache.calcite.runtime.SqlFunctions;
+import org.apache.calcite.runtime.TDigest;
 import org.apache.calcite.schema.ImplementableAggFunction;
 import org.apache.calcite.schema.ImplementableFunction;
 import org.apache.calcite.schema.impl.AggregateFunctionImpl;
@@ -90,6 +94,9 @@
 import static org.apache.calcite.sql.fun.OracleSqlOperatorTable.TRANSLATE3;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.ABS;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.AND;
+import static org.apache.calcite.sql.fun.SqlStdOperatorTable.APPROX_COUNT_DISTINCT;
+import static org.apache.calcite.sql.fun.SqlStdOperatorTable.APPROX_PERCENTILE;
+import static org.apache.calcite.sql.fun.SqlStdOperatorTable.APPROX_TOP_K;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.ARRAY_VALUE_CONSTRUCTOR;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.CARDINALITY;
 import static org.apache.calcite.sql.fun.SqlStdOperatorTable.CASE;
@@ -269,13 +276,13 @@ public class RexImpTable {
     map.put(IS_NOT_FALSE, new IsXxxImplementor(false, true));
 
     // LIKE and SIMILAR
-    final MethodImplementor likeImplementor =
-        new MethodImplementor(BuiltInMethod.LIKE.method);
+    final LikeImplementor likeImplementor =
+        new LikeImplementor(BuiltInMethod.LIKE_MATCHER.method);
     defineImplementor(LIKE, NullPolicy.STRICT, likeImplementor, false);
     defineImplementor(NOT_LIKE, NullPolicy.STRICT,
         NotImplementor.of(likeImplementor), false);
-    final MethodImplementor similarImplementor =
-        new MethodImplementor(BuiltInMethod.SIMILAR.method);
+    final LikeImplementor similarImplementor =
+        new LikeImplementor(BuiltInMethod.SIMILAR_MATCHER.method);
     defineImplementor(SIMILAR_TO, NullPolicy.STRICT, similarImplementor, false);
     defineImplementor(NOT_SIMILAR_TO, NullPolicy.STRICT,
         NotImplementor.of(similarImplementor), false);
@@ -340,6 +347,11 @@ public Expression implement(RexToLixTranslator translator,
     aggMap.put(MAX, minMax);
     aggMap.put(SINGLE_VALUE, constructorSupplier(SingleValueImplementor.class));
     aggMap.put(COLLECT, constructorSupplier(CollectImplementor.class));
+    aggMap.put(APPROX_COUNT_DISTINCT,
+        constructorSupplier(ApproxCountDistinctImplementor.class));
+    aggMap.put(APPROX_PERCENTILE,
+        constructorSupplier(ApproxPercentileImplementor.class));
+    aggMap.put(APPROX_TOP_K, constructorSupplier(ApproxTopKImplementor.class));
     winAggMap.put(RANK, constructorSupplier(RankImplementor.class));
     winAggMap.put(DENSE_RANK, constructorSupplier(DenseRankImplementor.class));
     winAggMap.put(ROW_NUMBER, constructorSupplier(RowNumberImplementor.class));
@@ -957,9 +969,14 @@ static class CountImplementor extends StrictAggImplementor {
   }
 
   /** Implementor for the {@code COUNT} windowed aggregate function. */
-  static class CountWinImplementor extends StrictWinAggImplementor {
+  static class CountWinImplementor extends StrictWinAggImplementor
+      implements InvertibleAggImplementor {
     boolean justFrameRowCount;
 
+    public boolean canRemove(AggContext info) {
+      return true;
+    }
+
     @Override public List<Type> getNotNullState(WinAggContext info) {
       boolean hasNullable = false;
       for (RelDataType type : info.parameterRelTypes()) {
@@ -985,6 +1002,16 @@ static class CountWinImplementor extends StrictWinAggImplementor {
               Expressions.postIncrementAssign(add.accumulator().get(0))));
     }
 
+    @Override protected void implementNotNullRemove(WinAggContext info,
+        WinAggAddContext remove) {
+      if (justFrameRowCount) {
+        return;
+      }
+      remove.currentBlock().add(
+          Expressions.statement(
+              Expressions.postDecrementAssign(remove.accumulator().get(0))));
+    }
+
     @Override protected Expression implementNotNullResult(WinAggContext info,
         WinAggResultContext result) {
       if (justFrameRowCount) {
@@ -994,8 +1021,17 @@ static class CountWinImplementor extends StrictWinAggImplementor {
     }
   }
 
-  /** Implementor for the {@code SUM} windowed aggregate function. */
-  static class SumImplementor extends StrictAggImplementor {
+  /** Implementor for the {@code SUM} windowed aggregate function.
+   *
+   * <p>Rows are removed by subtraction; for approximate types, the result
+   * may therefore differ in its last digits from a sum of just the rows in
+   * the frame. */
+  static class SumImplementor extends StrictAggImplementor
+      implements InvertibleAggImplementor {
+    public boolean canRemove(AggContext info) {
+      return true;
+    }
+
     @Override protected void implementNotNullReset(AggContext info,
         AggResetContext reset) {
       Expression start = info.returnType() == BigDecimal.class
@@ -1020,19 +1056,65 @@ static class SumImplementor extends StrictAggImplementor {
       accAdvance(add, acc, next);
     }
 
+    @Override protected void implementNotNullRemove(AggContext info,
+        AggAddContext remove) {
+      Expression acc = remove.accumulator().get(0);
+      Expression next;
+      if (info.returnType() == BigDecimal.class) {
+        next = Expressions.call(acc, "subtract", remove.arguments().get(0));
+      } else {
+        next = Expressions.subtract(acc,
+            Types.castIfNecessary(acc.type, remove.arguments().get(0)));
+      }
+      accAdvance(remove, acc, next);
+    }
+
     @Override public Expression implementNotNullResult(AggContext info,
         AggResultContext result) {
       return super.implementNotNullResult(info, result);
     }
   }
 
-  /** Implementor for the {@code MIN} and {@code MAX} aggregate functions. */
-  static class MinMaxImplementor extends StrictAggImplementor {
+  /** Implementor for the {@code MIN} and {@code MAX} aggregate functions.
+   *
+   * <p>Over a sliding window frame, the accumulator is a
+   * {@link SlidingMinMax}, from which rows can be removed; otherwise it is
+   * the current minimum or maximum value. */
+  static class MinMaxImplementor extends StrictAggImplementor
+      implements InvertibleAggImplementor {
+    private boolean sliding;
+
+    public boolean canRemove(AggContext info) {
+      return isSliding(info);
+    }
+
+    private static boolean isSliding(AggContext info) {
+      return info instanceof WinAggContext
+          && ((WinAggContext) info).isSliding();
+    }
+
+    @Override public List<Type> getNotNullState(AggContext info) {
+      sliding = isSliding(info);
+      if (sliding) {
+        return Collections.<Type>singletonList(SlidingMinMax.class);
+      }
+      return super.getNotNullState(info);
+    }
+
     @Override protected void implementNotNullReset(AggContext info,
         AggResetContext reset) {
       Expression acc = reset.accumulator().get(0);
-      Primitive p = Primitive.of(acc.getType());
       boolean isMin = MIN == info.aggregation();
+      if (sliding) {
+        // acc[0] = new SlidingMinMax(isMin);
+        reset.currentBlock().add(
+            Expressions.statement(
+                Expressions.assign(acc,
+                    Expressions.new_(SlidingMinMax.class,
+                        Expressions.constant(isMin)))));
+        return;
+      }
+      Primitive p = Primitive.of(acc.getType());
       Object inf = p == null ? null : (isMin ? p.max : p.min);
       reset.currentBlock().add(
           Expressions.statement(
@@ -1044,6 +1126,15 @@ static class MinMaxImplementor extends StrictAggImplementor {
         AggAddContext add) {
       Expression acc = add.accumulator().get(0);
       Expression arg = add.arguments().get(0);
+      if (sliding) {
+        // acc[0].add(position, value);
+        add.currentBlock().add(
+            Expressions.statement(
+                Expressions.call(acc, BuiltInMethod.SLIDING_MIN_MAX_ADD.method,
+                    ((WinAggAddContext) add).currentPosition(),
+                    Expressions.box(arg))));
+        return;
+      }
       SqlAggFunction aggregation = info.aggregation();
       final Method method = (aggregation == MIN
           ? BuiltInMethod.LESSER
@@ -1055,6 +1146,28 @@ static class MinMaxImplementor extends StrictAggImplementor {
           Expressions.unbox(arg));
       accAdvance(add, acc, next);
     }
+
+    @Override protected void implementNotNullRemove(AggContext info,
+        AggAddContext remove) {
+      // acc[0].remove(position);
+      remove.currentBlock().add(
+          Expressions.statement(
+              Expressions.call(remove.accumulator().get(0),
+                  BuiltInMethod.SLIDING_MIN_MAX_REMOVE.method,
+                  ((WinAggAddContext) remove).currentPosition())));
+    }
+
+    @Override protected Expression implementNotNullResult(AggContext info,
+        AggResultContext result) {
+      if (sliding) {
+        // (Float) acc[0].result()
+        return Expressions.convert_(
+            Expressions.call(result.accumulator().get(0),
+                BuiltInMethod.SLIDING_MIN_MAX_RESULT.method),
+            Primitive.box(EnumUtils.fromInternal(info.returnType())));
+      }
+      return super.implementNotNullResult(info, result);
+    }
   }
 
   /** Implementor for the {@code SINGLE_VALUE} aggregate function. */
@@ -1120,6 +1233,124 @@ static class CollectImplementor extends StrictAggImplementor {
     }
   }
 
+  /** Implementor for the {@code APPROX_COUNT_DISTINCT} aggregate function.
+   * The accumulator is a {@link HyperLogLog} sketch. */
+  static class ApproxCountDistinctImplementor extends StrictAggImplementor {
+    @Override public List<Type> getNotNullState(AggContext info) {
+      return Collections.<Type>singletonList(HyperLogLog.class);
+    }
+
+    @Override protected void implementNotNullReset(AggContext info,
+        AggResetContext reset) {
+      // acc[0] = new HyperLogLog();
+      reset.currentBlock().add(
+          Expressions.statement(
+              Expressions.assign(reset.accumulator().get(0),
+                  Expressions.new_(HyperLogLog.class))));
+    }
+
+    @Override public void implementNotNullAdd(AggContext info,
+        AggAddContext add) {
+      // acc[0].add(arg), or acc[0].add(new Object[] {arg0, arg1})
+      final List<Expression> args = new ArrayList<>();
+      for (Expression arg : add.arguments()) {
+        args.add(Expressions.box(arg));
+      }
+      add.currentBlock().add(
+          Expressions.statement(
+              Expressions.call(add.accumulator().get(0),
+                  BuiltInMethod.HYPER_LOG_LOG_ADD.method,
+                  args.size() == 1
+                      ? args.get(0)
+                      : Expressions.newArrayInit(Object.class, args))));
+    }
+
+    @Override protected Expression implementNotNullResult(AggContext info,
+        AggResultContext result) {
+      // acc[0].estimate()
+      return Expressions.call(result.accumulator().get(0),
+          BuiltInMethod.HYPER_LOG_LOG_ESTIMATE.method);
+    }
+  }
+
+  /** Implementor for the {@code APPROX_PERCENTILE} aggregate function.
+   * The accumulator is a {@link TDigest} sketch and the quantile. */
+  static class ApproxPercentileImplementor extends StrictAggImplementor {
+    @Override public List<Type> getNotNullState(AggContext info) {
+      return Arrays.<Type>asList(TDigest.class, double.class);
+    }
+
+    @Override protected void implementNotNullReset(AggContext info,
+        AggResetContext reset) {
+      // acc[0] = new TDigest(); acc[1] = 0d;
+      super.implementNotNullReset(info, reset);
+      reset.currentBlock().add(
+          Expressions.statement(
+              Expressions.assign(reset.accumulator().get(0),
+                  Expressions.new_(TDigest.class))));
+    }
+
+    @Override public void implementNotNullAdd(AggContext info,
+        AggAddContext add) {
+      // acc[1] = quantile; acc[0].add(value);
+      final List<Expression> acc = add.accumulator();
+      final List<Expression> args = add.arguments();
+      add.currentBlock().add(
+          Expressions.statement(
+              Expressions.assign(acc.get(1),
+                  RexToLixTranslator.convert(args.get(1), double.class))));
+      add.currentBlock().add(
+          Expressions.statement(
+              Expressions.call(acc.get(0),
+                  BuiltInMethod.T_DIGEST_ADD.method,
+                  RexToLixTranslator.convert(args.get(0), double.class))));
+    }
+
+    @Override protected Expression implementNotNullResult(AggContext info,
+        AggResultContext result) {
+      // acc[0].quantile(acc[1])
+      final List<Expression> acc = result.accumulator();
+      return Expressions.call(acc.get(0),
+          BuiltInMethod.T_DIGEST_QUANTILE.method, acc.get(1));
+    }
+  }
+
+  /** Implementor for the {@code APPROX_TOP_K} aggregate function.
+   * The accumulator is a {@link SpaceSaving} sketch. */
+  static class ApproxTopKImplementor extends StrictAggImplementor {
+    @Override public List<Type> getNotNullState(AggContext info) {
+      return Collections.<Type>singletonList(SpaceSaving.class);
+    }
+
+    @Override protected void implementNotNullReset(AggContext info,
+        AggResetContext reset) {
+      // acc[0] = new SpaceSaving();
+      reset.currentBlock().add(
+          Expressions.statement(
+              Expressions.assign(reset.accumulator().get(0),
+                  Expressions.new_(SpaceSaving.class))));
+    }
+
+    @Override public void implementNotNullAdd(AggContext info,
+        AggAddContext add) {
+      // acc[0].add(value, k);
+      final List<Expression> args = add.arguments();
+      add.currentBlock().add(
+          Expressions.statement(
+              Expressions.call(add.accumulator().get(0),
+                  BuiltInMethod.SPACE_SAVING_ADD.method,
+                  Expressions.box(args.get(0)),
+                  RexToLixTranslator.convert(args.get(1), int.class))));
+    }
+
+    @Override protected Expression implementNotNullResult(AggContext info,
+        AggResultContext result) {
+      // acc[0].topK()
+      return Expressions.call(result.accumulator().get(0),
+          BuiltInMethod.SPACE_SAVING_TOP_K.method);
+    }
+  }
+
   /** Implementor for user-defined aggregate functions. */
   public static class UserDefinedAggReflectiveImplementor
       extends StrictAggImplementor {
@@ -1541,6 +1772,34 @@ public Expression implement(
     }
   }
 
+  /** Implementor for the {@code LIKE} and {@code SIMILAR TO} operators.
+   *
+   * <p>Generates a call to a method that returns a
+   * {@link org.apache.calcite.runtime.Like.Matcher}. If the pattern is a
+   * literal, the optimizer moves that call into a static field, so that the
+   * pattern is compiled once, not once per row. */
+  private static class LikeImplementor implements NotNullImplementor {
+    private final Method matcherMethod;
+
+    LikeImplementor(Method matcherMethod) {
+      this.matcherMethod = matcherMethod;
+    }
+
+    public Expression implement(
+        RexToLixTranslator translator,
+        RexCall call,
+        List<Expression> translatedOperands) {
+      final Expression escape =
+          translatedOperands.size() > 2
+              ? translatedOperands.get(2)
+              : Expressions.constant(null, String.class);
+      final Expression matcher =
+          Expressions.call(matcherMethod, translatedOperands.get(1), escape);
+      return Expressions.call(matcher, BuiltInMethod.MATCHER_MATCHES.method,
+          translatedOperands.get(0));
+    }
+  }
+
   /** Implementor for a function that generates calls to a given method. */
   private static class SequenceImplementor extends MethodImplementor {
     SequenceImplementor(Method method) {
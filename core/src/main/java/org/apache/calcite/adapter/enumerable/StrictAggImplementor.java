@@ -35,12 +35,19 @@
 
 /**
  * The base implementation of strict aggregate function.
+ *
+ * <p>A sub-class that also implements {@link InvertibleAggImplementor}
+ * inherits {@link #implementRemove}, and implements
+ * {@link #implementNotNullRemove}.
  * @see org.apache.calcite.adapter.enumerable.RexImpTable.CountImplementor
  * @see org.apache.calcite.adapter.enumerable.RexImpTable.SumImplementor
  */
 public abstract class StrictAggImplementor implements AggImplementor {
   private boolean needTrackEmptySet;
   private boolean trackNullsPerRow;
+  /** Whether the state counts the rows whose arguments are not null, rather
+   * than recording whether there are any, so that rows can be removed. */
+  private boolean countNotNullRows;
   private int stateSize;
 
   protected boolean nonDefaultOnEmptySet(AggContext info) {
@@ -67,10 +74,11 @@ public final List<Type> getStateType(AggContext info) {
     }
     final boolean hasNullableArgs = anyNullable(info.parameterRelTypes());
     trackNullsPerRow = !(info instanceof WinAggContext) || hasNullableArgs;
+    countNotNullRows = trackNullsPerRow && info instanceof WinAggContext;
 
     List<Type> res = new ArrayList<>(subState.size() + 1);
     res.addAll(subState);
-    res.add(boolean.class); // has not nulls
+    res.add(countNotNullRows ? long.class : boolean.class); // has not nulls
     return res;
   }
 
@@ -117,6 +125,20 @@ protected void implementNotNullReset(AggContext info,
   }
 
   public final void implementAdd(AggContext info, final AggAddContext add) {
+    implementAddOrRemove(info, add, false);
+  }
+
+  /** Removes a row that was previously added, unless any of its arguments
+   * is null. Implements
+   * {@link InvertibleAggImplementor#implementRemove(AggContext, AggAddContext)}
+   * for sub-classes that implement that interface. */
+  public final void implementRemove(AggContext info,
+      final AggAddContext remove) {
+    implementAddOrRemove(info, remove, true);
+  }
+
+  private void implementAddOrRemove(AggContext info, final AggAddContext add,
+      boolean remove) {
     final List<RexNode> args = add.rexArguments();
     final RexToLixTranslator translator = add.rowTranslator();
     final List<Expression> conditions = new ArrayList<>();
@@ -139,13 +161,17 @@ public final void implementAdd(AggContext info, final AggAddContext add) {
         : new BlockBuilder(true, add.currentBlock());
     if (trackNullsPerRow) {
       List<Expression> acc = add.accumulator();
+      Expression flag = acc.get(acc.size() - 1);
       thenBlock.add(
           Expressions.statement(
-              Expressions.assign(acc.get(acc.size() - 1),
-                  Expressions.constant(true))));
+              !countNotNullRows
+                  ? Expressions.assign(flag, Expressions.constant(true))
+                  : remove
+                  ? Expressions.preDecrementAssign(flag)
+                  : Expressions.preIncrementAssign(flag)));
     }
     if (argsNotNull) {
-      implementNotNullAdd(info, add);
+      implementNotNullAddOrRemove(info, add, remove);
       return;
     }
 
@@ -156,14 +182,32 @@ public final void implementAdd(AggContext info, final AggAddContext add) {
       }
     }
     add.nestBlock(thenBlock, nullables);
-    implementNotNullAdd(info, add);
+    implementNotNullAddOrRemove(info, add, remove);
     add.exitBlock();
     add.currentBlock().add(Expressions.ifThen(condition, thenBlock.toBlock()));
   }
 
+  private void implementNotNullAddOrRemove(AggContext info, AggAddContext add,
+      boolean remove) {
+    if (remove) {
+      implementNotNullRemove(info, add);
+    } else {
+      implementNotNullAdd(info, add);
+    }
+  }
+
   protected abstract void implementNotNullAdd(AggContext info,
       AggAddContext add);
 
+  /** Removes a row whose arguments are not null; the inverse of
+   * {@link #implementNotNullAdd}. Called only for sub-classes that implement
+   * {@link InvertibleAggImplementor}. */
+  protected void implementNotNullRemove(AggContext info,
+      AggAddContext remove) {
+    throw new UnsupportedOperationException(
+        "cannot remove rows from " + info.aggregation());
+  }
+
   public final Expression implementResult(AggContext info,
       final AggResultContext result) {
     if (!needTrackEmptySet) {
@@ -184,9 +228,12 @@ public final Expression implementResult(AggContext info,
     thenBlock.add(Expressions.statement(Expressions.assign(res, nonNull)));
     BlockStatement thenBranch = thenBlock.toBlock();
     Expression seenNotNullRows =
-        trackNullsPerRow
-        ? acc.get(acc.size() - 1)
-        : ((WinAggResultContext) result).hasRows();
+        !trackNullsPerRow
+        ? ((WinAggResultContext) result).hasRows()
+        : countNotNullRows
+        ? Expressions.notEqual(acc.get(acc.size() - 1),
+            Expressions.constant(0L))
+        : acc.get(acc.size() - 1);
 
     if (thenBranch.statements.size() == 1) {
       return Expressions.condition(seenNotNullRows,
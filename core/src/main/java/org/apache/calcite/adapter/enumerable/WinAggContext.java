@@ -22,6 +22,15 @@
  * to tell if it is used in regular or windowed context.
  */
 public interface WinAggContext extends AggContext {
+  /**
+   * Returns whether the lower bound of the window frame moves forward with
+   * the current row, so that rows may be removed from the accumulator, via
+   * {@link InvertibleAggImplementor#implementRemove}, as they leave the frame.
+   * An implementor may choose a different accumulator if so.
+   *
+   * @return whether the window frame slides
+   */
+  boolean isSliding();
 }
 
 // End WinAggContext.java
@@ -23,6 +23,8 @@
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptSamplingParameters;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelTrait;
 import org.apache.calcite.plan.RelTraitSet;
@@ -42,6 +44,7 @@
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.core.Minus;
 import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sample;
 import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.TableModify;
 import org.apache.calcite.rel.core.Union;
@@ -106,7 +109,8 @@ public static List<RelOptRule> rules(JdbcConvention out) {
         new JdbcIntersectRule(out),
         new JdbcMinusRule(out),
         new JdbcTableModificationRule(out),
-        new JdbcValuesRule(out));
+        new JdbcValuesRule(out),
+        new JdbcSampleRule(out));
   }
 
   static final ImmutableList<SqlAggFunction> AGG_FUNCS;
@@ -802,6 +806,60 @@ public JdbcImplementor.Result implement(JdbcImplementor implementor) {
       return implementor.implement(this);
     }
   }
+
+  /**
+   * Rule that converts a {@link org.apache.calcite.rel.core.Sample} on a
+   * {@link JdbcTableScan} to a {@link JdbcSample}, if the JDBC data source
+   * supports {@code TABLESAMPLE}.
+   *
+   * <p>The data source chooses the rows, so for a given
+   * {@code REPEATABLE} seed they are the same each time but may differ from
+   * the rows that Calcite would choose.
+   */
+  private static class JdbcSampleRule extends RelOptRule {
+    private final JdbcConvention out;
+
+    private JdbcSampleRule(JdbcConvention out) {
+      super(
+          operand(Sample.class, Convention.NONE,
+              operand(JdbcTableScan.class, out, none())),
+          "JdbcSampleRule:" + out);
+      this.out = out;
+    }
+
+    @Override public boolean matches(RelOptRuleCall call) {
+      return out.dialect.supportsTableSample();
+    }
+
+    public void onMatch(RelOptRuleCall call) {
+      final Sample sample = call.rel(0);
+      final JdbcTableScan scan = call.rel(1);
+      call.transformTo(
+          new JdbcSample(sample.getCluster(),
+              sample.getTraitSet().replace(out), scan,
+              sample.getSamplingParameters()));
+    }
+  }
+
+  /** Implementation of {@link org.apache.calcite.rel.core.Sample} in
+   * {@link JdbcConvention jdbc calling convention}. */
+  public static class JdbcSample extends Sample implements JdbcRel {
+    public JdbcSample(RelOptCluster cluster, RelTraitSet traitSet,
+        RelNode input, RelOptSamplingParameters params) {
+      super(cluster, traitSet, input, params);
+      assert getConvention() instanceof JdbcConvention;
+    }
+
+    @Override public JdbcSample copy(RelTraitSet traitSet,
+        List<RelNode> inputs) {
+      return new JdbcSample(getCluster(), traitSet, sole(inputs),
+          getSamplingParameters());
+    }
+
+    public JdbcImplementor.Result implement(JdbcImplementor implementor) {
+      return implementor.implement(this);
+    }
+  }
 }
 
 // End JdbcRules.java
@@ -27,6 +27,8 @@
 public interface CalciteConnectionConfig extends ConnectionConfig {
   /** @see CalciteConnectionProperty#AUTO_TEMP */
   boolean autoTemp();
+  /** @see CalciteConnectionProperty#APPROXIMATE_DISTINCT_COUNT */
+  boolean approximateDistinctCount();
   /** @see CalciteConnectionProperty#MATERIALIZATIONS_ENABLED */
   boolean materializationsEnabled();
   /** @see CalciteConnectionProperty#CREATE_MATERIALIZATIONS */
@@ -55,6 +57,8 @@ public interface CalciteConnectionConfig extends ConnectionConfig {
   <T> T typeSystem(Class<T> typeSystemClass, T defaultTypeSystem);
   /** @see CalciteConnectionProperty#CONFORMANCE */
   SqlConformance conformance();
+  /** @see CalciteConnectionProperty#STREAM_JOIN_REFRESH */
+  long streamJoinRefresh();
 }
 
 // End CalciteConnectionConfig.java
@@ -48,6 +48,11 @@ public boolean autoTemp() {
     return CalciteConnectionProperty.AUTO_TEMP.wrap(properties).getBoolean();
   }
 
+  public boolean approximateDistinctCount() {
+    return CalciteConnectionProperty.APPROXIMATE_DISTINCT_COUNT.wrap(properties)
+        .getBoolean();
+  }
+
   public boolean materializationsEnabled() {
     return CalciteConnectionProperty.MATERIALIZATIONS_ENABLED.wrap(properties)
         .getBoolean();
@@ -136,6 +141,12 @@ public SqlConformance conformance() {
     return CalciteConnectionProperty.CONFORMANCE.wrap(properties)
         .getEnum(SqlConformance.class);
   }
+
+  public long streamJoinRefresh() {
+    return Long.parseLong(
+        CalciteConnectionProperty.STREAM_JOIN_REFRESH.wrap(properties)
+            .getString());
+  }
 }
 
 // End CalciteConnectionConfigImpl.java
@@ -34,6 +34,12 @@ public enum CalciteConnectionProperty implements ConnectionProperty {
   /** Whether to store query results in temporary tables. */
   AUTO_TEMP("autoTemp", Type.BOOLEAN, false, false),
 
+  /** Whether to compute {@code COUNT(DISTINCT ...)} approximately, using
+   * {@code APPROX_COUNT_DISTINCT}. Faster, and uses less memory, but the
+   * result may be wrong by a few percent. */
+  APPROXIMATE_DISTINCT_COUNT("approximateDistinctCount", Type.BOOLEAN, false,
+      false),
+
   /** Whether Calcite should use materializations. */
   MATERIALIZATIONS_ENABLED("materializationsEnabled", Type.BOOLEAN, true,
       false),
@@ -98,7 +104,12 @@ public enum CalciteConnectionProperty implements ConnectionProperty {
   TYPE_SYSTEM("typeSystem", Type.PLUGIN, null, false),
 
   /** SQL conformance level. */
-  CONFORMANCE("conformance", Type.ENUM, SqlConformance.DEFAULT, false);
+  CONFORMANCE("conformance", Type.ENUM, SqlConformance.DEFAULT, false),
+
+  /** How often, in milliseconds, a join between a stream and a table
+   * re-reads the table, so that the stream sees changes to the table.
+   * 0 means the table is read only once. */
+  STREAM_JOIN_REFRESH("streamJoinRefresh", Type.STRING, "60000", false);
 
   private final String camelName;
   private final Type type;
@@ -21,8 +21,10 @@
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
 
 import java.util.List;
 import java.util.Map;
@@ -47,6 +49,10 @@ class MaterializationActor {
   final Multimap<TileKey, TileKey> tilesByDimensionality =
       HashMultimap.create();
 
+  /** Tiles that queries have asked for, and how many times. Input to
+   * {@link TileRecommender}. */
+  final Multiset<TileKey> queriedTiles = HashMultiset.create();
+
   /** A query materialized in a table, so that reading from the table gives the
    * same results as executing the query. */
   static class Materialization {
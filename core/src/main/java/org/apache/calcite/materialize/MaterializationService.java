@@ -25,33 +25,73 @@
 import org.apache.calcite.jdbc.CalcitePrepare;
 import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.linq4j.AbstractQueryable;
+import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.prepare.Prepare;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.core.Union;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.metadata.DefaultRelMetadataProvider;
+import org.apache.calcite.rel.stream.LogicalDelta;
+import org.apache.calcite.rel.stream.StreamRules;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.schema.QueryableTable;
+import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.schema.Table;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.tools.Program;
+import org.apache.calcite.tools.Programs;
+import org.apache.calcite.util.Holder;
 import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.ImmutableIntList;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Manages the collection of materialized tables known to the system,
@@ -100,16 +140,26 @@ public MaterializationKey defineMaterialization(final CalciteSchema schema,
         suggestedTableName, tableFactory, create, existing);
   }
 
-  /** Defines a new materialization. Returns its key. */
-  public MaterializationKey defineMaterialization(final CalciteSchema schema,
-      TileKey tileKey, String viewSql, List<String> viewSchemaPath,
-      String suggestedTableName, TableFactory tableFactory, boolean create,
+  /** Defines a new materialization. Returns its key.
+   *
+   * <p>Creating the table, which prepares the materialization's query, is
+   * done without holding the lock on this service, so that other queries can
+   * look up materializations meanwhile. The table is populated when it is
+   * first read. If another thread defines the same materialization
+   * meanwhile, its key is returned and the table created here is discarded
+   * before it is ever populated. */
+  public MaterializationKey defineMaterialization(
+      final CalciteSchema schema, TileKey tileKey, String viewSql,
+      List<String> viewSchemaPath, String suggestedTableName,
+      TableFactory tableFactory, boolean create,
       boolean existing) {
     final MaterializationActor.QueryKey queryKey =
         new MaterializationActor.QueryKey(viewSql, schema, viewSchemaPath);
-    final MaterializationKey existingKey = actor.keyBySql.get(queryKey);
-    if (existingKey != null) {
-      return existingKey;
+    synchronized (this) {
+      final MaterializationKey existingKey = actor.keyBySql.get(queryKey);
+      if (existingKey != null) {
+        return existingKey;
+      }
     }
     if (!create) {
       return null;
@@ -126,37 +176,47 @@ public MaterializationKey defineMaterialization(final CalciteSchema schema,
     if (tableEntry == null) {
       tableEntry = schema.getTableBySql(viewSql);
     }
-    RelDataType rowType = null;
+    final Table table;
+    final RelDataType rowType;
     if (tableEntry == null) {
-      Table table = tableFactory.createTable(schema, viewSql, viewSchemaPath);
-      final String tableName = Schemas.uniqueTableName(schema,
-          Util.first(suggestedTableName, "m"));
-      tableEntry = schema.add(tableName, table, ImmutableList.of(viewSql));
-      Hook.CREATE_MATERIALIZATION.run(tableName);
+      table = tableFactory.createTable(schema, viewSql, viewSchemaPath);
       rowType = table.getRowType(connection.getTypeFactory());
-    }
-
-    if (rowType == null) {
-      // If we didn't validate the SQL by populating a table, validate it now.
+    } else {
+      // If we didn't validate the SQL by creating a table, validate it now.
+      table = null;
       final CalcitePrepare.ParseResult parse =
           Schemas.parse(connection, schema, viewSchemaPath, viewSql);
       rowType = parse.rowType;
     }
-    final MaterializationKey key = new MaterializationKey();
-    final MaterializationActor.Materialization materialization =
-        new MaterializationActor.Materialization(key, schema.root(),
-            tableEntry, viewSql, rowType, viewSchemaPath);
-    actor.keyMap.put(materialization.key, materialization);
-    actor.keyBySql.put(queryKey, materialization.key);
-    if (tileKey != null) {
-      actor.keyByTile.put(tileKey, materialization.key);
+
+    synchronized (this) {
+      final MaterializationKey existingKey = actor.keyBySql.get(queryKey);
+      if (existingKey != null) {
+        return existingKey;
+      }
+      if (table != null) {
+        final String tableName = Schemas.uniqueTableName(schema,
+            Util.first(suggestedTableName, "m"));
+        tableEntry = schema.add(tableName, table, ImmutableList.of(viewSql));
+        Hook.CREATE_MATERIALIZATION.run(tableName);
+      }
+      final MaterializationKey key = new MaterializationKey();
+      final MaterializationActor.Materialization materialization =
+          new MaterializationActor.Materialization(key, schema.root(),
+              tableEntry, viewSql, rowType, viewSchemaPath);
+      actor.keyMap.put(materialization.key, materialization);
+      actor.keyBySql.put(queryKey, materialization.key);
+      if (tileKey != null) {
+        actor.keyByTile.put(tileKey, materialization.key);
+      }
+      return key;
     }
-    return key;
   }
 
   /** Checks whether a materialization is valid, and if so, returns the table
    * where the data are stored. */
-  public CalciteSchema.TableEntry checkValid(MaterializationKey key) {
+  public synchronized CalciteSchema.TableEntry checkValid(
+      MaterializationKey key) {
     final MaterializationActor.Materialization materialization =
         actor.keyMap.get(key);
     if (materialization != null) {
@@ -180,13 +240,82 @@ public Pair<CalciteSchema.TableEntry, TileKey> defineTile(Lattice lattice,
         "m" + groupSet, tableFactory);
   }
 
-  public Pair<CalciteSchema.TableEntry, TileKey> defineTile(Lattice lattice,
-      ImmutableBitSet groupSet, List<Lattice.Measure> measureList,
-      CalciteSchema schema, boolean create, boolean exact,
-      String suggestedTableName, TableFactory tableFactory) {
-    MaterializationKey materializationKey;
+  public Pair<CalciteSchema.TableEntry, TileKey> defineTile(
+      Lattice lattice, ImmutableBitSet groupSet,
+      List<Lattice.Measure> measureList, CalciteSchema schema, boolean create,
+      boolean exact, String suggestedTableName, TableFactory tableFactory) {
     final TileKey tileKey =
         new TileKey(lattice, groupSet, ImmutableList.copyOf(measureList));
+    final TileKey tileKey0 =
+        new TileKey(lattice, groupSet, ImmutableList.<Lattice.Measure>of());
+    final TileKey newTileKey;
+    synchronized (this) {
+      final Pair<CalciteSchema.TableEntry, TileKey> pair =
+          findTile(lattice, groupSet, measureList, exact, tileKey, tileKey0);
+      if (pair != null) {
+        return pair;
+      }
+
+      // What we need is not there. If we can't create, we're done.
+      if (!create) {
+        return null;
+      }
+
+      // Step 4. Create the tile we need.
+      //
+      // If there were any tiles at this dimensionality, regardless of
+      // whether they were current, create a wider tile that contains their
+      // measures plus the currently requested measures. Then we can obsolete
+      // all other tiles.
+      final LinkedHashSet<Lattice.Measure> measureSet =
+          Sets.newLinkedHashSet();
+      for (TileKey tileKey1 : actor.tilesByDimensionality.get(tileKey0)) {
+        measureSet.addAll(tileKey1.measures);
+      }
+      measureSet.addAll(measureList);
+      newTileKey =
+          new TileKey(lattice, groupSet, ImmutableList.copyOf(measureSet));
+    }
+
+    // Define the materialization without holding the lock; see
+    // defineMaterialization.
+    final String sql = lattice.sql(groupSet, newTileKey.measures);
+    final MaterializationKey materializationKey =
+        defineMaterialization(schema, newTileKey, sql, schema.path(null),
+            suggestedTableName, tableFactory, true, false);
+    if (materializationKey == null) {
+      return null;
+    }
+    synchronized (this) {
+      final CalciteSchema.TableEntry tableEntry =
+          checkValid(materializationKey);
+      if (tableEntry == null) {
+        return null;
+      }
+      // Obsolete all of the narrower tiles, including any that another
+      // thread defined while we were not holding the lock.
+      for (TileKey tileKey1
+          : ImmutableList.copyOf(actor.tilesByDimensionality.get(tileKey0))) {
+        if (newTileKey.measures.containsAll(tileKey1.measures)) {
+          actor.tilesByDimensionality.remove(tileKey0, tileKey1);
+          actor.keyByTile.remove(tileKey1);
+        }
+      }
+
+      actor.tilesByDimensionality.put(tileKey0, newTileKey);
+      actor.keyByTile.put(newTileKey, materializationKey);
+      return Pair.of(tableEntry, newTileKey);
+    }
+  }
+
+  /** Looks for an existing tile that can satisfy a request, either exactly
+   * or, unless {@code exact}, by rolling up; steps 1 to 3 of
+   * {@code defineTile}. The caller must hold the lock on this service. */
+  private Pair<CalciteSchema.TableEntry, TileKey> findTile(Lattice lattice,
+      ImmutableBitSet groupSet, List<Lattice.Measure> measureList,
+      boolean exact, TileKey tileKey, TileKey tileKey0) {
+    assert Thread.holdsLock(this);
+    MaterializationKey materializationKey;
 
     // Step 1. Look for an exact match for the tile.
     materializationKey = actor.keyByTile.get(tileKey);
@@ -200,8 +329,6 @@ public Pair<CalciteSchema.TableEntry, TileKey> defineTile(Lattice lattice,
 
     // Step 2. Look for a match of the tile with the same dimensionality and an
     // acceptable list of measures.
-    final TileKey tileKey0 =
-        new TileKey(lattice, groupSet, ImmutableList.<Lattice.Measure>of());
     for (TileKey tileKey1 : actor.tilesByDimensionality.get(tileKey0)) {
       assert tileKey1.dimensions.equals(groupSet);
       if (allSatisfiable(measureList, tileKey1)) {
@@ -249,47 +376,6 @@ && allSatisfiable(measureList, tileKey2)) {
         return queue.peek();
       }
     }
-
-    // What we need is not there. If we can't create, we're done.
-    if (!create) {
-      return null;
-    }
-
-    // Step 4. Create the tile we need.
-    //
-    // If there were any tiles at this dimensionality, regardless of
-    // whether they were current, create a wider tile that contains their
-    // measures plus the currently requested measures. Then we can obsolete all
-    // other tiles.
-    final List<TileKey> obsolete = Lists.newArrayList();
-    final LinkedHashSet<Lattice.Measure> measureSet = Sets.newLinkedHashSet();
-    for (TileKey tileKey1 : actor.tilesByDimensionality.get(tileKey0)) {
-      measureSet.addAll(tileKey1.measures);
-      obsolete.add(tileKey1);
-    }
-    measureSet.addAll(measureList);
-    final TileKey newTileKey =
-        new TileKey(lattice, groupSet, ImmutableList.copyOf(measureSet));
-
-    final String sql = lattice.sql(groupSet, newTileKey.measures);
-    materializationKey =
-        defineMaterialization(schema, newTileKey, sql, schema.path(null),
-            suggestedTableName, tableFactory, true, false);
-    if (materializationKey != null) {
-      final CalciteSchema.TableEntry tableEntry =
-          checkValid(materializationKey);
-      if (tableEntry != null) {
-        // Obsolete all of the narrower tiles.
-        for (TileKey tileKey1 : obsolete) {
-          actor.tilesByDimensionality.remove(tileKey0, tileKey1);
-          actor.keyByTile.remove(tileKey1);
-        }
-
-        actor.tilesByDimensionality.put(tileKey0, newTileKey);
-        actor.keyByTile.put(newTileKey, materializationKey);
-        return Pair.of(tableEntry, newTileKey);
-      }
-    }
     return null;
   }
 
@@ -310,7 +396,8 @@ private boolean allSatisfiable(List<Lattice.Measure> measureList,
    * schema. (Each root schema defines a disconnected namespace, with no overlap
    * with the current schema. Especially in a test run, the contents of two
    * root schemas may look similar.) */
-  public List<Prepare.Materialization> query(CalciteSchema rootSchema) {
+  public synchronized List<Prepare.Materialization> query(
+      CalciteSchema rootSchema) {
     final List<Prepare.Materialization> list = new ArrayList<>();
     for (MaterializationActor.Materialization materialization
         : actor.keyMap.values()) {
@@ -324,9 +411,369 @@ public List<Prepare.Materialization> query(CalciteSchema rootSchema) {
     return list;
   }
 
-  /** De-registers all materialized tables in the system. */
-  public void clear() {
+  /**
+   * Brings a materialization up to date after rows have been appended to one
+   * of the tables it is based upon. Returns whether the refresh was
+   * incremental.
+   *
+   * <p>The delta of the materialization's query is derived by pushing a
+   * {@link org.apache.calcite.rel.stream.Delta} through it using
+   * {@link StreamRules}; the scan of {@code tableName} becomes a scan of
+   * {@code delta}, and scans of other tables become empty. If the query is a
+   * select-project-join, the resulting rows are appended to the stored table;
+   * if it is an aggregate of one whose aggregate functions are
+   * {@code SUM}, {@code COUNT}, {@code MIN} or {@code MAX}, the resulting
+   * rows are merged, group by group, into the stored table. Otherwise, and
+   * if the query joins {@code tableName} to itself, the materialization is
+   * re-populated from scratch.
+   *
+   * <p>Call this method after the rows have been appended to
+   * {@code tableName}. The stored table must have been populated before they
+   * were appended; otherwise they would be counted twice.
+   *
+   * <p>If rows have been appended to several tables that are joined in the
+   * query, call this method once per table, and append to each table only
+   * after the previous table has been refreshed.
+   *
+   * @param key Materialization key
+   * @param tableName Qualified name of the table that rows were appended to
+   * @param delta Rows that were appended
+   */
+  public boolean refresh(MaterializationKey key, List<String> tableName,
+      ScannableTable delta) {
+    return refresh(key, tableName, delta, true);
+  }
+
+  /** Refreshes a materialization; if it cannot be refreshed incrementally and
+   * {@code repopulate} is false, leaves it unchanged.
+   *
+   * <p>The lock on this service is held only to look up the materialization
+   * and to publish its new table; the delta query runs without it, so that
+   * queries can read the old table meanwhile. Refreshes of the same
+   * materialization are serialized, so that each merges into the rows that
+   * the previous one stored.
+   *
+   * <p>Only the delta query is executed, but the stored rows are copied into
+   * a new table, because a table created by {@link CloneSchema} cannot be
+   * appended to. An incremental refresh therefore costs time proportional to
+   * the number of stored rows, not to the number of appended rows. */
+  private boolean refresh(MaterializationKey key, List<String> tableName,
+      ScannableTable delta, boolean repopulate) {
+    final MaterializationActor.Materialization materialization;
+    synchronized (this) {
+      materialization = actor.keyMap.get(key);
+      Preconditions.checkArgument(materialization != null
+          && materialization.materializedTable != null,
+          "materialization is not valid");
+    }
+    synchronized (materialization) {
+      return refresh(materialization, tableName, delta, repopulate);
+    }
+  }
+
+  private boolean refresh(MaterializationActor.Materialization materialization,
+      List<String> tableName, ScannableTable delta, boolean repopulate) {
+    assert Thread.holdsLock(materialization);
+    final CalciteSchema.TableEntry tableEntry;
+    synchronized (this) {
+      tableEntry = materialization.materializedTable;
+    }
+    final CalciteConnection connection =
+        CalciteMetaImpl.connect(materialization.rootSchema, null);
+    final Enumerable<Object> rows = rows(connection, tableEntry);
+    final DeltaProgram program =
+        new DeltaProgram(tableName, delta, rows != null);
+    final Hook.Closeable closeable = Hook.PROGRAM.addThread(program);
+    final CalcitePrepare.CalciteSignature<Object> signature;
+    try {
+      signature = Schemas.prepare(connection, tableEntry.schema,
+          materialization.viewSchemaPath, materialization.sql,
+          ImmutableMap.of(CalciteConnectionProperty.CREATE_MATERIALIZATIONS,
+              "false",
+              CalciteConnectionProperty.MATERIALIZATIONS_ENABLED, "false"));
+    } finally {
+      closeable.close();
+    }
+    if (!program.incremental && !repopulate) {
+      return false;
+    }
+    final DataContext dataContext = Schemas.createDataContext(connection);
+    final Enumerable<Object> newRows = signature.enumerable(dataContext);
+    final List<RelCollation> collations;
+    final List<Object> list;
+    if (!program.incremental) {
+      collations = signature.getCollationList();
+      list = newRows.toList();
+    } else {
+      collations = ImmutableList.of();
+      list = merge(rows, newRows, program.kinds,
+          signature.rowType.getFieldCount());
+    }
+    final Table table =
+        CloneSchema.createCloneTable(connection.getTypeFactory(),
+            RelDataTypeImpl.proto(signature.rowType), collations,
+            Lists.transform(signature.columns,
+                new Function<ColumnMetaData, ColumnMetaData.Rep>() {
+                  public ColumnMetaData.Rep apply(ColumnMetaData column) {
+                    return column.type.rep;
+                  }
+                }),
+            Linq4j.asEnumerable(list));
+    synchronized (this) {
+      // If the materialization was dropped meanwhile, do not bring its
+      // table back.
+      if (actor.keyMap.get(materialization.key) == materialization) {
+        materialization.materializedTable =
+            tableEntry.schema.add(tableEntry.name, table,
+                ImmutableList.copyOf(tableEntry.sqls));
+      }
+    }
+    return program.incremental;
+  }
+
+  /**
+   * Brings the materialized tiles of a lattice up to date after rows have been
+   * appended to one of the tables in the lattice. Returns whether every tile
+   * was refreshed incrementally.
+   *
+   * <p>Each tile is refreshed as in
+   * {@link #refresh(MaterializationKey, List, ScannableTable)}. A tile that
+   * cannot be refreshed incrementally is dropped, rather than re-populated,
+   * because its query could be answered by rolling up a tile that is also
+   * stale, or the tile itself. The tile is built again when a query next
+   * needs it, if the lattice is {@link Lattice#auto auto}, or by
+   * {@link #buildTiles}.
+   *
+   * @param lattice Lattice
+   * @param tableName Qualified name of the table that rows were appended to
+   * @param delta Rows that were appended
+   */
+  public boolean refreshTiles(Lattice lattice, List<String> tableName,
+      ScannableTable delta) {
+    final Map<TileKey, MaterializationKey> tiles = new LinkedHashMap<>();
+    synchronized (this) {
+      for (Map.Entry<TileKey, MaterializationKey> entry
+          : actor.keyByTile.entrySet()) {
+        if (entry.getKey().lattice == lattice) {
+          tiles.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    boolean incremental = true;
+    for (Map.Entry<TileKey, MaterializationKey> entry : tiles.entrySet()) {
+      if (checkValid(entry.getValue()) == null) {
+        continue;
+      }
+      if (!refresh(entry.getValue(), tableName, delta, false)) {
+        dropTile(entry.getKey(), entry.getValue());
+        incremental = false;
+      }
+    }
+    return incremental;
+  }
+
+  /** Removes a tile, so that queries no longer use it. */
+  private synchronized void dropTile(TileKey tileKey,
+      MaterializationKey key) {
+    final TileKey tileKey0 =
+        new TileKey(tileKey.lattice, tileKey.dimensions,
+            ImmutableList.<Lattice.Measure>of());
+    actor.tilesByDimensionality.remove(tileKey0, tileKey);
+    actor.keyByTile.remove(tileKey);
+    actor.keyMap.remove(key);
+    actor.keyBySql.values().remove(key);
+  }
+
+  /** Returns the rows of a stored table, or null if they cannot be read. */
+  private static Enumerable<Object> rows(CalciteConnection connection,
+      CalciteSchema.TableEntry tableEntry) {
+    final Table table = tableEntry.getTable();
+    if (table instanceof QueryableTable) {
+      return ((QueryableTable) table).asQueryable(connection,
+          tableEntry.schema.plus(), tableEntry.name);
+    }
+    if (table instanceof ScannableTable) {
+      //noinspection unchecked
+      return (Enumerable) ((ScannableTable) table).scan(
+          Schemas.createDataContext(connection));
+    }
+    return null;
+  }
+
+  /** Merges the rows of a delta into the rows of a stored table.
+   *
+   * <p>If {@code kinds} is null, appends the delta rows. Otherwise combines
+   * each delta row with the stored row that has the same values of the key
+   * columns (those whose kind is null), or adds it if there is no such row. */
+  private static List<Object> merge(Enumerable<Object> rows,
+      Enumerable<Object> deltaRows, List<SqlKind> kinds, int fieldCount) {
+    final List<Object> list = new ArrayList<>();
+    if (kinds == null) {
+      list.addAll(rows.toList());
+      list.addAll(deltaRows.toList());
+      return list;
+    }
+    final Map<List<Object>, Object[]> map = new LinkedHashMap<>();
+    for (Object row : rows) {
+      final Object[] values = toArray(row, fieldCount);
+      map.put(key(values, kinds), values);
+    }
+    for (Object row : deltaRows) {
+      final Object[] values = toArray(row, fieldCount);
+      final List<Object> key = key(values, kinds);
+      final Object[] values0 = map.get(key);
+      if (values0 == null) {
+        map.put(key, values);
+        continue;
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        if (kinds.get(i) != null) {
+          values0[i] = combine(kinds.get(i), values0[i], values[i]);
+        }
+      }
+    }
+    for (Object[] values : map.values()) {
+      list.add(fieldCount == 1 ? values[0] : values);
+    }
+    return list;
+  }
+
+  private static Object[] toArray(Object row, int fieldCount) {
+    return fieldCount == 1
+        ? new Object[] {row}
+        : ((Object[]) row).clone();
+  }
+
+  private static List<Object> key(Object[] values, List<SqlKind> kinds) {
+    final List<Object> key = new ArrayList<>();
+    for (int i = 0; i < values.length; i++) {
+      if (kinds.get(i) == null) {
+        key.add(values[i]);
+      }
+    }
+    return key;
+  }
+
+  /** Combines two values of an aggregate function. */
+  private static Object combine(SqlKind kind, Object v0, Object v1) {
+    if (v0 == null) {
+      return v1;
+    }
+    if (v1 == null) {
+      return v0;
+    }
+    switch (kind) {
+    case MIN:
+      //noinspection unchecked
+      return ((Comparable) v0).compareTo(v1) <= 0 ? v0 : v1;
+    case MAX:
+      //noinspection unchecked
+      return ((Comparable) v0).compareTo(v1) >= 0 ? v0 : v1;
+    default:
+      return plus((Number) v0, (Number) v1);
+    }
+  }
+
+  private static Number plus(Number v0, Number v1) {
+    if (v0 instanceof BigDecimal) {
+      return ((BigDecimal) v0).add((BigDecimal) v1);
+    } else if (v0 instanceof Double) {
+      return v0.doubleValue() + v1.doubleValue();
+    } else if (v0 instanceof Float) {
+      return v0.floatValue() + v1.floatValue();
+    } else if (v0 instanceof Long) {
+      return v0.longValue() + v1.longValue();
+    } else if (v0 instanceof Integer) {
+      return v0.intValue() + v1.intValue();
+    } else if (v0 instanceof Short) {
+      return (short) (v0.shortValue() + v1.shortValue());
+    } else if (v0 instanceof Byte) {
+      return (byte) (v0.byteValue() + v1.byteValue());
+    }
+    throw new AssertionError("cannot add " + v0.getClass());
+  }
+
+  /** Records that a query has asked for a tile of a lattice.
+   *
+   * @see TileQueries */
+  public synchronized void recordTileQuery(Lattice lattice,
+      ImmutableBitSet groupSet, List<Lattice.Measure> measureList) {
+    actor.queriedTiles.add(
+        new TileKey(lattice, groupSet, ImmutableList.copyOf(measureList)));
+  }
+
+  /** Returns the tiles that queries have asked for, and how many times. */
+  public synchronized ImmutableMultiset<TileKey> queriedTiles() {
+    return ImmutableMultiset.copyOf(actor.queriedTiles);
+  }
+
+  /**
+   * Materializes, in the background, the tiles of a lattice that
+   * {@link TileRecommender} recommends for the queries recorded so far.
+   *
+   * <p>Each tile is populated before it is registered, including a tile that
+   * is widened to include the measures of an existing tile, so that queries
+   * never wait for a tile built here; until then, they read the fact table,
+   * or a tile that already exists. (If a query defines the same tile first,
+   * as it may when the lattice is {@link Lattice#auto auto}, that query's
+   * tile is kept, and is populated when it is first read.)
+   *
+   * @param lattice Lattice
+   * @param schema Schema that contains the lattice
+   * @param rowBudget Maximum total number of rows in the new tiles
+   * @param executor Executor on which to build the tiles
+   * @return Future that yields the keys of the tiles that were built
+   */
+  public Future<List<TileKey>> buildTiles(final Lattice lattice,
+      final CalciteSchema schema, final double rowBudget,
+      ExecutorService executor) {
+    return executor.submit(
+        new Callable<List<TileKey>>() {
+          public List<TileKey> call() {
+            final TileRecommender recommender =
+                new TileRecommender(lattice, rowBudget);
+            final List<TileKey> tileKeys = new ArrayList<>();
+            for (Lattice.Tile tile : recommender.recommend(queriedTiles())) {
+              final Pair<CalciteSchema.TableEntry, TileKey> pair =
+                  buildTile(lattice, tile, schema);
+              if (pair != null) {
+                tileKeys.add(pair.right);
+              }
+            }
+            return tileKeys;
+          }
+        });
+  }
+
+  /** Builds a tile, if no tile that has its dimensions and measures exists.
+   *
+   * <p>{@link #defineTile} first looks for an existing tile, then widens the
+   * tile to include the measures of other tiles of the same dimensionality,
+   * and only then asks the table factory for a table; so the table that the
+   * factory populates here is the one that will be registered. If another
+   * thread defines the same tile meanwhile, its table is used, and the one
+   * built here is discarded. */
+  private Pair<CalciteSchema.TableEntry, TileKey> buildTile(Lattice lattice,
+      Lattice.Tile tile, CalciteSchema schema) {
+    return defineTile(lattice, tile.bitSet(), tile.measures, schema, true,
+        true, "m" + tile.bitSet(),
+        new TableFactory() {
+          public Table createTable(CalciteSchema schema, String viewSql,
+              List<String> viewSchemaPath) {
+            final Table table =
+                tableFactory.createTable(schema, viewSql, viewSchemaPath);
+            // Reading statistics populates the table.
+            Util.discard(table.getStatistic());
+            return table;
+          }
+        });
+  }
+
+  /** De-registers all materialized tables in the system, and forgets the
+   * tiles that queries have asked for. */
+  public synchronized void clear() {
     actor.keyMap.clear();
+    actor.queriedTiles.clear();
   }
 
   /** Used by tests, to ensure that they see their own service. */
@@ -345,6 +792,42 @@ public static MaterializationService instance() {
     return INSTANCE;
   }
 
+  /**
+   * The tiles of lattices that a statement asks for while it is being
+   * prepared.
+   *
+   * <p>The planner may ask for the same tile several times, for instance if a
+   * rule fires more than once, but each tile is counted once. The tiles are
+   * recorded in the service by {@link #record()}, each time the statement is
+   * executed, so that statements that are only explained or prepared do not
+   * count towards the workload that {@link TileRecommender} sees.
+   */
+  public static class TileQueries {
+    private final Set<TileKey> tileKeys = new LinkedHashSet<>();
+
+    /** Adds a tile that the statement has asked for. */
+    public void add(Lattice lattice, ImmutableBitSet groupSet,
+        List<Lattice.Measure> measureList) {
+      tileKeys.add(
+          new TileKey(lattice, groupSet, ImmutableList.copyOf(measureList)));
+    }
+
+    /** Returns whether the statement has asked for any tiles. */
+    public boolean isEmpty() {
+      return tileKeys.isEmpty();
+    }
+
+    /** Records the tiles in the service; called each time the statement is
+     * executed. */
+    public void record() {
+      final MaterializationService service = instance();
+      for (TileKey tileKey : tileKeys) {
+        service.recordTileQuery(tileKey.lattice, tileKey.dimensions,
+            tileKey.measures);
+      }
+    }
+  }
+
   /**
    * Creates tables that represent a materialized view.
    */
@@ -403,6 +886,213 @@ public Iterator<Object> iterator() {
           });
     }
   }
+
+  /** Program that, if a materialization's query can be maintained
+   * incrementally, replaces it with the query's delta. Registered as a
+   * handler for {@link Hook#PROGRAM} while
+   * {@link #refresh(MaterializationKey, List, ScannableTable)} prepares the
+   * query. */
+  private static class DeltaProgram
+      implements Program, Function<Pair<List, Holder<Program>>, Void> {
+    private final List<String> tableName;
+    private final ScannableTable delta;
+    private final boolean enabled;
+
+    /** Whether the query was replaced by its delta. */
+    boolean incremental;
+
+    /** How to combine each column of the delta with the stored rows; null
+     * (if incremental) means append. */
+    List<SqlKind> kinds;
+
+    DeltaProgram(List<String> tableName, ScannableTable delta,
+        boolean enabled) {
+      this.tableName = ImmutableList.copyOf(tableName);
+      this.delta = Preconditions.checkNotNull(delta);
+      this.enabled = enabled;
+    }
+
+    public Void apply(Pair<List, Holder<Program>> pair) {
+      pair.right.set(this);
+      return null;
+    }
+
+    public RelNode run(RelOptPlanner planner, RelNode rel,
+        RelTraitSet requiredOutputTraits) {
+      incremental = enabled && !joinsToItself(rel) && analyze(rel);
+      if (incremental) {
+        final List<RelOptRule> rules = new ArrayList<>();
+        for (RelOptRule rule : StreamRules.RULES) {
+          if (!(rule instanceof StreamRules.DeltaTableScanRule
+              || rule instanceof StreamRules.DeltaTableScanToEmptyRule)) {
+            rules.add(rule);
+          }
+        }
+        rules.add(new DeltaTableScanToTableRule(tableName, delta));
+        rel = Programs.hep(rules, true, DefaultRelMetadataProvider.INSTANCE)
+            .run(planner, LogicalDelta.create(rel), rel.getTraitSet());
+      }
+      return Programs.standard()
+          .run(planner, rel, requiredOutputTraits);
+    }
+
+    /** Returns whether the delta of a query can be merged into its stored
+     * rows, and if so, populates {@link #kinds}. */
+    private boolean analyze(RelNode rel) {
+      while (rel instanceof Sort
+          && ((Sort) rel).offset == null
+          && ((Sort) rel).fetch == null) {
+        rel = ((Sort) rel).getInput();
+      }
+      if (isSpj(rel)) {
+        kinds = null;
+        return true;
+      }
+      final List<Integer> fields = new ArrayList<>();
+      if (rel instanceof Project) {
+        for (RexNode e : ((Project) rel).getProjects()) {
+          if (!(e instanceof RexInputRef)) {
+            return false;
+          }
+          fields.add(((RexInputRef) e).getIndex());
+        }
+        rel = ((Project) rel).getInput();
+      } else {
+        fields.addAll(
+            ImmutableIntList.identity(rel.getRowType().getFieldCount()));
+      }
+      if (!(rel instanceof Aggregate)) {
+        return false;
+      }
+      final Aggregate aggregate = (Aggregate) rel;
+      if (aggregate.getGroupType() != Aggregate.Group.SIMPLE
+          || !isSpj(aggregate.getInput())
+          || !fields.containsAll(
+              ImmutableIntList.identity(aggregate.getGroupCount()))) {
+        return false;
+      }
+      final List<SqlKind> list = new ArrayList<>();
+      for (int field : fields) {
+        if (field < aggregate.getGroupCount()) {
+          list.add(null);
+          continue;
+        }
+        final AggregateCall aggCall =
+            aggregate.getAggCallList().get(field - aggregate.getGroupCount());
+        final SqlKind kind = aggCall.getAggregation().getKind();
+        switch (kind) {
+        case SUM:
+        case SUM0:
+        case COUNT:
+        case MIN:
+        case MAX:
+          if (aggCall.isDistinct()) {
+            return false;
+          }
+          list.add(kind);
+          break;
+        default:
+          return false;
+        }
+      }
+      kinds = list;
+      return true;
+    }
+
+    /** Returns whether a query joins the table that rows were appended to
+     * to itself.
+     *
+     * <p>For a table A with appended rows dA, the delta of "A join A" that
+     * {@link StreamRules} derives is "A join dA union all dA join A". Since A
+     * already contains dA, that counts "dA join dA" twice, so such a query is
+     * re-populated instead. */
+    private boolean joinsToItself(RelNode rel) {
+      if (rel instanceof Join
+          && scans(((Join) rel).getLeft())
+          && scans(((Join) rel).getRight())) {
+        return true;
+      }
+      for (RelNode input : rel.getInputs()) {
+        if (joinsToItself(input)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns whether a relational expression reads the table that rows were
+     * appended to. */
+    private boolean scans(RelNode rel) {
+      if (rel instanceof TableScan
+          && rel.getTable().getQualifiedName().equals(tableName)) {
+        return true;
+      }
+      for (RelNode input : rel.getInputs()) {
+        if (scans(input)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns whether a relational expression is select-project-join, and
+     * therefore its delta for appended rows consists only of appended rows. */
+    private static boolean isSpj(RelNode rel) {
+      if (rel instanceof Join) {
+        if (((Join) rel).getJoinType() != JoinRelType.INNER) {
+          return false;
+        }
+      } else if (rel instanceof Union) {
+        if (!((Union) rel).all) {
+          return false;
+        }
+      } else if (!(rel instanceof Project
+          || rel instanceof Filter
+          || rel instanceof TableScan)) {
+        return false;
+      }
+      for (RelNode input : rel.getInputs()) {
+        if (!isSpj(input)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Planner rule that converts a {@link org.apache.calcite.rel.stream.Delta}
+   * over a scan of the table that rows were appended to into a scan of the
+   * appended rows, and a {@code Delta} over a scan of any other table into an
+   * empty {@link org.apache.calcite.rel.core.Values}. */
+  private static class DeltaTableScanToTableRule extends RelOptRule {
+    private final List<String> tableName;
+    private final ScannableTable delta;
+
+    DeltaTableScanToTableRule(List<String> tableName, ScannableTable delta) {
+      super(
+          operand(LogicalDelta.class,
+              operand(TableScan.class, none())),
+          "DeltaTableScanToTableRule:" + tableName);
+      this.tableName = tableName;
+      this.delta = delta;
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final LogicalDelta delta = call.rel(0);
+      final TableScan scan = call.rel(1);
+      final RelOptTable relOptTable = scan.getTable();
+      if (relOptTable.getQualifiedName().equals(tableName)) {
+        final RelOptTable relOptTable2 =
+            RelOptTableImpl.create(relOptTable.getRelOptSchema(),
+                relOptTable.getRowType(), this.delta);
+        call.transformTo(
+            LogicalTableScan.create(scan.getCluster(), relOptTable2));
+      } else {
+        call.transformTo(
+            call.builder().values(delta.getRowType()).build());
+      }
+    }
+  }
 }
 
 // End MaterializationService.java
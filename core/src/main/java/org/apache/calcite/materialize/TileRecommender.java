@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.materialize;
+
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Algorithm that recommends a set of tiles (materialized aggregate views)
+ * for a lattice, based on the queries that have been executed against it.
+ *
+ * <p>Whereas {@link TileSuggester} considers every combination of
+ * dimensions, the candidates here are the combinations of dimensions that
+ * queries have actually used, each with the measures needed by the queries
+ * it can answer. The algorithm greedily chooses the candidate with the
+ * greatest benefit per row, until the row budget is exhausted. The benefit of
+ * a tile is the number of rows that queries would no longer need to read,
+ * weighted by the number of times each query was executed.
+ */
+public class TileRecommender {
+  private final Lattice lattice;
+  private final double rowBudget;
+
+  /** Creates a TileRecommender.
+   *
+   * @param lattice Lattice
+   * @param rowBudget Maximum total number of rows in recommended tiles
+   */
+  public TileRecommender(Lattice lattice, double rowBudget) {
+    this.lattice = Preconditions.checkNotNull(lattice);
+    this.rowBudget = rowBudget;
+  }
+
+  /** Recommends tiles, given the tiles that queries have asked for.
+   *
+   * @param queries Tiles requested by queries, with a count of how many times
+   *                each was requested; keys of other lattices are ignored
+   * @return Recommended tiles, most beneficial first
+   */
+  public List<Lattice.Tile> recommend(Multiset<TileKey> queries) {
+    // Combine requests with the same dimensions.
+    final Map<ImmutableBitSet, Query> queryMap = new LinkedHashMap<>();
+    for (Multiset.Entry<TileKey> entry : queries.entrySet()) {
+      final TileKey tileKey = entry.getElement();
+      if (tileKey.lattice != lattice) {
+        continue;
+      }
+      Query query = queryMap.get(tileKey.dimensions);
+      if (query == null) {
+        query = new Query(tileKey.dimensions);
+        queryMap.put(tileKey.dimensions, query);
+      }
+      query.count += entry.getCount();
+      query.measures.addAll(tileKey.measures);
+    }
+
+    // Each combination of dimensions is a candidate tile, which must contain
+    // the measures of every query it can answer.
+    final double factRowCount = lattice.getFactRowCount();
+    final List<Candidate> candidates = new ArrayList<>();
+    for (Query query : queryMap.values()) {
+      final Candidate candidate = new Candidate(query.dimensions,
+          lattice.getRowCount(columns(query.dimensions)));
+      if (candidate.rowCount >= factRowCount) {
+        continue;
+      }
+      for (Query query2 : queryMap.values()) {
+        if (query.dimensions.contains(query2.dimensions)) {
+          candidate.queries.add(query2);
+          candidate.measures.addAll(query2.measures);
+        }
+      }
+      candidates.add(candidate);
+    }
+
+    final List<Lattice.Tile> tiles = new ArrayList<>();
+    double rowCount = 0d;
+    for (;;) {
+      Candidate best = null;
+      double bestBenefit = 0d;
+      for (Candidate candidate : candidates) {
+        if (rowCount + candidate.rowCount > rowBudget) {
+          continue;
+        }
+        final double benefit = candidate.benefit() / candidate.rowCount;
+        if (benefit > bestBenefit) {
+          best = candidate;
+          bestBenefit = benefit;
+        }
+      }
+      if (best == null) {
+        return tiles;
+      }
+      candidates.remove(best);
+      rowCount += best.rowCount;
+      for (Query query : best.queries) {
+        query.cost = Math.min(query.cost, best.rowCount);
+      }
+      tiles.add(best.toTile());
+    }
+  }
+
+  private List<Lattice.Column> columns(ImmutableBitSet dimensions) {
+    final ImmutableList.Builder<Lattice.Column> columns =
+        ImmutableList.builder();
+    for (int dimension : dimensions) {
+      columns.add(lattice.columns.get(dimension));
+    }
+    return columns.build();
+  }
+
+  /** Combinations of dimensions used by queries, and how often. */
+  private class Query {
+    final ImmutableBitSet dimensions;
+    final Set<Lattice.Measure> measures = new LinkedHashSet<>();
+    int count;
+
+    /** Number of rows that need to be read to answer this query, using the
+     * best tile chosen so far, or the fact table. */
+    double cost = lattice.getFactRowCount();
+
+    Query(ImmutableBitSet dimensions) {
+      this.dimensions = dimensions;
+    }
+  }
+
+  /** Tile that might be recommended. */
+  private class Candidate {
+    final ImmutableBitSet dimensions;
+    final double rowCount;
+    final List<Query> queries = new ArrayList<>();
+    final Set<Lattice.Measure> measures = new LinkedHashSet<>();
+
+    Candidate(ImmutableBitSet dimensions, double rowCount) {
+      this.dimensions = dimensions;
+      this.rowCount = Math.max(rowCount, 1d);
+    }
+
+    /** Returns the number of rows that queries would no longer need to read
+     * if this tile were materialized. */
+    double benefit() {
+      double benefit = 0d;
+      for (Query query : queries) {
+        benefit += query.count * Math.max(0d, query.cost - rowCount);
+      }
+      return benefit;
+    }
+
+    Lattice.Tile toTile() {
+      final Lattice.TileBuilder tileBuilder = new Lattice.TileBuilder();
+      for (Lattice.Measure measure : measures) {
+        tileBuilder.addMeasure(measure);
+      }
+      for (Lattice.Column column : columns(dimensions)) {
+        tileBuilder.addDimension(column);
+      }
+      return tileBuilder.build();
+    }
+  }
+}
+
+// End TileRecommender.java
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.plan;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.metadata.RelColumnOrigin;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.graph.DefaultDirectedGraph;
+import org.apache.calcite.util.graph.DefaultEdge;
+import org.apache.calcite.util.graph.DirectedGraph;
+import org.apache.calcite.util.graph.TopologicalOrderIterator;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of materializations, used to find quickly the materializations that
+ * might be able to rewrite a query.
+ *
+ * <p>The index is a filter tree. The first level files each materialization
+ * under one of the base tables that it reads, so that a query only reaches
+ * materializations that read at least one of its tables. The remaining levels
+ * require that the query reads all of the materialization's base tables;
+ * that it has at least as many joins; and, if the materialization is an
+ * aggregate, that the query aggregates too, grouping only on columns that the
+ * materialization groups on.
+ *
+ * <p>Each level is a necessary condition for
+ * {@link MaterializedViewSubstitutionVisitor} to succeed, so the index does
+ * not exclude any materialization that could have been used. A
+ * materialization defined in terms of other materializations is filed under
+ * the base tables of those materializations.
+ *
+ * <p>Materializations of lattice tiles are not indexed; the planner uses
+ * lattices to find them.
+ */
+public class MaterializationIndex {
+  /** Materializations in topological order; a materialization defined in
+   * terms of another materialization comes after it. */
+  private final ImmutableList<RelOptMaterialization> materializations;
+  private final Map<RelOptMaterialization, Signature> signatures =
+      new HashMap<>();
+  /** Position of each materialization in {@link #materializations}. */
+  private final Map<RelOptMaterialization, Integer> ordinals =
+      new HashMap<>();
+  private final Multimap<List<String>, RelOptMaterialization> byTable =
+      ArrayListMultimap.create();
+  private final List<RelOptMaterialization> noTables = new ArrayList<>();
+
+  /** Base tables of each materialized table. */
+  private final Map<List<String>, Set<List<String>>> baseTables =
+      new HashMap<>();
+  private final Map<List<String>, RelOptMaterialization> qnameMap =
+      new HashMap<>();
+
+  /** Creates a MaterializationIndex. */
+  public MaterializationIndex(List<RelOptMaterialization> materializations) {
+    // Given materializations:
+    //   T = Emps Join Depts
+    //   T2 = T Group by C1
+    // graph will contain
+    //   (T, Emps), (T, Depts), (T2, T)
+    // and therefore we can deduce T2 uses Emps.
+    final DirectedGraph<List<String>, DefaultEdge> usesGraph =
+        DefaultDirectedGraph.create();
+    for (RelOptMaterialization materialization : materializations) {
+      if (materialization.table != null
+          && materialization.starTable == null) {
+        final List<String> qname = materialization.table.getQualifiedName();
+        qnameMap.put(qname, materialization);
+        usesGraph.addVertex(qname);
+        for (RelOptTable usedTable : findTables(materialization.queryRel)) {
+          usesGraph.addVertex(usedTable.getQualifiedName());
+          usesGraph.addEdge(usedTable.getQualifiedName(), qname);
+        }
+      }
+    }
+    final ImmutableList.Builder<RelOptMaterialization> builder =
+        ImmutableList.builder();
+    for (List<String> qname : TopologicalOrderIterator.of(usesGraph)) {
+      final RelOptMaterialization materialization = qnameMap.get(qname);
+      if (materialization != null) {
+        builder.add(materialization);
+        ordinals.put(materialization, ordinals.size());
+        final Signature signature = signature(materialization.queryRel);
+        signatures.put(materialization, signature);
+        if (signature.tables.isEmpty()) {
+          noTables.add(materialization);
+        } else {
+          byTable.put(
+              Ordering.usingToString().min(signature.tables),
+              materialization);
+        }
+      }
+    }
+    this.materializations = builder.build();
+  }
+
+  /** Returns the number of materializations in this index. */
+  public int size() {
+    return materializations.size();
+  }
+
+  /** Returns the materializations that might be able to rewrite a query, in
+   * topological order. */
+  public List<RelOptMaterialization> candidates(RelNode root) {
+    final Signature querySignature = signature(root);
+    final List<RelOptMaterialization> list = new ArrayList<>();
+    for (RelOptMaterialization materialization : noTables) {
+      if (signatures.get(materialization).canRewrite(querySignature)) {
+        list.add(materialization);
+      }
+    }
+    for (List<String> table : querySignature.tables) {
+      for (RelOptMaterialization materialization : byTable.get(table)) {
+        if (signatures.get(materialization).canRewrite(querySignature)) {
+          list.add(materialization);
+        }
+      }
+    }
+    Collections.sort(list, new Comparator<RelOptMaterialization>() {
+      public int compare(RelOptMaterialization m0, RelOptMaterialization m1) {
+        return Integer.compare(ordinals.get(m0), ordinals.get(m1));
+      }
+    });
+    return list;
+  }
+
+  private Signature signature(RelNode rel) {
+    final Set<List<String>> tables = new LinkedHashSet<>();
+    boolean overMaterializations = false;
+    for (RelOptTable table : findTables(rel)) {
+      final List<String> qname = table.getQualifiedName();
+      if (qnameMap.containsKey(qname)) {
+        overMaterializations = true;
+      }
+      tables.addAll(baseTables(qname));
+    }
+    if (overMaterializations) {
+      return new Signature(tables, -1, null);
+    }
+    final List<Aggregate> aggregates = new ArrayList<>();
+    final int[] joinCount = {0};
+    new RelVisitor() {
+      @Override public void visit(RelNode node, int ordinal, RelNode parent) {
+        if (node instanceof Join) {
+          ++joinCount[0];
+        } else if (node instanceof Aggregate) {
+          aggregates.add((Aggregate) node);
+        }
+        super.visit(node, ordinal, parent);
+      }
+      // CHECKSTYLE: IGNORE 1
+    }.go(rel);
+    final List<List<Set<Pair<List<String>, Integer>>>> groupings =
+        new ArrayList<>();
+    for (Aggregate aggregate : aggregates) {
+      groupings.add(grouping(aggregate));
+    }
+    return new Signature(tables, joinCount[0], groupings);
+  }
+
+  /** Returns, for each grouping column of an aggregate, the base columns it
+   * is derived from; empty if not known. */
+  private static List<Set<Pair<List<String>, Integer>>> grouping(
+      Aggregate aggregate) {
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final List<Set<Pair<List<String>, Integer>>> grouping = new ArrayList<>();
+    for (int key : aggregate.getGroupSet()) {
+      final Set<Pair<List<String>, Integer>> columns = new HashSet<>();
+      final Set<RelColumnOrigin> origins =
+          mq.getColumnOrigins(aggregate.getInput(), key);
+      if (origins != null) {
+        for (RelColumnOrigin origin : origins) {
+          columns.add(
+              Pair.of(origin.getOriginTable().getQualifiedName(),
+                  origin.getOriginColumnOrdinal()));
+        }
+      }
+      grouping.add(columns);
+    }
+    return grouping;
+  }
+
+  private Set<List<String>> baseTables(List<String> qname) {
+    Set<List<String>> tables = baseTables.get(qname);
+    if (tables == null) {
+      final RelOptMaterialization materialization = qnameMap.get(qname);
+      if (materialization == null) {
+        tables = Collections.singleton(qname);
+      } else {
+        tables = new LinkedHashSet<>();
+        for (RelOptTable table : findTables(materialization.queryRel)) {
+          tables.addAll(baseTables(table.getQualifiedName()));
+        }
+      }
+      baseTables.put(qname, tables);
+    }
+    return tables;
+  }
+
+  private static Set<RelOptTable> findTables(RelNode rel) {
+    final Set<RelOptTable> usedTables = new LinkedHashSet<>();
+    new RelVisitor() {
+      @Override public void visit(RelNode node, int ordinal, RelNode parent) {
+        if (node instanceof TableScan) {
+          usedTables.add(node.getTable());
+        }
+        super.visit(node, ordinal, parent);
+      }
+      // CHECKSTYLE: IGNORE 1
+    }.go(rel);
+    return usedTables;
+  }
+
+  /** Statistics about the use of the index to rewrite a query. */
+  public static class Stats {
+    /** Number of materializations in the index. */
+    public final int materializationCount;
+    /** Number of materializations that the index returned as candidates. */
+    public final int candidateCount;
+    /** Number of candidates that were used to rewrite the query. */
+    public final int matchCount;
+
+    public Stats(int materializationCount, int candidateCount,
+        int matchCount) {
+      this.materializationCount = materializationCount;
+      this.candidateCount = candidateCount;
+      this.matchCount = matchCount;
+    }
+
+    @Override public String toString() {
+      return "materializations: " + materializationCount
+          + ", candidates: " + candidateCount
+          + ", matched: " + matchCount;
+    }
+  }
+
+  /** Summary of a query or materialization, used to decide whether a
+   * materialization might be able to rewrite a query. */
+  private static class Signature {
+    /** Base tables read. */
+    final Set<List<String>> tables;
+    /** Number of joins, or -1 if the relational expression reads a
+     * materialized table, and therefore its joins are not known. */
+    final int joinCount;
+    /** For each aggregate, for each of its grouping columns, the base
+     * columns it is derived from; null if not known. */
+    final List<List<Set<Pair<List<String>, Integer>>>> groupings;
+
+    Signature(Set<List<String>> tables, int joinCount,
+        List<List<Set<Pair<List<String>, Integer>>>> groupings) {
+      this.tables = tables;
+      this.joinCount = joinCount;
+      this.groupings = groupings;
+    }
+
+    /** Returns whether a materialization with this signature might be able
+     * to rewrite a query with a given signature. */
+    boolean canRewrite(Signature query) {
+      if (!query.tables.containsAll(tables)) {
+        return false;
+      }
+      if (joinCount < 0 || query.joinCount < 0) {
+        return true;
+      }
+      if (joinCount > query.joinCount) {
+        return false;
+      }
+      if (groupings.size() != 1) {
+        // With no aggregate, the materialization can match anything; with
+        // several, we do not know which will be matched.
+        return groupings.isEmpty() || !query.groupings.isEmpty();
+      }
+      // A query can use an aggregate materialization only if it has an
+      // aggregate each of whose grouping columns may be derived from a
+      // grouping column of the materialization.
+      final Set<Pair<List<String>, Integer>> columns = new HashSet<>();
+      for (Set<Pair<List<String>, Integer>> keyColumns : groupings.get(0)) {
+        columns.addAll(keyColumns);
+      }
+      for (List<Set<Pair<List<String>, Integer>>> queryGrouping
+          : query.groupings) {
+        if (canRollUp(queryGrouping, columns)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean canRollUp(
+        List<Set<Pair<List<String>, Integer>>> queryGrouping,
+        Set<Pair<List<String>, Integer>> columns) {
+      for (Set<Pair<List<String>, Integer>> keyColumns : queryGrouping) {
+        if (!keyColumns.isEmpty()
+            && Collections.disjoint(keyColumns, columns)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
+
+// End MaterializationIndex.java
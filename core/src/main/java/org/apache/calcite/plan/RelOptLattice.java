@@ -58,7 +58,11 @@ public RelNode rewrite(RelNode node) {
    * the star table.
    *
    * <p>The current implementation creates a materialization and populates it,
-   * provided that {@link Lattice#auto} is true.
+   * provided that {@link Lattice#auto} is true. It also adds the request to
+   * the statement's {@link MaterializationService.TileQueries}, if the
+   * planner's context has one, so that when the statement is executed,
+   * {@link MaterializationService#buildTiles} can later build tiles that suit
+   * the workload.
    *
    * <p>Future implementations might return materializations at a different
    * level of aggregation, from which the desired result can be obtained by
@@ -77,6 +81,11 @@ public Pair<CalciteSchema.TableEntry, TileKey> getAggregate(
     if (config == null) {
       return null;
     }
+    final MaterializationService.TileQueries tileQueries =
+        planner.getContext().unwrap(MaterializationService.TileQueries.class);
+    if (tileQueries != null) {
+      tileQueries.add(lattice, groupSet, measureList);
+    }
     final MaterializationService service = MaterializationService.instance();
     boolean create = lattice.auto && config.createMaterializations();
     final CalciteSchema schema = starRelOptTable.unwrap(CalciteSchema.class);
@@ -23,6 +23,7 @@
 import org.apache.calcite.plan.Context;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.ConventionTraitDef;
+import org.apache.calcite.plan.MaterializationIndex;
 import org.apache.calcite.plan.MaterializedViewSubstitutionVisitor;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptCostFactory;
@@ -71,11 +72,6 @@
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.SaffronProperties;
 import org.apache.calcite.util.Util;
-import org.apache.calcite.util.graph.DefaultDirectedGraph;
-import org.apache.calcite.util.graph.DefaultEdge;
-import org.apache.calcite.util.graph.DirectedGraph;
-import org.apache.calcite.util.graph.Graphs;
-import org.apache.calcite.util.graph.TopologicalOrderIterator;
 
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
@@ -255,6 +251,9 @@ public List<String> apply(RelOptTable relOptTable) {
   private final List<RelOptMaterialization> materializations =
       Lists.newArrayList();
 
+  /** Index of {@link #materializations}; null if it needs to be rebuilt. */
+  private MaterializationIndex materializationIndex;
+
   /** Map of lattices by the qualified name of their star table. */
   private final Map<List<String>, RelOptLattice> latticeByName =
       Maps.newLinkedHashMap();
@@ -351,6 +350,21 @@ public ImmutableList<RelOptMaterialization> getMaterializations() {
   @Override public void addMaterialization(
       RelOptMaterialization materialization) {
     materializations.add(materialization);
+    materializationIndex = null;
+  }
+
+  /** Returns an index of the materializations registered with this planner,
+   * with which to find those that might rewrite a given query.
+   *
+   * <p>Each statement is prepared with a new planner, whose materializations
+   * are expanded afresh, so the index is built once per prepare. Building it
+   * is linear in the number of materializations; what it saves is the far
+   * more expensive attempts to unify the query with each of them. */
+  public MaterializationIndex getMaterializationIndex() {
+    if (materializationIndex == null) {
+      materializationIndex = new MaterializationIndex(materializations);
+    }
+    return materializationIndex;
   }
 
   @Override public void addLattice(RelOptLattice lattice) {
@@ -431,16 +445,22 @@ private List<RelNode> substitute(
   // Register all possible combinations of materialization substitution.
   // Useful for big queries, e.g.
   //   (t1 group by c1) join (t2 group by c2).
-  private void useMaterializations(RelNode root,
+  // Returns the number of materializations that were used.
+  private int useMaterializations(RelNode root,
       List<RelOptMaterialization> materializations) {
     List<RelNode> applied = Lists.newArrayList(root);
+    int matchCount = 0;
     for (RelOptMaterialization m : materializations) {
       int count = applied.size();
       for (int i = 0; i < count; i++) {
         List<RelNode> sub = useMaterialization(applied.get(i), m, i == 0);
         applied.addAll(sub);
       }
+      if (applied.size() > count) {
+        ++matchCount;
+      }
     }
+    return matchCount;
   }
 
   private void useApplicableMaterializations() {
@@ -451,15 +471,18 @@ private void useApplicableMaterializations() {
       return;
     }
 
-    // Given materializations:
-    //   T = Emps Join Depts
-    //   T2 = T Group by C1
-    // graph will contain
-    //   (T, Emps), (T, Depts), (T2, T)
-    // and therefore we can deduce T2 uses Emps.
+    final MaterializationIndex index = getMaterializationIndex();
     final List<RelOptMaterialization> applicableMaterializations =
-        getApplicableMaterializations(originalRoot, materializations);
-    useMaterializations(originalRoot, applicableMaterializations);
+        index.candidates(originalRoot);
+    final int matchCount =
+        useMaterializations(originalRoot, applicableMaterializations);
+    if (index.size() > 0) {
+      final MaterializationIndex.Stats stats =
+          new MaterializationIndex.Stats(index.size(),
+              applicableMaterializations.size(), matchCount);
+      LOGGER.debug("Materializations: {}", stats);
+      Hook.MATERIALIZATION_STATS.run(stats);
+    }
     final Set<RelOptTable> queryTables = findTables(originalRoot);
 
     // Use a lattice if the query uses at least the central (fact) table of the
@@ -491,59 +514,12 @@ public RelNode get() {
     }
   }
 
-  public static List<RelOptMaterialization> getApplicableMaterializations(RelNode root,
-      List<RelOptMaterialization> materializations) {
-    DirectedGraph<List<String>, DefaultEdge> usesGraph =
-        DefaultDirectedGraph.create();
-    final Map<List<String>, RelOptMaterialization> qnameMap = new HashMap<>();
-    for (RelOptMaterialization materialization : materializations) {
-      // If materialization is a tile in a lattice, we will deal with it shortly.
-      if (materialization.table != null
-          && materialization.starTable == null) {
-        final List<String> qname = materialization.table.getQualifiedName();
-        qnameMap.put(qname, materialization);
-        for (RelOptTable usedTable
-            : findTables(materialization.queryRel)) {
-          usesGraph.addVertex(qname);
-          usesGraph.addVertex(usedTable.getQualifiedName());
-          usesGraph.addEdge(usedTable.getQualifiedName(), qname);
-        }
-      }
-    }
-
-    // Use a materialization if uses at least one of the tables are used by
-    // the query. (Simple rule that includes some materializations we won't
-    // actually use.)
-    final Graphs.FrozenGraph<List<String>, DefaultEdge> frozenGraph =
-        Graphs.makeImmutable(usesGraph);
-    final Set<RelOptTable> queryTablesUsed = findTables(root);
-    final List<RelOptMaterialization> applicableMaterializations = Lists.newArrayList();
-    for (List<String> qname : TopologicalOrderIterator.of(usesGraph)) {
-      RelOptMaterialization materialization = qnameMap.get(qname);
-      if (materialization != null
-          && usesTable(materialization.table, queryTablesUsed, frozenGraph)) {
-        applicableMaterializations.add(materialization);
-      }
-    }
-    return applicableMaterializations;
-  }
-
-  /**
-   * Returns whether {@code table} uses one or more of the tables in
-   * {@code usedTables}.
-   */
-  private static boolean usesTable(
-      RelOptTable table,
-      Set<RelOptTable> usedTables,
-      Graphs.FrozenGraph<List<String>, DefaultEdge> usesGraph) {
-    for (RelOptTable queryTable : usedTables) {
-      if (usesGraph.getShortestPath(
-          queryTable.getQualifiedName(),
-          table.getQualifiedName()) != null) {
-        return true;
-      }
-    }
-    return false;
+  /** Returns the materializations that might be able to rewrite a query.
+   *
+   * @see MaterializationIndex */
+  public static List<RelOptMaterialization> getApplicableMaterializations(
+      RelNode root, List<RelOptMaterialization> materializations) {
+    return new MaterializationIndex(materializations).candidates(root);
   }
 
   private static Set<RelOptTable> findTables(RelNode rel) {
@@ -90,6 +90,7 @@
 import org.apache.calcite.rel.rules.ProjectTableScanRule;
 import org.apache.calcite.rel.rules.ProjectWindowTransposeRule;
 import org.apache.calcite.rel.rules.ReduceExpressionsRule;
+import org.apache.calcite.rel.rules.SampleTableScanRule;
 import org.apache.calcite.rel.rules.SortJoinTransposeRule;
 import org.apache.calcite.rel.rules.SortProjectTransposeRule;
 import org.apache.calcite.rel.rules.SortUnionTransposeRule;
@@ -206,6 +207,7 @@ public class CalcitePrepareImpl implements CalcitePrepare {
           EnumerableRules.ENUMERABLE_MINUS_RULE,
           EnumerableRules.ENUMERABLE_TABLE_MODIFICATION_RULE,
           EnumerableRules.ENUMERABLE_VALUES_RULE,
+          EnumerableRules.ENUMERABLE_SAMPLE_RULE,
           EnumerableRules.ENUMERABLE_WINDOW_RULE,
           EnumerableRules.ENUMERABLE_TABLE_SCAN_RULE,
           EnumerableRules.ENUMERABLE_TABLE_FUNCTION_SCAN_RULE);
@@ -219,6 +221,7 @@ public class CalcitePrepareImpl implements CalcitePrepare {
               ? JoinAssociateRule.INSTANCE
               : ProjectMergeRule.INSTANCE,
           FilterTableScanRule.INSTANCE,
+          SampleTableScanRule.INSTANCE,
           ProjectFilterTransposeRule.INSTANCE,
           FilterProjectTransposeRule.INSTANCE,
           FilterJoinRule.FILTER_ON_JOIN,
@@ -480,7 +483,8 @@ protected RelOptPlanner createPlanner(
       org.apache.calcite.plan.Context externalContext,
       RelOptCostFactory costFactory) {
     if (externalContext == null) {
-      externalContext = Contexts.of(prepareContext.config());
+      externalContext = Contexts.of(prepareContext.config(),
+          new MaterializationService.TileQueries());
     }
     final VolcanoPlanner planner =
         new VolcanoPlanner(costFactory, externalContext);
@@ -521,6 +525,10 @@ protected RelOptPlanner createPlanner(
       for (RelOptRule rule : StreamRules.RULES) {
         planner.addRule(rule);
       }
+      if (ENABLE_ENUMERABLE) {
+        planner.addRule(EnumerableRules.ENUMERABLE_STREAM_AGGREGATE_RULE);
+        planner.addRule(EnumerableRules.ENUMERABLE_STREAM_JOIN_RULE);
+      }
     }
 
     // Change the below to enable constant-reduction.
@@ -768,7 +776,14 @@ public Enumerable<T> bind(DataContext dataContext) {
       resultClazz = (Class) ((Typed) preparedResult).getElementType();
     }
     //noinspection unchecked
-    final Bindable<T> bindable = preparedResult.getBindable();
+    Bindable<T> bindable = preparedResult.getBindable();
+    final MaterializationService.TileQueries tileQueries =
+        planner.getContext().unwrap(MaterializationService.TileQueries.class);
+    if (tileQueries != null
+        && !tileQueries.isEmpty()
+        && !(preparedResult instanceof Prepare.PreparedExplain)) {
+      bindable = recordTiles(bindable, tileQueries);
+    }
     return new CalciteSignature<>(
         query.sql,
         parameters,
@@ -786,6 +801,18 @@ public Enumerable<T> bind(DataContext dataContext) {
         statementType);
   }
 
+  /** Wraps a {@link Bindable} so that each time the statement is executed,
+   * the lattice tiles that it asked for are recorded. */
+  private static <T> Bindable<T> recordTiles(final Bindable<T> bindable,
+      final MaterializationService.TileQueries tileQueries) {
+    return new Bindable<T>() {
+      public Enumerable<T> bind(DataContext dataContext) {
+        tileQueries.record();
+        return bindable.bind(dataContext);
+      }
+    };
+  }
+
   private SqlValidator createSqlValidator(Context context,
       CalciteCatalogReader catalogReader) {
     final SqlOperatorTable opTab0 =
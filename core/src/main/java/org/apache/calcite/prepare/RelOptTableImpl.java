@@ -180,6 +180,16 @@ public static RelOptTableImpl create(
         table, null, null);
   }
 
+  /** Creates a RelOptTableImpl for a table that has a name but no Java
+   * expression, such as a table derived from a schema table by pushing down
+   * an operation. Such a table can be scanned only if it is a
+   * {@link ScannableTable}. */
+  public static RelOptTableImpl create(RelOptSchema schema, RelDataType rowType,
+      List<String> names, Table table, Double rowCount) {
+    assert table instanceof ScannableTable;
+    return new RelOptTableImpl(schema, rowType, names, table, null, rowCount);
+  }
+
   public <T> T unwrap(Class<T> clazz) {
     if (clazz.isInstance(this)) {
       return clazz.cast(this);
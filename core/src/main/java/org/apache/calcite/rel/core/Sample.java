@@ -42,7 +42,14 @@ public class Sample extends SingleRel {
 
   public Sample(RelOptCluster cluster, RelNode child,
       RelOptSamplingParameters params) {
-    super(cluster, cluster.traitSetOf(Convention.NONE), child);
+    this(cluster, cluster.traitSetOf(Convention.NONE), child, params);
+  }
+
+  /** Creates a Sample with a given set of traits; for sub-classes that
+   * implement sampling in a particular calling convention. */
+  protected Sample(RelOptCluster cluster, RelTraitSet traitSet, RelNode child,
+      RelOptSamplingParameters params) {
+    super(cluster, traitSet, child);
     this.params = params;
   }
 
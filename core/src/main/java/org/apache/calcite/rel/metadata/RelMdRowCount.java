@@ -27,6 +27,7 @@
 import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.Minus;
 import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sample;
 import org.apache.calcite.rel.core.SemiJoin;
 import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.TableScan;
@@ -124,6 +125,14 @@ public Double getRowCount(Filter rel, RelMetadataQuery mq) {
         mq);
   }
 
+  public Double getRowCount(Sample rel, RelMetadataQuery mq) {
+    final Double rowCount = mq.getRowCount(rel.getInput());
+    if (rowCount == null) {
+      return null;
+    }
+    return rowCount * rel.getSamplingParameters().getSamplingPercentage();
+  }
+
   public Double getRowCount(Calc rel, RelMetadataQuery mq) {
     return RelMdUtil.estimateFilteredRows(rel.getInput(), rel.getProgram(), mq);
   }
@@ -17,6 +17,7 @@
 package org.apache.calcite.rel.rel2sql;
 
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptSamplingParameters;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Aggregate;
@@ -27,6 +28,7 @@
 import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.Minus;
 import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sample;
 import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.TableModify;
 import org.apache.calcite.rel.core.TableScan;
@@ -44,6 +46,7 @@
 import org.apache.calcite.sql.SqlLiteral;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlSampleSpec;
 import org.apache.calcite.sql.SqlSelect;
 import org.apache.calcite.sql.fun.SqlSingleValueAggFunction;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
@@ -180,6 +183,21 @@ public Result visit(TableScan e) {
     return result(identifier, Collections.singletonList(Clause.FROM), e);
   }
 
+  /** @see #dispatch */
+  public Result visit(Sample e) {
+    final Result x = visitChild(0, e.getInput());
+    final RelOptSamplingParameters params = e.getSamplingParameters();
+    final SqlSampleSpec spec = params.isRepeatable()
+        ? SqlSampleSpec.createTableSample(params.isBernoulli(),
+            params.getSamplingPercentage(), params.getRepeatableSeed())
+        : SqlSampleSpec.createTableSample(params.isBernoulli(),
+            params.getSamplingPercentage());
+    final SqlNode node =
+        SqlStdOperatorTable.TABLESAMPLE.createCall(POS, x.asFrom(),
+            SqlLiteral.createSample(spec, POS));
+    return result(node, x);
+  }
+
   /** @see #dispatch */
   public Result visit(Union e) {
     return setOpToSql(e.all
@@ -403,6 +403,13 @@ public Result result(SqlNode join, Result leftResult, Result rightResult) {
     return new Result(join, Expressions.list(Clause.FROM), null, list);
   }
 
+  /** Creates a result based on an operator, such as TABLESAMPLE, that
+   * applies to the FROM item of its input and has the same columns. */
+  public Result result(SqlNode node, Result inputResult) {
+    return new Result(node, Expressions.list(Clause.FROM), null,
+        inputResult.aliases);
+  }
+
   /** Wraps a node in a SELECT statement that has no clauses:
    *  "SELECT ... FROM (node)". */
   SqlSelect wrapSelect(SqlNode node) {
@@ -410,7 +417,8 @@ SqlSelect wrapSelect(SqlNode node) {
         || node instanceof SqlIdentifier
         || node instanceof SqlCall
         && (((SqlCall) node).getOperator() instanceof SqlSetOperator
-        || ((SqlCall) node).getOperator() == SqlStdOperatorTable.AS)
+        || ((SqlCall) node).getOperator() == SqlStdOperatorTable.AS
+        || ((SqlCall) node).getOperator() == SqlStdOperatorTable.TABLESAMPLE)
         : node;
     return new SqlSelect(POS, SqlNodeList.EMPTY, null, node, null, null, null,
         SqlNodeList.EMPTY, null, null, null);
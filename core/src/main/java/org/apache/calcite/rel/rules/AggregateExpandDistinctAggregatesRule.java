@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.rel.rules;
 
+import org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.calcite.plan.Contexts;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptRule;
@@ -33,6 +34,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.sql.SqlAggFunction;
+import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.tools.RelBuilder;
@@ -122,6 +124,39 @@ public void onMatch(RelOptRuleCall call) {
       return;
     }
 
+    // If the connection allows approximate results, compute
+    // COUNT(DISTINCT x) as APPROX_COUNT_DISTINCT(x), which uses a fixed amount
+    // of memory per group, rather than expanding it.
+    final CalciteConnectionConfig config =
+        call.getPlanner().getContext().unwrap(CalciteConnectionConfig.class);
+    if (config != null && config.approximateDistinctCount()) {
+      final List<AggregateCall> newAggCalls = new ArrayList<>();
+      boolean approximated = false;
+      for (AggregateCall aggCall : aggregate.getAggCallList()) {
+        if (aggCall.isDistinct()
+            && aggCall.getAggregation().getKind() == SqlKind.COUNT
+            && !aggCall.getArgList().isEmpty()) {
+          newAggCalls.add(
+              AggregateCall.create(SqlStdOperatorTable.APPROX_COUNT_DISTINCT,
+                  false, aggCall.getArgList(), aggCall.filterArg,
+                  aggCall.getType(), aggCall.getName()));
+          approximated = true;
+        } else {
+          newAggCalls.add(aggCall);
+        }
+      }
+      if (approximated) {
+        final Aggregate newAggregate =
+            aggregate.copy(aggregate.getTraitSet(), aggregate.getInput(),
+                aggregate.indicator, aggregate.getGroupSet(),
+                aggregate.getGroupSets(), newAggCalls);
+        if (!newAggregate.containsDistinctCall()) {
+          call.transformTo(newAggregate);
+          return;
+        }
+      }
+    }
+
     // Find all of the agg expressions. We use a LinkedHashSet to ensure
     // determinism.
     int nonDistinctCount = 0;
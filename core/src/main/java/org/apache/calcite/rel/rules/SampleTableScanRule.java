@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rel.rules;
+
+import org.apache.calcite.interpreter.Bindables;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptSamplingParameters;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.core.Sample;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.schema.SampleableTable;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.sql.SqlSampleSpec;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Planner rule that converts a {@link Sample}
+ * on a {@link org.apache.calcite.rel.core.TableScan}
+ * of a {@link org.apache.calcite.schema.SampleableTable}
+ * to a scan of the table's sample.
+ *
+ * <p>The new scan reads a table that has no Java expression, so it is
+ * implemented by a
+ * {@link org.apache.calcite.interpreter.Bindables.BindableTableScan}. Its
+ * qualified name is that of the original table followed by the sample
+ * specification, for example
+ * {@code [foodmart, sales_fact_1997, SYSTEM(10.0) REPEATABLE(1)]}.
+ */
+public class SampleTableScanRule extends RelOptRule {
+  public static final Predicate<TableScan> PREDICATE =
+      new Predicate<TableScan>() {
+        public boolean apply(TableScan scan) {
+          // We can only push a sample into a SampleableTable, and only if
+          // the scan returns every row and column of the table.
+          final RelOptTable table = scan.getTable();
+          return table.unwrap(SampleableTable.class) != null
+              && scan.getRowType().equals(table.getRowType())
+              && !(scan instanceof Bindables.BindableTableScan
+                  && !((Bindables.BindableTableScan) scan).filters.isEmpty());
+        }
+      };
+
+  public static final SampleTableScanRule INSTANCE =
+      new SampleTableScanRule();
+
+  private SampleTableScanRule() {
+    super(
+        operand(Sample.class,
+            operand(TableScan.class, null, PREDICATE, none())),
+        "SampleTableScanRule");
+  }
+
+  public void onMatch(RelOptRuleCall call) {
+    final Sample sample = call.rel(0);
+    final TableScan scan = call.rel(1);
+    final RelOptTable table = scan.getTable();
+    final RelOptSamplingParameters params = sample.getSamplingParameters();
+    final ScannableTable sampledTable =
+        table.unwrap(SampleableTable.class).sample(params);
+    if (sampledTable == null) {
+      return;
+    }
+    final SqlSampleSpec spec = params.isRepeatable()
+        ? SqlSampleSpec.createTableSample(params.isBernoulli(),
+            params.getSamplingPercentage(), params.getRepeatableSeed())
+        : SqlSampleSpec.createTableSample(params.isBernoulli(),
+            params.getSamplingPercentage());
+    final List<String> names = ImmutableList.<String>builder()
+        .addAll(table.getQualifiedName())
+        .add(spec.toString())
+        .build();
+    final RelOptTable sampledRelOptTable =
+        RelOptTableImpl.create(table.getRelOptSchema(), table.getRowType(),
+            names, sampledTable,
+            table.getRowCount() * params.getSamplingPercentage());
+    call.transformTo(
+        LogicalTableScan.create(scan.getCluster(), sampledRelOptTable));
+  }
+}
+
+// End SampleTableScanRule.java
@@ -448,6 +448,9 @@ ExInst<SqlValidatorException> intervalFractionalSecondPrecisionOutOfRange(
   @BaseMessage("Argument to function ''{0}'' must be a positive integer literal")
   ExInst<SqlValidatorException> argumentMustBePositiveInteger(String a0);
 
+  @BaseMessage("Argument to function ''{0}'' must be a numeric literal between 0 and 1")
+  ExInst<SqlValidatorException> argumentMustBeFraction(String a0);
+
   @BaseMessage("Validation Error: {0}")
   ExInst<CalciteException> validationError(String a0);
 
@@ -17,11 +17,28 @@
 package org.apache.calcite.runtime;
 
 import org.apache.calcite.interpreter.Row;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
 
 import com.google.common.base.Supplier;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+
 /**
  * Utilities for processing {@link org.apache.calcite.linq4j.Enumerable}
  * collections.
@@ -70,6 +87,452 @@ public Enumerable<Row> get() {
     };
   }
 
+  /** Returns a sample of the rows of an enumerable, as specified by
+   * {@code TABLESAMPLE}; see {@link Sampler}. */
+  public static <E> Enumerable<E> sample(final Enumerable<E> enumerable,
+      final boolean bernoulli, final double rate, final Integer seed) {
+    return new AbstractEnumerable<E>() {
+      public Enumerator<E> enumerator() {
+        return new SampleEnumerator<>(enumerable.enumerator(),
+            new Sampler(bernoulli, rate, seed));
+      }
+    };
+  }
+
+  /** Returns the partitions of an enumerable whose rows arrive sorted on the
+   * partition key, each partition as an array.
+   *
+   * <p>Unlike {@link SortedMultiMap#arrays}, reads only one partition at a
+   * time, and does not sort. If the key selector is null, all rows are in one
+   * partition. */
+  public static <E, K> Iterator<Object[]> partitionArrays(
+      Enumerable<E> enumerable, Function1<E, K> keySelector) {
+    return new PartitionIterator<>(enumerable.enumerator(), keySelector);
+  }
+
+  /** Groups the rows of a stream and aggregates each group, emitting each
+   * group as soon as it is complete.
+   *
+   * <p>The watermark selector returns, for each row, the value of a grouping
+   * key that never decreases, typically a window start such as
+   * {@code FLOOR(rowtime TO HOUR)}. When a row with a greater value arrives,
+   * all groups with a smaller value are emitted and their state is
+   * discarded. Late rows, whose value is less than that of a previous row,
+   * belong to groups that have already been emitted, and are ignored. The
+   * state held is therefore bounded by the number of groups in the current
+   * window, and the input may be infinite. */
+  public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
+  streamGroupBy(Enumerable<TSource> enumerable,
+      Function1<TSource, TKey> keySelector,
+      Function1<TSource, Comparable> watermarkSelector,
+      Function0<TAccumulate> accumulatorInitializer,
+      Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+      Function2<TKey, TAccumulate, TResult> resultSelector) {
+    return streamGroupBy(enumerable, keySelector, watermarkSelector,
+        accumulatorInitializer, accumulatorAdder, resultSelector, null);
+  }
+
+  /** Groups the rows of a stream and aggregates each group, emitting each
+   * group as soon as it is complete, and comparing keys using a specified
+   * {@link EqualityComparer}; for example, keys that are arrays.
+   *
+   * @see #streamGroupBy(Enumerable, Function1, Function1, Function0, Function2, Function2) */
+  public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
+  streamGroupBy(final Enumerable<TSource> enumerable,
+      final Function1<TSource, TKey> keySelector,
+      final Function1<TSource, Comparable> watermarkSelector,
+      final Function0<TAccumulate> accumulatorInitializer,
+      final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+      final Function2<TKey, TAccumulate, TResult> resultSelector,
+      final EqualityComparer<TKey> comparer) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        return new StreamGroupByEnumerator<>(enumerable.enumerator(),
+            keySelector, watermarkSelector, accumulatorInitializer,
+            accumulatorAdder, resultSelector, comparer);
+      }
+    };
+  }
+
+  /** Joins a stream to a table, reading the table into an in-memory index
+   * and probing the index for each row of the stream.
+   *
+   * <p>The table is read when the first row of the stream arrives, and again
+   * whenever the index is older than {@code refreshMillis} milliseconds, so
+   * that changes to the table are seen by later rows of the stream. If
+   * {@code refreshMillis} is 0, the table is read only once. A null key
+   * matches nothing. */
+  public static <TSource, TInner, TKey, TResult> Enumerable<TResult>
+  streamJoin(final Enumerable<TSource> outer, final Enumerable<TInner> inner,
+      final Function1<TSource, TKey> outerKeySelector,
+      final Function1<TInner, TKey> innerKeySelector,
+      final Function2<TSource, TInner, TResult> resultSelector,
+      final long refreshMillis, final boolean generateNullsOnRight) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        return new StreamJoinEnumerator<>(outer.enumerator(), inner,
+            outerKeySelector, innerKeySelector, resultSelector, refreshMillis,
+            generateNullsOnRight);
+      }
+    };
+  }
+
+  /** Enumerator that implements {@link #streamJoin}.
+   *
+   * @param <TSource> Stream row type
+   * @param <TInner> Table row type
+   * @param <TKey> Key type
+   * @param <TResult> Result row type */
+  private static class StreamJoinEnumerator<TSource, TInner, TKey, TResult>
+      implements Enumerator<TResult> {
+    private final Enumerator<TSource> outer;
+    private final Enumerable<TInner> inner;
+    private final Function1<TSource, TKey> outerKeySelector;
+    private final Function1<TInner, TKey> innerKeySelector;
+    private final Function2<TSource, TInner, TResult> resultSelector;
+    private final long refreshMillis;
+    private final boolean generateNullsOnRight;
+
+    /** Rows of the table, indexed by key; null until first needed. */
+    private Map<TKey, List<TInner>> index;
+    private long indexTime;
+    private TSource outerRow;
+    /** Rows of the table that match {@link #outerRow}, or null. */
+    private List<TInner> matches;
+    private int matchOrdinal;
+    private TResult current;
+
+    StreamJoinEnumerator(Enumerator<TSource> outer, Enumerable<TInner> inner,
+        Function1<TSource, TKey> outerKeySelector,
+        Function1<TInner, TKey> innerKeySelector,
+        Function2<TSource, TInner, TResult> resultSelector,
+        long refreshMillis, boolean generateNullsOnRight) {
+      this.outer = outer;
+      this.inner = inner;
+      this.outerKeySelector = outerKeySelector;
+      this.innerKeySelector = innerKeySelector;
+      this.resultSelector = resultSelector;
+      this.refreshMillis = refreshMillis;
+      this.generateNullsOnRight = generateNullsOnRight;
+    }
+
+    public TResult current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      for (;;) {
+        if (matches != null && ++matchOrdinal < matches.size()) {
+          current = resultSelector.apply(outerRow, matches.get(matchOrdinal));
+          return true;
+        }
+        if (!outer.moveNext()) {
+          return false;
+        }
+        outerRow = outer.current();
+        final long now = System.currentTimeMillis();
+        if (index == null
+            || refreshMillis > 0 && now - indexTime >= refreshMillis) {
+          index = buildIndex();
+          indexTime = now;
+        }
+        final TKey key = outerKeySelector.apply(outerRow);
+        matches = key == null ? null : index.get(key);
+        matchOrdinal = -1;
+        if (matches == null && generateNullsOnRight) {
+          current = resultSelector.apply(outerRow, null);
+          return true;
+        }
+      }
+    }
+
+    private Map<TKey, List<TInner>> buildIndex() {
+      final Map<TKey, List<TInner>> map = new HashMap<>();
+      try (Enumerator<TInner> enumerator = inner.enumerator()) {
+        while (enumerator.moveNext()) {
+          final TInner row = enumerator.current();
+          final TKey key = innerKeySelector.apply(row);
+          if (key == null) {
+            continue;
+          }
+          List<TInner> list = map.get(key);
+          if (list == null) {
+            list = new ArrayList<>(1);
+            map.put(key, list);
+          }
+          list.add(row);
+        }
+      }
+      return map;
+    }
+
+    public void reset() {
+      outer.reset();
+      index = null;
+      matches = null;
+      current = null;
+    }
+
+    public void close() {
+      outer.close();
+    }
+  }
+
+  /** Enumerator that implements {@link #streamGroupBy}.
+   *
+   * @param <TSource> Input row type
+   * @param <TKey> Key type
+   * @param <TAccumulate> Accumulator type
+   * @param <TResult> Result row type */
+  private static class StreamGroupByEnumerator<TSource, TKey, TAccumulate,
+      TResult> implements Enumerator<TResult> {
+    private final Enumerator<TSource> input;
+    private final Function1<TSource, TKey> keySelector;
+    private final Function1<TSource, Comparable> watermarkSelector;
+    private final Function0<TAccumulate> accumulatorInitializer;
+    private final Function2<TAccumulate, TSource, TAccumulate>
+    accumulatorAdder;
+    private final Function2<TKey, TAccumulate, TResult> resultSelector;
+    /** Compares keys; if null, keys are compared using their own
+     * {@code equals} and {@code hashCode} methods. */
+    private final EqualityComparer<TKey> comparer;
+
+    /** Open windows, each with the accumulators of its groups. Each group
+     * is keyed by its key, or, if there is a comparer, by a
+     * {@link ComparedKey} that wraps its key. */
+    private final TreeMap<Comparable, Map<Object, TAccumulate>> windows =
+        new TreeMap<>();
+    /** Groups whose watermark value is null; emitted at end of input. */
+    private final Map<Object, TAccumulate> nullWindow = new LinkedHashMap<>();
+    /** Results of completed groups not yet returned. */
+    private final Deque<TResult> ready = new ArrayDeque<>();
+    private Comparable watermark;
+    private boolean done;
+    private TResult current;
+
+    StreamGroupByEnumerator(Enumerator<TSource> input,
+        Function1<TSource, TKey> keySelector,
+        Function1<TSource, Comparable> watermarkSelector,
+        Function0<TAccumulate> accumulatorInitializer,
+        Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+        Function2<TKey, TAccumulate, TResult> resultSelector,
+        EqualityComparer<TKey> comparer) {
+      this.input = input;
+      this.keySelector = keySelector;
+      this.watermarkSelector = watermarkSelector;
+      this.accumulatorInitializer = accumulatorInitializer;
+      this.accumulatorAdder = accumulatorAdder;
+      this.resultSelector = resultSelector;
+      this.comparer = comparer;
+    }
+
+    public TResult current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      while (ready.isEmpty()) {
+        if (done) {
+          return false;
+        }
+        if (!input.moveNext()) {
+          done = true;
+          for (Map<Object, TAccumulate> groups : windows.values()) {
+            emit(groups);
+          }
+          windows.clear();
+          emit(nullWindow);
+          nullWindow.clear();
+          continue;
+        }
+        final TSource o = input.current();
+        //noinspection unchecked
+        final Comparable w = watermarkSelector.apply(o);
+        final Map<Object, TAccumulate> groups;
+        if (w == null) {
+          groups = nullWindow;
+        } else {
+          if (watermark != null) {
+            //noinspection unchecked
+            final int c = w.compareTo(watermark);
+            if (c < 0) {
+              continue; // late row; its window has been emitted
+            }
+            if (c > 0) {
+              advance(w);
+            }
+          }
+          watermark = w;
+          Map<Object, TAccumulate> g = windows.get(w);
+          if (g == null) {
+            g = new LinkedHashMap<>();
+            windows.put(w, g);
+          }
+          groups = g;
+        }
+        final TKey k = keySelector.apply(o);
+        final Object key = comparer == null ? k : new ComparedKey<>(k, comparer);
+        TAccumulate accumulator = groups.get(key);
+        if (accumulator == null) {
+          accumulator = accumulatorInitializer.apply();
+        }
+        groups.put(key, accumulatorAdder.apply(accumulator, o));
+      }
+      current = ready.removeFirst();
+      return true;
+    }
+
+    /** Emits and discards all windows before a given watermark value. */
+    private void advance(Comparable w) {
+      final Iterator<Map<Object, TAccumulate>> iterator =
+          windows.headMap(w).values().iterator();
+      while (iterator.hasNext()) {
+        emit(iterator.next());
+        iterator.remove();
+      }
+    }
+
+    private void emit(Map<Object, TAccumulate> groups) {
+      for (Map.Entry<Object, TAccumulate> entry : groups.entrySet()) {
+        //noinspection unchecked
+        final TKey key = comparer == null
+            ? (TKey) entry.getKey()
+            : ((ComparedKey<TKey>) entry.getKey()).key;
+        ready.add(resultSelector.apply(key, entry.getValue()));
+      }
+    }
+
+    public void reset() {
+      input.reset();
+      windows.clear();
+      nullWindow.clear();
+      ready.clear();
+      watermark = null;
+      done = false;
+      current = null;
+    }
+
+    public void close() {
+      input.close();
+    }
+  }
+
+  /** Key of a group in {@link StreamGroupByEnumerator}, compared using an
+   * {@link EqualityComparer}.
+   *
+   * @param <K> Key type */
+  private static class ComparedKey<K> {
+    final K key;
+    private final EqualityComparer<K> comparer;
+
+    ComparedKey(K key, EqualityComparer<K> comparer) {
+      this.key = key;
+      this.comparer = comparer;
+    }
+
+    @Override public int hashCode() {
+      return comparer.hashCode(key);
+    }
+
+    @Override public boolean equals(Object obj) {
+      //noinspection unchecked
+      return obj == this
+          || obj instanceof ComparedKey
+          && comparer.equal(key, ((ComparedKey<K>) obj).key);
+    }
+  }
+
+  /** Enumerator that implements {@link #sample}.
+   *
+   * @param <E> Row type */
+  private static class SampleEnumerator<E> implements Enumerator<E> {
+    private final Enumerator<E> input;
+    private final Sampler sampler;
+
+    SampleEnumerator(Enumerator<E> input, Sampler sampler) {
+      this.input = input;
+      this.sampler = sampler;
+    }
+
+    public E current() {
+      return input.current();
+    }
+
+    public boolean moveNext() {
+      while (input.moveNext()) {
+        if (sampler.next()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public void reset() {
+      input.reset();
+      sampler.reset();
+    }
+
+    public void close() {
+      input.close();
+    }
+  }
+
+  /** Iterator that implements {@link #partitionArrays}.
+   *
+   * @param <E> Row type
+   * @param <K> Key type */
+  private static class PartitionIterator<E, K> implements Iterator<Object[]> {
+    private final Enumerator<E> input;
+    private final Function1<E, K> keySelector;
+
+    /** Whether the input is positioned on a row that has not yet been
+     * returned, the first row of the next partition. */
+    private boolean pending;
+
+    PartitionIterator(Enumerator<E> input, Function1<E, K> keySelector) {
+      this.input = input;
+      this.keySelector = keySelector;
+      moveNext();
+    }
+
+    private void moveNext() {
+      pending = input.moveNext();
+      if (!pending) {
+        input.close();
+      }
+    }
+
+    public boolean hasNext() {
+      return pending;
+    }
+
+    public Object[] next() {
+      if (!pending) {
+        throw new NoSuchElementException();
+      }
+      final List<E> list = new ArrayList<>();
+      final E first = input.current();
+      final K key = keySelector == null ? null : keySelector.apply(first);
+      list.add(first);
+      for (;;) {
+        moveNext();
+        if (!pending) {
+          break;
+        }
+        final E row = input.current();
+        if (keySelector != null
+            && !Objects.equals(key, keySelector.apply(row))) {
+          break;
+        }
+        list.add(row);
+      }
+      return list.toArray();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
 
 // End Enumerables.java
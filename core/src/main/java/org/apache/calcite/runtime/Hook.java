@@ -50,6 +50,11 @@ public enum Hook {
   /** Called by the planner after substituting a materialization. */
   SUB,
 
+  /** Called by the planner after trying to rewrite a query using
+   * materializations, with a
+   * {@link org.apache.calcite.plan.MaterializationIndex.Stats}. */
+  MATERIALIZATION_STATS,
+
   /** Called when a constant expression is being reduced. */
   EXPRESSION_REDUCER,
 
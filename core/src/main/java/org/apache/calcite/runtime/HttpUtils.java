@@ -133,11 +133,19 @@ public static InputStream executeMethod(
       String method, String url,
       CharSequence data, Map<String, String> headers,
       int ctimeout, int rtimeout) throws IOException {
-    HttpURLConnection conn;
+    return executeMethod(getURLConnection(url), method, data, headers,
+        ctimeout, rtimeout);
+  }
+
+  /** Executes a method on a connection that the caller has already created,
+   * typically so that another thread can
+   * {@link HttpURLConnection#disconnect() disconnect} it. */
+  public static InputStream executeMethod(HttpURLConnection conn,
+      String method, CharSequence data, Map<String, String> headers,
+      int ctimeout, int rtimeout) throws IOException {
     OutputStreamWriter wr = null;
 
     try {
-      conn = getURLConnection(url);
       conn.setRequestMethod(method);
       conn.setReadTimeout(rtimeout);
       conn.setConnectTimeout(ctimeout);
@@ -158,7 +166,7 @@ public static InputStream executeMethod(
         wr.close();
       }
 
-      LOGGER.debug("url: {}, data: {}", url, String.valueOf(data));
+      LOGGER.debug("url: {}, data: {}", conn.getURL(), String.valueOf(data));
       return in;
     } finally {
       close(wr);
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Sketch that estimates the number of distinct values in a stream, using the
+ * HyperLogLog algorithm.
+ *
+ * <p>The sketch uses at most 2<sup>p</sup> bytes, however many values are
+ * added. With the default precision, 14, that is 16 KB and the standard
+ * error of the estimate is about 0.8%. A new sketch starts with a sparse
+ * representation that holds only the registers that are not zero, and
+ * converts itself to the dense array of registers when the sparse
+ * representation would use more than a quarter of its memory. A sketch
+ * that sees only a few distinct values, such as the sketch for each group of
+ * a {@code GROUP BY} on a high-cardinality key, therefore stays small. The
+ * representation does not change the estimate.
+ *
+ * <p>Sketches are mergeable: the sketch obtained by merging the sketches of
+ * several streams is the same as the sketch of their union. Therefore a
+ * sketch may be stored (see {@link #toBytes()}) in a materialized aggregate
+ * and rolled up later.
+ *
+ * <p>Used to implement the {@code APPROX_COUNT_DISTINCT} aggregate function.
+ */
+public class HyperLogLog implements Serializable {
+  /** Default precision. */
+  public static final int DEFAULT_PRECISION = 14;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  /** Number of bits in a sparse entry that hold the rank. Ranks are at most
+   * 64 - 4 + 1 = 61. */
+  private static final int RANK_BITS = 6;
+
+  private static final int RANK_MASK = (1 << RANK_BITS) - 1;
+
+  private final int precision;
+
+  /** Registers, or null while the sketch is sparse. */
+  private byte[] registers;
+
+  /** While the sketch is sparse, the registers that are not zero, each
+   * encoded as {@code index << RANK_BITS | rank}, in order of index. Null
+   * once the sketch is dense. */
+  private int[] sparse;
+  private int sparseCount;
+
+  /** Creates a HyperLogLog with the default precision. */
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /** Creates a HyperLogLog with a given precision.
+   *
+   * @param precision Base-2 logarithm of the number of registers, between 4
+   *                  and 18
+   */
+  public HyperLogLog(int precision) {
+    this(precision, null);
+  }
+
+  private HyperLogLog(int precision, byte[] registers) {
+    Preconditions.checkArgument(precision >= 4 && precision <= 18,
+        "precision must be between 4 and 18");
+    Preconditions.checkArgument(registers == null
+        || registers.length == 1 << precision);
+    this.precision = precision;
+    this.registers = registers;
+    if (registers == null) {
+      this.sparse = new int[4];
+    }
+  }
+
+  /** Creates a HyperLogLog from the bytes returned by {@link #toBytes()}. */
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    return new HyperLogLog(bytes[0],
+        Arrays.copyOfRange(bytes, 1, bytes.length));
+  }
+
+  /** Returns the state of this sketch as an array of bytes.
+   *
+   * <p>The bytes are the precision followed by the registers, whether or not
+   * the sketch is sparse. */
+  public byte[] toBytes() {
+    final byte[] bytes = new byte[(1 << precision) + 1];
+    bytes[0] = (byte) precision;
+    if (registers != null) {
+      System.arraycopy(registers, 0, bytes, 1, registers.length);
+    } else {
+      for (int i = 0; i < sparseCount; i++) {
+        bytes[(sparse[i] >>> RANK_BITS) + 1] = (byte) (sparse[i] & RANK_MASK);
+      }
+    }
+    return bytes;
+  }
+
+  /** Returns whether this sketch is still using its sparse
+   * representation. */
+  boolean isSparse() {
+    return registers == null;
+  }
+
+  /** Adds a value. Null values are ignored. An array is treated as a
+   * composite value. */
+  public void add(Object o) {
+    if (o == null) {
+      return;
+    }
+    final Hasher hasher = HASH_FUNCTION.newHasher();
+    put(hasher, o);
+    addHash(hasher.hash().asLong());
+  }
+
+  private void addHash(long hash) {
+    // The first "precision" bits choose a register; the register holds the
+    // longest run of leading zeros seen in the remaining bits, plus one.
+    final int index = (int) (hash >>> (64 - precision));
+    final long w = (hash << precision) | (1L << (precision - 1));
+    final byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+    set(index, rank);
+  }
+
+  /** Sets register {@code index} to {@code rank} if it is greater than the
+   * current value. */
+  private void set(int index, int rank) {
+    if (registers != null) {
+      if (rank > registers[index]) {
+        registers[index] = (byte) rank;
+      }
+      return;
+    }
+    final int i = find(index);
+    if (i >= 0) {
+      if (rank > (sparse[i] & RANK_MASK)) {
+        sparse[i] = index << RANK_BITS | rank;
+      }
+      return;
+    }
+    if (sparseCount >= (1 << precision) / 16) {
+      // Each entry takes 4 bytes; beyond this point the sparse
+      // representation would use more than a quarter of the dense one.
+      densify();
+      registers[index] = (byte) rank;
+      return;
+    }
+    final int insert = -(i + 1);
+    if (sparseCount == sparse.length) {
+      sparse = Arrays.copyOf(sparse, sparseCount * 2);
+    }
+    System.arraycopy(sparse, insert, sparse, insert + 1, sparseCount - insert);
+    sparse[insert] = index << RANK_BITS | rank;
+    ++sparseCount;
+  }
+
+  /** Returns the position of register {@code index} in the sparse
+   * representation, or {@code -(insertion point) - 1} if it is absent. */
+  private int find(int index) {
+    int lo = 0;
+    int hi = sparseCount - 1;
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int midIndex = sparse[mid] >>> RANK_BITS;
+      if (midIndex < index) {
+        lo = mid + 1;
+      } else if (midIndex > index) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  /** Converts this sketch to the dense representation. */
+  private void densify() {
+    final byte[] bytes = new byte[1 << precision];
+    for (int i = 0; i < sparseCount; i++) {
+      bytes[sparse[i] >>> RANK_BITS] = (byte) (sparse[i] & RANK_MASK);
+    }
+    registers = bytes;
+    sparse = null;
+    sparseCount = 0;
+  }
+
+  private static void put(Hasher hasher, Object o) {
+    if (o instanceof Long
+        || o instanceof Integer
+        || o instanceof Short
+        || o instanceof Byte) {
+      hasher.putLong(((Number) o).longValue());
+    } else if (o instanceof Double || o instanceof Float) {
+      hasher.putDouble(((Number) o).doubleValue());
+    } else if (o instanceof BigDecimal) {
+      // 1.0 and 1.00 are the same value
+      hasher.putString(((BigDecimal) o).stripTrailingZeros().toString(),
+          StandardCharsets.UTF_8);
+    } else if (o instanceof Boolean) {
+      hasher.putBoolean((Boolean) o);
+    } else if (o instanceof Object[]) {
+      for (Object o2 : (Object[]) o) {
+        if (o2 == null) {
+          hasher.putByte((byte) 0);
+        } else {
+          hasher.putByte((byte) 1);
+          put(hasher, o2);
+        }
+      }
+    } else {
+      hasher.putString(o.toString(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /** Merges another sketch into this one. Both must have the same
+   * precision. */
+  public void merge(HyperLogLog other) {
+    Preconditions.checkArgument(other.precision == precision,
+        "cannot merge sketches of different precision");
+    if (other.registers == null) {
+      for (int i = 0; i < other.sparseCount; i++) {
+        set(other.sparse[i] >>> RANK_BITS, other.sparse[i] & RANK_MASK);
+      }
+      return;
+    }
+    if (registers == null) {
+      densify();
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /** Returns the estimated number of distinct values added. */
+  public long estimate() {
+    final int m = 1 << precision;
+    double sum = 0d;
+    int zeroCount = 0;
+    if (registers != null) {
+      for (byte register : registers) {
+        sum += 1d / (1L << register);
+        if (register == 0) {
+          ++zeroCount;
+        }
+      }
+    } else {
+      // Registers that are absent are zero, and each contributes 1 to the sum
+      zeroCount = m - sparseCount;
+      sum = zeroCount;
+      for (int i = 0; i < sparseCount; i++) {
+        sum += 1d / (1L << (sparse[i] & RANK_MASK));
+      }
+    }
+    final double alpha = 0.7213d / (1d + 1.079d / m);
+    final double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5d * m && zeroCount > 0) {
+      // For small cardinalities, linear counting is more accurate.
+      return Math.round(m * Math.log((double) m / zeroCount));
+    }
+    return Math.round(estimate);
+  }
+}
+
+// End HyperLogLog.java
@@ -16,6 +16,18 @@
  */
 package org.apache.calcite.runtime;
 
+import org.apache.calcite.linq4j.function.Deterministic;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
 /**
  * Utilities for converting SQL {@code LIKE} and {@code SIMILAR} operators
  * to regular expressions.
@@ -40,9 +52,90 @@ public class Like {
     "[:alnum:]", "\\p{Alnum}"
   };
 
+  /** Matchers of recently used patterns that are not literals, keyed by
+   * [similar, pattern, escape]. */
+  private static final LoadingCache<List<Object>, Matcher> CACHE =
+      CacheBuilder.newBuilder()
+          .maximumSize(256)
+          .build(
+              new CacheLoader<List<Object>, Matcher>() {
+                public Matcher load(List<Object> key) {
+                  final String pattern = (String) key.get(1);
+                  final String escape = (String) key.get(2);
+                  return (Boolean) key.get(0)
+                      ? createSimilarMatcher(pattern, escape)
+                      : createLikeMatcher(pattern, escape);
+                }
+              });
+
   private Like() {
   }
 
+  /** Returns a matcher for a SQL {@code LIKE} pattern.
+   *
+   * <p>If the pattern is a literal, generated code calls this method once
+   * and holds the result in a static field; otherwise the matcher comes
+   * from a bounded cache, so that the pattern is not re-compiled for every
+   * row. */
+  @Deterministic
+  public static Matcher likeMatcher(String pattern, String escape) {
+    return matcher(false, pattern, escape);
+  }
+
+  /** Returns a matcher for a SQL {@code SIMILAR TO} pattern. */
+  @Deterministic
+  public static Matcher similarMatcher(String pattern, String escape) {
+    return matcher(true, pattern, escape);
+  }
+
+  private static Matcher matcher(boolean similar, String pattern,
+      String escape) {
+    try {
+      return CACHE.getUnchecked(
+          Arrays.<Object>asList(similar, pattern, escape));
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /** Creates a matcher for a {@code LIKE} pattern. Patterns of the form
+   * 'abc', 'abc%', '%abc' and '%abc%' get matchers that do not use regular
+   * expressions. */
+  static Matcher createLikeMatcher(String pattern, String escape) {
+    final String regex = sqlToRegexLike(pattern, escape);
+    if (escape == null || pattern.indexOf(escape.charAt(0)) < 0) {
+      int start = 0;
+      int end = pattern.length();
+      while (start < end && pattern.charAt(start) == '%') {
+        ++start;
+      }
+      while (end > start && pattern.charAt(end - 1) == '%') {
+        --end;
+      }
+      final String literal = pattern.substring(start, end);
+      if (literal.indexOf('%') < 0 && literal.indexOf('_') < 0) {
+        final boolean leading = start > 0;
+        final boolean trailing = end < pattern.length();
+        if (leading && trailing || literal.isEmpty() && leading) {
+          return new ContainsMatcher(literal);
+        } else if (leading) {
+          return new SuffixMatcher(literal);
+        } else if (trailing) {
+          return new PrefixMatcher(literal);
+        } else {
+          return new ExactMatcher(literal);
+        }
+      }
+    }
+    return new RegexMatcher(Pattern.compile(regex, Pattern.DOTALL));
+  }
+
+  /** Creates a matcher for a {@code SIMILAR TO} pattern. */
+  static Matcher createSimilarMatcher(String pattern, String escape) {
+    return new RegexMatcher(
+        Pattern.compile(sqlToRegexSimilar(pattern, escape)));
+  }
+
   /**
    * Translates a SQL LIKE pattern to Java regex pattern, with optional
    * escape string.
@@ -73,7 +166,7 @@ static String sqlToRegexLike(
     final StringBuilder javaPattern = new StringBuilder(len + len);
     for (i = 0; i < len; i++) {
       char c = sqlPattern.charAt(i);
-      if (JAVA_REGEX_SPECIALS.indexOf(c) >= 0) {
+      if (JAVA_REGEX_SPECIALS.indexOf(c) >= 0 || c == '.') {
         javaPattern.append('\\');
       }
       if (c == escapeChar) {
@@ -303,6 +396,77 @@ static String sqlToRegexSimilar(
 
     return javaPattern.toString();
   }
+
+  /** Compiled {@code LIKE} or {@code SIMILAR TO} pattern. */
+  public interface Matcher {
+    /** Returns whether a string matches the pattern. */
+    boolean matches(String s);
+  }
+
+  /** Matcher for a pattern without wildcards. */
+  private static class ExactMatcher implements Matcher {
+    private final String literal;
+
+    ExactMatcher(String literal) {
+      this.literal = literal;
+    }
+
+    public boolean matches(String s) {
+      return s.equals(literal);
+    }
+  }
+
+  /** Matcher for a pattern of the form 'abc%'. */
+  private static class PrefixMatcher implements Matcher {
+    private final String prefix;
+
+    PrefixMatcher(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public boolean matches(String s) {
+      return s.startsWith(prefix);
+    }
+  }
+
+  /** Matcher for a pattern of the form '%abc'. */
+  private static class SuffixMatcher implements Matcher {
+    private final String suffix;
+
+    SuffixMatcher(String suffix) {
+      this.suffix = suffix;
+    }
+
+    public boolean matches(String s) {
+      return s.endsWith(suffix);
+    }
+  }
+
+  /** Matcher for a pattern of the form '%abc%'. */
+  private static class ContainsMatcher implements Matcher {
+    private final String infix;
+
+    ContainsMatcher(String infix) {
+      this.infix = infix;
+    }
+
+    public boolean matches(String s) {
+      return s.contains(infix);
+    }
+  }
+
+  /** Matcher that uses a compiled regular expression. */
+  private static class RegexMatcher implements Matcher {
+    private final Pattern pattern;
+
+    RegexMatcher(Pattern pattern) {
+      this.pattern = pattern;
+    }
+
+    public boolean matches(String s) {
+      return pattern.matcher(s).matches();
+    }
+  }
 }
 
 // End Like.java
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+
+/**
+ * Decides which rows of a table belong to a sample, as specified by
+ * {@code TABLESAMPLE}.
+ *
+ * <p>In Bernoulli mode, each row is chosen independently with probability
+ * equal to the sampling rate. In system mode, rows are chosen in blocks of
+ * {@link #BLOCK_SIZE} consecutive rows, each block chosen independently; a
+ * table that can skip whole blocks without reading them calls
+ * {@link #nextBlock()} instead of {@link #next()}.
+ *
+ * <p>With a seed (as specified by {@code REPEATABLE}), the decisions depend
+ * only on the seed and the position of each row, so a table that samples its
+ * own rows chooses the same rows as a sample applied after a full scan.
+ */
+public class Sampler {
+  /** Number of rows in a block, in system mode. */
+  public static final int BLOCK_SIZE = 1024;
+
+  private final boolean bernoulli;
+  private final double rate;
+  private final Integer seed;
+  private Random random;
+  private long position;
+  private boolean blockChosen;
+
+  /** Creates a Sampler.
+   *
+   * @param bernoulli Whether to choose each row independently (Bernoulli
+   *                  mode) rather than each block (system mode)
+   * @param rate      Sampling rate, between 0 and 1
+   * @param seed      Seed, or null to choose different rows each time
+   */
+  public Sampler(boolean bernoulli, double rate, Integer seed) {
+    Preconditions.checkArgument(rate >= 0d && rate <= 1d,
+        "rate must be between 0 and 1");
+    this.bernoulli = bernoulli;
+    this.rate = rate;
+    this.seed = seed;
+    reset();
+  }
+
+  /** Returns whether the next row is in the sample. */
+  public boolean next() {
+    if (bernoulli) {
+      return random.nextDouble() < rate;
+    }
+    if (position++ % BLOCK_SIZE == 0) {
+      blockChosen = random.nextDouble() < rate;
+    }
+    return blockChosen;
+  }
+
+  /** Returns whether the next block of {@link #BLOCK_SIZE} rows is in the
+   * sample. Valid only in system mode, at a block boundary. */
+  public boolean nextBlock() {
+    Preconditions.checkState(!bernoulli && position % BLOCK_SIZE == 0,
+        "not at a block boundary in system mode");
+    position += BLOCK_SIZE;
+    return random.nextDouble() < rate;
+  }
+
+  /** Returns whether this Sampler chooses rows in blocks. */
+  public boolean isBlock() {
+    return !bernoulli;
+  }
+
+  /** Returns to the first row, so that the same rows will be chosen again
+   * if there is a seed. */
+  public void reset() {
+    random = seed == null ? new Random() : new Random(seed);
+    position = 0;
+    blockChosen = false;
+  }
+}
+
+// End Sampler.java
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import java.util.ArrayDeque;
+
+/**
+ * Minimum or maximum of the values in a window frame that slides forward,
+ * maintained as rows enter and leave the frame.
+ *
+ * <p>Keeps a queue of the values that may yet become the extreme value; each
+ * is better than every value that entered the frame after it. Adding a row
+ * discards the values at the back of the queue that it beats; removing a row
+ * discards the front of the queue if the row is there. Each row enters and
+ * leaves the queue at most once, so the cost per row is constant (amortized)
+ * however wide the frame.
+ *
+ * <p>Used to implement the {@code MIN} and {@code MAX} aggregate functions
+ * over a sliding window frame.
+ */
+public class SlidingMinMax {
+  private final boolean min;
+
+  /** Candidate values, in the order that their rows were added; the front is
+   * the extreme value. */
+  private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+  /** Creates a SlidingMinMax.
+   *
+   * @param min Whether to compute the minimum (otherwise the maximum)
+   */
+  public SlidingMinMax(boolean min) {
+    this.min = min;
+  }
+
+  /** Adds the value of a row. Rows must be added in ascending order of
+   * position. */
+  public void add(int position, Comparable value) {
+    while (!queue.isEmpty() && compare(queue.peekLast().value, value) >= 0) {
+      queue.pollLast();
+    }
+    queue.addLast(new Entry(position, value));
+  }
+
+  /** Removes the value of a row, and of any earlier rows. Rows must be
+   * removed in the order that they were added. */
+  public void remove(int position) {
+    while (!queue.isEmpty() && queue.peekFirst().position <= position) {
+      queue.pollFirst();
+    }
+  }
+
+  /** Returns the minimum or maximum value of the rows added and not removed,
+   * or null if there are none. */
+  public Comparable result() {
+    return queue.isEmpty() ? null : queue.peekFirst().value;
+  }
+
+  /** Returns a positive value if {@code v1} is better than {@code v0}, zero
+   * if they are equal. */
+  @SuppressWarnings("unchecked")
+  private int compare(Comparable v0, Comparable v1) {
+    return min ? v0.compareTo(v1) : v1.compareTo(v0);
+  }
+
+  /** Value of a row, and the position of the row. */
+  private static class Entry {
+    final int position;
+    final Comparable value;
+
+    Entry(int position, Comparable value) {
+      this.position = position;
+      this.value = value;
+    }
+  }
+}
+
+// End SlidingMinMax.java
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Sketch that finds the most frequent values in a stream, using the
+ * space-saving algorithm.
+ *
+ * <p>The sketch keeps a fixed number of counters. When a value arrives that
+ * does not have a counter and all counters are in use, it takes over the
+ * counter with the lowest count, inheriting that count as its possible
+ * over-estimate. A value that occurs more than N / capacity times is
+ * guaranteed to have a counter.
+ *
+ * <p>Sketches are mergeable, so a sketch may be computed for each partition
+ * of the data and the sketches combined later.
+ *
+ * <p>Used to implement the {@code APPROX_TOP_K} aggregate function.
+ */
+public class SpaceSaving implements Serializable {
+  /** Number of counters per value requested. */
+  private static final int COUNTERS_PER_VALUE = 10;
+
+  /** Minimum number of counters. */
+  private static final int MIN_CAPACITY = 100;
+
+  private int k;
+  private int capacity;
+  private long sequence;
+  private final Map<Object, Counter> counters = new HashMap<>();
+
+  /** Counters, lowest count first. */
+  private final TreeSet<Counter> ordered =
+      new TreeSet<>(new CounterComparator());
+
+  /** Creates an empty SpaceSaving; the number of values to return is set by
+   * the first call to {@link #add(Object, int)}. */
+  public SpaceSaving() {
+  }
+
+  /** Creates an empty SpaceSaving that returns the {@code k} most frequent
+   * values. */
+  public SpaceSaving(int k) {
+    init(k);
+  }
+
+  private void init(int k) {
+    Preconditions.checkArgument(k > 0, "k must be positive");
+    this.k = k;
+    this.capacity = Math.max(k * COUNTERS_PER_VALUE, MIN_CAPACITY);
+  }
+
+  /** Adds a value, and sets the number of values to return if it is not
+   * already set. Null values are ignored. */
+  public void add(Object value, int k) {
+    if (capacity == 0) {
+      init(k);
+    }
+    add(value);
+  }
+
+  /** Adds a value. Null values are ignored. */
+  public void add(Object value) {
+    Preconditions.checkState(capacity > 0, "k is not set");
+    if (value == null) {
+      return;
+    }
+    Counter counter = counters.get(value);
+    if (counter != null) {
+      ordered.remove(counter);
+      ++counter.count;
+      ordered.add(counter);
+      return;
+    }
+    long count = 1;
+    long error = 0;
+    if (counters.size() == capacity) {
+      final Counter min = ordered.pollFirst();
+      counters.remove(min.value);
+      count += min.count;
+      error = min.count;
+    }
+    counter = new Counter(value, count, error, sequence++);
+    counters.put(value, counter);
+    ordered.add(counter);
+  }
+
+  /** Merges another sketch into this one. */
+  public void merge(SpaceSaving other) {
+    if (capacity == 0) {
+      capacity = other.capacity;
+      k = other.k;
+    }
+    final Map<Object, Counter> combined = new HashMap<>();
+    for (Counter counter : counters.values()) {
+      combined.put(counter.value, counter);
+    }
+    for (Counter counter : other.counters.values()) {
+      final Counter existing = combined.get(counter.value);
+      if (existing == null) {
+        combined.put(counter.value,
+            new Counter(counter.value, counter.count, counter.error,
+                sequence++));
+      } else {
+        existing.count += counter.count;
+        existing.error += counter.error;
+      }
+    }
+    final TreeSet<Counter> sorted = new TreeSet<>(new CounterComparator());
+    sorted.addAll(combined.values());
+    counters.clear();
+    ordered.clear();
+    final Iterator<Counter> iterator = sorted.descendingIterator();
+    while (iterator.hasNext() && counters.size() < capacity) {
+      final Counter counter = iterator.next();
+      counters.put(counter.value, counter);
+      ordered.add(counter);
+    }
+  }
+
+  /** Returns the most frequent values, most frequent first. */
+  public List<Object> topK() {
+    final List<Object> list = new ArrayList<>();
+    final Iterator<Counter> iterator = ordered.descendingIterator();
+    while (iterator.hasNext() && list.size() < k) {
+      list.add(iterator.next().value);
+    }
+    return list;
+  }
+
+  /** Returns the estimated number of occurrences of a value; an upper bound
+   * on the actual number. */
+  public long count(Object value) {
+    final Counter counter = counters.get(value);
+    if (counter != null) {
+      return counter.count;
+    }
+    return counters.size() < capacity ? 0 : ordered.first().count;
+  }
+
+  /** Counter of occurrences of a value. */
+  private static class Counter implements Serializable {
+    final Object value;
+    long count;
+    /** Maximum amount by which {@link #count} over-estimates. */
+    long error;
+    /** Breaks ties; a counter created earlier ranks higher. */
+    final long sequence;
+
+    Counter(Object value, long count, long error, long sequence) {
+      this.value = value;
+      this.count = count;
+      this.error = error;
+      this.sequence = sequence;
+    }
+  }
+
+  /** Orders counters by increasing count. */
+  private static class CounterComparator
+      implements Comparator<Counter>, Serializable {
+    public int compare(Counter c0, Counter c1) {
+      if (c0.count != c1.count) {
+        return Long.compare(c0.count, c1.count);
+      }
+      // Within the same count, the earlier counter is greater
+      return Long.compare(c1.sequence, c0.sequence);
+    }
+  }
+}
+
+// End SpaceSaving.java
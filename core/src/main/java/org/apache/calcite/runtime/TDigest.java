@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sketch that estimates quantiles of a stream of numbers, using the
+ * t-digest algorithm.
+ *
+ * <p>The sketch summarizes the stream as a list of centroids, each a mean and
+ * a weight, sorted by mean. Centroids near the median may hold many values,
+ * but centroids near the tails hold few, so extreme quantiles such as the
+ * 99th percentile are accurate. The number of centroids is proportional to
+ * the compression (by default, 100), however many values are added.
+ *
+ * <p>Sketches are mergeable, so a sketch may be computed for each partition
+ * of the data and the sketches combined later.
+ *
+ * <p>Used to implement the {@code APPROX_PERCENTILE} aggregate function.
+ */
+public class TDigest implements Serializable {
+  /** Default compression. */
+  public static final double DEFAULT_COMPRESSION = 100d;
+
+  private final double compression;
+
+  /** Centroids, sorted by mean. */
+  private double[] means = new double[0];
+  private double[] weights = new double[0];
+  private int centroidCount;
+
+  /** Values that have been added but not yet merged into centroids. */
+  private final double[] buffer;
+  private int bufferCount;
+
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /** Creates a TDigest with the default compression. */
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /** Creates a TDigest with a given compression. Higher compression gives
+   * more accurate estimates, at the cost of more memory. */
+  public TDigest(double compression) {
+    Preconditions.checkArgument(compression >= 10d,
+        "compression must be at least 10");
+    this.compression = compression;
+    this.buffer = new double[(int) (compression * 5)];
+  }
+
+  /** Adds a value. */
+  public void add(double value) {
+    if (bufferCount == buffer.length) {
+      compress();
+    }
+    buffer[bufferCount++] = value;
+    totalWeight += 1d;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /** Merges another sketch into this one. */
+  public void merge(TDigest other) {
+    other.compress();
+    compress();
+    if (other.centroidCount == 0) {
+      return;
+    }
+    totalWeight += other.totalWeight;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    combine(other.means, other.weights, other.centroidCount);
+  }
+
+  /** Merges buffered values into the centroids. */
+  private void compress() {
+    if (bufferCount == 0) {
+      return;
+    }
+    final double[] values = Arrays.copyOf(buffer, bufferCount);
+    final double[] ones = new double[bufferCount];
+    Arrays.sort(values);
+    Arrays.fill(ones, 1d);
+    bufferCount = 0;
+    combine(values, ones, values.length);
+  }
+
+  /** Merges a sorted list of weighted points into the centroids.
+   * {@link #totalWeight} must already include their weight. */
+  private void combine(double[] means2, double[] weights2, int count2) {
+    final double[] newMeans = new double[centroidCount + count2];
+    final double[] newWeights = new double[centroidCount + count2];
+    int n = 0;
+    double weightBefore = 0d;
+    int i = 0;
+    int j = 0;
+    while (i < centroidCount || j < count2) {
+      final double mean;
+      final double weight;
+      if (j == count2 || i < centroidCount && means[i] <= means2[j]) {
+        mean = means[i];
+        weight = weights[i++];
+      } else {
+        mean = means2[j];
+        weight = weights2[j++];
+      }
+      if (n > 0) {
+        // A centroid may grow while its weight is less than
+        // 4 * N * q * (1 - q) / compression, where q is the quantile of its
+        // middle. So centroids near the tails stay small.
+        final double proposed = newWeights[n - 1] + weight;
+        final double q = (weightBefore + proposed / 2d) / totalWeight;
+        final double limit = 4d * totalWeight * q * (1d - q) / compression;
+        if (proposed <= limit) {
+          newMeans[n - 1] += (mean - newMeans[n - 1]) * weight / proposed;
+          newWeights[n - 1] = proposed;
+          continue;
+        }
+        weightBefore += newWeights[n - 1];
+      }
+      newMeans[n] = mean;
+      newWeights[n] = weight;
+      ++n;
+    }
+    means = Arrays.copyOf(newMeans, n);
+    weights = Arrays.copyOf(newWeights, n);
+    centroidCount = n;
+  }
+
+  /** Returns the number of values added. */
+  public long size() {
+    return (long) totalWeight;
+  }
+
+  /** Returns the estimated value at a given quantile; NaN if no values have
+   * been added.
+   *
+   * @param q Quantile, between 0 and 1; for example, 0.5 for the median
+   */
+  public double quantile(double q) {
+    Preconditions.checkArgument(q >= 0d && q <= 1d,
+        "quantile must be between 0 and 1");
+    compress();
+    if (centroidCount == 0) {
+      return Double.NaN;
+    }
+    if (centroidCount == 1) {
+      return means[0];
+    }
+    // Each centroid is treated as a point at the middle of its weight;
+    // interpolate linearly between neighboring points, and between the
+    // outermost points and the minimum and maximum values.
+    final double index = q * (totalWeight - 1d) + 0.5d;
+    double before = weights[0] / 2d;
+    if (index < before) {
+      return min + (means[0] - min) * index / before;
+    }
+    for (int i = 0; i < centroidCount - 1; i++) {
+      final double gap = (weights[i] + weights[i + 1]) / 2d;
+      if (index < before + gap) {
+        return means[i] + (means[i + 1] - means[i]) * (index - before) / gap;
+      }
+      before += gap;
+    }
+    final double last = weights[centroidCount - 1] / 2d;
+    final double mean = means[centroidCount - 1];
+    return Math.min(max, mean + (max - mean) * (index - before) / last);
+  }
+}
+
+// End TDigest.java
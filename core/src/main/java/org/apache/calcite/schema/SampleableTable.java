@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.schema;
+
+import org.apache.calcite.plan.RelOptSamplingParameters;
+
+/**
+ * Table that can return a sample of its rows, as specified by
+ * {@code TABLESAMPLE}, more cheaply than by reading all of its rows.
+ *
+ * <p>The table must choose the same rows as
+ * {@link org.apache.calcite.runtime.Enumerables#sample} would choose from a
+ * scan of the whole table, using a
+ * {@link org.apache.calcite.runtime.Sampler}; then a query returns the same
+ * rows for a given {@code REPEATABLE} seed whether or not the sample is
+ * pushed into the table. Typically, in system mode, the table skips blocks
+ * of rows that are not chosen without reading them.
+ *
+ * @see org.apache.calcite.rel.rules.SampleTableScanRule
+ */
+public interface SampleableTable extends Table {
+  /** Returns a table that contains a sample of the rows of this table, or
+   * null if this table cannot apply the given kind of sample.
+   *
+   * <p>The returned table must not itself be a {@code SampleableTable}. */
+  ScannableTable sample(RelOptSamplingParameters params);
+}
+
+// End SampleableTable.java
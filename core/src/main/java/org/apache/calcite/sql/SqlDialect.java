@@ -490,6 +490,22 @@ public boolean supportsOffsetFetch() {
     }
   }
 
+  /**
+   * Returns whether the dialect supports the {@code TABLESAMPLE} clause
+   * introduced by SQL:2003, for instance
+   * {@code FROM emp TABLESAMPLE SYSTEM(10) REPEATABLE(1)}.
+   */
+  public boolean supportsTableSample() {
+    switch (databaseProduct) {
+    case CALCITE:
+    case DB2:
+    case POSTGRESQL:
+      return true;
+    default:
+      return false;
+    }
+  }
+
   /** Returns how NULL values are sorted if an ORDER BY item does not contain
    * NULLS ASCENDING or NULLS DESCENDING. */
   public NullCollation getNullCollation() {
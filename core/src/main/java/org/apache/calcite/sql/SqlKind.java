@@ -750,6 +750,15 @@ public enum SqlKind {
   /** The {@code FUSION} aggregate function. */
   FUSION,
 
+  /** The {@code APPROX_COUNT_DISTINCT} aggregate function. */
+  APPROX_COUNT_DISTINCT,
+
+  /** The {@code APPROX_PERCENTILE} aggregate function. */
+  APPROX_PERCENTILE,
+
+  /** The {@code APPROX_TOP_K} aggregate function. */
+  APPROX_TOP_K,
+
   /** The {@code SINGLE_VALUE} aggregate function. */
   SINGLE_VALUE,
 
@@ -848,7 +857,8 @@ public enum SqlKind {
       EnumSet.of(COUNT, SUM, SUM0, MIN, MAX, LEAD, LAG, FIRST_VALUE,
           LAST_VALUE, COVAR_POP, COVAR_SAMP, REGR_SXX, REGR_SYY,
           AVG, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP, NTILE, COLLECT,
-          FUSION, SINGLE_VALUE);
+          FUSION, SINGLE_VALUE, APPROX_COUNT_DISTINCT, APPROX_PERCENTILE,
+          APPROX_TOP_K);
 
   /**
    * Category consisting of all expression operators.
@@ -1592,6 +1592,51 @@ public boolean argumentMustBeScalar(int ordinal) {
           SqlFunctionCategory.SYSTEM, false, false) {
       };
 
+  /**
+   * <code>APPROX_COUNT_DISTINCT</code> aggregate function. Estimates the
+   * number of distinct values, using a HyperLogLog sketch.
+   */
+  public static final SqlAggFunction APPROX_COUNT_DISTINCT =
+      new SqlAggFunction("APPROX_COUNT_DISTINCT",
+          null,
+          SqlKind.APPROX_COUNT_DISTINCT,
+          ReturnTypes.BIGINT,
+          null,
+          OperandTypes.ONE_OR_MORE,
+          SqlFunctionCategory.NUMERIC, false, false) {
+      };
+
+  /**
+   * <code>APPROX_PERCENTILE</code> aggregate function. Estimates the value
+   * at a given quantile, using a t-digest sketch. The second argument, the
+   * quantile, must be a numeric literal between 0 and 1.
+   */
+  public static final SqlAggFunction APPROX_PERCENTILE =
+      new SqlAggFunction("APPROX_PERCENTILE",
+          null,
+          SqlKind.APPROX_PERCENTILE,
+          ReturnTypes.DOUBLE_NULLABLE,
+          null,
+          OperandTypes.NUMERIC_FRACTION_LITERAL,
+          SqlFunctionCategory.NUMERIC, false, false) {
+      };
+
+  /**
+   * <code>APPROX_TOP_K</code> aggregate function. Returns an array of the
+   * approximately most frequent values, using a space-saving sketch. The
+   * second argument, the number of values, must be a positive integer
+   * literal.
+   */
+  public static final SqlAggFunction APPROX_TOP_K =
+      new SqlAggFunction("APPROX_TOP_K",
+          null,
+          SqlKind.APPROX_TOP_K,
+          ReturnTypes.TO_ARRAY,
+          null,
+          OperandTypes.ANY_POSITIVE_INTEGER_LITERAL,
+          SqlFunctionCategory.SYSTEM, false, false) {
+      };
+
   /**
    * The FUSION operator. Multiset aggregator function.
    */
@@ -319,6 +319,97 @@ private boolean hasFractionalPart(BigDecimal bd) {
         }
       };
 
+  /**
+   * Operand type-checking strategy where the first operand must be numeric
+   * and the second must be a numeric non-NULL literal between 0 and 1,
+   * inclusive.
+   */
+  public static final SqlSingleOperandTypeChecker NUMERIC_FRACTION_LITERAL =
+      new FamilyOperandTypeChecker(
+          ImmutableList.of(SqlTypeFamily.NUMERIC, SqlTypeFamily.NUMERIC),
+          Predicates.<Integer>alwaysFalse()) {
+        public boolean checkSingleOperandType(
+            SqlCallBinding callBinding,
+            SqlNode node,
+            int iFormalOperand,
+            boolean throwOnFailure) {
+          if (iFormalOperand == 1
+              && !LITERAL.checkSingleOperandType(
+                  callBinding,
+                  node,
+                  iFormalOperand,
+                  throwOnFailure)) {
+            return false;
+          }
+
+          if (!super.checkSingleOperandType(
+              callBinding,
+              node,
+              iFormalOperand,
+              throwOnFailure)) {
+            return false;
+          }
+
+          if (iFormalOperand == 1) {
+            final SqlLiteral arg = (SqlLiteral) node;
+            final BigDecimal value = (BigDecimal) arg.getValue();
+            if (value.compareTo(BigDecimal.ZERO) < 0
+                || value.compareTo(BigDecimal.ONE) > 0) {
+              if (throwOnFailure) {
+                throw callBinding.newError(
+                    RESOURCE.argumentMustBeFraction(
+                        callBinding.getOperator().getName()));
+              }
+              return false;
+            }
+          }
+          return true;
+        }
+      };
+
+  /**
+   * Operand type-checking strategy where the first operand may be of any type
+   * and the second must be a non-NULL integer literal greater than 0.
+   */
+  public static final SqlSingleOperandTypeChecker ANY_POSITIVE_INTEGER_LITERAL =
+      new FamilyOperandTypeChecker(
+          ImmutableList.of(SqlTypeFamily.ANY, SqlTypeFamily.INTEGER),
+          Predicates.<Integer>alwaysFalse()) {
+        public boolean checkSingleOperandType(
+            SqlCallBinding callBinding,
+            SqlNode node,
+            int iFormalOperand,
+            boolean throwOnFailure) {
+          if (iFormalOperand == 0) {
+            return super.checkSingleOperandType(
+                callBinding,
+                node,
+                iFormalOperand,
+                throwOnFailure);
+          }
+
+          if (!POSITIVE_INTEGER_LITERAL.checkSingleOperandType(
+              callBinding,
+              node,
+              0,
+              throwOnFailure)) {
+            return false;
+          }
+
+          final SqlLiteral arg = (SqlLiteral) node;
+          final BigDecimal value = (BigDecimal) arg.getValue();
+          if (value.signum() == 0) {
+            if (throwOnFailure) {
+              throw callBinding.newError(
+                  RESOURCE.argumentMustBePositiveInteger(
+                      callBinding.getOperator().getName()));
+            }
+            return false;
+          }
+          return true;
+        }
+      };
+
   /**
    * Operand type-checking strategy where two operands must both be in the
    * same type family.
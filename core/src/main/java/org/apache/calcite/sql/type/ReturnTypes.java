@@ -337,6 +337,15 @@ public int size() {
   public static final SqlReturnTypeInference TO_MULTISET =
       cascade(ARG0, SqlTypeTransforms.TO_MULTISET);
 
+  /**
+   * Returns an array type.
+   *
+   * <p>For example, given <code>INTEGER</code>, returns
+   * <code>INTEGER ARRAY</code>.
+   */
+  public static final SqlReturnTypeInference TO_ARRAY =
+      cascade(ARG0, SqlTypeTransforms.TO_ARRAY);
+
   /**
    * Returns the element type of a multiset
    */
@@ -181,6 +181,21 @@ public RelDataType transformType(SqlOperatorBinding opBinding,
         }
       };
 
+  /**
+   * Parameter type-inference transform strategy that wraps a given type
+   * in an array.
+   *
+   * @see org.apache.calcite.rel.type.RelDataTypeFactory#createArrayType(RelDataType, long)
+   */
+  public static final SqlTypeTransform TO_ARRAY =
+      new SqlTypeTransform() {
+        public RelDataType transformType(SqlOperatorBinding opBinding,
+            RelDataType typeToTransform) {
+          return opBinding.getTypeFactory().createArrayType(typeToTransform,
+              -1);
+        }
+      };
+
   /**
    * Parameter type-inference transform strategy where a derived type must be
    * a struct type with precisely one field and the returned type is the type
@@ -54,6 +54,7 @@
 import org.apache.calcite.rel.rules.ProjectCalcMergeRule;
 import org.apache.calcite.rel.rules.ProjectMergeRule;
 import org.apache.calcite.rel.rules.ProjectToCalcRule;
+import org.apache.calcite.rel.rules.SampleTableScanRule;
 import org.apache.calcite.rel.rules.SemiJoinRule;
 import org.apache.calcite.rel.rules.SortProjectTransposeRule;
 import org.apache.calcite.rel.rules.SubQueryRemoveRule;
@@ -124,6 +125,7 @@ public Program apply(RuleSet ruleSet) {
           EnumerableRules.ENUMERABLE_MINUS_RULE,
           EnumerableRules.ENUMERABLE_TABLE_MODIFICATION_RULE,
           EnumerableRules.ENUMERABLE_VALUES_RULE,
+          EnumerableRules.ENUMERABLE_SAMPLE_RULE,
           EnumerableRules.ENUMERABLE_WINDOW_RULE,
           SemiJoinRule.INSTANCE,
           TableScanRule.INSTANCE,
@@ -133,6 +135,7 @@ public Program apply(RuleSet ruleSet) {
           AggregateStarTableRule.INSTANCE,
           AggregateStarTableRule.INSTANCE2,
           FilterTableScanRule.INSTANCE,
+          SampleTableScanRule.INSTANCE,
           FilterProjectTransposeRule.INSTANCE,
           FilterJoinRule.FILTER_ON_JOIN,
           AggregateExpandDistinctAggregatesRule.INSTANCE,
@@ -53,9 +53,14 @@
 import org.apache.calcite.runtime.Bindable;
 import org.apache.calcite.runtime.Enumerables;
 import org.apache.calcite.runtime.FlatLists;
+import org.apache.calcite.runtime.HyperLogLog;
+import org.apache.calcite.runtime.Like;
 import org.apache.calcite.runtime.ResultSetEnumerable;
+import org.apache.calcite.runtime.SlidingMinMax;
 import org.apache.calcite.runtime.SortedMultiMap;
+import org.apache.calcite.runtime.SpaceSaving;
 import org.apache.calcite.runtime.SqlFunctions;
+import org.apache.calcite.runtime.TDigest;
 import org.apache.calcite.runtime.Utilities;
 import org.apache.calcite.schema.FilterableTable;
 import org.apache.calcite.schema.ModifiableTable;
@@ -139,6 +144,16 @@ public enum BuiltInMethod {
       Enumerable.class, Function1.class, Function1.class, Function2.class,
       boolean.class, boolean.class),
   SLICE0(Enumerables.class, "slice0", Enumerable.class),
+  SAMPLE(Enumerables.class, "sample", Enumerable.class, boolean.class,
+      double.class, Integer.class),
+  PARTITION_ARRAYS(Enumerables.class, "partitionArrays", Enumerable.class,
+      Function1.class),
+  STREAM_GROUP_BY(Enumerables.class, "streamGroupBy", Enumerable.class,
+      Function1.class, Function1.class, Function0.class, Function2.class,
+      Function2.class),
+  STREAM_JOIN(Enumerables.class, "streamJoin", Enumerable.class,
+      Enumerable.class, Function1.class, Function1.class, Function2.class,
+      long.class, boolean.class),
   SEMI_JOIN(EnumerableDefaults.class, "semiJoin", Enumerable.class,
       Enumerable.class, Function1.class, Function1.class),
   THETA_JOIN(EnumerableDefaults.class, "thetaJoin", Enumerable.class,
@@ -217,6 +232,15 @@ public enum BuiltInMethod {
   MAP_GET(Map.class, "get", Object.class),
   MAP_PUT(Map.class, "put", Object.class, Object.class),
   COLLECTION_ADD(Collection.class, "add", Object.class),
+  HYPER_LOG_LOG_ADD(HyperLogLog.class, "add", Object.class),
+  HYPER_LOG_LOG_ESTIMATE(HyperLogLog.class, "estimate"),
+  T_DIGEST_ADD(TDigest.class, "add", double.class),
+  T_DIGEST_QUANTILE(TDigest.class, "quantile", double.class),
+  SPACE_SAVING_ADD(SpaceSaving.class, "add", Object.class, int.class),
+  SPACE_SAVING_TOP_K(SpaceSaving.class, "topK"),
+  SLIDING_MIN_MAX_ADD(SlidingMinMax.class, "add", int.class, Comparable.class),
+  SLIDING_MIN_MAX_REMOVE(SlidingMinMax.class, "remove", int.class),
+  SLIDING_MIN_MAX_RESULT(SlidingMinMax.class, "result"),
   LIST_GET(List.class, "get", int.class),
   ITERATOR_HAS_NEXT(Iterator.class, "hasNext"),
   ITERATOR_NEXT(Iterator.class, "next"),
@@ -262,6 +286,9 @@ public enum BuiltInMethod {
   RTRIM(SqlFunctions.class, "rtrim", String.class),
   LIKE(SqlFunctions.class, "like", String.class, String.class),
   SIMILAR(SqlFunctions.class, "similar", String.class, String.class),
+  LIKE_MATCHER(Like.class, "likeMatcher", String.class, String.class),
+  SIMILAR_MATCHER(Like.class, "similarMatcher", String.class, String.class),
+  MATCHER_MATCHES(Like.Matcher.class, "matches", String.class),
   IS_TRUE(SqlFunctions.class, "isTrue", Boolean.class),
   IS_NOT_FALSE(SqlFunctions.class, "isNotFalse", Boolean.class),
   NOT(SqlFunctions.class, "not", Boolean.class),
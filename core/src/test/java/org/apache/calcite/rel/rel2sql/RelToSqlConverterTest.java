@@ -384,6 +384,28 @@ public void testSimpleJoin() {
             + "WHERE \"store_id\" < 150\nGROUP BY \"department_id\") AS \"t1\" "
             + "ON \"department\".\"department_id\" = \"t1\".\"department_id\"");
   }
+
+  @Test public void testTableSample() {
+    String query = "select * from \"product\"\n"
+        + "tablesample system(50) repeatable(1)";
+    checkRel2Sql(this.logicalPlanner,
+        query,
+        "SELECT *\n"
+            + "FROM \"foodmart\".\"product\" TABLESAMPLE SYSTEM(50.0) REPEATABLE(1)",
+        SqlDialect.DatabaseProduct.POSTGRESQL.getDialect());
+  }
+
+  @Test public void testTableSampleWithFilter() {
+    String query = "select \"product_id\" from \"product\"\n"
+        + "tablesample bernoulli(50)\n"
+        + "where \"product_id\" < 10";
+    checkRel2Sql(this.logicalPlanner,
+        query,
+        "SELECT \"product_id\"\n"
+            + "FROM \"foodmart\".\"product\" TABLESAMPLE BERNOULLI(50.0)\n"
+            + "WHERE \"product_id\" < 10",
+        SqlDialect.DatabaseProduct.POSTGRESQL.getDialect());
+  }
 }
 
 // End RelToSqlConverterTest.java
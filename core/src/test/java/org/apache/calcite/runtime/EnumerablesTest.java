@@ -18,7 +18,9 @@
 
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.function.Functions;
@@ -29,6 +31,7 @@
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -239,6 +242,164 @@ public T apply(T v0, T v1) {
         equalTo("[]"));
   }
 
+  /** Tests {@link Enumerables#streamGroupBy}, which emits each group as soon
+   * as a row of a later window arrives, and ignores late rows. */
+  @Test public void testStreamGroupBy() {
+    final Enumerable<Emp> emps = Linq4j.asEnumerable(
+        Arrays.asList(
+            new Emp(10, "Fred"),
+            new Emp(20, "Theodore"),
+            new Emp(10, "Late"),
+            new Emp(20, "Sebastian"),
+            new Emp(30, "Joe")));
+    final int[] rowCount = {0};
+    final Enumerator<String> enumerator =
+        Enumerables.streamGroupBy(emps,
+            new Function1<Emp, Integer>() {
+              public Integer apply(Emp a0) {
+                return a0.deptno;
+              }
+            },
+            new Function1<Emp, Comparable>() {
+              public Comparable apply(Emp a0) {
+                ++rowCount[0];
+                return a0.deptno;
+              }
+            },
+            new Function0<Integer>() {
+              public Integer apply() {
+                return 0;
+              }
+            },
+            new Function2<Integer, Emp, Integer>() {
+              public Integer apply(Integer v0, Emp v1) {
+                return v0 + 1;
+              }
+            },
+            new Function2<Integer, Integer, String>() {
+              public String apply(Integer v0, Integer v1) {
+                return v0 + ":" + v1;
+              }
+            }).enumerator();
+    assertThat(enumerator.moveNext(), equalTo(true));
+    assertThat(enumerator.current(), equalTo("10:1"));
+    // The first group was emitted after reading only two rows
+    assertThat(rowCount[0], equalTo(2));
+    final List<String> rest = Lists.newArrayList();
+    while (enumerator.moveNext()) {
+      rest.add(enumerator.current());
+    }
+    assertThat(rest.toString(), equalTo("[20:2, 30:1]"));
+    assertThat(rowCount[0], equalTo(5));
+  }
+
+  /** Tests {@link Enumerables#streamGroupBy} with keys that are arrays, and
+   * are therefore compared using a comparer. */
+  @Test public void testStreamGroupByComparer() {
+    final Enumerable<Emp> emps = Linq4j.asEnumerable(
+        Arrays.asList(
+            new Emp(10, "Fred"),
+            new Emp(10, "Fred"),
+            new Emp(10, "Eric"),
+            new Emp(20, "Fred")));
+    final List<String> list =
+        Enumerables.streamGroupBy(emps,
+            new Function1<Emp, Object[]>() {
+              public Object[] apply(Emp a0) {
+                return new Object[] {a0.deptno, a0.name};
+              }
+            },
+            new Function1<Emp, Comparable>() {
+              public Comparable apply(Emp a0) {
+                return a0.deptno;
+              }
+            },
+            new Function0<Integer>() {
+              public Integer apply() {
+                return 0;
+              }
+            },
+            new Function2<Integer, Emp, Integer>() {
+              public Integer apply(Integer v0, Emp v1) {
+                return v0 + 1;
+              }
+            },
+            new Function2<Object[], Integer, String>() {
+              public String apply(Object[] v0, Integer v1) {
+                return Arrays.toString(v0) + ":" + v1;
+              }
+            },
+            Functions.<Object>arrayComparer()).toList();
+    assertThat(list.toString(),
+        equalTo("[[10, Fred]:2, [10, Eric]:1, [20, Fred]:1]"));
+  }
+
+  /** Tests {@link Enumerables#streamJoin}, which re-reads the table when its
+   * index is older than the refresh interval. */
+  @Test public void testStreamJoin() {
+    final List<Dept> depts = Lists.newArrayList(new Dept(20, "Sales"));
+    final Enumerable<Emp> emps = EMPS.select(
+        new Function1<Emp, Emp>() {
+          public Emp apply(Emp a0) {
+            if (a0.name.equals("Sebastian")) {
+              // A department is added to the table; after a pause, the
+              // index is re-read, and Joe will find it
+              depts.add(new Dept(30, "Research"));
+              try {
+                Thread.sleep(20);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            }
+            return a0;
+          }
+        });
+    assertThat(
+        Enumerables.streamJoin(emps, Linq4j.asEnumerable(depts),
+            new Function1<Emp, Integer>() {
+              public Integer apply(Emp a0) {
+                return a0.deptno;
+              }
+            },
+            new Function1<Dept, Integer>() {
+              public Integer apply(Dept a0) {
+                return a0.deptno;
+              }
+            },
+            EMP_DEPT_TO_STRING, 10, false).toList().toString(),
+        equalTo("[{Theodore, 20, 20, Sales}, {Sebastian, 20, 20, Sales},"
+            + " {Joe, 30, 30, Research}]"));
+  }
+
+  @Test public void testPartitionArrays() {
+    final List<String> partitions = Lists.newArrayList();
+    final Iterator<Object[]> iterator =
+        Enumerables.partitionArrays(EMPS,
+            new Function1<Emp, Integer>() {
+              public Integer apply(Emp a0) {
+                return a0.deptno;
+              }
+            });
+    while (iterator.hasNext()) {
+      partitions.add(Arrays.toString(iterator.next()));
+    }
+    assertThat(partitions.toString(),
+        equalTo("[[Emp(10, Fred)], [Emp(20, Theodore), Emp(20, Sebastian)],"
+            + " [Emp(30, Joe)]]"));
+
+    // With no key, all rows are in one partition
+    final Iterator<Object[]> iterator2 =
+        Enumerables.partitionArrays(EMPS, null);
+    assertThat(iterator2.next().length, equalTo(4));
+    assertThat(iterator2.hasNext(), equalTo(false));
+
+    // An empty input has no partitions
+    assertThat(
+        Enumerables.partitionArrays(Linq4j.<Emp>emptyEnumerable(), null)
+            .hasNext(),
+        equalTo(false));
+  }
+
   /** Employee record. */
   private static class Emp {
     final int deptno;
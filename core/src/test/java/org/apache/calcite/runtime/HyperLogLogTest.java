@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link org.apache.calcite.runtime.HyperLogLog}.
+ */
+public class HyperLogLogTest {
+  private static void assertClose(long expected, long actual) {
+    final double error = Math.abs(actual - expected) / (double) expected;
+    assertTrue("expected about " + expected + ", got " + actual,
+        error < 0.02d);
+  }
+
+  @Test public void testSmall() {
+    final HyperLogLog hll = new HyperLogLog();
+    assertThat(hll.estimate(), is(0L));
+    hll.add(1);
+    hll.add(1L);
+    hll.add("a");
+    hll.add("a");
+    hll.add(null);
+    assertThat(hll.estimate(), is(2L));
+  }
+
+  @Test public void testLarge() {
+    final HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 1000000; i++) {
+      hll.add(i % 200000);
+    }
+    assertClose(200000L, hll.estimate());
+  }
+
+  @Test public void testComposite() {
+    final HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 100; j++) {
+        hll.add(new Object[] {i, "x" + j});
+        hll.add(new Object[] {i, "x" + j});
+      }
+    }
+    assertClose(10000L, hll.estimate());
+  }
+
+  /** Tests that merging the sketches of two streams gives the sketch of
+   * their union. */
+  @Test public void testMerge() {
+    final HyperLogLog hll0 = new HyperLogLog();
+    final HyperLogLog hll1 = new HyperLogLog();
+    final HyperLogLog hll2 = new HyperLogLog();
+    for (int i = 0; i < 60000; i++) {
+      hll0.add("v" + i);
+      hll2.add("v" + i);
+    }
+    for (int i = 40000; i < 100000; i++) {
+      hll1.add("v" + i);
+      hll2.add("v" + i);
+    }
+    hll0.merge(hll1);
+    assertThat(hll0.estimate(), is(hll2.estimate()));
+    assertClose(100000L, hll0.estimate());
+  }
+
+  @Test public void testBytes() {
+    final HyperLogLog hll = new HyperLogLog(10);
+    for (int i = 0; i < 5000; i++) {
+      hll.add(i);
+    }
+    final byte[] bytes = hll.toBytes();
+    assertThat(bytes.length, is(1025));
+    final HyperLogLog hll2 = HyperLogLog.fromBytes(bytes);
+    assertThat(hll2.estimate(), is(hll.estimate()));
+  }
+
+  /** Tests that a sketch that has seen few values stays sparse, and converts
+   * to dense as it grows, without changing the estimate. */
+  @Test public void testSparse() {
+    final HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 500; i++) {
+      hll.add(i);
+    }
+    assertThat(hll.isSparse(), is(true));
+    assertClose(500L, hll.estimate());
+    final HyperLogLog dense = HyperLogLog.fromBytes(hll.toBytes());
+    assertThat(dense.isSparse(), is(false));
+    assertThat(dense.estimate(), is(hll.estimate()));
+
+    for (int i = 500; i < 5000; i++) {
+      hll.add(i);
+    }
+    assertThat(hll.isSparse(), is(false));
+    assertClose(5000L, hll.estimate());
+  }
+
+  /** Tests merging sparse and dense sketches in each combination. */
+  @Test public void testMergeSparse() {
+    final HyperLogLog small = new HyperLogLog();
+    final HyperLogLog large = new HyperLogLog();
+    final HyperLogLog all = new HyperLogLog();
+    for (int i = 0; i < 300; i++) {
+      small.add("s" + i);
+      all.add("s" + i);
+    }
+    for (int i = 0; i < 50000; i++) {
+      large.add("l" + i);
+      all.add("l" + i);
+    }
+    assertThat(small.isSparse(), is(true));
+    assertThat(large.isSparse(), is(false));
+
+    final HyperLogLog dense = HyperLogLog.fromBytes(large.toBytes());
+    dense.merge(small);
+    assertThat(dense.toBytes(), is(all.toBytes()));
+
+    final HyperLogLog small2 = new HyperLogLog();
+    small2.merge(small);
+    assertThat(small2.isSparse(), is(true));
+    assertThat(small2.toBytes(), is(small.toBytes()));
+    small2.merge(large);
+    assertThat(small2.isSparse(), is(false));
+    assertThat(small2.toBytes(), is(all.toBytes()));
+  }
+}
+
+// End HyperLogLogTest.java
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.apache.calcite.linq4j.Linq4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link org.apache.calcite.runtime.Sampler} and
+ * {@link Enumerables#sample}.
+ */
+public class SamplerTest {
+  private static List<Integer> rows(int n) {
+    final List<Integer> list = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      list.add(i);
+    }
+    return list;
+  }
+
+  @Test public void testBernoulli() {
+    final List<Integer> sample =
+        Enumerables.sample(Linq4j.asEnumerable(rows(100000)), true, 0.1d, 7)
+            .toList();
+    assertTrue(sample.size() > 9000 && sample.size() < 11000);
+
+    // With the same seed, the same rows; with a different seed, different
+    // rows
+    assertThat(
+        Enumerables.sample(Linq4j.asEnumerable(rows(100000)), true, 0.1d, 7)
+            .toList(),
+        is(sample));
+    assertThat(
+        Enumerables.sample(Linq4j.asEnumerable(rows(100000)), true, 0.1d, 8)
+            .toList()
+            .equals(sample),
+        is(false));
+  }
+
+  /** Tests that in system mode, rows are chosen in whole blocks. */
+  @Test public void testSystem() {
+    final int n = Sampler.BLOCK_SIZE * 100 + 10;
+    final List<Integer> sample =
+        Enumerables.sample(Linq4j.asEnumerable(rows(n)), false, 0.3d, 1)
+            .toList();
+    assertTrue(!sample.isEmpty() && sample.size() < n);
+    for (int i = 0; i < sample.size();) {
+      final int first = sample.get(i);
+      assertThat(first % Sampler.BLOCK_SIZE, is(0));
+      final int size = Math.min(Sampler.BLOCK_SIZE, n - first);
+      for (int j = 0; j < size; j++) {
+        assertThat(sample.get(i + j), is(first + j));
+      }
+      i += size;
+    }
+  }
+
+  /** Tests that a table that skips blocks using {@link Sampler#nextBlock()}
+   * chooses the same rows as one that calls {@link Sampler#next()} for each
+   * row. */
+  @Test public void testNextBlock() {
+    final int n = Sampler.BLOCK_SIZE * 50 + 10;
+    final Sampler rowSampler = new Sampler(false, 0.5d, 42);
+    final Sampler blockSampler = new Sampler(false, 0.5d, 42);
+    final List<Integer> byRow = new ArrayList<>();
+    final List<Integer> byBlock = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (rowSampler.next()) {
+        byRow.add(i);
+      }
+    }
+    for (int i = 0; i < n; i += Sampler.BLOCK_SIZE) {
+      if (blockSampler.nextBlock()) {
+        for (int j = i; j < Math.min(n, i + Sampler.BLOCK_SIZE); j++) {
+          byBlock.add(j);
+        }
+      }
+    }
+    assertThat(byBlock, is(byRow));
+
+    // After reset, the same rows again
+    rowSampler.reset();
+    final List<Integer> byRow2 = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (rowSampler.next()) {
+        byRow2.add(i);
+      }
+    }
+    assertThat(byRow2, is(byRow));
+  }
+}
+
+// End SamplerTest.java
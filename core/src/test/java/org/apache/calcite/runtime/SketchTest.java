@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link org.apache.calcite.runtime.TDigest} and
+ * {@link org.apache.calcite.runtime.SpaceSaving}.
+ */
+public class SketchTest {
+  @Test public void testSmall() {
+    final TDigest digest = new TDigest();
+    assertTrue(Double.isNaN(digest.quantile(0.5d)));
+    for (int i = 5; i >= 1; i--) {
+      digest.add(i);
+    }
+    assertEquals(1d, digest.quantile(0d), 0d);
+    assertEquals(3d, digest.quantile(0.5d), 0d);
+    assertEquals(4d, digest.quantile(0.75d), 0d);
+    assertEquals(5d, digest.quantile(1d), 0d);
+  }
+
+  @Test public void testUniform() {
+    final TDigest digest = new TDigest();
+    final Random random = new Random(0);
+    for (int i = 0; i < 1000000; i++) {
+      digest.add(random.nextDouble());
+    }
+    assertThat(digest.size(), is(1000000L));
+    assertEquals(0.5d, digest.quantile(0.5d), 0.01d);
+    assertEquals(0.99d, digest.quantile(0.99d), 0.001d);
+    assertEquals(0.001d, digest.quantile(0.001d), 0.0005d);
+  }
+
+  /** Tests that the quantiles of merged sketches are close to those of the
+   * combined stream. */
+  @Test public void testMerge() {
+    final TDigest digest0 = new TDigest();
+    final TDigest digest1 = new TDigest();
+    for (int i = 0; i < 100000; i++) {
+      digest0.add(i);
+      digest1.add(100000 + i);
+    }
+    digest0.merge(digest1);
+    assertThat(digest0.size(), is(200000L));
+    assertEquals(100000d, digest0.quantile(0.5d), 1000d);
+    assertEquals(190000d, digest0.quantile(0.95d), 500d);
+  }
+
+  @Test public void testTopK() {
+    final SpaceSaving topK = new SpaceSaving(3);
+    final Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      // "a" is most frequent, "b" next, "c" next, then many rare values
+      final int r = random.nextInt(100);
+      topK.add(r < 20 ? "a" : r < 35 ? "b" : r < 45 ? "c" : "x" + i);
+    }
+    assertThat(topK.topK().toString(), is("[a, b, c]"));
+    assertTrue(topK.count("a") >= 19000);
+  }
+
+  @Test public void testTopKMerge() {
+    final SpaceSaving topK0 = new SpaceSaving(2);
+    final SpaceSaving topK1 = new SpaceSaving(2);
+    for (int i = 0; i < 1000; i++) {
+      topK0.add(i % 3 == 0 ? "a" : "b");
+      topK1.add(i % 3 == 0 ? "b" : "c");
+    }
+    topK0.merge(topK1);
+    assertThat(topK0.topK().toString(), is("[b, c]"));
+    assertThat(topK0.count("b"), is(1000L));
+  }
+}
+
+// End SketchTest.java
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.runtime;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link org.apache.calcite.runtime.SlidingMinMax}.
+ */
+public class SlidingMinMaxTest {
+  @Test public void testEmpty() {
+    final SlidingMinMax min = new SlidingMinMax(true);
+    assertThat(min.result(), nullValue());
+    min.add(0, 5);
+    min.remove(0);
+    assertThat(min.result(), nullValue());
+  }
+
+  @Test public void testDuplicates() {
+    final SlidingMinMax max = new SlidingMinMax(false);
+    max.add(0, "b");
+    max.add(1, "b");
+    max.add(2, "a");
+    max.remove(0);
+    assertThat(max.result(), is((Comparable) "b"));
+    max.remove(1);
+    assertThat(max.result(), is((Comparable) "a"));
+  }
+
+  /** Slides frames of various widths over random values, and checks the
+   * minimum and maximum of each frame against a brute-force search. */
+  @Test public void testSlide() {
+    final Random random = new Random(1);
+    final int[] values = new int[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(100);
+    }
+    for (int width : new int[] {1, 2, 7, 50}) {
+      final SlidingMinMax min = new SlidingMinMax(true);
+      final SlidingMinMax max = new SlidingMinMax(false);
+      for (int i = 0; i < values.length; i++) {
+        min.add(i, values[i]);
+        max.add(i, values[i]);
+        if (i >= width) {
+          min.remove(i - width);
+          max.remove(i - width);
+        }
+        int expectedMin = Integer.MAX_VALUE;
+        int expectedMax = Integer.MIN_VALUE;
+        for (int j = Math.max(i - width + 1, 0); j <= i; j++) {
+          expectedMin = Math.min(expectedMin, values[j]);
+          expectedMax = Math.max(expectedMax, values[j]);
+        }
+        assertThat(min.result(), is((Comparable) expectedMin));
+        assertThat(max.result(), is((Comparable) expectedMax));
+      }
+    }
+  }
+}
+
+// End SlidingMinMaxTest.java
@@ -29,6 +29,10 @@
 import org.apache.calcite.rex.RexExecutorTest;
 import org.apache.calcite.runtime.BinarySearchTest;
 import org.apache.calcite.runtime.EnumerablesTest;
+import org.apache.calcite.runtime.HyperLogLogTest;
+import org.apache.calcite.runtime.SamplerTest;
+import org.apache.calcite.runtime.SketchTest;
+import org.apache.calcite.runtime.SlidingMinMaxTest;
 import org.apache.calcite.sql.parser.SqlParserTest;
 import org.apache.calcite.sql.parser.SqlUnParserTest;
 import org.apache.calcite.sql.test.SqlAdvisorTest;
@@ -90,6 +94,10 @@
     RexTransformerTest.class,
     BinarySearchTest.class,
     EnumerablesTest.class,
+    HyperLogLogTest.class,
+    SamplerTest.class,
+    SketchTest.class,
+    SlidingMinMaxTest.class,
     ExceptionMessageTest.class,
     InduceGroupingTypeTest.class,
     RelOptPlanReaderTest.class,
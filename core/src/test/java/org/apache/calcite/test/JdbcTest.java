@@ -2505,6 +2505,20 @@ private void checkNullableTimestamp(CalciteAssert.Config config) {
             + "T=THEODORE\n");
   }
 
+  /** Tests that a LIKE pattern that is a literal is compiled once, into a
+   * static field, rather than for each row. */
+  @Test public void testLikeLiteralPattern() {
+    CalciteAssert.hr()
+        .query("select \"name\" from \"hr\".\"emps\"\n"
+            + "where \"name\" like 'S%' or \"name\" like '%dore'")
+        .planContains(" = org.apache.calcite.runtime.Like.likeMatcher(\"S%\", "
+            + "(String) null);")
+        .planContains(" = org.apache.calcite.runtime.Like.likeMatcher(\"%dore\", "
+            + "(String) null);")
+        .returnsUnordered("name=Sebastian",
+            "name=Theodore");
+  }
+
   @Test public void testReuseExpressionWhenNullChecking3() {
     CalciteAssert.hr()
         .query(
@@ -2812,6 +2826,118 @@ private void checkNullableTimestamp(CalciteAssert.Config config) {
         .returns("c0=1997; m0=85452\n");
   }
 
+  @Test public void testApproxCountDistinct() {
+    CalciteAssert.hr()
+        .query("select \"deptno\",\n"
+            + " approx_count_distinct(\"commission\") as c\n"
+            + "from \"hr\".\"emps\"\n"
+            + "group by \"deptno\"")
+        .typeIs("[deptno INTEGER NOT NULL, C BIGINT NOT NULL]")
+        .returnsUnordered("deptno=10; C=2",
+            "deptno=20; C=1");
+    CalciteAssert.hr()
+        .query("select\n"
+            + " approx_count_distinct(\"deptno\", \"commission\") as c\n"
+            + "from \"hr\".\"emps\"")
+        .returns("C=3\n");
+  }
+
+  /** Tests that COUNT(DISTINCT) is computed using a sketch if the connection
+   * allows approximate results. */
+  @Test public void testApproximateDistinctCount() {
+    final String sql = "select \"deptno\",\n"
+        + " count(distinct \"commission\") as c\n"
+        + "from \"hr\".\"emps\"\n"
+        + "group by \"deptno\"";
+    CalciteAssert.hr()
+        .with("approximateDistinctCount", true)
+        .query(sql)
+        .explainContains("APPROX_COUNT_DISTINCT(")
+        .returnsUnordered("deptno=10; C=2",
+            "deptno=20; C=1");
+    CalciteAssert.hr()
+        .query(sql)
+        .returnsUnordered("deptno=10; C=2",
+            "deptno=20; C=1");
+  }
+
+  @Test public void testApproxPercentile() {
+    CalciteAssert.hr()
+        .query("select \"deptno\",\n"
+            + " approx_percentile(\"salary\", 0.5) as p50,\n"
+            + " approx_percentile(\"salary\", 1) as p100\n"
+            + "from \"hr\".\"emps\"\n"
+            + "group by \"deptno\"")
+        .typeIs("[deptno INTEGER NOT NULL, P50 DOUBLE, P100 DOUBLE]")
+        .returnsUnordered("deptno=10; P50=10000.0; P100=11500.0",
+            "deptno=20; P50=8000.0; P100=8000.0");
+    CalciteAssert.hr()
+        .query("select approx_percentile(\"salary\", 0.5) as p50\n"
+            + "from \"hr\".\"emps\"")
+        .returns("P50=9000.0\n");
+  }
+
+  @Test public void testApproxTopK() {
+    CalciteAssert.hr()
+        .query("select approx_top_k(\"deptno\", 2) as t,\n"
+            + " approx_top_k(\"deptno\", 1) as t1\n"
+            + "from \"hr\".\"emps\"")
+        .returns("T=[10, 20]; T1=[10]\n");
+  }
+
+  /** Tests {@code TABLESAMPLE} on a table that cannot sample its own rows;
+   * all rows are read, and {@code EnumerableSample} chooses among them. */
+  @Test public void testTableSample() {
+    final String sql = "select * from \"hr\".\"emps\"\n"
+        + "tablesample bernoulli(50) repeatable(1)";
+    final List<String> results = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      CalciteAssert.hr()
+          .query(sql)
+          .explainContains("EnumerableSample(mode=[bernoulli], rate=[0.5], "
+              + "repeatableSeed=[1])")
+          .returns(collect(results));
+    }
+    // With a seed, the same rows are chosen each time
+    assertThat(results.get(1), is(results.get(0)));
+  }
+
+  /** Tests that {@code TABLESAMPLE SYSTEM} is pushed into a scan of a clone
+   * table, and chooses as many rows as a sample that is not pushed down. */
+  @Test public void testTableSampleSystemPushedIntoScan() {
+    final String sql = "select count(*) as c from \"sales_fact_1997\"\n"
+        + "tablesample system(50) repeatable(3)";
+    final List<String> results = new ArrayList<>();
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.FOODMART_CLONE)
+        .query(sql)
+        .explainContains("BindableTableScan(table=[[foodmart2, "
+            + "sales_fact_1997, SYSTEM(50.0) REPEATABLE(3)]])")
+        .returns(collect(results));
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.JDBC_FOODMART)
+        .query(sql)
+        .explainContains("EnumerableSample(mode=[system], rate=[0.5], "
+            + "repeatableSeed=[3])")
+        .returns(collect(results));
+    assertThat(results.get(1), is(results.get(0)));
+    assertThat(results.get(0), not(is("C=86837\n")));
+  }
+
+  /** Returns a checker that adds the contents of a result set to a list. */
+  private static Function<ResultSet, Void> collect(final List<String> list) {
+    return new Function<ResultSet, Void>() {
+      public Void apply(ResultSet resultSet) {
+        try {
+          list.add(CalciteAssert.toString(resultSet));
+          return null;
+        } catch (SQLException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+
   @Test public void testAggregateFilter() {
     final String s = "select \"the_month\",\n"
         + " count(*) as \"c\",\n"
@@ -3645,6 +3771,67 @@ public Void apply(ResultSet resultSet) {
             "M=10002.0");
   }
 
+  /** Tests windowed aggregates over a RANGE frame whose lower bound moves
+   * forward; rows that leave the frame are removed from the aggregates,
+   * including rows whose arguments are null. */
+  @Test public void testWinAggSliding() {
+    CalciteAssert.hr()
+        .query("select \"empid\",\n"
+            + " sum(\"salary\") over w as s,\n"
+            + " count(\"commission\") over w as c,\n"
+            + " min(\"salary\") over w as mi,\n"
+            + " max(\"commission\") over w as mx\n"
+            + "from \"hr\".\"emps\"\n"
+            + "window w as (order by \"salary\" range 1500 preceding)")
+        .planContains("org.apache.calcite.runtime.SlidingMinMax")
+        .returnsUnordered(
+            "empid=150; S=7000.0; C=0; MI=7000.0; MX=null",
+            "empid=200; S=15000.0; C=1; MI=7000.0; MX=500",
+            "empid=100; S=10000.0; C=1; MI=10000.0; MX=1000",
+            "empid=110; S=21500.0; C=2; MI=10000.0; MX=1000");
+  }
+
+  /** Tests windowed aggregates over a wide ROWS frame that slides forward,
+   * whose input is already sorted on the partition and sort keys, and so is
+   * read one partition at a time. */
+  @Test public void testWinAggSlidingSortedInput() {
+    final StringBuilder values = new StringBuilder();
+    final List<String> expected = new ArrayList<>();
+    final int n = 40;
+    for (int g = 1; g <= 2; g++) {
+      for (int x = 0; x < n; x++) {
+        values.append(values.length() == 0 ? "" : ", ")
+            .append("(").append(g).append(", ").append(x).append(", ")
+            .append(value(g, x)).append(")");
+        int sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        final int start = Math.max(x - 20, 0);
+        final int end = Math.min(x + 2, n - 1);
+        for (int i = start; i <= end; i++) {
+          sum += value(g, i);
+          min = Math.min(min, value(g, i));
+          max = Math.max(max, value(g, i));
+        }
+        expected.add("G=" + g + "; X=" + x + "; S=" + sum + "; C="
+            + (end - start + 1) + "; MI=" + min + "; MA=" + max);
+      }
+    }
+    CalciteAssert.that()
+        .query("select g, x, sum(v) over w as s, count(v) over w as c,\n"
+            + " min(v) over w as mi, max(v) over w as ma\n"
+            + "from (values " + values + ") as t(g, x, v)\n"
+            + "window w as (partition by g order by x\n"
+            + "  rows between 20 preceding and 2 following)")
+        .planContains("Enumerables.partitionArrays(")
+        .planContains("org.apache.calcite.runtime.SlidingMinMax")
+        .returnsUnordered(expected.toArray(new String[expected.size()]));
+  }
+
+  private static int value(int g, int x) {
+    return (x * 7 + g * 3) % 11;
+  }
+
   /** Tests for RANK and ORDER BY ... DESCENDING, NULLS FIRST, NULLS LAST. */
   @Test public void testWinAggRank() {
     CalciteAssert.hr()
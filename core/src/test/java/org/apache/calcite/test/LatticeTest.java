@@ -16,17 +16,22 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.materialize.Lattices;
 import org.apache.calcite.materialize.MaterializationService;
+import org.apache.calcite.materialize.TileKey;
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.util.TestUtil;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Lists;
 
 import org.junit.Ignore;
@@ -37,13 +42,18 @@
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 
@@ -427,6 +437,90 @@ private void checkTileAlgorithm(String statisticProvider,
         .returnsCount(4);
   }
 
+  /** Tests that {@link MaterializationService#buildTiles} builds, off the
+   * query path, the tiles that suit the queries executed so far, and that
+   * later queries use them. */
+  @Test public void testBuildRecommendedTiles() throws Exception {
+    MaterializationService.setThreadLocal();
+    final MaterializationService service = MaterializationService.instance();
+    final String sql = "select t.\"the_year\", t.\"quarter\", count(*) as c\n"
+        + "from \"foodmart\".\"sales_fact_1997\" as s\n"
+        + "join \"foodmart\".\"time_by_day\" as t using (\"time_id\")\n"
+        + "group by t.\"the_year\", t.\"quarter\"";
+    foodmartModel(" auto: false,\n"
+        + "  defaultMeasures: [ {\n"
+        + "    agg: 'count'\n"
+        + "  } ],\n"
+        + "  statisticProvider: '"
+        + FoodMartLatticeStatisticProvider.class.getCanonicalName()
+        + "'\n")
+        .doWithConnection(
+            new Function<CalciteConnection, Void>() {
+              public Void apply(CalciteConnection connection) {
+                try {
+                  final Statement statement = connection.createStatement();
+                  assertThat(explain(statement, sql),
+                      not(containsString("m{27, 31}")));
+                  // Explaining a query does not record the tiles it needs
+                  assertThat(service.queriedTiles().isEmpty(), equalTo(true));
+                  // Executing it does, once per tile per execution, however
+                  // many times the rules fired
+                  for (int i = 1; i <= 2; i++) {
+                    assertThat(count(statement.executeQuery(sql)),
+                        equalTo(4));
+                    final ImmutableMultiset<TileKey> tiles =
+                        service.queriedTiles();
+                    assertFalse(tiles.isEmpty());
+                    for (TileKey tile : tiles.elementSet()) {
+                      assertThat(tiles.count(tile), equalTo(i));
+                    }
+                  }
+
+                  final CalciteSchema.LatticeEntry entry =
+                      Schemas.getLatticeEntries(
+                          CalciteSchema.from(connection.getRootSchema()))
+                          .get(0);
+                  final ExecutorService executor =
+                      Executors.newSingleThreadExecutor();
+                  final List<TileKey> tileKeys =
+                      service.buildTiles(entry.getLattice(), entry.schema,
+                          1000d, executor).get();
+                  executor.shutdown();
+                  assertFalse(tileKeys.isEmpty());
+
+                  assertThat(explain(statement, sql),
+                      containsString("m{27, 31}"));
+                  assertThat(count(statement.executeQuery(sql)),
+                      equalTo(4));
+                  statement.close();
+
+                  service.clear();
+                  assertThat(service.queriedTiles().isEmpty(), equalTo(true));
+                  return null;
+                } catch (Exception e) {
+                  throw Throwables.propagate(e);
+                }
+              }
+            });
+  }
+
+  private static int count(ResultSet resultSet) throws SQLException {
+    final int count =
+        CalciteAssert.toStringList(resultSet, new ArrayList<String>()).size();
+    resultSet.close();
+    return count;
+  }
+
+  private static String explain(Statement statement, String sql)
+      throws SQLException {
+    final ResultSet resultSet =
+        statement.executeQuery("explain plan for " + sql);
+    assertThat(resultSet.next(), equalTo(true));
+    final String plan = resultSet.getString(1);
+    resultSet.close();
+    return plan;
+  }
+
   /** Tests a query that is created within {@link #testTileAlgorithm()}. */
   @Test public void testJG() {
     final String sql = ""
@@ -16,8 +16,18 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.materialize.Lattice;
+import org.apache.calcite.materialize.MaterializationKey;
 import org.apache.calcite.materialize.MaterializationService;
+import org.apache.calcite.materialize.TileKey;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.SubstitutionVisitor;
 import org.apache.calcite.prepare.Prepare;
@@ -25,6 +35,7 @@
 import org.apache.calcite.rel.RelVisitor;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexInputRef;
@@ -32,8 +43,14 @@
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.runtime.Hook;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.JsonBuilder;
+import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.TryThreadLocal;
 import org.apache.calcite.util.Util;
 
@@ -47,15 +64,21 @@
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -969,6 +992,37 @@ public Void apply(ResultSet s) {
     }
   }
 
+  /** Tests that the planner only tries materializations that read the
+   * query's tables, and does not try aggregate materializations for a query
+   * that has no aggregate. */
+  @Test public void testMaterializationIndex() {
+    final String q = "select * from \"emps\" where \"empid\" < 300";
+    final List<String> stats = new ArrayList<>();
+    try (final TryThreadLocal.Memo ignored = Prepare.THREAD_TRIM.push(true)) {
+      MaterializationService.setThreadLocal();
+      CalciteAssert.that()
+          .withMaterializations(JdbcTest.HR_MODEL,
+              "m0", "select * from \"emps\" where \"empid\" < 500",
+              "m1", "select * from \"depts\"",
+              "m2", "select \"deptno\", count(*) as c from \"emps\"\n"
+                  + "group by \"deptno\"")
+          .query(q)
+          .enableMaterializations(true)
+          .withHook(Hook.MATERIALIZATION_STATS,
+              new Function<Object, Void>() {
+                public Void apply(Object input) {
+                  stats.add(input.toString());
+                  return null;
+                }
+              })
+          .explainContains("EnumerableTableScan(table=[[hr, m0]])")
+          .sameResultWithMaterializationsDisabled();
+    }
+    // Stats are also reported while the materializations are being populated.
+    assertTrue(stats.toString(),
+        stats.contains("materializations: 3, candidates: 1, matched: 1"));
+  }
+
   @Test public void testMultiMaterializationMultiUsage() {
     String q = "select *\n"
         + "from (select * from \"emps\" where \"empid\" < 300)\n"
@@ -1105,6 +1159,170 @@ public Void apply(RelNode input) {
     }
   }
 
+  /** Tests that refreshing an aggregate materialization merges the appended
+   * rows into its groups, and that one whose aggregate functions cannot be
+   * merged is re-populated. */
+  @Test public void testRefresh() throws Exception {
+    try (RefreshFixture f = new RefreshFixture()) {
+      final MaterializationKey key0 =
+          f.define("select \"deptno\", count(*) as c, sum(\"salary\") as s\n"
+              + "from \"emps\" group by \"deptno\"", "m0");
+      final MaterializationKey key1 =
+          f.define("select \"deptno\", avg(\"salary\") as a\n"
+              + "from \"emps\" group by \"deptno\"", "m1");
+      final ScannableTable delta = f.append(ANN, ZOE);
+      assertThat(f.service.refresh(key0, RefreshFixture.EMPS, delta),
+          is(true));
+      assertThat(f.service.refresh(key1, RefreshFixture.EMPS, delta),
+          is(false));
+
+      assertThat(f.query("select * from \"inc\".\"m0\" order by \"deptno\""),
+          equalTo("deptno=10; C=4; S=33500.0\n"
+              + "deptno=20; C=1; S=8000.0\n"
+              + "deptno=30; C=1; S=1000.0\n"));
+      assertThat(f.query("select * from \"inc\".\"m1\" order by \"deptno\""),
+          equalTo("deptno=10; A=8375.0\n"
+              + "deptno=20; A=8000.0\n"
+              + "deptno=30; A=1000.0\n"));
+    }
+  }
+
+  /** Tests that refreshing a select-project-join materialization appends
+   * the delta of its query, including the delta of a join with a table that
+   * did not change. */
+  @Test public void testRefreshAppend() throws Exception {
+    try (RefreshFixture f = new RefreshFixture()) {
+      final MaterializationKey key0 =
+          f.define("select \"empid\", \"name\" from \"emps\"\n"
+              + "where \"deptno\" = 10", "m0");
+      final MaterializationKey key1 =
+          f.define("select e.\"name\", d.\"name\" as \"dname\"\n"
+              + "from \"emps\" as e\n"
+              + "join \"hr\".\"depts\" as d on e.\"deptno\" = d.\"deptno\"",
+              "m1");
+      final ScannableTable delta = f.append(ANN, ZOE);
+      assertThat(f.service.refresh(key0, RefreshFixture.EMPS, delta),
+          is(true));
+      assertThat(f.service.refresh(key1, RefreshFixture.EMPS, delta),
+          is(true));
+
+      assertThat(f.query("select * from \"inc\".\"m0\" order by \"empid\""),
+          equalTo("empid=100; name=Bill\n"
+              + "empid=110; name=Theodore\n"
+              + "empid=150; name=Sebastian\n"
+              + "empid=300; name=Ann\n"));
+      assertThat(f.query("select * from \"inc\".\"m1\" order by \"name\""),
+          equalTo("name=Ann; dname=Sales\n"
+              + "name=Bill; dname=Sales\n"
+              + "name=Sebastian; dname=Sales\n"
+              + "name=Theodore; dname=Sales\n"
+              + "name=Zoe; dname=Marketing\n"));
+    }
+  }
+
+  /** Tests that an incremental refresh executes only the delta of the
+   * materialization's query, and does not read the table that rows were
+   * appended to; and that a refresh that re-populates does. */
+  @Test public void testRefreshReadsOnlyDelta() throws Exception {
+    try (RefreshFixture f = new RefreshFixture()) {
+      final MaterializationKey key0 =
+          f.define("select \"deptno\", count(*) as c\n"
+              + "from \"emps\" group by \"deptno\"", "m0");
+      final MaterializationKey key1 =
+          f.define("select \"deptno\", avg(\"salary\") as a\n"
+              + "from \"emps\" group by \"deptno\"", "m1");
+      final int scanCount = f.emps.scanCount;
+      final EmpsTable delta = f.append(ANN, ZOE);
+      assertThat(f.service.refresh(key0, RefreshFixture.EMPS, delta),
+          is(true));
+      assertThat(delta.scanCount, is(1));
+      assertThat(f.emps.scanCount, is(scanCount));
+
+      assertThat(f.service.refresh(key1, RefreshFixture.EMPS, delta),
+          is(false));
+      assertThat(delta.scanCount, is(1));
+      assertThat(f.emps.scanCount, is(scanCount + 1));
+    }
+  }
+
+  /** Tests that a materialization that joins the table that rows were
+   * appended to to itself is re-populated, so that pairs of appended rows
+   * are counted once. */
+  @Test public void testRefreshSelfJoin() throws Exception {
+    try (RefreshFixture f = new RefreshFixture()) {
+      final MaterializationKey key =
+          f.define("select a.\"empid\" as \"e1\", b.\"empid\" as \"e2\"\n"
+              + "from \"emps\" as a\n"
+              + "join \"emps\" as b on a.\"deptno\" = b.\"deptno\"", "m0");
+      assertThat(f.query("select count(*) as c from \"inc\".\"m0\""),
+          equalTo("C=10\n"));
+      final ScannableTable delta = f.append(ANN, ZOE);
+      assertThat(f.service.refresh(key, RefreshFixture.EMPS, delta),
+          is(false));
+
+      // 4 * 4 in department 10, 1 in 20, 1 in 30
+      assertThat(f.query("select count(*) as c from \"inc\".\"m0\""),
+          equalTo("C=18\n"));
+      assertThat(
+          f.query("select count(*) as c from \"inc\".\"m0\"\n"
+              + "where \"e1\" = 300 and \"e2\" = 300"),
+          equalTo("C=1\n"));
+    }
+  }
+
+  /** Tests {@link MaterializationService#refreshTiles}. A tile whose
+   * measures can be merged is refreshed; a tile whose measures cannot is
+   * dropped. */
+  @Test public void testRefreshTiles() throws Exception {
+    try (RefreshFixture f = new RefreshFixture()) {
+      final Lattice lattice =
+          Lattice.create(f.rootSchema, "select 1 from \"inc\".\"emps\"",
+              false);
+      final Lattice.Column salary = lattice.columns.get(3);
+      assertThat(salary.alias, equalTo("salary"));
+      final List<Lattice.Measure> measures0 =
+          ImmutableList.of(
+              new Lattice.Measure(SqlStdOperatorTable.COUNT,
+                  ImmutableList.<Lattice.Column>of()),
+              new Lattice.Measure(SqlStdOperatorTable.SUM,
+                  ImmutableList.of(salary)));
+      final List<Lattice.Measure> measures1 =
+          ImmutableList.of(
+              new Lattice.Measure(SqlStdOperatorTable.AVG,
+                  ImmutableList.of(salary)));
+      final Pair<CalciteSchema.TableEntry, TileKey> tile0 =
+          f.service.defineTile(lattice, ImmutableBitSet.of(1), measures0,
+              f.schema, true, true);
+      final Pair<CalciteSchema.TableEntry, TileKey> tile1 =
+          f.service.defineTile(lattice, ImmutableBitSet.of(), measures1,
+              f.schema, true, true);
+      final String sql0 =
+          "select * from \"inc\".\"" + tile0.left.name + "\" order by 1";
+      final String sql1 = "select * from \"inc\".\"" + tile1.left.name + "\"";
+      assertThat(f.query(sql0),
+          equalTo("deptno=10; m0=3; m1=28500.0\n"
+              + "deptno=20; m0=1; m1=8000.0\n"));
+      assertThat(f.query(sql1), equalTo("m0=9125.0\n"));
+
+      final ScannableTable delta = f.append(ANN, ZOE);
+      assertThat(
+          f.service.refreshTiles(lattice, RefreshFixture.EMPS, delta),
+          is(false));
+      assertThat(f.query(sql0),
+          equalTo("deptno=10; m0=4; m1=33500.0\n"
+              + "deptno=20; m0=1; m1=8000.0\n"
+              + "deptno=30; m0=1; m1=1000.0\n"));
+      assertThat(
+          f.service.defineTile(lattice, ImmutableBitSet.of(1), measures0,
+              f.schema, false, true),
+          notNullValue());
+      assertThat(
+          f.service.defineTile(lattice, ImmutableBitSet.of(), measures1,
+              f.schema, false, true),
+          nullValue());
+    }
+  }
+
   private static <E> List<List<List<E>>> list3(E[][][] as) {
     final ImmutableList.Builder<List<List<E>>> builder =
         ImmutableList.builder();
@@ -1122,6 +1340,92 @@ private static <E> List<List<E>> list2(E[][] as) {
     return builder.build();
   }
 
+  /** Rows appended to "emps" in tests of
+   * {@link MaterializationService#refresh}. */
+  private static final Object[] ANN = {300, 10, "Ann", 5000f, null};
+  private static final Object[] ZOE = {310, 30, "Zoe", 1000f, null};
+
+  /** Table that has the same columns as the "emps" table of
+   * {@link JdbcTest.HrSchema}, and to which rows can be appended. */
+  private static class EmpsTable extends AbstractTable
+      implements ScannableTable {
+    final List<Object[]> rows = new ArrayList<>();
+    int scanCount;
+
+    EmpsTable(Object[]... rows) {
+      this.rows.addAll(Arrays.asList(rows));
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return ((JavaTypeFactory) typeFactory)
+          .createType(JdbcTest.Employee.class);
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      ++scanCount;
+      return Linq4j.asEnumerable(ImmutableList.copyOf(rows));
+    }
+  }
+
+  /** Connection, schemas and materialization service for tests of
+   * {@link MaterializationService#refresh}. The "inc" schema contains an
+   * "emps" table, with the same rows as in {@link JdbcTest.HrSchema}, to
+   * which rows can be appended. */
+  private static class RefreshFixture implements AutoCloseable {
+    static final List<String> EMPS = ImmutableList.of("inc", "emps");
+
+    final EmpsTable emps =
+        new EmpsTable(new Object[] {100, 10, "Bill", 10000f, 1000},
+            new Object[] {200, 20, "Eric", 8000f, 500},
+            new Object[] {150, 10, "Sebastian", 7000f, null},
+            new Object[] {110, 10, "Theodore", 11500f, 250});
+    final MaterializationService service;
+    final Connection connection;
+    final CalciteSchema rootSchema;
+    final CalciteSchema schema;
+
+    RefreshFixture() throws SQLException {
+      MaterializationService.setThreadLocal();
+      service = MaterializationService.instance();
+      connection = DriverManager.getConnection("jdbc:calcite:");
+      final SchemaPlus root =
+          connection.unwrap(CalciteConnection.class).getRootSchema();
+      root.add("hr", new ReflectiveSchema(new JdbcTest.HrSchema()));
+      final SchemaPlus inc = root.add("inc", new AbstractSchema());
+      inc.add("emps", emps);
+      rootSchema = CalciteSchema.from(root);
+      schema = CalciteSchema.from(inc);
+    }
+
+    /** Defines a materialization in the "inc" schema, and populates it
+     * before any rows are appended. */
+    MaterializationKey define(String sql, String name) throws SQLException {
+      final MaterializationKey key =
+          service.defineMaterialization(schema, null, sql,
+              ImmutableList.of("inc"), name, true, false);
+      query("select * from \"inc\".\"" + name + "\"");
+      return key;
+    }
+
+    /** Appends rows to "emps", and returns a table that contains only the
+     * appended rows. */
+    EmpsTable append(Object[]... rows) {
+      emps.rows.addAll(Arrays.asList(rows));
+      return new EmpsTable(rows);
+    }
+
+    String query(String sql) throws SQLException {
+      try (Statement statement = connection.createStatement();
+           ResultSet resultSet = statement.executeQuery(sql)) {
+        return CalciteAssert.toString(resultSet);
+      }
+    }
+
+    public void close() throws SQLException {
+      connection.close();
+    }
+  }
+
   /**
    * Implementation of RelVisitor to extract substituted table names.
    */
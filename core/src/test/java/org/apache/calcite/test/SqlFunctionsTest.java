@@ -18,6 +18,7 @@
 
 import org.apache.calcite.avatica.util.ByteString;
 import org.apache.calcite.avatica.util.TimeUnitRange;
+import org.apache.calcite.runtime.Like;
 import org.apache.calcite.runtime.SqlFunctions;
 import org.apache.calcite.runtime.Utilities;
 
@@ -50,14 +51,17 @@
 import static org.apache.calcite.runtime.SqlFunctions.greater;
 import static org.apache.calcite.runtime.SqlFunctions.initcap;
 import static org.apache.calcite.runtime.SqlFunctions.lesser;
+import static org.apache.calcite.runtime.SqlFunctions.like;
 import static org.apache.calcite.runtime.SqlFunctions.lower;
 import static org.apache.calcite.runtime.SqlFunctions.ltrim;
 import static org.apache.calcite.runtime.SqlFunctions.rtrim;
+import static org.apache.calcite.runtime.SqlFunctions.similar;
 import static org.apache.calcite.runtime.SqlFunctions.trim;
 import static org.apache.calcite.runtime.SqlFunctions.upper;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -101,6 +105,37 @@ public class SqlFunctionsTest {
     assertEquals(" B0123b", initcap(" b0123B"));
   }
 
+  @Test public void testLike() {
+    assertThat(like("abc", "abc"), is(true));
+    assertThat(like("abcd", "abc"), is(false));
+    assertThat(like("abcd", "abc%"), is(true));
+    assertThat(like("xabc", "abc%"), is(false));
+    assertThat(like("xabc", "%abc"), is(true));
+    assertThat(like("abcx", "%abc"), is(false));
+    assertThat(like("xabcx", "%abc%"), is(true));
+    assertThat(like("xabx", "%abc%"), is(false));
+    assertThat(like("", "%"), is(true));
+    assertThat(like("a\nb", "a%"), is(true));
+    assertThat(like("a\nb", "a_b"), is(true));
+    assertThat(like("abc", "a_c"), is(true));
+    assertThat(like("a%c", "a#%c", "#"), is(true));
+    assertThat(like("abc", "a#%c", "#"), is(false));
+    assertThat(like("a.c", "a.c"), is(true));
+    assertThat(like("abc", "a.c"), is(false));
+    assertThat(similar("abbc", "ab*c"), is(true));
+    assertThat(similar("abd", "ab*c"), is(false));
+
+    // Matchers are cached, so each pattern is compiled once
+    assertThat(Like.likeMatcher("a_c", null),
+        sameInstance(Like.likeMatcher("a_c", null)));
+    try {
+      boolean b = like("abc", "abc", "##");
+      fail("Expected error, got " + b);
+    } catch (RuntimeException e) {
+      assertThat(e.getMessage(), is("Invalid escape character '##'"));
+    }
+  }
+
   @Test public void testLesser() {
     assertEquals("a", lesser("a", "bc"));
     assertEquals("ac", lesser("bc", "ac"));
@@ -5135,6 +5135,39 @@ private ImmutableList<ImmutableBitSet> cube(ImmutableBitSet... sets) {
         "Invalid number of arguments to function 'SUM'. Was expecting 1 arguments");
   }
 
+  /** Tests that the second argument to APPROX_PERCENTILE must be a literal
+   * between 0 and 1. */
+  @Test public void testApproxPercentileArgs() {
+    sql("select approx_percentile(sal, 0), approx_percentile(sal, 0.99),\n"
+        + " approx_percentile(sal, 1)\n"
+        + "from emp").ok();
+    sql("select ^approx_percentile(sal, deptno)^ from emp")
+        .fails("Argument to function 'APPROX_PERCENTILE' must be a literal");
+    sql("select ^approx_percentile(sal, 1.5)^ from emp")
+        .fails("Argument to function 'APPROX_PERCENTILE' must be a numeric "
+            + "literal between 0 and 1");
+    sql("select ^approx_percentile(sal, -0.5)^ from emp")
+        .fails("Argument to function 'APPROX_PERCENTILE' must be a numeric "
+            + "literal between 0 and 1");
+    sql("select ^approx_percentile(sal, 'a')^ from emp")
+        .fails("(?s)Cannot apply 'APPROX_PERCENTILE' to arguments of type .*");
+  }
+
+  /** Tests that the second argument to APPROX_TOP_K must be an integer
+   * literal greater than 0. */
+  @Test public void testApproxTopKArgs() {
+    sql("select approx_top_k(ename, 1), approx_top_k(deptno, 10) from emp")
+        .ok();
+    sql("select ^approx_top_k(ename, deptno)^ from emp")
+        .fails("Argument to function 'APPROX_TOP_K' must be a literal");
+    sql("select ^approx_top_k(ename, 0)^ from emp")
+        .fails("Argument to function 'APPROX_TOP_K' must be a positive "
+            + "integer literal");
+    sql("select ^approx_top_k(ename, -3)^ from emp")
+        .fails("Argument to function 'APPROX_TOP_K' must be a positive "
+            + "integer literal");
+  }
+
   @Test public void testSingleNoAlias() {
     check("select * from emp");
   }
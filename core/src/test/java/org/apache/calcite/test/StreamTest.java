@@ -156,7 +156,7 @@ private static String schemaFor(String name, Class<? extends TableFactory> clazz
                 + "        LogicalTableScan(table=[[STREAMS, ORDERS]])\n")
         .explainContains(
             "EnumerableCalc(expr#0..2=[{inputs}], expr#3=[1], expr#4=[>($t2, $t3)], proj#0..2=[{exprs}], $condition=[$t4])\n"
-                + "  EnumerableAggregate(group=[{0, 1}], C=[COUNT()])\n"
+                + "  EnumerableStreamAggregate(group=[{0, 1}], C=[COUNT()], watermark=[0])\n"
                 + "    EnumerableCalc(expr#0..3=[{inputs}], expr#4=[FLAG(HOUR)], expr#5=[FLOOR($t0, $t4)], ROWTIME=[$t5], PRODUCT=[$t2])\n"
                 + "      EnumerableInterpreter\n"
                 + "        BindableTableScan(table=[[]])")
@@ -164,6 +164,37 @@ private static String schemaFor(String name, Class<? extends TableFactory> clazz
             startsWith("ROWTIME=2015-02-15 10:00:00; PRODUCT=paint; C=2"));
   }
 
+  /** Tests a tumbling window aggregation over a stream. Each window's
+   * groups are emitted as soon as a row of the next window arrives. */
+  @Test public void testStreamTumble() {
+    CalciteAssert.model(STREAM_MODEL)
+        .withDefaultSchema("STREAMS")
+        .query("select stream floor(rowtime to hour) as rowtime,\n"
+            + "  product, count(*) as c, sum(units) as su\n"
+            + "from orders\n"
+            + "group by floor(rowtime to hour), product")
+        .explainContains("EnumerableStreamAggregate(group=[{0, 1}], "
+            + "C=[COUNT()], SU=[SUM($2)], watermark=[0])")
+        .returns(
+            startsWith("ROWTIME=2015-02-15 10:00:00; PRODUCT=paint; C=2; SU=13",
+                "ROWTIME=2015-02-15 10:00:00; PRODUCT=paper; C=1; SU=5",
+                "ROWTIME=2015-02-15 10:00:00; PRODUCT=brush; C=1; SU=12",
+                "ROWTIME=2015-02-15 11:00:00; PRODUCT=paint; C=1; SU=3"));
+  }
+
+  /** Tests that an aggregation over an infinite stream emits results
+   * without reading the whole stream. */
+  @Test public void testInfiniteStreamAggregate() {
+    CalciteAssert.model(STREAM_MODEL)
+        .withDefaultSchema(INFINITE_STREAM_SCHEMA_NAME)
+        .query("select stream floor(rowtime to second) as rowtime,\n"
+            + "  product, count(*) as c\n"
+            + "from orders\n"
+            + "group by floor(rowtime to second), product")
+        .limit(3)
+        .returnsCount(3);
+  }
+
   @Test public void testStreamOrderBy() {
     CalciteAssert.model(STREAM_MODEL)
         .withDefaultSchema("STREAMS")
@@ -249,7 +280,7 @@ private static String schemaFor(String name, Class<? extends TableFactory> clazz
             + "        LogicalTableScan(table=[[STREAM_JOINS, PRODUCTS]])\n")
         .explainContains(""
             + "EnumerableCalc(expr#0..6=[{inputs}], proj#0..1=[{exprs}], SUPPLIERID=[$t6])\n"
-            + "  EnumerableJoin(condition=[=($4, $5)], joinType=[inner])\n"
+            + "  EnumerableStreamJoin(condition=[=($4, $5)], joinType=[inner], refresh=[60000])\n"
             + "    EnumerableCalc(expr#0..3=[{inputs}], expr#4=[CAST($t2):VARCHAR(32) CHARACTER SET \"ISO-8859-1\" COLLATE \"ISO-8859-1$en_US$primary\" NOT NULL], proj#0..4=[{exprs}])\n"
             + "      EnumerableInterpreter\n"
             + "        BindableTableScan(table=[[]])\n"
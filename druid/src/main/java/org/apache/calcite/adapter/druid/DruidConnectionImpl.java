@@ -23,6 +23,7 @@
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.prepare.CalcitePrepareImpl;
+import org.apache.calcite.runtime.HttpUtils;
 import org.apache.calcite.util.Holder;
 
 import com.fasterxml.jackson.core.JsonFactory;
@@ -31,16 +32,21 @@
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.calcite.runtime.HttpUtils.post;
@@ -49,6 +55,38 @@
  * Implementation of {@link DruidConnection}.
  */
 class DruidConnectionImpl implements DruidConnection {
+  /** Name of the field in "groupBy", "timeseries" and "topN" results that
+   * holds the start of the time bucket. */
+  static final String DEFAULT_RESPONSE_TIMESTAMP_COLUMN = "timestamp";
+
+  /** Maximum number of pages of a "select" query whose responses are open,
+   * waiting to be parsed, in addition to the page that is being parsed. */
+  static final int PAGE_QUEUE_SIZE = 2;
+
+  /** Size, in bytes, that we would like each page of a "select" query to be.
+   * Large enough to amortize the cost of a round trip, small enough that
+   * Druid does not spend long preparing a page that we may never read. */
+  static final int TARGET_PAGE_BYTES = 4 * 1024 * 1024;
+
+  /** Minimum and maximum number of rows in a page of a "select" query. */
+  static final int MIN_THRESHOLD = 100;
+  static final int MAX_THRESHOLD = 1000000;
+
+  /** Shared by all parsers and generators, so that the buffers and the symbol
+   * table of field names are reused across pages and queries. */
+  static final JsonFactory FACTORY = new JsonFactory();
+
+  /** Object placed on a page queue after the last page. */
+  private static final Object END = new Object();
+
+  /** Thread pool that fetches pages of "select" queries. */
+  private static final ExecutorService PAGE_FETCHER_SERVICE =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("druid-page-fetcher-%d")
+              .setDaemon(true)
+              .build());
+
   final String url;
 
   public DruidConnectionImpl(String url) {
@@ -66,11 +104,65 @@ public void request(QueryType queryType, String data, Sink sink,
     parse(queryType, in, sink, fieldNames, page);
   }
 
+  /** Executes a "select" query page by page, sending the results to a
+   * {@link Sink}.
+   *
+   * <p>Pages are fetched in a background thread. The request for the next
+   * page is sent as soon as the paging identifiers at the head of the
+   * previous response have been read, while the events of the previous page
+   * are still being parsed, so fetching and parsing overlap. Responses are
+   * parsed as they arrive; they are never held in memory. The number of rows
+   * per page starts at {@code threshold} and is adjusted so that each page is
+   * approximately {@link #TARGET_PAGE_BYTES} long. */
+  public void requestPages(DruidQuery.QuerySpec querySpec, int threshold,
+      Sink sink) throws IOException, InterruptedException {
+    final BlockingQueue<Object> queue =
+        new ArrayBlockingQueue<>(PAGE_QUEUE_SIZE);
+    final PageFetcher fetcher = new PageFetcher(querySpec, threshold, queue);
+    PAGE_FETCHER_SERVICE.execute(fetcher);
+    final Row.RowBuilder rowBuilder =
+        Row.newBuilder(querySpec.fieldNames.size());
+    try {
+      for (;;) {
+        final Object o = queue.take();
+        if (o == END) {
+          return;
+        }
+        if (o instanceof IOException) {
+          throw (IOException) o;
+        }
+        if (o instanceof Throwable) {
+          throw Throwables.propagate((Throwable) o);
+        }
+        try (PageResponse response = (PageResponse) o) {
+          if (response.hasEvents) {
+            parseSelectEvents(response.parser, sink, querySpec.fieldNames,
+                rowBuilder);
+          }
+          response.complete = true;
+          fetcher.parsed(response);
+        }
+      }
+    } finally {
+      fetcher.cancel();
+    }
+  }
+
+  /** Returns the number of rows to request in the next page of a "select"
+   * query, given the size in bytes of a page that contained up to
+   * {@code threshold} rows. */
+  static int nextThreshold(int threshold, long bytes) {
+    if (bytes <= 0) {
+      return threshold;
+    }
+    final long t = (long) threshold * TARGET_PAGE_BYTES / bytes;
+    return (int) Math.max(MIN_THRESHOLD, Math.min(MAX_THRESHOLD, t));
+  }
+
   /** Parses the output of a {@code topN} query, sending the results to a
    * {@link Sink}. */
   private void parse(QueryType queryType, InputStream in, Sink sink,
       List<String> fieldNames, Page page) {
-    final JsonFactory factory = new JsonFactory();
     final Row.RowBuilder rowBuilder = Row.newBuilder(fieldNames.size());
 
     if (CalcitePrepareImpl.DEBUG) {
@@ -83,7 +175,7 @@ private void parse(QueryType queryType, InputStream in, Sink sink,
       }
     }
 
-    try (final JsonParser parser = factory.createParser(in)) {
+    try (final JsonParser parser = FACTORY.createParser(in)) {
       switch (queryType) {
       case TOP_N:
         if (parser.nextToken() == JsonToken.START_ARRAY
@@ -103,56 +195,34 @@ private void parse(QueryType queryType, InputStream in, Sink sink,
         break;
 
       case SELECT:
-        if (parser.nextToken() == JsonToken.START_ARRAY
-            && parser.nextToken() == JsonToken.START_OBJECT) {
-          page.pagingIdentifier = null;
-          page.offset = -1;
-          expectScalarField(parser, "timestamp");
-          if (parser.nextToken() == JsonToken.FIELD_NAME
-              && parser.getCurrentName().equals("result")
-              && parser.nextToken() == JsonToken.START_OBJECT) {
+        if (parseSelectHeader(parser, page)) {
+          parseSelectEvents(parser, sink, fieldNames, rowBuilder);
+        }
+        break;
+
+      case GROUP_BY:
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            expectScalarField(parser, "version");
+            parseTimestamp(fieldNames, rowBuilder, parser);
             if (parser.nextToken() == JsonToken.FIELD_NAME
-                && parser.getCurrentName().equals("pagingIdentifiers")
+                && parser.getCurrentName().equals("event")
                 && parser.nextToken() == JsonToken.START_OBJECT) {
-              switch (parser.nextToken()) {
-              case FIELD_NAME:
-                page.pagingIdentifier = parser.getCurrentName();
-                if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
-                  page.offset = parser.getIntValue();
-                }
-                expect(parser, JsonToken.END_OBJECT);
-                break;
-              case END_OBJECT:
-              }
-            }
-            if (parser.nextToken() == JsonToken.FIELD_NAME
-                && parser.getCurrentName().equals("events")
-                && parser.nextToken() == JsonToken.START_ARRAY) {
-              while (parser.nextToken() == JsonToken.START_OBJECT) {
-                expectScalarField(parser, "segmentId");
-                expectScalarField(parser, "offset");
-                if (parser.nextToken() == JsonToken.FIELD_NAME
-                    && parser.getCurrentName().equals("event")
-                    && parser.nextToken() == JsonToken.START_OBJECT) {
-                  parseFields(fieldNames, rowBuilder, parser);
-                  sink.send(rowBuilder.build());
-                  rowBuilder.reset();
-                }
-                expect(parser, JsonToken.END_OBJECT);
-              }
-              parser.nextToken();
+              parseFields(fieldNames, rowBuilder, parser);
+              sink.send(rowBuilder.build());
+              rowBuilder.reset();
             }
+            expect(parser, JsonToken.END_OBJECT);
           }
         }
         break;
 
-      case GROUP_BY:
+      case TIMESERIES:
         if (parser.nextToken() == JsonToken.START_ARRAY) {
           while (parser.nextToken() == JsonToken.START_OBJECT) {
-            expectScalarField(parser, "version");
-            expectScalarField(parser, "timestamp");
+            parseTimestamp(fieldNames, rowBuilder, parser);
             if (parser.nextToken() == JsonToken.FIELD_NAME
-                && parser.getCurrentName().equals("event")
+                && parser.getCurrentName().equals("result")
                 && parser.nextToken() == JsonToken.START_OBJECT) {
               parseFields(fieldNames, rowBuilder, parser);
               sink.send(rowBuilder.build());
@@ -167,6 +237,64 @@ private void parse(QueryType queryType, InputStream in, Sink sink,
     }
   }
 
+  /** Parses the start of the response to a "select" query, up to and
+   * including its paging identifiers, and stores them in {@code page}.
+   * Returns whether the parser is now positioned inside the "result"
+   * object, before the events. */
+  static boolean parseSelectHeader(JsonParser parser, Page page)
+      throws IOException {
+    if (parser.nextToken() == JsonToken.START_ARRAY
+        && parser.nextToken() == JsonToken.START_OBJECT) {
+      page.pagingIdentifier = null;
+      page.offset = -1;
+      expectScalarField(parser, "timestamp");
+      if (parser.nextToken() == JsonToken.FIELD_NAME
+          && parser.getCurrentName().equals("result")
+          && parser.nextToken() == JsonToken.START_OBJECT) {
+        if (parser.nextToken() == JsonToken.FIELD_NAME
+            && parser.getCurrentName().equals("pagingIdentifiers")
+            && parser.nextToken() == JsonToken.START_OBJECT) {
+          switch (parser.nextToken()) {
+          case FIELD_NAME:
+            page.pagingIdentifier = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+              page.offset = parser.getIntValue();
+            }
+            expect(parser, JsonToken.END_OBJECT);
+            break;
+          case END_OBJECT:
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Parses the events of a "select" query, sending them to a {@link Sink};
+   * the parser is positioned after the paging identifiers. */
+  private void parseSelectEvents(JsonParser parser, Sink sink,
+      List<String> fieldNames, Row.RowBuilder rowBuilder)
+      throws IOException, InterruptedException {
+    if (parser.nextToken() == JsonToken.FIELD_NAME
+        && parser.getCurrentName().equals("events")
+        && parser.nextToken() == JsonToken.START_ARRAY) {
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        expectScalarField(parser, "segmentId");
+        expectScalarField(parser, "offset");
+        if (parser.nextToken() == JsonToken.FIELD_NAME
+            && parser.getCurrentName().equals("event")
+            && parser.nextToken() == JsonToken.START_OBJECT) {
+          parseFields(fieldNames, rowBuilder, parser);
+          sink.send(rowBuilder.build());
+          rowBuilder.reset();
+        }
+        expect(parser, JsonToken.END_OBJECT);
+      }
+      parser.nextToken();
+    }
+  }
+
   private void parseFields(List<String> fieldNames, Row.RowBuilder rowBuilder,
       JsonParser parser) throws IOException {
     while (parser.nextToken() == JsonToken.FIELD_NAME) {
@@ -204,14 +332,27 @@ private void parseField(List<String> fieldNames, Row.RowBuilder rowBuilder,
     }
   }
 
-  private void expect(JsonParser parser, JsonToken token) throws IOException {
+  /** Parses the "timestamp" field of a result row. If the query groups by
+   * time, the value is the start of the time bucket, and is converted to
+   * milliseconds since the epoch. */
+  private void parseTimestamp(List<String> fieldNames,
+      Row.RowBuilder rowBuilder, JsonParser parser) throws IOException {
+    expectScalarField(parser, DEFAULT_RESPONSE_TIMESTAMP_COLUMN);
+    final int i = fieldNames.indexOf(DEFAULT_RESPONSE_TIMESTAMP_COLUMN);
+    if (i >= 0) {
+      rowBuilder.set(i, DruidDateTimeUtils.toMillis(parser.getText()));
+    }
+  }
+
+  private static void expect(JsonParser parser, JsonToken token)
+      throws IOException {
     final JsonToken t = parser.nextToken();
     if (t != token) {
       throw new RuntimeException("expected " + token + ", got " + t);
     }
   }
 
-  private void expectScalarField(JsonParser parser, String name)
+  private static void expectScalarField(JsonParser parser, String name)
       throws IOException {
     expect(parser, JsonToken.FIELD_NAME);
     if (!parser.getCurrentName().equals(name)) {
@@ -334,6 +475,169 @@ public void close() {
     }
   }
 
+  /** Task that fetches the pages of a "select" query and puts the open
+   * responses onto a bounded queue, followed by {@link #END} or the
+   * {@link Throwable} that stopped it. */
+  private class PageFetcher implements Runnable {
+    private final DruidQuery.QuerySpec querySpec;
+    private final BlockingQueue<Object> queue;
+    private volatile boolean cancelled;
+    private volatile int threshold;
+    /** Connection of the request that is in flight, if any; disconnected by
+     * {@link #cancel()} so that the fetcher does not remain blocked reading
+     * a response that nobody wants. */
+    private volatile HttpURLConnection connection;
+
+    PageFetcher(DruidQuery.QuerySpec querySpec, int threshold,
+        BlockingQueue<Object> queue) {
+      this.querySpec = querySpec;
+      this.threshold = threshold;
+      this.queue = queue;
+    }
+
+    public void run() {
+      try {
+        final Page page = new Page();
+        for (;;) {
+          final int previousOffset = page.offset;
+          final PageResponse response =
+              fetch(page.pagingIdentifier, page.offset, threshold);
+          if (response == null) {
+            return;
+          }
+          try {
+            response.hasEvents = parseSelectHeader(response.parser, page);
+          } catch (Throwable e) {
+            response.close();
+            throw e;
+          }
+          if (!offer(response)) {
+            response.close();
+            return;
+          }
+          if (!response.hasEvents
+              || page.pagingIdentifier == null
+              || page.offset <= previousOffset) {
+            break;
+          }
+        }
+        offer(END);
+      } catch (Throwable e) {
+        if (!cancelled) {
+          offer(e);
+        }
+      } finally {
+        connection = null;
+      }
+    }
+
+    /** Puts an element on the queue, waiting if necessary. Returns false if
+     * the consumer has gone away. */
+    private boolean offer(Object o) {
+      try {
+        while (!cancelled) {
+          if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+              // The consumer cleared the queue before we added to it
+              drain();
+            }
+            return true;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    /** Sends the request for a page, and returns its response positioned at
+     * the start, or null if the fetcher has been cancelled. */
+    private PageResponse fetch(String pagingIdentifier, int offset,
+        int threshold) throws IOException {
+      final String data =
+          querySpec.getQueryString(pagingIdentifier, offset, threshold);
+      if (CalcitePrepareImpl.DEBUG) {
+        System.out.println(data);
+      }
+      final Map<String, String> requestHeaders =
+          ImmutableMap.of("Content-Type", "application/json");
+      final HttpURLConnection conn = HttpUtils.getURLConnection(url);
+      connection = conn;
+      if (cancelled) {
+        return null;
+      }
+      try {
+        final CountingInputStream in =
+            new CountingInputStream(
+                HttpUtils.executeMethod(conn, "POST", data, requestHeaders,
+                    10000, 1800000));
+        return new PageResponse(conn, FACTORY.createParser(in), in,
+            threshold);
+      } catch (IOException | RuntimeException e) {
+        conn.disconnect();
+        throw e;
+      }
+    }
+
+    /** Called by the consumer when it has parsed a page; uses the size of
+     * the page to choose the number of rows in subsequent pages. */
+    void parsed(PageResponse response) {
+      threshold = nextThreshold(response.threshold, response.in.getCount());
+    }
+
+    void cancel() {
+      cancelled = true;
+      final HttpURLConnection conn = connection;
+      if (conn != null) {
+        conn.disconnect();
+      }
+      drain();
+    }
+
+    /** Closes the responses on the queue. */
+    private void drain() {
+      for (;;) {
+        final Object o = queue.poll();
+        if (o == null) {
+          return;
+        }
+        if (o instanceof PageResponse) {
+          ((PageResponse) o).close();
+        }
+      }
+    }
+  }
+
+  /** Response to a request for a page of a "select" query, with a parser
+   * that reads from the open connection.
+   *
+   * <p>Closing a response that has been read to the end leaves the
+   * connection to be reused; closing one that has not been read to the end,
+   * because the query has failed or been cancelled, disconnects it. */
+  private static class PageResponse implements AutoCloseable {
+    final HttpURLConnection connection;
+    final JsonParser parser;
+    final CountingInputStream in;
+    final int threshold;
+    boolean hasEvents;
+    boolean complete;
+
+    PageResponse(HttpURLConnection connection, JsonParser parser,
+        CountingInputStream in, int threshold) {
+      this.connection = connection;
+      this.parser = parser;
+      this.in = in;
+      this.threshold = threshold;
+    }
+
+    public void close() {
+      if (!complete) {
+        connection.disconnect();
+      }
+      HttpUtils.close(parser);
+    }
+  }
+
   /** Progress through a large fetch. */
   static class Page {
     String pagingIdentifier = null;
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.druid;
+
+import org.apache.calcite.avatica.util.DateTimeUtils;
+import org.apache.calcite.avatica.util.TimeUnitRange;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+
+/**
+ * Utilities for translating time expressions and literals into Druid
+ * intervals and granularities.
+ *
+ * <p>Druid stores time with millisecond precision, and writes it in ISO 8601
+ * format, for example "2012-01-01T00:00:00.000Z".
+ */
+class DruidDateTimeUtils {
+  private static final String ISO_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+  private DruidDateTimeUtils() {}
+
+  /** Converts a time string to milliseconds since the epoch, or returns null
+   * if it is not a valid time.
+   *
+   * <p>Accepts ISO 8601 strings (such as "2012-01-01T00:00:00.000Z") and SQL
+   * strings (such as "2012-01-01 00:00:00" and "2012-01-01"). Times are
+   * assumed to be in UTC. */
+  static Long toMillis(String s) {
+    s = s.trim();
+    if (s.endsWith("Z")) {
+      s = s.substring(0, s.length() - 1);
+    }
+    s = s.replace('T', ' ');
+    try {
+      return DateTimeUtils.timestampStringToUnixDate(s);
+    } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
+  /** Converts milliseconds since the epoch to an ISO 8601 string in UTC. */
+  static String toIso(long millis) {
+    final SimpleDateFormat format = DateTimeUtils.newDateFormat(ISO_FORMAT);
+    format.setTimeZone(DateTimeUtils.GMT_ZONE);
+    return format.format(millis);
+  }
+
+  /** Returns whether an expression is a reference to the timestamp column,
+   * cast to TIMESTAMP (or of type TIMESTAMP), and therefore has the same
+   * value as Druid's time. */
+  static boolean isTimestampRef(RexNode e, RelDataType rowType,
+      DruidTable druidTable) {
+    return timestampPrecision(e, rowType, druidTable) == 1L;
+  }
+
+  /** If an expression is the timestamp column converted to a date-time
+   * type, returns the precision of its values in milliseconds: 1 if it is a
+   * TIMESTAMP, the number of milliseconds in a day if it has been truncated
+   * to a DATE. Otherwise returns -1.
+   *
+   * <p>In particular, returns -1 if the column is a string that has not been
+   * cast, or has been cast to another string type: strings do not compare
+   * as instants do. */
+  static long timestampPrecision(RexNode e, RelDataType rowType,
+      DruidTable druidTable) {
+    final long precision;
+    switch (e.getType().getSqlTypeName()) {
+    case TIMESTAMP:
+      precision = 1L;
+      break;
+    case DATE:
+      precision = DateTimeUtils.MILLIS_PER_DAY;
+      break;
+    default:
+      return -1L;
+    }
+    switch (e.getKind()) {
+    case CAST:
+      final RexNode operand = ((RexCall) e).getOperands().get(0);
+      if (isTimestampField(operand, rowType, druidTable)) {
+        return precision;
+      }
+      final long operandPrecision =
+          timestampPrecision(operand, rowType, druidTable);
+      return operandPrecision < 0L
+          ? -1L
+          : Math.max(precision, operandPrecision);
+    case INPUT_REF:
+      return isTimestampField(e, rowType, druidTable) ? precision : -1L;
+    default:
+      return -1L;
+    }
+  }
+
+  private static boolean isTimestampField(RexNode e, RelDataType rowType,
+      DruidTable druidTable) {
+    return e instanceof RexInputRef
+        && rowType.getFieldNames().get(((RexInputRef) e).getIndex())
+            .equals(druidTable.timestampFieldName);
+  }
+
+  /** Returns the value of a literal as milliseconds since the epoch, or null
+   * if it is not a time literal. */
+  static Long literalMillis(RexNode e) {
+    if (!(e instanceof RexLiteral)) {
+      return null;
+    }
+    final RexLiteral literal = (RexLiteral) e;
+    switch (literal.getTypeName()) {
+    case CHAR:
+      return toMillis(literal.getValue2().toString());
+    case DATE:
+    case TIMESTAMP:
+      return ((Calendar) literal.getValue()).getTimeInMillis();
+    default:
+      return null;
+    }
+  }
+
+  /** If an expression is {@code FLOOR(timestamp TO unit)}, returns the
+   * name of the corresponding Druid granularity; otherwise returns null. */
+  static String granularity(RexNode e, RelDataType rowType,
+      DruidTable druidTable) {
+    if (e.getKind() != SqlKind.FLOOR) {
+      return null;
+    }
+    final RexCall call = (RexCall) e;
+    if (call.getOperands().size() != 2
+        || !isTimestampRef(call.getOperands().get(0), rowType, druidTable)
+        || !(call.getOperands().get(1) instanceof RexLiteral)) {
+      return null;
+    }
+    final Object flag = ((RexLiteral) call.getOperands().get(1)).getValue();
+    if (!(flag instanceof TimeUnitRange)) {
+      return null;
+    }
+    switch ((TimeUnitRange) flag) {
+    case YEAR:
+    case QUARTER:
+    case MONTH:
+    case WEEK:
+    case DAY:
+    case HOUR:
+    case MINUTE:
+    case SECOND:
+      return ((TimeUnitRange) flag).name().toLowerCase();
+    default:
+      return null;
+    }
+  }
+
+  /** Half-open range of time, in milliseconds since the epoch, that a Druid
+   * query scans. */
+  static class Interval {
+    final long start;
+    final long end;
+
+    Interval(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    /** Parses a Druid interval such as
+     * "1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z". Returns null if
+     * the string is not of that form. */
+    static Interval parse(String s) {
+      final int slash = s.indexOf('/');
+      if (slash < 0) {
+        return null;
+      }
+      final Long start = toMillis(s.substring(0, slash));
+      final Long end = toMillis(s.substring(slash + 1));
+      if (start == null || end == null) {
+        return null;
+      }
+      return new Interval(start, end);
+    }
+
+    /** Returns the intersection of this interval with the interval of times
+     * that satisfy "time op value", or null if the comparison cannot be
+     * represented as an interval.
+     *
+     * <p>{@code precision} is the precision of the compared expression in
+     * milliseconds. If it is a day, for example, the comparison is
+     * "FLOOR(time TO DAY) op value", and each bound is widened to a whole
+     * day. */
+    Interval restrict(SqlKind op, long value, long precision) {
+      // floor and ceiling of value, as a multiple of precision
+      final long floor = DateTimeUtils.floorDiv(value, precision) * precision;
+      final long ceil = floor == value ? value : floor + precision;
+      switch (op) {
+      case EQUALS:
+        if (floor != value) {
+          // Truncated values are never equal to this value.
+          return new Interval(start, start);
+        }
+        return new Interval(Math.max(start, value),
+            Math.min(end, value + precision));
+      case GREATER_THAN:
+        return new Interval(Math.max(start, floor + precision), end);
+      case GREATER_THAN_OR_EQUAL:
+        return new Interval(Math.max(start, ceil), end);
+      case LESS_THAN:
+        return new Interval(start, Math.min(end, ceil));
+      case LESS_THAN_OR_EQUAL:
+        return new Interval(start, Math.min(end, floor + precision));
+      default:
+        return null;
+      }
+    }
+
+    @Override public String toString() {
+      // An empty interval is still valid in Druid; it matches no rows.
+      return toIso(start) + "/" + toIso(Math.max(start, end));
+    }
+  }
+}
+
+// End DruidDateTimeUtils.java
@@ -32,12 +32,14 @@
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
@@ -47,6 +49,7 @@
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.runtime.Hook;
 import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.sql.type.SqlTypeName;
@@ -57,6 +60,8 @@
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -80,7 +85,7 @@ public class DruidQuery extends AbstractRelNode implements BindableRel {
   final DruidTable druidTable;
   final ImmutableList<RelNode> rels;
 
-  private static final Pattern VALID_SIG = Pattern.compile("sf?p?a?");
+  private static final Pattern VALID_SIG = Pattern.compile("sf?p?(al?)?");
 
   /**
    * Creates a DruidQuery.
@@ -106,6 +111,7 @@ private DruidQuery(RelOptCluster cluster, RelTraitSet traitSet,
    * <p>For example, "sfa" means {@link TableScan} (s)
    * followed by {@link Filter} (f)
    * followed by {@link Aggregate} (a).
+   * A {@link Sort} (l) may follow an {@link Aggregate}.
    *
    * @see #isValidSignature(String)
    */
@@ -116,6 +122,7 @@ String signature() {
           : rel instanceof Project ? 'p'
           : rel instanceof Filter ? 'f'
           : rel instanceof Aggregate ? 'a'
+          : rel instanceof Sort ? 'l'
           : '!');
     }
     return b.toString();
@@ -164,6 +171,12 @@ String signature() {
             return litmus.fail("invalid filter [%s]", filter.getCondition());
           }
         }
+        if (r instanceof Sort) {
+          final Sort sort = (Sort) r;
+          if (sort.offset != null) {
+            return litmus.fail("no offset");
+          }
+        }
       }
     }
     return true;
@@ -198,6 +211,20 @@ private boolean areValidFilters(List<RexNode> es) {
     return true;
   }
 
+  /** Returns whether each of a list of expressions can be projected by
+   * Druid. Input references can always be projected; FLOOR of the timestamp
+   * column can be projected if the query later groups by it. */
+  boolean canProjectAll(List<RexNode> nodes) {
+    final RelDataType rowType = Util.last(rels).getRowType();
+    for (RexNode e : nodes) {
+      if (!(e instanceof RexInputRef)
+          && DruidDateTimeUtils.granularity(e, rowType, druidTable) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /** Returns whether a signature represents an sequence of relational operators
    * that can be translated into a valid Druid query. */
   static boolean isValidSignature(String signature) {
@@ -237,6 +264,10 @@ static DruidQuery create(RelOptCluster cluster, RelTraitSet traitSet,
         final Aggregate aggregate = (Aggregate) rel;
         pw.item("groups", aggregate.getGroupSet())
             .item("aggs", aggregate.getAggCallList());
+      } else if (rel instanceof Sort) {
+        final Sort sort = (Sort) rel;
+        pw.item("sort", sort.getCollation())
+            .itemIf("fetch", sort.fetch, sort.fetch != null);
       } else {
         throw new AssertionError("rel type not supported in Druid query "
             + rel);
@@ -247,7 +278,24 @@ static DruidQuery create(RelOptCluster cluster, RelTraitSet traitSet,
 
   @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
       RelMetadataQuery mq) {
-    return Util.last(rels).computeSelfCost(planner, mq).multiplyBy(.1);
+    final RelNode last = Util.last(rels);
+    if (last instanceof Project && !canProjectAllWithoutAggregate(
+        ((Project) last).getProjects())) {
+      // FLOOR of the timestamp column can only be evaluated by Druid as the
+      // granularity of an aggregate query; we cannot implement this query
+      // until an Aggregate has been pushed onto it.
+      return planner.getCostFactory().makeInfiniteCost();
+    }
+    return last.computeSelfCost(planner, mq).multiplyBy(.1);
+  }
+
+  private static boolean canProjectAllWithoutAggregate(List<RexNode> nodes) {
+    for (RexNode e : nodes) {
+      if (!(e instanceof RexInputRef)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override public void register(RelOptPlanner planner) {
@@ -297,19 +345,38 @@ private QuerySpec getQuerySpec() {
           groupSet.cardinality());
     }
 
+    List<RelFieldCollation> collations = null;
+    Integer fetch = null;
+    if (i < rels.size() && rels.get(i) instanceof Sort) {
+      final Sort sort = (Sort) rels.get(i++);
+      collations = sort.getCollation().getFieldCollations();
+      if (sort.fetch != null) {
+        fetch = RexLiteral.intValue(sort.fetch);
+      }
+    }
+
     if (i != rels.size()) {
       throw new AssertionError("could not implement all rels");
     }
-    return getQuery(rowType, filter, projects, groupSet, aggCalls, aggNames);
+    return getQuery(rowType, filter, projects, groupSet, aggCalls, aggNames,
+        collations, fetch);
   }
 
   private QuerySpec getQuery(RelDataType rowType, RexNode filter,
       List<RexNode> projects, ImmutableBitSet groupSet,
-      List<AggregateCall> aggCalls, List<String> aggNames) {
+      List<AggregateCall> aggCalls, List<String> aggNames,
+      List<RelFieldCollation> collations, Integer fetch) {
     QueryType queryType = QueryType.SELECT;
     final Translator translator = new Translator(druidTable, rowType);
     List<String> fieldNames = rowType.getFieldNames();
 
+    String interval = druidTable.interval;
+    if (filter != null) {
+      final Pair<String, RexNode> pair = splitInterval(rowType, filter);
+      interval = pair.left;
+      filter = pair.right;
+    }
+
     Json jsonFilter = null;
     if (filter != null) {
       jsonFilter = translator.translateFilter(filter);
@@ -327,6 +394,9 @@ private QuerySpec getQuery(RelDataType rowType, RexNode filter,
 
     final List<String> dimensions = new ArrayList<>();
     final List<JsonAggregation> aggregations = new ArrayList<>();
+    String granularity = "all";
+    String topNMetric = null;
+    JsonLimit limit = null;
 
     if (groupSet != null) {
       assert aggCalls != null;
@@ -337,7 +407,16 @@ private QuerySpec getQuery(RelDataType rowType, RexNode filter,
       final ImmutableList.Builder<String> builder = ImmutableList.builder();
       for (int groupKey : groupSet) {
         final String s = fieldNames.get(groupKey);
-        dimensions.add(s);
+        final String g = projects == null
+            ? null
+            : DruidDateTimeUtils.granularity(projects.get(groupKey), rowType,
+                druidTable);
+        if (g != null) {
+          // Grouping by FLOOR(timestamp TO unit) becomes the granularity
+          granularity = g;
+        } else {
+          dimensions.add(s);
+        }
         builder.add(s);
       }
       for (Pair<AggregateCall, String> agg : Pair.zip(aggCalls, aggNames)) {
@@ -347,9 +426,29 @@ private QuerySpec getQuery(RelDataType rowType, RexNode filter,
         builder.add(jsonAggregation.name);
       }
       fieldNames = builder.build();
+
+      if (!granularity.equals("all")
+          && dimensions.isEmpty()
+          && !aggregations.isEmpty()) {
+        queryType = QueryType.TIMESERIES;
+      } else if (collations != null) {
+        if (granularity.equals("all")
+            && dimensions.size() == 1
+            && fetch != null
+            && collations.size() == 1
+            && collations.get(0).getFieldIndex() >= groupSet.cardinality()
+            && isDescending(collations.get(0))) {
+          // "ORDER BY metric DESC LIMIT n" on a single dimension is a topN
+          queryType = QueryType.TOP_N;
+          topNMetric = fieldNames.get(collations.get(0).getFieldIndex());
+        } else {
+          limit = new JsonLimit(fetch, fieldNames, collations);
+        }
+      }
     } else {
       assert aggCalls == null;
       assert aggNames == null;
+      assert collations == null;
     }
 
     final StringWriter sw = new StringWriter();
@@ -370,40 +469,68 @@ private QuerySpec getQuery(RelDataType rowType, RexNode filter,
 
         generator.writeStringField("queryType", "groupBy");
         generator.writeStringField("dataSource", druidTable.dataSource);
-        generator.writeStringField("granularity", "all");
+        generator.writeStringField("granularity", granularity);
         writeField(generator, "dimensions", dimensions);
-        writeFieldIf(generator, "limitSpec", null);
+        writeFieldIf(generator, "limitSpec", limit);
         writeFieldIf(generator, "filter", jsonFilter);
         writeField(generator, "aggregations", aggregations);
         writeFieldIf(generator, "postAggregations", null);
-        writeField(generator, "intervals",
-            ImmutableList.of(druidTable.interval));
+        writeField(generator, "intervals", ImmutableList.of(interval));
         writeFieldIf(generator, "having", null);
 
         generator.writeEndObject();
         break;
 
+      case TIMESERIES:
+        generator.writeStartObject();
+
+        generator.writeStringField("queryType", "timeseries");
+        generator.writeStringField("dataSource", druidTable.dataSource);
+        generator.writeBooleanField("descending", false);
+        generator.writeStringField("granularity", granularity);
+        writeFieldIf(generator, "filter", jsonFilter);
+        writeField(generator, "aggregations", aggregations);
+        writeFieldIf(generator, "postAggregations", null);
+        writeField(generator, "intervals", ImmutableList.of(interval));
+
+        // Unlike SQL GROUP BY, Druid returns empty buckets unless told not to
+        generator.writeFieldName("context");
+        generator.writeStartObject();
+        generator.writeBooleanField("skipEmptyBuckets", true);
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+        break;
+
+      case TOP_N:
+        generator.writeStartObject();
+
+        generator.writeStringField("queryType", "topN");
+        generator.writeStringField("dataSource", druidTable.dataSource);
+        generator.writeStringField("granularity", granularity);
+        generator.writeStringField("dimension", dimensions.get(0));
+        generator.writeStringField("metric", topNMetric);
+        writeFieldIf(generator, "filter", jsonFilter);
+        writeField(generator, "aggregations", aggregations);
+        writeFieldIf(generator, "postAggregations", null);
+        writeField(generator, "intervals", ImmutableList.of(interval));
+        generator.writeNumberField("threshold", fetch);
+
+        generator.writeEndObject();
+        break;
+
       case SELECT:
         generator.writeStartObject();
 
         generator.writeStringField("queryType", "select");
         generator.writeStringField("dataSource", druidTable.dataSource);
         generator.writeStringField("descending", "false");
-        writeField(generator, "intervals",
-            ImmutableList.of(druidTable.interval));
+        writeField(generator, "intervals", ImmutableList.of(interval));
         writeFieldIf(generator, "filter", jsonFilter);
         writeField(generator, "dimensions", translator.dimensions);
         writeField(generator, "metrics", translator.metrics);
         generator.writeStringField("granularity", "all");
-
-        generator.writeFieldName("pagingSpec");
-        generator.writeStartObject();
-        final int fetch =
-            Integer.parseInt(
-                CalciteConnectionProperty.DRUID_FETCH.wrap(new Properties())
-                    .getString());
-        generator.writeNumberField("threshold", fetch);
-        generator.writeEndObject();
+        writePagingSpec(generator, null, -1, druidFetch());
 
         generator.writeEndObject();
         break;
@@ -420,6 +547,80 @@ private QuerySpec getQuery(RelDataType rowType, RexNode filter,
     return new QuerySpec(queryType, sw.toString(), fieldNames);
   }
 
+  /** Splits a filter into conditions on the timestamp column, which become
+   * the interval of the query, and other conditions, which remain as a
+   * filter.
+   *
+   * <p>Returns the interval and the remaining filter, which may be null. */
+  private Pair<String, RexNode> splitInterval(RelDataType rowType,
+      RexNode filter) {
+    DruidDateTimeUtils.Interval interval =
+        DruidDateTimeUtils.Interval.parse(druidTable.interval);
+    if (interval == null) {
+      return Pair.of(druidTable.interval, filter);
+    }
+    boolean restricted = false;
+    final List<RexNode> remaining = new ArrayList<>();
+    for (RexNode e : RelOptUtil.conjunctions(filter)) {
+      final DruidDateTimeUtils.Interval interval2 =
+          restrictInterval(interval, rowType, e);
+      if (interval2 == null) {
+        remaining.add(e);
+      } else {
+        interval = interval2;
+        restricted = true;
+      }
+    }
+    if (!restricted) {
+      return Pair.of(druidTable.interval, filter);
+    }
+    return Pair.of(interval.toString(),
+        RexUtil.composeConjunction(getCluster().getRexBuilder(), remaining,
+            true));
+  }
+
+  /** If a condition compares the timestamp column, cast to TIMESTAMP or
+   * DATE, with a constant, returns an interval restricted accordingly;
+   * otherwise returns null. */
+  private DruidDateTimeUtils.Interval restrictInterval(
+      DruidDateTimeUtils.Interval interval, RelDataType rowType, RexNode e) {
+    switch (e.getKind()) {
+    case EQUALS:
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL:
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL:
+      final List<RexNode> operands = ((RexCall) e).getOperands();
+      long precision = DruidDateTimeUtils.timestampPrecision(operands.get(0),
+          rowType, druidTable);
+      if (precision > 0L) {
+        final Long millis = DruidDateTimeUtils.literalMillis(operands.get(1));
+        if (millis != null) {
+          return interval.restrict(e.getKind(), millis, precision);
+        }
+        return null;
+      }
+      precision = DruidDateTimeUtils.timestampPrecision(operands.get(1),
+          rowType, druidTable);
+      if (precision > 0L) {
+        final Long millis = DruidDateTimeUtils.literalMillis(operands.get(0));
+        if (millis != null) {
+          return interval.restrict(e.getKind().reverse(), millis, precision);
+        }
+      }
+      return null;
+    default:
+      return null;
+    }
+  }
+
+  /** Returns the number of rows in the first page of a "select" query. */
+  static int druidFetch() {
+    return Integer.parseInt(
+        CalciteConnectionProperty.DRUID_FETCH.wrap(new Properties())
+            .getString());
+  }
+
   private JsonAggregation getJsonAggregation(List<String> fieldNames,
       String name, AggregateCall aggCall) {
     final List<String> list = new ArrayList<>();
@@ -446,6 +647,33 @@ private JsonAggregation getJsonAggregation(List<String> fieldNames,
     }
   }
 
+  private static boolean isDescending(RelFieldCollation fieldCollation) {
+    switch (fieldCollation.getDirection()) {
+    case DESCENDING:
+    case STRICTLY_DESCENDING:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /** Writes the "pagingSpec" field of a "select" query. If
+   * {@code pagingIdentifier} is not null, the query continues from
+   * {@code offset} in that segment. */
+  private static void writePagingSpec(JsonGenerator generator,
+      String pagingIdentifier, int offset, int threshold) throws IOException {
+    generator.writeFieldName("pagingSpec");
+    generator.writeStartObject();
+    if (pagingIdentifier != null) {
+      generator.writeFieldName("pagingIdentifiers");
+      generator.writeStartObject();
+      generator.writeNumberField(pagingIdentifier, offset);
+      generator.writeEndObject();
+    }
+    generator.writeNumberField("threshold", threshold);
+    generator.writeEndObject();
+  }
+
   private static void writeField(JsonGenerator generator, String fieldName,
       Object o) throws IOException {
     generator.writeFieldName(fieldName);
@@ -482,15 +710,6 @@ private static void writeObject(JsonGenerator generator, Object o)
     }
   }
 
-  static boolean canProjectAll(List<RexNode> nodes) {
-    for (RexNode e : nodes) {
-      if (!(e instanceof RexInputRef)) {
-        return false;
-      }
-    }
-    return true;
-  }
-
   static Pair<List<RexNode>, List<RexNode>> splitProjects(
       final RexBuilder rexBuilder, final RelNode input, List<RexNode> nodes) {
     final RelOptUtil.InputReferencedVisitor visitor =
@@ -553,13 +772,39 @@ public static class QuerySpec {
           + ", fieldNames: " + fieldNames + "}";
     }
 
-    String getQueryString(String pagingIdentifier, int offset) {
-      if (pagingIdentifier == null) {
-        return queryString;
+    /** Returns the query string of the page of a "select" query that
+     * starts at {@code offset} in the segment identified by
+     * {@code pagingIdentifier} (or at the start, if it is null) and contains
+     * at most {@code threshold} rows.
+     *
+     * <p>Copies the query through a {@link JsonGenerator}, replacing its
+     * top-level "pagingSpec" field. */
+    String getQueryString(String pagingIdentifier, int offset,
+        int threshold) {
+      assert queryType == QueryType.SELECT;
+      final StringWriter sw = new StringWriter();
+      try (JsonParser parser =
+               DruidConnectionImpl.FACTORY.createParser(queryString);
+           JsonGenerator generator =
+               DruidConnectionImpl.FACTORY.createGenerator(sw)) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          throw new AssertionError("not an object: " + queryString);
+        }
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          if (parser.getCurrentName().equals("pagingSpec")) {
+            parser.nextToken();
+            parser.skipChildren();
+            writePagingSpec(generator, pagingIdentifier, offset, threshold);
+          } else {
+            generator.copyCurrentStructure(parser);
+          }
+        }
+        generator.writeEndObject();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
       }
-      return queryString.replace("\"threshold\":",
-          "\"pagingIdentifiers\":{\"" + pagingIdentifier + "\":" + offset
-              + "},\"threshold\":");
+      return sw.toString();
     }
   }
 
@@ -591,6 +836,14 @@ String translate(RexNode e) {
       case CAST:
         return tr(e, 0);
 
+      case FLOOR:
+        if (DruidDateTimeUtils.granularity(e, rowType, druidTable) == null) {
+          throw new AssertionError("invalid expression " + e);
+        }
+        // Druid returns the start of each time bucket as the timestamp of
+        // the result row
+        return DruidConnectionImpl.DEFAULT_RESPONSE_TIMESTAMP_COLUMN;
+
       case LITERAL:
         return ((RexLiteral) e).getValue2().toString();
 
@@ -662,15 +915,13 @@ public void run() throws InterruptedException {
       try {
         final DruidConnectionImpl connection =
             new DruidConnectionImpl(query.druidTable.schema.url);
-        final DruidConnectionImpl.Page page = new DruidConnectionImpl.Page();
-        int previousOffset;
-        do {
-          previousOffset = page.offset;
-          final String queryString =
-              querySpec.getQueryString(page.pagingIdentifier, page.offset);
-          connection.request(querySpec.queryType, queryString, sink,
-              querySpec.fieldNames, page);
-        } while (page.pagingIdentifier != null && page.offset > previousOffset);
+        if (querySpec.queryType == QueryType.SELECT) {
+          // "select" is the only query type that returns results in pages
+          connection.requestPages(querySpec, druidFetch(), sink);
+        } else {
+          connection.request(querySpec.queryType, querySpec.queryString,
+              sink, querySpec.fieldNames, new DruidConnectionImpl.Page());
+        }
       } catch (IOException e) {
         throw Throwables.propagate(e);
       }
@@ -723,6 +974,53 @@ public void write(JsonGenerator generator) throws IOException {
     }
   }
 
+  /** Collation element of a Druid "groupBy" query's "limitSpec". */
+  private static class JsonCollation implements Json {
+    final String dimension;
+    final String direction;
+
+    private JsonCollation(String dimension, String direction) {
+      this.dimension = dimension;
+      this.direction = direction;
+    }
+
+    public void write(JsonGenerator generator) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("dimension", dimension);
+      generator.writeStringField("direction", direction);
+      generator.writeEndObject();
+    }
+  }
+
+  /** "limitSpec" element of a Druid "groupBy" query. */
+  private static class JsonLimit implements Json {
+    final Integer limit;
+    final List<JsonCollation> collations;
+
+    private JsonLimit(Integer limit, List<String> fieldNames,
+        List<RelFieldCollation> fieldCollations) {
+      this.limit = limit;
+      final ImmutableList.Builder<JsonCollation> builder =
+          ImmutableList.builder();
+      for (RelFieldCollation fieldCollation : fieldCollations) {
+        builder.add(
+            new JsonCollation(fieldNames.get(fieldCollation.getFieldIndex()),
+                isDescending(fieldCollation) ? "descending" : "ascending"));
+      }
+      this.collations = builder.build();
+    }
+
+    public void write(JsonGenerator generator) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("type", "default");
+      if (limit != null) {
+        generator.writeNumberField("limit", limit);
+      }
+      writeField(generator, "columns", collations);
+      generator.writeEndObject();
+    }
+  }
+
   /** Filter element of a Druid "groupBy" or "topN" query. */
   private abstract static class JsonFilter implements Json {
     final String type;
@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.adapter.druid;
 
+import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.rel.RelNode;
@@ -23,9 +24,11 @@
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 import org.apache.calcite.util.trace.CalciteTrace;
@@ -49,7 +52,8 @@ private DruidRules() {}
   public static final List<RelOptRule> RULES = ImmutableList.of(
       new DruidAggregateRule(),
       new DruidProjectRule(),
-      new DruidFilterRule());
+      new DruidFilterRule(),
+      new DruidSortRule());
 
   /** Predicate that returns whether Druid can not handle an aggregate. */
   private static final Predicate<AggregateCall> BAD_AGG =
@@ -90,6 +94,17 @@ public void onMatch(RelOptRuleCall call) {
       if (!DruidQuery.isValidSignature(query.signature() + 'a')) {
         return;
       }
+      final ImmutableBitSet timeBuckets = timeBuckets(query);
+      if (timeBuckets.intersect(aggregate.getGroupSet()).cardinality() > 1) {
+        // Druid can only bucket by one time granularity
+        return;
+      }
+      for (AggregateCall aggCall : aggregate.getAggCallList()) {
+        if (timeBuckets.intersects(ImmutableBitSet.of(aggCall.getArgList()))) {
+          // Druid cannot aggregate FLOOR(timestamp TO unit)
+          return;
+        }
+      }
       final RelNode newAggregate = aggregate.copy(aggregate.getTraitSet(),
           ImmutableList.of(Util.last(query.rels)));
       call.transformTo(extendQuery(query, newAggregate));
@@ -113,7 +128,7 @@ public void onMatch(RelOptRuleCall call) {
       if (!DruidQuery.isValidSignature(query.signature() + 'p')) {
         return;
       }
-      if (DruidQuery.canProjectAll(project.getProjects())) {
+      if (query.canProjectAll(project.getProjects())) {
         // All expressions can be pushed to Druid in their entirety.
         final RelNode newProject = project.copy(project.getTraitSet(),
             ImmutableList.of(Util.last(query.rels)));
@@ -176,6 +191,64 @@ public void onMatch(RelOptRuleCall call) {
     }
   }
 
+  /**
+   * Rule to push a {@link org.apache.calcite.rel.core.Sort} (with or without
+   * a limit) into a {@link DruidQuery} that contains an aggregate.
+   *
+   * <p>The sort becomes a "limitSpec" in a Druid "groupBy" query, or, if
+   * there is one dimension and the sort is on a metric, descending, with a
+   * limit, a Druid "topN" query.
+   */
+  private static class DruidSortRule extends RelOptRule {
+    private DruidSortRule() {
+      super(
+          operand(Sort.class,
+              operand(DruidQuery.class, none())));
+    }
+
+    public void onMatch(RelOptRuleCall call) {
+      final Sort sort = call.rel(0);
+      final DruidQuery query = call.rel(1);
+      if (!DruidQuery.isValidSignature(query.signature() + 'l')
+          || sort.offset != null) {
+        // Druid cannot skip rows
+        return;
+      }
+      final Aggregate aggregate = (Aggregate) Util.last(query.rels);
+      if (timeBuckets(query).intersects(aggregate.getGroupSet())) {
+        // Druid would sort and limit within each time bucket
+        return;
+      }
+      final RelNode newSort = sort.copy(sort.getTraitSet(),
+          ImmutableList.of(Util.last(query.rels)));
+      call.transformTo(
+          DruidQuery.create(query.getCluster(),
+              query.getTraitSet().replace(sort.getCollation()),
+              query.getTable(), query.druidTable,
+              ImmutableList.<RelNode>builder().addAll(query.rels)
+                  .add(newSort).build()));
+    }
+  }
+
+  /** Returns the fields of a query's project that are
+   * {@code FLOOR(timestamp TO unit)}, which Druid implements as time
+   * buckets rather than as dimensions. */
+  private static ImmutableBitSet timeBuckets(DruidQuery query) {
+    final ImmutableBitSet.Builder builder = ImmutableBitSet.builder();
+    for (RelNode rel : query.rels) {
+      if (rel instanceof Project) {
+        final Project project = (Project) rel;
+        for (Ord<RexNode> e : Ord.zip(project.getProjects())) {
+          if (DruidDateTimeUtils.granularity(e.e,
+              project.getInput().getRowType(), query.druidTable) != null) {
+            builder.set(e.i);
+          }
+        }
+      }
+    }
+    return builder.build();
+  }
+
   public static DruidQuery extendQuery(DruidQuery query, RelNode r) {
     final ImmutableList.Builder<RelNode> builder = ImmutableList.builder();
     return DruidQuery.create(query.getCluster(), query.getTraitSet(),
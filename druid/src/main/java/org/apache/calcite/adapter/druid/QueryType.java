@@ -20,7 +20,8 @@
 enum QueryType {
   SELECT,
   TOP_N,
-  GROUP_BY
+  GROUP_BY,
+  TIMESERIES
 }
 
 // End QueryType.java
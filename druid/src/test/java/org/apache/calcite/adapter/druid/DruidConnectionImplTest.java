@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.druid;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the paging of "select" queries in
+ * {@link DruidConnectionImpl} and {@link DruidQuery.QuerySpec}.
+ */
+public class DruidConnectionImplTest {
+  private static final String SEGMENT =
+      "foodmart_1997-01-01T00:00:00.000Z_1998-01-01T00:00:00.000Z"
+      + "_2016-05-04T10:22:31.123Z";
+
+  /** Start of a "select" query, up to its "pagingSpec". */
+  private static final String SELECT_PREFIX = "{\"queryType\":\"select\","
+      + "\"dataSource\":\"foodmart\",\"descending\":\"false\","
+      + "\"intervals\":[\"1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z\"],"
+      + "\"filter\":{\"type\":\"selector\",\"dimension\":\"state_province\","
+      + "\"value\":\"CA\"},"
+      + "\"dimensions\":[\"state_province\",\"city\"],\"metrics\":[],"
+      + "\"granularity\":\"all\",";
+
+  private static DruidQuery.QuerySpec select(int threshold) {
+    return new DruidQuery.QuerySpec(QueryType.SELECT,
+        SELECT_PREFIX + "\"pagingSpec\":{\"threshold\":" + threshold + "}}",
+        ImmutableList.of("state_province", "city"));
+  }
+
+  @Test public void testNextThreshold() {
+    final int target = DruidConnectionImpl.TARGET_PAGE_BYTES;
+    // size unknown; keep the threshold
+    assertThat(DruidConnectionImpl.nextThreshold(16384, 0), is(16384));
+    // page was the right size
+    assertThat(DruidConnectionImpl.nextThreshold(1000, target), is(1000));
+    // page was too small or too large
+    assertThat(DruidConnectionImpl.nextThreshold(1000, target / 2), is(2000));
+    assertThat(DruidConnectionImpl.nextThreshold(1000, target * 4L), is(250));
+    // clamped to [MIN_THRESHOLD, MAX_THRESHOLD]
+    assertThat(DruidConnectionImpl.nextThreshold(1000, 1L << 40),
+        is(DruidConnectionImpl.MIN_THRESHOLD));
+    assertThat(DruidConnectionImpl.nextThreshold(16384, 1),
+        is(DruidConnectionImpl.MAX_THRESHOLD));
+    // a page larger than 2GB does not overflow
+    assertThat(DruidConnectionImpl.nextThreshold(1000000, 8L << 30),
+        is(488));
+  }
+
+  /** Tests that the first page of a query keeps the threshold that it was
+   * generated with, and that the threshold of later pages can change. */
+  @Test public void testQueryStringThreshold() {
+    final DruidQuery.QuerySpec querySpec = select(16384);
+    assertThat(querySpec.getQueryString(null, -1, 16384),
+        is(querySpec.queryString));
+    assertThat(querySpec.getQueryString(null, -1, 500),
+        is(SELECT_PREFIX + "\"pagingSpec\":{\"threshold\":500}}"));
+  }
+
+  /** Tests that the paging identifier read from the head of a response is
+   * sent in the query for the next page. */
+  @Test public void testPagingIdentifierRoundTrip() throws IOException {
+    final String response = "[{\"timestamp\":\"1997-01-01T00:00:00.000Z\","
+        + "\"result\":{\"pagingIdentifiers\":{\"" + SEGMENT + "\":4},"
+        + "\"events\":[]}}]";
+    final DruidConnectionImpl.Page page = new DruidConnectionImpl.Page();
+    try (JsonParser parser =
+             DruidConnectionImpl.FACTORY.createParser(response)) {
+      assertThat(DruidConnectionImpl.parseSelectHeader(parser, page), is(true));
+    }
+    assertThat(page.pagingIdentifier, is(SEGMENT));
+    assertThat(page.offset, is(4));
+
+    final String query =
+        select(16384).getQueryString(page.pagingIdentifier, page.offset, 2000);
+    assertThat(query,
+        is(SELECT_PREFIX + "\"pagingSpec\":{\"pagingIdentifiers\":{\""
+            + SEGMENT + "\":4},\"threshold\":2000}}"));
+
+    // The next query has the same paging identifiers as the response
+    final String query2 =
+        select(16384).getQueryString(page.pagingIdentifier, 9, 2000);
+    final String pagingSpec =
+        query2.substring(query2.indexOf("\"pagingIdentifiers\""));
+    assertThat(pagingSpec,
+        is("\"pagingIdentifiers\":{\"" + SEGMENT + "\":9},"
+            + "\"threshold\":2000}}"));
+  }
+
+  /** Tests a response that has no paging identifiers; it is the last
+   * page. */
+  @Test public void testNoPagingIdentifier() throws IOException {
+    final String response = "[{\"timestamp\":\"1997-01-01T00:00:00.000Z\","
+        + "\"result\":{\"pagingIdentifiers\":{},\"events\":[]}}]";
+    final DruidConnectionImpl.Page page = new DruidConnectionImpl.Page();
+    page.pagingIdentifier = SEGMENT;
+    page.offset = 4;
+    try (JsonParser parser =
+             DruidConnectionImpl.FACTORY.createParser(response)) {
+      assertThat(DruidConnectionImpl.parseSelectHeader(parser, page), is(true));
+    }
+    assertThat(page.pagingIdentifier, nullValue());
+    assertThat(page.offset, is(-1));
+
+    try (JsonParser parser = DruidConnectionImpl.FACTORY.createParser("[]")) {
+      assertThat(DruidConnectionImpl.parseSelectHeader(parser, page),
+          is(false));
+    }
+  }
+
+  /** Tests that a paging identifier that needs escaping survives the trip
+   * into the query string. */
+  @Test public void testPagingIdentifierEscaped() throws IOException {
+    final String id = "a\"b\\c";
+    final String query = select(100).getQueryString(id, 0, 100);
+    try (JsonParser parser = DruidConnectionImpl.FACTORY.createParser(
+        "[{\"timestamp\":\"1997-01-01T00:00:00.000Z\",\"result\":"
+            + query.substring(query.indexOf("{\"pagingIdentifiers\""),
+                query.length() - 1)
+            + "}]")) {
+      final DruidConnectionImpl.Page page = new DruidConnectionImpl.Page();
+      assertThat(DruidConnectionImpl.parseSelectHeader(parser, page), is(true));
+      assertThat(page.pagingIdentifier, is(id));
+      assertThat(page.offset, is(0));
+    }
+  }
+}
+
+// End DruidConnectionImplTest.java
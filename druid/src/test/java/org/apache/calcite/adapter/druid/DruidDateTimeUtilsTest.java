@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.druid;
+
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.avatica.util.DateTimeUtils;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link DruidDateTimeUtils}.
+ */
+public class DruidDateTimeUtilsTest {
+  private static final String MIN = "1900-01-09T00:00:00.000Z";
+  private static final String MAX = "2992-01-10T00:00:00.000Z";
+
+  private final DruidDateTimeUtils.Interval all =
+      DruidDateTimeUtils.Interval.parse(MIN + "/" + MAX);
+
+  private String restrict(SqlKind op, String value, long precision) {
+    final long millis = DruidDateTimeUtils.toMillis(value);
+    return all.restrict(op, millis, precision).toString();
+  }
+
+  /** Tests comparisons with a TIMESTAMP, precise to the millisecond. */
+  @Test public void testRestrictTimestamp() {
+    final String t = "1997-04-01T10:00:00.000Z";
+    final String t1 = "1997-04-01T10:00:00.001Z";
+    assertThat(restrict(SqlKind.EQUALS, t, 1L), is(t + "/" + t1));
+    assertThat(restrict(SqlKind.LESS_THAN, t, 1L), is(MIN + "/" + t));
+    assertThat(restrict(SqlKind.LESS_THAN_OR_EQUAL, t, 1L),
+        is(MIN + "/" + t1));
+    assertThat(restrict(SqlKind.GREATER_THAN, t, 1L), is(t1 + "/" + MAX));
+    assertThat(restrict(SqlKind.GREATER_THAN_OR_EQUAL, t, 1L),
+        is(t + "/" + MAX));
+  }
+
+  /** Tests comparisons with a DATE; each bound covers whole days. */
+  @Test public void testRestrictDate() {
+    final long day = DateTimeUtils.MILLIS_PER_DAY;
+    final String d = "1997-04-01T00:00:00.000Z";
+    final String d1 = "1997-04-02T00:00:00.000Z";
+    assertThat(restrict(SqlKind.EQUALS, d, day), is(d + "/" + d1));
+    assertThat(restrict(SqlKind.LESS_THAN, d, day), is(MIN + "/" + d));
+    assertThat(restrict(SqlKind.LESS_THAN_OR_EQUAL, d, day),
+        is(MIN + "/" + d1));
+    assertThat(restrict(SqlKind.GREATER_THAN, d, day), is(d1 + "/" + MAX));
+    assertThat(restrict(SqlKind.GREATER_THAN_OR_EQUAL, d, day),
+        is(d + "/" + MAX));
+  }
+
+  /** Tests comparisons of a DATE with a value that is not midnight, as in
+   * {@code CAST(CAST(t AS DATE) AS TIMESTAMP) op TIMESTAMP '... 10:00:00'}.
+   * No date equals the value. */
+  @Test public void testRestrictDateNotMidnight() {
+    final long day = DateTimeUtils.MILLIS_PER_DAY;
+    final String t = "1997-04-01T10:00:00.000Z";
+    final String d1 = "1997-04-02T00:00:00.000Z";
+    assertThat(restrict(SqlKind.EQUALS, t, day), is(MIN + "/" + MIN));
+    assertThat(restrict(SqlKind.LESS_THAN, t, day), is(MIN + "/" + d1));
+    assertThat(restrict(SqlKind.LESS_THAN_OR_EQUAL, t, day),
+        is(MIN + "/" + d1));
+    assertThat(restrict(SqlKind.GREATER_THAN, t, day), is(d1 + "/" + MAX));
+    assertThat(restrict(SqlKind.GREATER_THAN_OR_EQUAL, t, day),
+        is(d1 + "/" + MAX));
+  }
+
+  /** Tests which expressions are recognized as the timestamp column. */
+  @Test public void testTimestampPrecision() {
+    final JavaTypeFactory typeFactory = new JavaTypeFactoryImpl();
+    final RexBuilder rexBuilder = new RexBuilder(typeFactory);
+    final RelDataType varchar =
+        typeFactory.createSqlType(SqlTypeName.VARCHAR, 30);
+    final RelDataType timestamp =
+        typeFactory.createSqlType(SqlTypeName.TIMESTAMP);
+    final RelDataType date = typeFactory.createSqlType(SqlTypeName.DATE);
+    final RelDataType rowType = typeFactory.builder()
+        .add("the_date", varchar)
+        .add("city", varchar)
+        .build();
+    final DruidTable table =
+        new DruidTable(new DruidSchema("http://localhost:8082"), "foodmart",
+            null, ImmutableSet.<String>of(), MIN + "/" + MAX, "the_date");
+    final RexNode ref = rexBuilder.makeInputRef(varchar, 0);
+    final RexNode other = rexBuilder.makeInputRef(varchar, 1);
+
+    assertThat(precision(ref, rowType, table), is(-1L));
+    assertThat(precision(rexBuilder.makeCast(timestamp, ref), rowType, table),
+        is(1L));
+    assertThat(precision(rexBuilder.makeCast(date, ref), rowType, table),
+        is(DateTimeUtils.MILLIS_PER_DAY));
+    assertThat(
+        precision(
+            rexBuilder.makeCast(timestamp, rexBuilder.makeCast(date, ref)),
+            rowType, table),
+        is(DateTimeUtils.MILLIS_PER_DAY));
+    assertThat(
+        precision(
+            rexBuilder.makeCast(typeFactory.createSqlType(SqlTypeName.CHAR, 30),
+                ref),
+            rowType, table),
+        is(-1L));
+    assertThat(
+        precision(rexBuilder.makeCast(timestamp, other), rowType, table),
+        is(-1L));
+  }
+
+  private static long precision(RexNode e, RelDataType rowType,
+      DruidTable table) {
+    return DruidDateTimeUtils.timestampPrecision(e, rowType, table);
+  }
+}
+
+// End DruidDateTimeUtilsTest.java
@@ -55,7 +55,7 @@
  * <p>Features not yet implemented:
  * <ul>
  *   <li>push LIMIT into "select" query</li>
- *   <li>push SORT and/or LIMIT into "groupBy" query</li>
+ *   <li>push OFFSET into "groupBy" query</li>
  *   <li>push HAVING into "groupBy" query</li>
  * </ul>
  */
@@ -201,13 +201,14 @@ private CalciteAssert.AssertQuery wiki(String sql) {
   }
 
   @Test public void testSort() {
-    // Note: We do not push down SORT yet
     final String explain = "PLAN="
         + "EnumerableInterpreter\n"
-        + "  BindableSort(sort0=[$1], sort1=[$0], dir0=[ASC], dir1=[DESC])\n"
-        + "    DruidQuery(table=[[foodmart, foodmart]], projects=[[$38, $29]], groups=[{0, 1}], aggs=[[]])";
+        + "  DruidQuery(table=[[foodmart, foodmart]], projects=[[$38, $29]], groups=[{0, 1}], aggs=[[]], sort=[[1, 0 DESC]])";
     final String sql = "select distinct \"gender\", \"state_province\"\n"
         + "from \"foodmart\" order by 2, 1 desc";
+    final String druidQuery = "'limitSpec':{'type':'default','columns':["
+        + "{'dimension':'state_province','direction':'ascending'},"
+        + "{'dimension':'gender','direction':'descending'}]}";
     sql(sql)
         .returnsOrdered("gender=M; state_province=CA",
             "gender=F; state_province=CA",
@@ -215,11 +216,12 @@ private CalciteAssert.AssertQuery wiki(String sql) {
             "gender=F; state_province=OR",
             "gender=M; state_province=WA",
             "gender=F; state_province=WA")
-        .explainContains(explain);
+        .explainContains(explain)
+        .queryContains(druidChecker(druidQuery));
   }
 
   @Test public void testSortLimit() {
-    // Note: We do not push down SORT-LIMIT into Druid "groupBy" query yet
+    // Note: Druid "groupBy" query cannot skip rows, so OFFSET stays in Calcite
     final String explain = "PLAN="
         + "EnumerableInterpreter\n"
         + "  BindableSort(sort0=[$1], sort1=[$0], dir0=[ASC], dir1=[DESC], offset=[2], fetch=[3])\n"
@@ -263,17 +265,16 @@ private CalciteAssert.AssertQuery wiki(String sql) {
   }
 
   @Test public void testGroupByLimit() {
-    // We do not yet push LIMIT into a Druid "groupBy" query.
     final String sql = "select distinct \"gender\", \"state_province\"\n"
         + "from \"foodmart\" fetch next 3 rows only";
     final String druidQuery = "{'queryType':'groupBy','dataSource':'foodmart',"
         + "'granularity':'all','dimensions':['gender','state_province'],"
+        + "'limitSpec':{'type':'default','limit':3,'columns':[]},"
         + "'aggregations':[{'type':'longSum','name':'unit_sales','fieldName':'unit_sales'}],"
         + "'intervals':['1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z']}";
     final String explain = "PLAN="
-        + "EnumerableLimit(fetch=[3])\n"
-        + "  EnumerableInterpreter\n"
-        + "    DruidQuery(table=[[foodmart, foodmart]], projects=[[$38, $29]], groups=[{0, 1}], aggs=[[]])";
+        + "EnumerableInterpreter\n"
+        + "  DruidQuery(table=[[foodmart, foodmart]], projects=[[$38, $29]], groups=[{0, 1}], aggs=[[]], sort=[[]], fetch=[3])";
     sql(sql)
         .runs()
         .explainContains(explain)
@@ -435,8 +436,7 @@ public Void apply(ResultSet resultSet) {
         + "group by \"state_province\"\n"
         + "order by \"state_province\"";
     String explain = "PLAN=EnumerableInterpreter\n"
-        + "  BindableSort(sort0=[$0], dir0=[ASC])\n"
-        + "    DruidQuery(table=[[foodmart, foodmart]], groups=[{29}], aggs=[[COUNT()]])";
+        + "  DruidQuery(table=[[foodmart, foodmart]], groups=[{29}], aggs=[[COUNT()]], sort=[[0]])";
     sql(sql)
         .limit(2)
         .returnsOrdered("state_province=CA; C=24441",
@@ -638,6 +638,116 @@ public Void apply(ResultSet resultSet) {
             "state_province=WA; city=Yakima; product_name=High Top Dried Mushrooms",
             "state_province=WA; city=Yakima; product_name=High Top Dried Mushrooms");
   }
+
+  /** Tests that conditions on the timestamp column become the "intervals" of
+   * the Druid query, and other conditions remain a filter. */
+  @Test public void testFilterTimestampInterval() {
+    final String sql = "select \"state_province\", count(*) as c\n"
+        + "from \"foodmart\"\n"
+        + "where cast(\"the_date\" as timestamp)\n"
+        + "  >= timestamp '1997-04-01 00:00:00'\n"
+        + "and cast(\"the_date\" as timestamp)\n"
+        + "  < timestamp '1997-05-01 00:00:00'\n"
+        + "and \"state_province\" = 'WA'\n"
+        + "group by \"state_province\"";
+    final String druidQuery = "'filter':{'type':'selector',"
+        + "'dimension':'state_province','value':'WA'},"
+        + "'aggregations':[{'type':'count','name':'C'}],"
+        + "'intervals':['1997-04-01T00:00:00.000Z/1997-05-01T00:00:00.000Z']";
+    sql(sql)
+        .runs()
+        .queryContains(druidChecker(druidQuery));
+  }
+
+  /** Tests that a comparison of the timestamp column cast to DATE becomes an
+   * interval of whole days. */
+  @Test public void testFilterDateInterval() {
+    final String min = "1900-01-09T00:00:00.000Z";
+    final String max = "2992-01-10T00:00:00.000Z";
+    final String day = "1997-04-01T00:00:00.000Z";
+    final String nextDay = "1997-04-02T00:00:00.000Z";
+    final String[][] operatorIntervals = {
+      {"=", day + "/" + nextDay},
+      {"<", min + "/" + day},
+      {"<=", min + "/" + nextDay},
+      {">", nextDay + "/" + max},
+      {">=", day + "/" + max},
+    };
+    for (String[] operatorInterval : operatorIntervals) {
+      final String sql = "select count(*) as c\n"
+          + "from \"foodmart\"\n"
+          + "where cast(\"the_date\" as date) " + operatorInterval[0]
+          + " date '1997-04-01'";
+      sql(sql)
+          .runs()
+          .queryContains(
+              druidChecker("'intervals':['" + operatorInterval[1] + "']"));
+    }
+  }
+
+  /** Tests that a comparison of the timestamp column as a string, or cast to
+   * another string type, does not become an interval. Strings do not compare
+   * as instants do. */
+  @Test public void testFilterStringTimestampNotInterval() {
+    final String sql = "select count(*) as c\n"
+        + "from \"foodmart\"\n"
+        + "where cast(\"the_date\" as varchar(30)) <= '1997-04-01'";
+    sql(sql)
+        .runs()
+        .queryContains(
+            druidChecker(
+                "'intervals':['1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z']"));
+  }
+
+  /** Tests that ORDER BY a metric DESC with LIMIT on a single dimension is
+   * executed as a Druid "topN" query. */
+  @Test public void testGroupBySortLimitTopN() {
+    final String sql = "select \"brand_name\", sum(\"unit_sales\") as s\n"
+        + "from \"foodmart\"\n"
+        + "group by \"brand_name\"\n"
+        + "order by s desc limit 3";
+    final String druidQuery = "{'queryType':'topN','dataSource':'foodmart',"
+        + "'granularity':'all','dimension':'brand_name','metric':'S',"
+        + "'aggregations':[{'type':'longSum','name':'S','fieldName':'unit_sales'}],"
+        + "'intervals':['1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z'],"
+        + "'threshold':3}";
+    sql(sql)
+        .runs()
+        .queryContains(druidChecker(druidQuery));
+  }
+
+  /** Tests that grouping by FLOOR of the timestamp column becomes the
+   * granularity of a Druid "timeseries" query. */
+  @Test public void testGroupByMonthGranularity() {
+    final String sql = "select floor(cast(\"the_date\" as timestamp) to month) as m,\n"
+        + " sum(\"unit_sales\") as s\n"
+        + "from \"foodmart\"\n"
+        + "group by floor(cast(\"the_date\" as timestamp) to month)";
+    final String druidQuery = "{'queryType':'timeseries','dataSource':'foodmart',"
+        + "'descending':false,'granularity':'month',"
+        + "'aggregations':[{'type':'longSum','name':'S','fieldName':'unit_sales'}],"
+        + "'intervals':['1900-01-09T00:00:00.000Z/2992-01-10T00:00:00.000Z'],"
+        + "'context':{'skipEmptyBuckets':true}}";
+    sql(sql)
+        .runs()
+        .queryContains(druidChecker(druidQuery));
+  }
+
+  /** As {@link #testGroupByMonthGranularity} but also grouping by a
+   * dimension, and therefore a Druid "groupBy" query. */
+  @Test public void testGroupByDayGranularityAndDimension() {
+    final String sql = "select \"state_province\",\n"
+        + " floor(cast(\"the_date\" as timestamp) to day) as d,\n"
+        + " count(*) as c\n"
+        + "from \"foodmart\"\n"
+        + "group by \"state_province\",\n"
+        + " floor(cast(\"the_date\" as timestamp) to day)";
+    final String druidQuery = "{'queryType':'groupBy','dataSource':'foodmart',"
+        + "'granularity':'day','dimensions':['state_province']";
+    sql(sql)
+        .runs()
+        .queryContains(druidChecker(druidQuery));
+  }
 }
 
 // End DruidAdapterIT.java
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.elasticsearch;
+
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.linq4j.Ord;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Util;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link org.apache.calcite.rel.core.Aggregate}
+ * relational expression in Elasticsearch.
+ *
+ * <p>Each GROUP BY key becomes a level of nested "terms" aggregations, with
+ * a sibling "missing" aggregation for documents that have no value for the
+ * key; the aggregate functions become metric aggregations inside the
+ * innermost level. No hits are returned.</p>
+ *
+ * <p>The result is a list of buckets, not of hits, so no other Elasticsearch
+ * operation can be applied to it. Therefore this relational expression is
+ * in {@link EnumerableConvention enumerable convention} and issues the
+ * query itself, rather than in {@link ElasticsearchRel#CONVENTION}.</p>
+ */
+public class ElasticsearchAggregate extends Aggregate implements EnumerableRel {
+  /** Suffix of the name of the "missing" aggregation that accompanies each
+   * "terms" aggregation. */
+  static final String MISSING_SUFFIX = "$missing";
+
+  /** For each field of the input, the name of the Elasticsearch field it
+   * reads, or null if it is not a plain field. */
+  final ImmutableList<String> inputFields;
+
+  public ElasticsearchAggregate(RelOptCluster cluster, RelTraitSet traitSet, RelNode child,
+      boolean indicator, ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets,
+      List<AggregateCall> aggCalls, List<String> inputFields) throws InvalidRelException {
+    super(cluster, traitSet, child, indicator, groupSet, groupSets, aggCalls);
+    this.inputFields = ImmutableList.copyOf(inputFields);
+    assert getConvention() == EnumerableConvention.INSTANCE;
+    assert child.getConvention() == ElasticsearchRel.CONVENTION;
+
+    if (getGroupType() != Group.SIMPLE) {
+      throw new InvalidRelException("unsupported group type: " + getGroupType());
+    }
+    for (int key : groupSet) {
+      if (inputFields.get(key) == null) {
+        throw new InvalidRelException("GROUP BY must be on a field");
+      }
+    }
+    for (AggregateCall aggCall : aggCalls) {
+      if (aggCall.isDistinct() || aggCall.filterArg >= 0) {
+        throw new InvalidRelException("unsupported aggregate: " + aggCall);
+      }
+      for (int arg : aggCall.getArgList()) {
+        if (inputFields.get(arg) == null) {
+          throw new InvalidRelException("aggregate argument must be a field");
+        }
+      }
+    }
+  }
+
+  @Override public Aggregate copy(RelTraitSet traitSet, RelNode input, boolean indicator,
+      ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+    try {
+      return new ElasticsearchAggregate(getCluster(), traitSet, input, indicator, groupSet,
+          groupSets, aggCalls, inputFields);
+    } catch (InvalidRelException e) {
+      // Semantic error not possible. Must be a bug. Convert to
+      // internal error.
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+    return super.computeSelfCost(planner, mq).multiplyBy(0.1);
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw).item("fields", inputFields);
+  }
+
+  @Override public Result implement(EnumerableRelImplementor implementor, Prefer prefer) {
+    final ElasticsearchRel.Implementor elasticsearchImplementor =
+        new ElasticsearchRel.Implementor();
+    elasticsearchImplementor.visitChild(0, getInput());
+    final List<String> outNames = ElasticsearchRules.elasticsearchFieldNames(getRowType());
+
+    final List<String> metrics = new ArrayList<>();
+    for (Ord<AggregateCall> aggCall : Ord.zip(aggCalls)) {
+      final String name = outNames.get(groupSet.cardinality() + aggCall.i);
+      metrics.add(ElasticsearchRules.quote(name) + ": " + toElasticsearch(aggCall.e));
+    }
+
+    // Build the nested "terms" aggregations from the innermost outwards
+    String aggregations = Util.toString(metrics, "", ", ", "");
+    final List<Integer> keys = groupSet.asList();
+    for (int i = keys.size() - 1; i >= 0; i--) {
+      final String name = outNames.get(i);
+      final String field = ElasticsearchRules.quote(inputFields.get(keys.get(i)));
+      final String sub = aggregations.isEmpty()
+          ? ""
+          : ", \"aggregations\": {" + aggregations + "}";
+      // "size": 0 returns all terms, not just the 10 most frequent
+      aggregations = ElasticsearchRules.quote(name)
+          + ": {\"terms\": {\"field\": " + field + ", \"size\": 0}" + sub + "}, "
+          + ElasticsearchRules.quote(name + MISSING_SUFFIX)
+          + ": {\"missing\": {\"field\": " + field + "}" + sub + "}";
+    }
+
+    elasticsearchImplementor.add("\"size\": 0");
+    elasticsearchImplementor.add("\"aggregations\": {" + aggregations + "}");
+    return ElasticsearchToEnumerableConverter.implement(implementor, prefer,
+        getRowType(), elasticsearchImplementor);
+  }
+
+  private String toElasticsearch(AggregateCall aggCall) {
+    final String field = aggCall.getArgList().isEmpty()
+        ? null
+        : ElasticsearchRules.quote(inputFields.get(aggCall.getArgList().get(0)));
+    switch (aggCall.getAggregation().getKind()) {
+    case COUNT:
+      if (field == null) {
+        return "{\"filter\": {\"match_all\": {}}}";
+      }
+      return "{\"value_count\": {\"field\": " + field + "}}";
+    case SUM:
+      // "stats" tells us whether there were any values to sum
+      return "{\"stats\": {\"field\": " + field + "}}";
+    case MIN:
+      return "{\"min\": {\"field\": " + field + "}}";
+    case MAX:
+      return "{\"max\": {\"field\": " + field + "}}";
+    case AVG:
+      return "{\"avg\": {\"field\": " + field + "}}";
+    default:
+      throw new AssertionError("unknown aggregate " + aggCall);
+    }
+  }
+}
+
+// End ElasticsearchAggregate.java
@@ -21,9 +21,20 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.Primitive;
 
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.missing.Missing;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -67,7 +78,9 @@ public void reset() {
   }
 
   public void close() {
-    // nothing to do
+    if (cursor instanceof ElasticsearchTable.ScrollIterator) {
+      ((ElasticsearchTable.ScrollIterator) cursor).close();
+    }
   }
 
   private static Function1<SearchHit, Map> mapGetter() {
@@ -125,6 +138,96 @@ static Function1<SearchHit, Object> getter(List<Map.Entry<String, Class>> fields
       : (Function1) listGetter(fields);
   }
 
+  /**
+   * Converts the response to a search with aggregations (generated by
+   * {@link ElasticsearchAggregate}) into rows, one for each innermost bucket.
+   *
+   * @param response Search response
+   * @param fields Names and classes of the fields of each row
+   */
+  static List<Object> aggregationRows(SearchResponse response,
+      List<Map.Entry<String, Class>> fields) {
+    final List<Map<String, Object>> buckets = new ArrayList<>();
+    addBuckets(response.getAggregations(), new HashMap<String, Object>(),
+        buckets);
+    final List<Object> rows = new ArrayList<>();
+    for (Map<String, Object> bucket : buckets) {
+      if (fields.size() == 1) {
+        final Map.Entry<String, Class> field = fields.get(0);
+        rows.add(convert(bucket.get(field.getKey()), field.getValue()));
+      } else {
+        final Object[] row = new Object[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+          final Map.Entry<String, Class> field = fields.get(i);
+          row[i] = convert(bucket.get(field.getKey()), field.getValue());
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  /** Walks down nested "terms" aggregations, accumulating group keys, and
+   * adds the metrics of each innermost bucket as a row. Documents that have
+   * no value for a key are in the sibling "missing" aggregation, and form a
+   * group whose key is null. */
+  private static void addBuckets(Aggregations aggregations,
+      Map<String, Object> keys, List<Map<String, Object>> rows) {
+    Terms terms = null;
+    if (aggregations != null) {
+      for (Aggregation aggregation : aggregations) {
+        if (aggregation instanceof Terms) {
+          terms = (Terms) aggregation;
+          break;
+        }
+      }
+    }
+    if (terms == null) {
+      final Map<String, Object> row = new HashMap<>(keys);
+      if (aggregations != null) {
+        for (Aggregation aggregation : aggregations) {
+          row.put(aggregation.getName(), metricValue(aggregation));
+        }
+      }
+      rows.add(row);
+      return;
+    }
+    final String name = terms.getName();
+    for (Terms.Bucket bucket : terms.getBuckets()) {
+      keys.put(name, bucket.getKey());
+      addBuckets(bucket.getAggregations(), keys, rows);
+    }
+    final Missing missing =
+        aggregations.get(name + ElasticsearchAggregate.MISSING_SUFFIX);
+    if (missing != null && missing.getDocCount() > 0) {
+      keys.put(name, null);
+      addBuckets(missing.getAggregations(), keys, rows);
+    }
+    keys.remove(name);
+  }
+
+  /** Returns the value of a metric aggregation, converting the results that
+   * Elasticsearch gives for an empty set of values to SQL's null. */
+  private static Object metricValue(Aggregation aggregation) {
+    if (aggregation instanceof SingleBucketAggregation) {
+      // COUNT(*) is a "filter" aggregation that matches every document
+      return ((SingleBucketAggregation) aggregation).getDocCount();
+    } else if (aggregation instanceof ValueCount) {
+      return ((ValueCount) aggregation).getValue();
+    } else if (aggregation instanceof Stats) {
+      // SUM uses "stats", because "sum" returns 0 for no values
+      final Stats stats = (Stats) aggregation;
+      return stats.getCount() == 0 ? null : stats.getSum();
+    } else if (aggregation instanceof NumericMetricsAggregation.SingleValue) {
+      // MIN and MAX of no values are infinite; AVG is NaN
+      final double value =
+          ((NumericMetricsAggregation.SingleValue) aggregation).value();
+      return Double.isInfinite(value) || Double.isNaN(value) ? null : value;
+    } else {
+      throw new AssertionError("unexpected aggregation " + aggregation);
+    }
+  }
+
   private static Object convert(Object o, Class clazz) {
     if (o == null) {
       return null;
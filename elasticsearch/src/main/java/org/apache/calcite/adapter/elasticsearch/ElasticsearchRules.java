@@ -16,17 +16,24 @@
  */
 package org.apache.calcite.adapter.elasticsearch;
 
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
 import org.apache.calcite.adapter.enumerable.RexImpTable;
 import org.apache.calcite.adapter.enumerable.RexToLixTranslator;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptRuleOperand;
 import org.apache.calcite.plan.RelTrait;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
 import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.logical.LogicalAggregate;
 import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalProject;
 import org.apache.calcite.rel.type.RelDataType;
@@ -58,7 +65,9 @@ class ElasticsearchRules {
   static final RelOptRule[] RULES = {
     ElasticsearchSortRule.INSTANCE,
     ElasticsearchFilterRule.INSTANCE,
-    ElasticsearchProjectRule.INSTANCE
+    ElasticsearchProjectRule.INSTANCE,
+    ElasticsearchAggregateRule.INSTANCE,
+    ElasticsearchAggregateRule.FILTER_INSTANCE
   };
 
   private ElasticsearchRules() {}
@@ -82,6 +91,18 @@ static String isItem(RexCall call) {
     return null;
   }
 
+  /**
+   * Returns the name of the Elasticsearch field that an expression reads,
+   * such as 'state' for {@code CAST(_MAP['state'] AS VARCHAR(2))}, or null
+   * if it is not a plain field.
+   */
+  static String fieldName(RexNode e) {
+    if (e.getKind() == SqlKind.CAST) {
+      e = ((RexCall) e).getOperands().get(0);
+    }
+    return e instanceof RexCall ? isItem((RexCall) e) : null;
+  }
+
   static List<String> elasticsearchFieldNames(final RelDataType rowType) {
     return SqlValidatorUtil.uniquify(
       new AbstractList<String>() {
@@ -235,6 +256,100 @@ private ElasticsearchProjectRule() {
         convert(project.getInput(), out), project.getProjects(), project.getRowType());
     }
   }
+
+  /**
+   * Rule to convert a {@link org.apache.calcite.rel.logical.LogicalAggregate}
+   * on top of an {@link ElasticsearchProject} to an
+   * {@link ElasticsearchAggregate}.
+   *
+   * <p>GROUP BY keys must be fields that are not analyzed, because
+   * Elasticsearch groups analyzed strings by word; arguments to SUM, MIN,
+   * MAX and AVG must be numeric fields.
+   */
+  private static class ElasticsearchAggregateRule extends RelOptRule {
+    private static final ElasticsearchAggregateRule INSTANCE =
+        new ElasticsearchAggregateRule(
+            operand(LogicalAggregate.class,
+                operand(ElasticsearchProject.class,
+                    operand(ElasticsearchTableScan.class, none()))),
+            "ElasticsearchAggregateRule");
+
+    private static final ElasticsearchAggregateRule FILTER_INSTANCE =
+        new ElasticsearchAggregateRule(
+            operand(LogicalAggregate.class,
+                operand(ElasticsearchProject.class,
+                    operand(ElasticsearchFilter.class,
+                        operand(ElasticsearchTableScan.class, none())))),
+            "ElasticsearchAggregateRule:filter");
+
+    private ElasticsearchAggregateRule(RelOptRuleOperand operand, String description) {
+      super(operand, description);
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final LogicalAggregate aggregate = call.rel(0);
+      final ElasticsearchProject project = call.rel(1);
+      final ElasticsearchTableScan scan = call.rel(call.getRelList().size() - 1);
+      final List<String> fields = new ArrayList<>();
+      for (RexNode e : project.getProjects()) {
+        fields.add(fieldName(e));
+      }
+      if (!isSupported(aggregate, fields, scan.elasticsearchTable)) {
+        return;
+      }
+      final RelTraitSet traitSet =
+          aggregate.getTraitSet().replace(EnumerableConvention.INSTANCE);
+      try {
+        call.transformTo(
+            new ElasticsearchAggregate(aggregate.getCluster(), traitSet,
+                convert(aggregate.getInput(), ElasticsearchRel.CONVENTION),
+                aggregate.indicator, aggregate.getGroupSet(),
+                aggregate.getGroupSets(), aggregate.getAggCallList(), fields));
+      } catch (InvalidRelException e) {
+        LOGGER.warn(e.toString());
+      }
+    }
+
+    private boolean isSupported(Aggregate aggregate, List<String> fields,
+        ElasticsearchTable table) {
+      if (aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
+        return false;
+      }
+      for (int key : aggregate.getGroupSet()) {
+        if (!table.exactFields.contains(fields.get(key))) {
+          return false;
+        }
+      }
+      for (AggregateCall aggCall : aggregate.getAggCallList()) {
+        if (aggCall.isDistinct() || aggCall.filterArg >= 0
+            || aggCall.getArgList().size() > 1) {
+          return false;
+        }
+        final String arg = aggCall.getArgList().isEmpty()
+            ? null
+            : fields.get(aggCall.getArgList().get(0));
+        switch (aggCall.getAggregation().getKind()) {
+        case COUNT:
+          // Elasticsearch counts the terms of an analyzed field
+          if (arg != null && !table.exactFields.contains(arg)) {
+            return false;
+          }
+          break;
+        case SUM:
+        case MIN:
+        case MAX:
+        case AVG:
+          if (!table.numericFields.contains(arg)) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
 
 // End ElasticsearchRules.java
@@ -39,8 +39,10 @@
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Schema mapped onto an index of ELASTICSEARCH types.
@@ -92,7 +94,12 @@ public class ElasticsearchSchema extends AbstractSchema {
         new GetMappingsRequest().indices(index)).get();
       ImmutableOpenMap<String, MappingMetaData> mapping = response.getMappings().get(index);
       for (ObjectObjectCursor<String, MappingMetaData> c: mapping) {
-        builder.put(c.key, new ElasticsearchTable(client, index, c.key));
+        final Set<String> exactFields = new HashSet<>();
+        final Set<String> numericFields = new HashSet<>();
+        classifyFields(c.value.sourceAsMap(), exactFields, numericFields);
+        builder.put(c.key,
+            new ElasticsearchTable(client, index, c.key, exactFields,
+                numericFields));
       }
     } catch (Exception e) {
       throw Throwables.propagate(e);
@@ -100,6 +107,49 @@ public class ElasticsearchSchema extends AbstractSchema {
     return builder.build();
   }
 
+  /** Finds the top-level fields of a type mapping whose values are indexed
+   * as a whole, and so can be used as GROUP BY keys, and those that are
+   * numeric, and so can be summed.
+   *
+   * <p>An analyzed string field is split into terms, and a "terms"
+   * aggregation on it would return one bucket per word. */
+  private static void classifyFields(Map<String, Object> mapping,
+      Set<String> exactFields, Set<String> numericFields) {
+    final Object properties = mapping.get("properties");
+    if (!(properties instanceof Map)) {
+      return;
+    }
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) properties).entrySet()) {
+      if (!(entry.getValue() instanceof Map)) {
+        continue;
+      }
+      final String name = (String) entry.getKey();
+      final Map<?, ?> field = (Map<?, ?>) entry.getValue();
+      final Object type = field.get("type");
+      if (type == null) {
+        continue; // an object field
+      }
+      switch ((String) type) {
+      case "long":
+      case "integer":
+      case "short":
+      case "byte":
+      case "double":
+      case "float":
+        numericFields.add(name);
+        exactFields.add(name);
+        break;
+      case "string":
+        if ("not_analyzed".equals(field.get("index"))) {
+          exactFields.add(name);
+        }
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
   private void open(List<InetSocketAddress> transportAddresses, Map<String, String> userConfig) {
     final List<TransportAddress> transportNodes = new ArrayList<>(transportAddresses.size());
     for (InetSocketAddress address : transportAddresses) {
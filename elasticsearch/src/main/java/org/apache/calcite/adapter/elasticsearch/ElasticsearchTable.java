@@ -20,6 +20,7 @@
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.Queryable;
 import org.apache.calcite.linq4j.function.Function1;
@@ -35,30 +36,64 @@
 
 import org.apache.calcite.util.Util;
 
+import com.google.common.collect.ImmutableSet;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.SearchHit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Table based on an Elasticsearch type.
  */
 public class ElasticsearchTable extends AbstractQueryableTable implements TranslatableTable {
+  /** Number of hits fetched in each round trip when scrolling through a
+   * result that has no LIMIT. */
+  static final int SCROLL_SIZE = 1000;
+
+  /** How long Elasticsearch keeps a scroll alive between requests. */
+  private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
   private final Client client;
   private final String indexName;
   private final String typeName;
+  final ImmutableSet<String> exactFields;
+  final ImmutableSet<String> numericFields;
 
   /**
    * Creates an ElasticsearchTable.
    */
   public ElasticsearchTable(Client client, String indexName,
       String typeName) {
+    this(client, indexName, typeName, ImmutableSet.<String>of(),
+        ImmutableSet.<String>of());
+  }
+
+  /**
+   * Creates an ElasticsearchTable whose mapping is known.
+   *
+   * @param exactFields Fields whose values are indexed whole (not analyzed),
+   *                    and can therefore be grouped on
+   * @param numericFields Fields of numeric type
+   */
+  public ElasticsearchTable(Client client, String indexName,
+      String typeName, Set<String> exactFields, Set<String> numericFields) {
     super(Object[].class);
     this.client = client;
     this.indexName = indexName;
     this.typeName = typeName;
+    this.exactFields = ImmutableSet.copyOf(exactFields);
+    this.numericFields = ImmutableSet.copyOf(numericFields);
   }
 
   @Override public String toString() {
@@ -91,28 +126,128 @@ public RelNode toRel(RelOptTable.ToRelContext context, RelOptTable relOptTable)
    * <code>client.prepareSearch(index).setTypes(type)
    * .setSource("{\"fields\" : [\"state\"]}")</code></p>
    *
+   * <p>If the operations contain aggregations, returns one row per bucket.
+   * If they contain neither "from" nor "size", the search may match more
+   * hits than one response can hold, so reads them page by page using the
+   * scroll API.</p>
+   *
    * @param index Elasticsearch index
    * @param ops List of operations represented as Json strings.
    * @param fields List of fields to project; or null to return map
    * @return Enumerator of results
    */
   private Enumerable<Object> find(String index, List<String> ops,
-      List<Map.Entry<String, Class>> fields) {
+      final List<Map.Entry<String, Class>> fields) {
     final String dbName = index;
 
-    final String queryString = "{" + Util.toString(ops, "", ", ", "") + "}";
+    boolean aggregate = false;
+    boolean bounded = false;
+    for (String op : ops) {
+      if (op.startsWith("\"aggregations\"")) {
+        aggregate = true;
+      } else if (op.startsWith("\"from\"") || op.startsWith("\"size\"")) {
+        bounded = true;
+      }
+    }
+
+    if (aggregate) {
+      final String queryString = "{" + Util.toString(ops, "", ", ", "") + "}";
+      return new AbstractEnumerable<Object>() {
+        public Enumerator<Object> enumerator() {
+          final SearchResponse response = client.prepareSearch(dbName)
+              .setTypes(typeName).setSource(queryString).execute().actionGet();
+          return Linq4j.enumerator(
+              ElasticsearchEnumerator.aggregationRows(response, fields));
+        }
+      };
+    }
 
     final Function1<SearchHit, Object> getter = ElasticsearchEnumerator.getter(fields);
 
+    if (bounded) {
+      final String queryString = "{" + Util.toString(ops, "", ", ", "") + "}";
+      return new AbstractEnumerable<Object>() {
+        public Enumerator<Object> enumerator() {
+          final Iterator<SearchHit> cursor = client.prepareSearch(dbName).setTypes(typeName)
+              .setSource(queryString).execute().actionGet().getHits().iterator();
+          return new ElasticsearchEnumerator(cursor, getter);
+        }
+      };
+    }
+
+    final List<String> scrollOps = new ArrayList<>(ops);
+    scrollOps.add("\"size\": " + SCROLL_SIZE);
+    final String queryString = "{" + Util.toString(scrollOps, "", ", ", "") + "}";
     return new AbstractEnumerable<Object>() {
       public Enumerator<Object> enumerator() {
-        final Iterator<SearchHit> cursor = client.prepareSearch(dbName).setTypes(typeName)
-            .setSource(queryString).execute().actionGet().getHits().iterator();
-        return new ElasticsearchEnumerator(cursor, getter);
+        final SearchResponse response = client.prepareSearch(dbName).setTypes(typeName)
+            .setSource(queryString).setScroll(SCROLL_KEEP_ALIVE).execute().actionGet();
+        return new ElasticsearchEnumerator(new ScrollIterator(client, response), getter);
       }
     };
   }
 
+  /**
+   * Iterator over all hits of a scrolling search.
+   *
+   * <p>While the caller reads one page, the next page is requested in the
+   * background; so at most two pages are held in memory, however many hits
+   * the search matches.</p>
+   */
+  static class ScrollIterator implements Iterator<SearchHit> {
+    private final Client client;
+    private String scrollId;
+    private Iterator<SearchHit> page;
+    private ListenableActionFuture<SearchResponse> nextPage;
+
+    ScrollIterator(Client client, SearchResponse response) {
+      this.client = client;
+      accept(response);
+    }
+
+    private void accept(SearchResponse response) {
+      scrollId = response.getScrollId();
+      final SearchHit[] hits = response.getHits().getHits();
+      page = Arrays.asList(hits).iterator();
+      // An empty page marks the end of the scroll
+      nextPage = hits.length == 0
+          ? null
+          : client.prepareSearchScroll(scrollId).setScroll(SCROLL_KEEP_ALIVE)
+              .execute();
+    }
+
+    public boolean hasNext() {
+      while (!page.hasNext()) {
+        if (nextPage == null) {
+          return false;
+        }
+        accept(nextPage.actionGet());
+      }
+      return true;
+    }
+
+    public SearchHit next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /** Releases the scroll on the server, without waiting for a reply. */
+    void close() {
+      if (scrollId != null) {
+        client.prepareClearScroll().addScrollId(scrollId).execute();
+        scrollId = null;
+      }
+      nextPage = null;
+      page = Collections.emptyIterator();
+    }
+  }
+
   /**
    * Implementation of {@link org.apache.calcite.linq4j.Queryable} based on
    * a {@link org.apache.calcite.adapter.elasticsearch.ElasticsearchTable}.
@@ -36,7 +36,7 @@
  * using the "find" method.</p>
  */
 public class ElasticsearchTableScan extends TableScan implements ElasticsearchRel {
-  private final ElasticsearchTable elasticsearchTable;
+  final ElasticsearchTable elasticsearchTable;
   private final RelDataType projectRowType;
 
   /**
@@ -65,11 +65,17 @@ protected ElasticsearchToEnumerableConverter(RelOptCluster cluster, RelTraitSet
   }
 
   @Override public Result implement(EnumerableRelImplementor implementor, Prefer prefer) {
-    final BlockBuilder list = new BlockBuilder();
     final ElasticsearchRel.Implementor elasticsearchImplementor =
         new ElasticsearchRel.Implementor();
     elasticsearchImplementor.visitChild(0, getInput());
-    final RelDataType rowType = getRowType();
+    return implement(implementor, prefer, getRowType(), elasticsearchImplementor);
+  }
+
+  /** Generates code that runs the query built by an Elasticsearch
+   * implementor. Also used by {@link ElasticsearchAggregate}. */
+  static Result implement(EnumerableRelImplementor implementor, Prefer prefer,
+      final RelDataType rowType, ElasticsearchRel.Implementor elasticsearchImplementor) {
+    final BlockBuilder list = new BlockBuilder();
     final PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), rowType,
         prefer.prefer(JavaRowFormat.ARRAY));
     final Expression fields = list.append("fields",
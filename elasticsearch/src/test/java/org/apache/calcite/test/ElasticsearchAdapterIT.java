@@ -53,6 +53,10 @@ public class ElasticsearchAdapterIT {
   private static final ImmutableMap<String, String> ZIPS = ImmutableMap.of("model",
       ElasticsearchAdapterIT.class.getResource("/elasticsearch-zips-model.json").getPath());
 
+  /** Number of documents in the "zips" type. More than fit in one search
+   * response, so unbounded queries must scroll. */
+  private static final int ZIPS_SIZE = 29353;
+
   /** Whether to run this test. */
   private boolean enabled() {
     return ENABLED;
@@ -82,7 +86,7 @@ private static Function<List, Void> elasticsearchChecker(final String... strings
         .enable(enabled())
         .with(ZIPS)
         .query("select * from zips order by \"state\"")
-        .returnsCount(10)
+        .returnsCount(ZIPS_SIZE)
         .explainContains(explain);
   }
 
@@ -215,7 +219,7 @@ private static Function<List, Void> elasticsearchChecker(final String... strings
         .enable(enabled())
         .with(ZIPS)
         .query("select \"state\", \"city\" from zips")
-        .returnsCount(10);
+        .returnsCount(ZIPS_SIZE);
   }
 
   @Test public void testProject() {
@@ -249,6 +253,45 @@ private static Function<List, Void> elasticsearchChecker(final String... strings
         .explainContains(explain);
   }
 
+  @Test public void testCountAll() {
+    CalciteAssert.that()
+        .enable(enabled())
+        .with(ZIPS)
+        .query("select count(*) as c, min(\"pop\") as m from zips")
+        .returns("C=" + ZIPS_SIZE + "; M=0\n")
+        .explainContains("ElasticsearchAggregate(group=[{}], C=[COUNT()], M=[MIN($0)]");
+  }
+
+  @Test public void testGroupBy() {
+    final String sql = "select \"pop\", count(*) as c from zips\n"
+        + "where \"pop\" = 15590 group by \"pop\"";
+    final String count = "\"aggregations\": {\"C\": {\"filter\": {\"match_all\": {}}}}";
+    CalciteAssert.that()
+        .enable(enabled())
+        .with(ZIPS)
+        .query(sql)
+        .returns("pop=15590; C=3\n")
+        .queryContains(
+            elasticsearchChecker(
+                "\"query\" : {\"constant_score\":{\"filter\":{\"bool\":"
+                    + "{\"must\":[{\"term\":{\"pop\":15590}}]}}}}",
+                "\"fields\" : [\"pop\"], \"script_fields\": {}",
+                "\"size\": 0",
+                "\"aggregations\": {"
+                    + "\"pop\": {\"terms\": {\"field\": \"pop\", \"size\": 0}, " + count + "}, "
+                    + "\"pop$missing\": {\"missing\": {\"field\": \"pop\"}, " + count + "}}"));
+  }
+
+  @Test public void testGroupByAnalyzedField() {
+    // "state" is an analyzed string; Elasticsearch would group by word, so
+    // the aggregate must not be pushed down
+    CalciteAssert.that()
+        .enable(enabled())
+        .with(ZIPS)
+        .query("select \"state\", count(*) from zips group by \"state\"")
+        .explainContains("EnumerableAggregate(group=[{0}], EXPR$1=[COUNT()])");
+  }
+
   @Test public void testFilterReversed() {
     CalciteAssert.that()
         .enable(enabled())
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar binary copy of a CSV file, stored next to it, that makes repeated
+ * scans cheap.
+ *
+ * <p>The cache of "EMPS.csv" is called "EMPS.csv.cache". Its header records
+ * the length and modification time of the CSV file, and the type of each
+ * column; if any of these no longer match, the cache is rebuilt on the next
+ * scan.
+ *
+ * <p>Rows are stored in blocks of {@link #BLOCK_ROWS} rows. Each block
+ * starts with, for each column, the length of the column's data and the
+ * column's minimum and maximum value in the block, so that a reader can skip
+ * a column it does not need, or the whole block if a filter value is out of
+ * range. Each column's data is a null bitmap followed by the non-null
+ * values: integral and date-time values as variable-length offsets from the
+ * block minimum, floating-point values in fixed width, booleans as bytes,
+ * and strings as a block dictionary followed by a code per value.
+ *
+ * <p>All numbers are big-endian, as written by {@link DataOutputStream}.
+ */
+class CsvColumnarCache {
+  private static final int MAGIC = 0x43535643; // "CSVC"
+  private static final int VERSION = 1;
+  static final int BLOCK_ROWS = 4096;
+  static final String SUFFIX = ".cache";
+
+  private CsvColumnarCache() {}
+
+  /** Returns the cache file for a CSV file. */
+  static File cacheFile(File file) {
+    return new File(file.getPath() + SUFFIX);
+  }
+
+  /** Returns how a column of a given type is encoded. */
+  static Kind kind(CsvFieldType fieldType) {
+    if (fieldType == null) {
+      return Kind.STRING;
+    }
+    switch (fieldType) {
+    case BOOLEAN:
+      return Kind.BOOLEAN;
+    case BYTE:
+    case SHORT:
+    case INT:
+    case LONG:
+    case DATE:
+    case TIME:
+    case TIMESTAMP:
+      return Kind.LONG;
+    case FLOAT:
+    case DOUBLE:
+      return Kind.DOUBLE;
+    default:
+      return Kind.STRING;
+    }
+  }
+
+  /** Opens the cache file of a CSV file and reads its header, returning null
+   * if the cache does not exist or is stale. If the result is not null, the
+   * caller must close it. */
+  static DataInputStream open(File file, List<CsvFieldType> fieldTypes) {
+    final File cacheFile = cacheFile(file);
+    if (!cacheFile.exists()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16));
+      boolean valid = in.readInt() == MAGIC
+          && in.readInt() == VERSION
+          && in.readLong() == file.length()
+          && in.readLong() == file.lastModified()
+          && in.readInt() == fieldTypes.size();
+      for (int i = 0; valid && i < fieldTypes.size(); i++) {
+        valid = in.readByte() == code(fieldTypes.get(i));
+      }
+      if (valid) {
+        final DataInputStream result = in;
+        in = null;
+        return result;
+      }
+      return null;
+    } catch (IOException e) {
+      return null;
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  /** Writes the cache file of a CSV file, reading every column of every row
+   * from an enumerator. The file is written under a temporary name and then
+   * renamed, so that concurrent readers never see a partial file. */
+  static void write(File file, List<CsvFieldType> fieldTypes,
+      Enumerator<Object[]> rows) throws IOException {
+    final File cacheFile = cacheFile(file);
+    final long length = file.length();
+    final long lastModified = file.lastModified();
+    final File tempFile =
+        File.createTempFile(cacheFile.getName(), ".tmp",
+            cacheFile.getAbsoluteFile().getParentFile());
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(length);
+        out.writeLong(lastModified);
+        out.writeInt(fieldTypes.size());
+        for (CsvFieldType fieldType : fieldTypes) {
+          out.writeByte(code(fieldType));
+        }
+        final List<Object[]> block = new ArrayList<>(BLOCK_ROWS);
+        while (rows.moveNext()) {
+          block.add(rows.current());
+          if (block.size() == BLOCK_ROWS) {
+            writeBlock(out, fieldTypes, block);
+            block.clear();
+          }
+        }
+        if (!block.isEmpty()) {
+          writeBlock(out, fieldTypes, block);
+        }
+        out.writeInt(0);
+      }
+      Files.move(tempFile.toPath(), cacheFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      tempFile.delete();
+    }
+  }
+
+  /** Returns the code of a column type in the cache header. */
+  private static int code(CsvFieldType fieldType) {
+    return fieldType == null ? 0 : fieldType.ordinal() + 1;
+  }
+
+  private static void writeBlock(DataOutputStream out,
+      List<CsvFieldType> fieldTypes, List<Object[]> block) throws IOException {
+    final int n = fieldTypes.size();
+    final ByteArrayOutputStream[] payloads = new ByteArrayOutputStream[n];
+    out.writeInt(block.size());
+    for (int i = 0; i < n; i++) {
+      payloads[i] = new ByteArrayOutputStream();
+      final DataOutputStream payload = new DataOutputStream(payloads[i]);
+      final Kind kind = kind(fieldTypes.get(i));
+
+      // Null bitmap, and minimum and maximum of the non-null values
+      final byte[] nulls = new byte[(block.size() + 7) / 8];
+      final List<Object> values = new ArrayList<>();
+      Comparable min = null;
+      Comparable max = null;
+      for (int r = 0; r < block.size(); r++) {
+        final Object[] row = block.get(r);
+        final Object o = i < row.length ? row[i] : null;
+        if (o == null) {
+          nulls[r >> 3] |= 1 << (r & 7);
+          continue;
+        }
+        final Comparable c = comparable(kind, o);
+        values.add(c);
+        if (min == null) {
+          min = max = c;
+        } else {
+          //noinspection unchecked
+          if (c.compareTo(min) < 0) {
+            min = c;
+          }
+          //noinspection unchecked
+          if (c.compareTo(max) > 0) {
+            max = c;
+          }
+        }
+      }
+      payload.write(nulls);
+      switch (kind) {
+      case BOOLEAN:
+        for (Object value : values) {
+          payload.writeBoolean((Boolean) value);
+        }
+        break;
+      case LONG:
+        for (Object value : values) {
+          writeVarLong(payload, (Long) value - (Long) min);
+        }
+        break;
+      case DOUBLE:
+        for (Object value : values) {
+          payload.writeDouble((Double) value);
+        }
+        break;
+      default:
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final List<String> entries = new ArrayList<>();
+        for (Object value : values) {
+          if (!dictionary.containsKey(value)) {
+            dictionary.put((String) value, entries.size());
+            entries.add((String) value);
+          }
+        }
+        payload.writeInt(entries.size());
+        for (String entry : entries) {
+          writeString(payload, entry);
+        }
+        for (Object value : values) {
+          writeVarLong(payload, dictionary.get(value));
+        }
+      }
+      payload.flush();
+
+      out.writeInt(payloads[i].size());
+      if (min == null || kind == Kind.BOOLEAN) {
+        out.writeBoolean(false);
+        continue;
+      }
+      out.writeBoolean(true);
+      switch (kind) {
+      case LONG:
+        out.writeLong((Long) min);
+        out.writeLong((Long) max);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) min);
+        out.writeDouble((Double) max);
+        break;
+      default:
+        writeString(out, (String) min);
+        writeString(out, (String) max);
+      }
+    }
+    for (ByteArrayOutputStream payload : payloads) {
+      payload.writeTo(out);
+    }
+  }
+
+  /** Converts a value, as returned by {@link CsvEnumerator.RowConverter},
+   * to the form in which it is stored. */
+  private static Comparable comparable(Kind kind, Object o) {
+    switch (kind) {
+    case LONG:
+      return o instanceof Date
+          ? ((Date) o).getTime()
+          : ((Number) o).longValue();
+    case DOUBLE:
+      return ((Number) o).doubleValue();
+    default:
+      return (Comparable) o;
+    }
+  }
+
+  /** Writes a non-negative number (or, treated as unsigned, any number) in
+   * 7-bit groups, least significant first. */
+  static void writeVarLong(DataOutput out, long v) throws IOException {
+    while ((v & ~0x7FL) != 0) {
+      out.writeByte((int) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    out.writeByte((int) v);
+  }
+
+  static long readVarLong(DataInput in) throws IOException {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = in.readByte();
+      v |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return v;
+      }
+    }
+    throw new IOException("Malformed variable-length number");
+  }
+
+  static void writeString(DataOutput out, String s) throws IOException {
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    final byte[] bytes = new byte[(int) readVarLong(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Skips exactly {@code n} bytes. */
+  static void skipFully(DataInputStream in, long n) throws IOException {
+    while (n > 0) {
+      final long skipped = in.skip(n);
+      if (skipped <= 0) {
+        // skip may return 0 before end of stream; read a byte to make
+        // progress, or to detect the end.
+        if (in.read() < 0) {
+          throw new EOFException();
+        }
+        --n;
+      } else {
+        n -= skipped;
+      }
+    }
+  }
+
+  /** How the values of a column are stored. */
+  enum Kind {
+    BOOLEAN, LONG, DOUBLE, STRING
+  }
+}
+
+// End CsvColumnarCache.java
@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/** Enumerator that reads rows from a {@link CsvColumnarCache} file.
+ *
+ * <p>It decodes only the columns that are projected or filtered, and skips
+ * blocks whose statistics or dictionary show that no row can match the
+ * filter values. */
+class CsvColumnarEnumerator implements Enumerator<Object> {
+  private final DataInputStream in;
+  private final CsvFieldType[] fieldTypes;
+  private final CsvColumnarCache.Kind[] kinds;
+  private final int[] fields;
+  private final String[] filterValues;
+  private final boolean single;
+
+  /** Whether each column needs to be decoded. */
+  private final boolean[] needed;
+  private final Column[] columns;
+  /** For each filtered column, the dictionary code of the filter value in
+   * the current block. */
+  private final int[] filterCodes;
+
+  private final long[] payloadLengths;
+  private final boolean[] hasStats;
+  private final String[] mins;
+  private final String[] maxes;
+
+  private int rowCount;
+  private int row;
+  private Object current;
+
+  /** Creates a CsvColumnarEnumerator.
+   *
+   * @param in Cache file, positioned after its header
+   * @param fieldTypes Types of the columns in the file
+   * @param fields Columns to project
+   * @param filterValues For each column, the value it must equal, or null;
+   *                     only string columns may be filtered
+   * @param array Whether to return each row as an array even if there is
+   *              only one projected column
+   */
+  CsvColumnarEnumerator(DataInputStream in, List<CsvFieldType> fieldTypes,
+      int[] fields, String[] filterValues, boolean array) {
+    this.in = in;
+    this.fieldTypes = fieldTypes.toArray(new CsvFieldType[fieldTypes.size()]);
+    this.fields = fields;
+    this.filterValues = filterValues;
+    this.single = !array && fields.length == 1;
+    final int n = this.fieldTypes.length;
+    this.kinds = new CsvColumnarCache.Kind[n];
+    this.needed = new boolean[n];
+    this.columns = new Column[n];
+    for (int i = 0; i < n; i++) {
+      kinds[i] = CsvColumnarCache.kind(this.fieldTypes[i]);
+      columns[i] = new Column();
+    }
+    for (int field : fields) {
+      needed[field] = true;
+    }
+    if (filterValues != null) {
+      for (int i = 0; i < filterValues.length && i < n; i++) {
+        if (filterValues[i] != null) {
+          assert kinds[i] == CsvColumnarCache.Kind.STRING;
+          needed[i] = true;
+        }
+      }
+    }
+    this.filterCodes = new int[n];
+    this.payloadLengths = new long[n];
+    this.hasStats = new boolean[n];
+    this.mins = new String[n];
+    this.maxes = new String[n];
+  }
+
+  public Object current() {
+    return current;
+  }
+
+  public boolean moveNext() {
+    try {
+      for (;;) {
+        while (row < rowCount) {
+          final int r = row++;
+          if (matches(r)) {
+            current = row(r);
+            return true;
+          }
+        }
+        if (!readBlock()) {
+          current = null;
+          return false;
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading CSV cache", e);
+    }
+  }
+
+  public void reset() {
+    throw new UnsupportedOperationException();
+  }
+
+  public void close() {
+    try {
+      in.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Error closing CSV cache", e);
+    }
+  }
+
+  /** Reads the next block that may contain matching rows. Returns false at
+   * the end of the file. */
+  private boolean readBlock() throws IOException {
+    for (;;) {
+      rowCount = 0;
+      row = 0;
+      final int blockRows = in.readInt();
+      if (blockRows == 0) {
+        return false;
+      }
+      long remaining = 0;
+      for (int i = 0; i < kinds.length; i++) {
+        payloadLengths[i] = in.readInt();
+        remaining += payloadLengths[i];
+        hasStats[i] = in.readBoolean();
+        if (hasStats[i]) {
+          switch (kinds[i]) {
+          case LONG:
+            columns[i].min = in.readLong();
+            in.readLong(); // max
+            break;
+          case DOUBLE:
+            in.readDouble();
+            in.readDouble();
+            break;
+          case STRING:
+            mins[i] = CsvColumnarCache.readString(in);
+            maxes[i] = CsvColumnarCache.readString(in);
+            break;
+          default:
+            break;
+          }
+        }
+      }
+      if (!mayMatch()) {
+        CsvColumnarCache.skipFully(in, remaining);
+        continue;
+      }
+      boolean skip = false;
+      for (int i = 0; i < kinds.length; i++) {
+        if (skip || !needed[i]) {
+          CsvColumnarCache.skipFully(in, payloadLengths[i]);
+        } else {
+          columns[i].read(in, kinds[i], blockRows);
+          if (filterValues != null && i < filterValues.length
+              && filterValues[i] != null) {
+            filterCodes[i] = columns[i].code(filterValues[i]);
+            skip = filterCodes[i] < 0;
+          }
+        }
+      }
+      if (!skip) {
+        rowCount = blockRows;
+        return true;
+      }
+    }
+  }
+
+  /** Returns whether the statistics of the current block allow a row to
+   * match the filter values. */
+  private boolean mayMatch() {
+    if (filterValues == null) {
+      return true;
+    }
+    for (int i = 0; i < filterValues.length && i < kinds.length; i++) {
+      final String value = filterValues[i];
+      if (value != null
+          && (!hasStats[i]
+              || value.compareTo(mins[i]) < 0
+              || value.compareTo(maxes[i]) > 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matches(int r) {
+    if (filterValues != null) {
+      for (int i = 0; i < filterValues.length && i < kinds.length; i++) {
+        if (filterValues[i] != null
+            && (columns[i].isNull(r) || columns[i].codes[r] != filterCodes[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private Object row(int r) {
+    if (single) {
+      return value(fields[0], r);
+    }
+    final Object[] values = new Object[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      values[i] = value(fields[i], r);
+    }
+    return values;
+  }
+
+  private Object value(int field, int r) {
+    final Column column = columns[field];
+    if (column.isNull(r)) {
+      return null;
+    }
+    final CsvFieldType fieldType = fieldTypes[field];
+    switch (kinds[field]) {
+    case BOOLEAN:
+      return column.longs[r] != 0;
+    case LONG:
+      final long v = column.longs[r];
+      switch (fieldType) {
+      case BYTE:
+        return (byte) v;
+      case SHORT:
+        return (short) v;
+      case INT:
+        return (int) v;
+      case DATE:
+        return new java.sql.Date(v);
+      case TIME:
+        return new java.sql.Time(v);
+      case TIMESTAMP:
+        return new java.sql.Timestamp(v);
+      default:
+        return v;
+      }
+    case DOUBLE:
+      final double d = column.doubles[r];
+      return fieldType == CsvFieldType.FLOAT ? (Object) (float) d : d;
+    default:
+      return column.dictionary[column.codes[r]];
+    }
+  }
+
+  /** Decoded values of one column in the current block. Each array is
+   * indexed by row; slots of null rows are unused. */
+  private static class Column {
+    long min;
+    byte[] nulls = new byte[0];
+    long[] longs = new long[0];
+    double[] doubles = new double[0];
+    int[] codes = new int[0];
+    String[] dictionary;
+
+    boolean isNull(int r) {
+      return (nulls[r >> 3] & (1 << (r & 7))) != 0;
+    }
+
+    void read(DataInputStream in, CsvColumnarCache.Kind kind, int rowCount)
+        throws IOException {
+      final int nullBytes = (rowCount + 7) / 8;
+      if (nulls.length < nullBytes) {
+        nulls = new byte[nullBytes];
+      }
+      in.readFully(nulls, 0, nullBytes);
+      switch (kind) {
+      case BOOLEAN:
+      case LONG:
+        if (longs.length < rowCount) {
+          longs = new long[rowCount];
+        }
+        for (int r = 0; r < rowCount; r++) {
+          if (!isNull(r)) {
+            longs[r] = kind == CsvColumnarCache.Kind.BOOLEAN
+                ? in.readByte()
+                : min + CsvColumnarCache.readVarLong(in);
+          }
+        }
+        break;
+      case DOUBLE:
+        if (doubles.length < rowCount) {
+          doubles = new double[rowCount];
+        }
+        for (int r = 0; r < rowCount; r++) {
+          if (!isNull(r)) {
+            doubles[r] = in.readDouble();
+          }
+        }
+        break;
+      default:
+        dictionary = new String[in.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+          dictionary[i] = CsvColumnarCache.readString(in);
+        }
+        if (codes.length < rowCount) {
+          codes = new int[rowCount];
+        }
+        for (int r = 0; r < rowCount; r++) {
+          if (!isNull(r)) {
+            codes[r] = (int) CsvColumnarCache.readVarLong(in);
+          }
+        }
+      }
+    }
+
+    /** Returns the dictionary code of a string, or -1 if it does not occur
+     * in this block. */
+    int code(String value) {
+      for (int i = 0; i < dictionary.length; i++) {
+        if (dictionary[i].equals(value)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
+
+// End CsvColumnarEnumerator.java
@@ -19,6 +19,7 @@
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.runtime.Sampler;
 import org.apache.calcite.util.Pair;
 
 import org.apache.commons.lang3.time.FastDateFormat;
@@ -47,6 +48,7 @@
   private final CSVReader reader;
   private final String[] filterValues;
   private final RowConverter<E> rowConverter;
+  private final Sampler sampler;
   private E current;
 
   private static final FastDateFormat TIME_FORMAT_DATE;
@@ -72,8 +74,16 @@ public CsvEnumerator(File file, List<CsvFieldType> fieldTypes, int[] fields) {
 
   public CsvEnumerator(File file, String[] filterValues,
       RowConverter<E> rowConverter) {
+    this(file, filterValues, rowConverter, null);
+  }
+
+  /** Creates a CsvEnumerator that returns only the rows chosen by a
+   * sampler. Rows that are not chosen are read but not converted. */
+  public CsvEnumerator(File file, String[] filterValues,
+      RowConverter<E> rowConverter, Sampler sampler) {
     this.rowConverter = rowConverter;
     this.filterValues = filterValues;
+    this.sampler = sampler;
     try {
       this.reader = openCsv(file);
       this.reader.readNext(); // skip header row
@@ -82,7 +92,7 @@ public CsvEnumerator(File file, String[] filterValues,
     }
   }
 
-  private static RowConverter<?> converter(List<CsvFieldType> fieldTypes,
+  static RowConverter<?> converter(List<CsvFieldType> fieldTypes,
       int[] fields) {
     if (fields.length == 1) {
       final int field = fields[0];
@@ -176,6 +186,9 @@ public boolean moveNext() {
           reader.close();
           return false;
         }
+        if (sampler != null && !sampler.next()) {
+          continue;
+        }
         if (filterValues != null) {
           for (int i = 0; i < strings.length; i++) {
             String filterValue = filterValues[i];
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeFamily;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Planner rule that pushes equality conditions on string columns from a
+ * {@link LogicalFilter} into a {@link CsvTableScan}, so that the parser can
+ * reject rows before converting their columns.
+ *
+ * <p>Conditions that cannot be pushed remain in a filter above the scan.
+ */
+public class CsvFilterTableScanRule extends RelOptRule {
+  public static final CsvFilterTableScanRule INSTANCE =
+      new CsvFilterTableScanRule();
+
+  private CsvFilterTableScanRule() {
+    super(
+        operand(LogicalFilter.class,
+            operand(CsvTableScan.class, none())),
+        "CsvFilterTableScanRule");
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final LogicalFilter filter = call.rel(0);
+    final CsvTableScan scan = call.rel(1);
+    final List<CsvFieldType> fieldTypes = scan.csvTable.fieldTypes;
+    if (fieldTypes == null) {
+      return;
+    }
+    final String[] filterValues = scan.filterValues == null
+        ? new String[fieldTypes.size()]
+        : scan.filterValues.clone();
+    final List<RexNode> remaining = new ArrayList<>();
+    for (RexNode condition : RelOptUtil.conjunctions(filter.getCondition())) {
+      if (!addFilter(condition, scan.fields, fieldTypes, filterValues)) {
+        remaining.add(condition);
+      }
+    }
+    if (remaining.size() == RelOptUtil.conjunctions(filter.getCondition())
+        .size()) {
+      // Nothing was pushed down.
+      return;
+    }
+    RelNode rel =
+        new CsvTableScan(scan.getCluster(), scan.getTable(), scan.csvTable,
+            scan.fields, filterValues);
+    if (!remaining.isEmpty()) {
+      rel = LogicalFilter.create(rel,
+          RexUtil.composeConjunction(filter.getCluster().getRexBuilder(),
+              remaining, false));
+    }
+    call.transformTo(rel);
+  }
+
+  /** If a condition is of the form "column = 'literal'", where the column is
+   * a string, records the literal in the column's slot of
+   * {@code filterValues} and returns true. */
+  private boolean addFilter(RexNode condition, int[] fields,
+      List<CsvFieldType> fieldTypes, String[] filterValues) {
+    if (!condition.isA(SqlKind.EQUALS)) {
+      return false;
+    }
+    final RexCall call = (RexCall) condition;
+    RexNode left = call.getOperands().get(0);
+    RexNode right = call.getOperands().get(1);
+    if (left instanceof RexLiteral) {
+      final RexNode t = left;
+      left = right;
+      right = t;
+    }
+    if (left.isA(SqlKind.CAST)
+        && SqlTypeFamily.CHARACTER.contains(left.getType())) {
+      left = ((RexCall) left).getOperands().get(0);
+    }
+    if (!(left instanceof RexInputRef)
+        || !(right instanceof RexLiteral)
+        || !SqlTypeFamily.CHARACTER.contains(right.getType())) {
+      return false;
+    }
+    final int column = fields[((RexInputRef) left).getIndex()];
+    if (column >= fieldTypes.size()
+        || fieldTypes.get(column) != null
+            && fieldTypes.get(column) != CsvFieldType.STRING
+        || filterValues[column] != null) {
+      return false;
+    }
+    filterValues[column] = ((RexLiteral) right).getValue2().toString();
+    return true;
+  }
+}
+
+// End CsvFilterTableScanRule.java
@@ -45,6 +45,11 @@ public class CsvFilterableTable extends CsvTable
     super(file, protoRowType);
   }
 
+  /** Creates a CsvFilterableTable, optionally with a columnar cache. */
+  CsvFilterableTable(File file, RelProtoDataType protoRowType, boolean cache) {
+    super(file, protoRowType, cache);
+  }
+
   public String toString() {
     return "CsvFilterableTable";
   }
@@ -60,8 +65,7 @@ public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters) {
     final int[] fields = CsvEnumerator.identityList(fieldTypes.size());
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        return new CsvEnumerator<Object[]>(file, filterValues,
-            new CsvEnumerator.ArrayRowConverter(fieldTypes, fields));
+        return newEnumerator(fields, filterValues, true);
       }
     };
   }
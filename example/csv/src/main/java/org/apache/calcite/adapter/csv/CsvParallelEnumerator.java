@@ -0,0 +1,645 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.csv;
+
+import org.apache.calcite.linq4j.Enumerator;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Enumerator that reads a large CSV file by memory-mapping it, splitting it
+ * into chunks at record boundaries, and parsing the chunks in parallel.
+ *
+ * <p>Rows are returned in file order. Only the projected columns are
+ * converted, integral columns are parsed directly from the mapped bytes, and
+ * filter values are compared before any column is converted.
+ *
+ * <p>Quoting follows the same rules as {@link CsvEnumerator}'s reader: a
+ * double-quote starts and ends a quoted field, and within a quoted field
+ * {@code ""}, {@code \"} and {@code \\} are escapes. Because a newline may
+ * appear inside a quoted field, the parser does not simply split at the
+ * nearest newline; it first computes, in parallel, how each segment of the
+ * file transforms the quoting state, and uses that to find the first record
+ * boundary after each split point. */
+class CsvParallelEnumerator implements Enumerator<Object> {
+  /** Files smaller than this are read by {@link CsvEnumerator}. */
+  static final long PARALLEL_THRESHOLD = 4L << 20;
+
+  private static final long MIN_CHUNK_SIZE = 1L << 20;
+  private static final long MAX_CHUNK_SIZE = 1L << 30;
+  private static final int BATCH_SIZE = 1024;
+  private static final int QUEUE_BATCHES = 4;
+
+  /** Parser states. {@link #QUOTE} means "just saw a double-quote inside a
+   * quoted field", {@link #ESCAPE} means "just saw a backslash inside a
+   * quoted field". */
+  private static final int OUT = 0;
+  private static final int IN = 1;
+  private static final int QUOTE = 2;
+  private static final int ESCAPE = 3;
+  private static final int STATE_COUNT = 4;
+
+  /** Marks the end of a chunk's queue. */
+  private static final Object END = new Object();
+
+  private static final Charset CHARSET = Charset.defaultCharset();
+
+  /** Pool shared by all scans. It is unbounded, so that concurrent scans
+   * (say, the two inputs of a join) cannot starve each other. */
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("csv-chunk-parser-%d")
+              .setDaemon(true)
+              .build());
+
+  private final List<ChunkParser> parsers = new ArrayList<>();
+  private int chunk;
+  private Iterator<Object> batch = Collections.emptyIterator();
+  private Object current;
+  private volatile boolean cancelled;
+
+  /** Creates a CsvParallelEnumerator.
+   *
+   * @param file File; must not be compressed
+   * @param fieldTypes Types of the columns in the file
+   * @param fields Columns to project
+   * @param filterValues For each column, the value it must equal, or null
+   * @param array Whether to return each row as an array even if there is
+   *              only one projected column
+   */
+  CsvParallelEnumerator(File file, List<CsvFieldType> fieldTypes,
+      int[] fields, String[] filterValues, boolean array) {
+    final CsvFieldType[] types =
+        fieldTypes.toArray(new CsvFieldType[fieldTypes.size()]);
+    final byte[][] filterBytes;
+    if (filterValues == null) {
+      filterBytes = null;
+    } else {
+      filterBytes = new byte[filterValues.length][];
+      for (int i = 0; i < filterValues.length; i++) {
+        if (filterValues[i] != null) {
+          filterBytes[i] = filterValues[i].getBytes(CHARSET);
+        }
+      }
+    }
+    final boolean single = !array && fields.length == 1;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      final long[] boundaries = findBoundaries(channel);
+      for (int i = 0; i + 1 < boundaries.length; i++) {
+        final long start = boundaries[i];
+        final long end = boundaries[i + 1];
+        if (i > 0 && start == end) {
+          continue;
+        }
+        parsers.add(
+            new ChunkParser(
+                channel.map(FileChannel.MapMode.READ_ONLY, start, end - start),
+                i == 0, types, fields, filterBytes, single));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading CSV file " + file, e);
+    }
+    // A mapping remains valid after its channel is closed.
+    for (ChunkParser parser : parsers) {
+      EXECUTOR.execute(parser);
+    }
+  }
+
+  /** Returns whether a file is large enough, and in a suitable format, to be
+   * read by this enumerator. */
+  static boolean canScan(File file) {
+    return !file.getName().endsWith(".gz")
+        && file.length() >= PARALLEL_THRESHOLD
+        && Arrays.equals("\",\\\r\n".getBytes(CHARSET),
+            new byte[] {'"', ',', '\\', '\r', '\n'});
+  }
+
+  /** Splits a file into chunks that start at record boundaries. Element
+   * {@code i} of the result is the start of chunk {@code i}; the last
+   * element is the length of the file. Chunks may be empty. */
+  private static long[] findBoundaries(FileChannel channel)
+      throws IOException {
+    final long size = channel.size();
+    final int processors = Runtime.getRuntime().availableProcessors();
+    final int n = (int) Math.max(
+        Math.min(size / MIN_CHUNK_SIZE, processors),
+        (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+    final long[] boundaries = new long[Math.max(n, 1) + 1];
+    boundaries[boundaries.length - 1] = size;
+    if (n <= 1) {
+      return boundaries;
+    }
+
+    // Scan the segments in parallel. Each scan returns, for each state the
+    // segment might start in, the state it ends in and the offset just after
+    // its first record.
+    final List<Future<SegmentSummary>> futures = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final long start = size * i / n;
+      final long end = size * (i + 1) / n;
+      final MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      futures.add(
+          EXECUTOR.submit(
+              new Callable<SegmentSummary>() {
+                public SegmentSummary call() {
+                  return SegmentSummary.of(buffer, start);
+                }
+              }));
+    }
+
+    // Knowing that the file starts outside quotes, deduce the state at the
+    // start of each segment, and therefore where its first record begins. If
+    // no record begins in a segment, its chunk is merged into the previous
+    // one.
+    final SegmentSummary[] summaries = new SegmentSummary[n];
+    try {
+      for (int i = 0; i < n; i++) {
+        summaries[i] = futures.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    final int[] startStates = new int[n];
+    for (int i = 1; i < n; i++) {
+      startStates[i] = summaries[i - 1].endStates[startStates[i - 1]];
+    }
+    for (int i = n - 1; i > 0; i--) {
+      final long first = summaries[i].firstRecords[startStates[i]];
+      boundaries[i] = first >= 0 ? first : boundaries[i + 1];
+    }
+    return boundaries;
+  }
+
+  /** Returns the state after reading a byte. */
+  private static int next(int state, byte b) {
+    switch (state) {
+    case IN:
+      return b == '"' ? QUOTE : b == '\\' ? ESCAPE : IN;
+    case QUOTE:
+      return b == '"' ? IN : OUT;
+    case ESCAPE:
+      return IN;
+    default:
+      return b == '"' ? IN : OUT;
+    }
+  }
+
+  public Object current() {
+    return current;
+  }
+
+  public boolean moveNext() {
+    for (;;) {
+      if (batch.hasNext()) {
+        current = batch.next();
+        return true;
+      }
+      if (chunk >= parsers.size()) {
+        current = null;
+        return false;
+      }
+      final Object o;
+      try {
+        o = parsers.get(chunk).queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      if (o == END) {
+        ++chunk;
+      } else if (o instanceof Throwable) {
+        throw Throwables.propagate((Throwable) o);
+      } else {
+        //noinspection unchecked
+        batch = ((List<Object>) o).iterator();
+      }
+    }
+  }
+
+  public void reset() {
+    throw new UnsupportedOperationException();
+  }
+
+  public void close() {
+    cancelled = true;
+  }
+
+  /** How a segment of a file transforms each possible parser state. */
+  private static class SegmentSummary {
+    final int[] endStates;
+    final long[] firstRecords;
+
+    private SegmentSummary(int[] endStates, long[] firstRecords) {
+      this.endStates = endStates;
+      this.firstRecords = firstRecords;
+    }
+
+    static SegmentSummary of(ByteBuffer buffer, long offset) {
+      final int[] states = new int[STATE_COUNT];
+      final long[] firstRecords = new long[STATE_COUNT];
+      for (int s = 0; s < STATE_COUNT; s++) {
+        states[s] = s;
+        firstRecords[s] = -1;
+      }
+      final int limit = buffer.limit();
+      for (int p = 0; p < limit; p++) {
+        final byte b = buffer.get(p);
+        for (int s = 0; s < STATE_COUNT; s++) {
+          final int state = states[s];
+          if (b == '\n' && firstRecords[s] < 0
+              && (state == OUT || state == QUOTE)) {
+            firstRecords[s] = offset + p + 1;
+          }
+          states[s] = next(state, b);
+        }
+      }
+      return new SegmentSummary(states, firstRecords);
+    }
+  }
+
+  /** Parses one chunk of a file, placing batches of rows on a queue. */
+  private class ChunkParser implements Runnable {
+    final BlockingQueue<Object> queue =
+        new ArrayBlockingQueue<>(QUEUE_BATCHES);
+    private final ByteBuffer buffer;
+    private final boolean skipHeader;
+    private final CsvFieldType[] fieldTypes;
+    private final int[] fields;
+    private final byte[][] filterBytes;
+    private final boolean single;
+
+    /** Converts values of types that are not parsed directly. */
+    private final CsvEnumerator.RowConverter<Object[]> converter;
+
+    // Start, end and whether quoted of each field in the current record
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] quoted = new boolean[16];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    ChunkParser(ByteBuffer buffer, boolean skipHeader,
+        CsvFieldType[] fieldTypes, int[] fields, byte[][] filterBytes,
+        boolean single) {
+      this.buffer = buffer;
+      this.skipHeader = skipHeader;
+      this.fieldTypes = fieldTypes;
+      this.fields = fields;
+      this.filterBytes = filterBytes;
+      this.single = single;
+      this.converter =
+          new CsvEnumerator.ArrayRowConverter(Arrays.asList(fieldTypes),
+              fields);
+    }
+
+    public void run() {
+      try {
+        parse();
+        offer(END);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable e) {
+        try {
+          offer(e);
+        } catch (InterruptedException e2) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /** Places an object on the queue, waiting for space. Returns false if
+     * the enumerator has been closed. */
+    private boolean offer(Object o) throws InterruptedException {
+      while (!cancelled) {
+        if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void parse() throws InterruptedException {
+      final int limit = buffer.limit();
+      List<Object> rows = new ArrayList<>(BATCH_SIZE);
+      boolean header = skipHeader;
+      int state = OUT;
+      int fieldStart = 0;
+      boolean fieldQuoted = false;
+      fieldCount = 0;
+      for (int p = 0; p < limit; p++) {
+        final byte b = buffer.get(p);
+        switch (state) {
+        case IN:
+          state = next(state, b);
+          continue;
+        case ESCAPE:
+          state = IN;
+          continue;
+        case QUOTE:
+          if (b == '"') {
+            state = IN;
+            continue;
+          }
+          state = OUT;
+          break;
+        default:
+          break;
+        }
+        switch (b) {
+        case '"':
+          state = IN;
+          fieldQuoted = true;
+          break;
+        case ',':
+          addField(fieldStart, p, fieldQuoted);
+          fieldStart = p + 1;
+          fieldQuoted = false;
+          break;
+        case '\n':
+          final int end =
+              p > fieldStart && buffer.get(p - 1) == '\r' ? p - 1 : p;
+          addField(fieldStart, end, fieldQuoted);
+          fieldStart = p + 1;
+          fieldQuoted = false;
+          if (cancelled) {
+            return;
+          }
+          if (header) {
+            header = false;
+          } else {
+            addRow(rows);
+            if (rows.size() >= BATCH_SIZE) {
+              if (!offer(rows)) {
+                return;
+              }
+              rows = new ArrayList<>(BATCH_SIZE);
+            }
+          }
+          fieldCount = 0;
+          break;
+        default:
+          break;
+        }
+      }
+      if (fieldStart < limit || fieldCount > 0) {
+        // Last record has no line terminator
+        addField(fieldStart, limit, fieldQuoted);
+        if (!header) {
+          addRow(rows);
+        }
+      }
+      if (!rows.isEmpty()) {
+        offer(rows);
+      }
+    }
+
+    private void addField(int start, int end, boolean isQuoted) {
+      if (fieldCount == starts.length) {
+        starts = Arrays.copyOf(starts, fieldCount * 2);
+        ends = Arrays.copyOf(ends, fieldCount * 2);
+        quoted = Arrays.copyOf(quoted, fieldCount * 2);
+      }
+      starts[fieldCount] = start;
+      ends[fieldCount] = end;
+      quoted[fieldCount] = isQuoted;
+      ++fieldCount;
+    }
+
+    /** Converts the current record and adds it to a list, unless it is
+     * blank or does not match the filter. */
+    private void addRow(List<Object> rows) {
+      if (fieldCount == 1 && starts[0] == ends[0]) {
+        return;
+      }
+      if (filterBytes != null) {
+        for (int i = 0; i < filterBytes.length; i++) {
+          if (filterBytes[i] != null && !matches(i, filterBytes[i])) {
+            return;
+          }
+        }
+      }
+      if (single) {
+        rows.add(value(fields[0]));
+        return;
+      }
+      final Object[] row = new Object[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        row[i] = value(fields[i]);
+      }
+      rows.add(row);
+    }
+
+    private boolean matches(int column, byte[] bytes) {
+      if (column >= fieldCount) {
+        return false;
+      }
+      final int length = unquote(column);
+      if (length != bytes.length) {
+        return false;
+      }
+      if (quoted[column]) {
+        for (int i = 0; i < length; i++) {
+          if (scratch[i] != bytes[i]) {
+            return false;
+          }
+        }
+      } else {
+        final int start = starts[column];
+        for (int i = 0; i < length; i++) {
+          if (buffer.get(start + i) != bytes[i]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /** Returns the value of a column in the current record. */
+    private Object value(int column) {
+      if (column >= fieldCount) {
+        return null;
+      }
+      final CsvFieldType fieldType =
+          column < fieldTypes.length ? fieldTypes[column] : null;
+      if (fieldType != null && !quoted[column]) {
+        switch (fieldType) {
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+          final int start = starts[column];
+          final int end = ends[column];
+          if (start == end) {
+            return null;
+          }
+          final long v = parseLong(start, end);
+          switch (fieldType) {
+          case LONG:
+            return v;
+          case INT:
+            if (v == (int) v) {
+              return (int) v;
+            }
+            break;
+          case SHORT:
+            if (v == (short) v) {
+              return (short) v;
+            }
+            break;
+          default:
+            if (v == (byte) v) {
+              return (byte) v;
+            }
+            break;
+          }
+          // Out of range; let the converter throw the usual error
+          break;
+        default:
+          break;
+        }
+      }
+      return converter.convert(fieldType, string(column));
+    }
+
+    /** Parses a decimal integer of up to 18 digits from the buffer. If the
+     * text is not of that form, delegates to {@link Long#parseLong}, which
+     * handles the remaining cases and throws if the text is invalid. */
+    private long parseLong(int start, int end) {
+      final boolean negative = buffer.get(start) == '-';
+      final int first = negative ? start + 1 : start;
+      if (first < end && end - first <= 18) {
+        long v = 0;
+        int p = first;
+        for (; p < end; p++) {
+          final int digit = buffer.get(p) - '0';
+          if (digit < 0 || digit > 9) {
+            break;
+          }
+          v = v * 10 + digit;
+        }
+        if (p == end) {
+          return negative ? -v : v;
+        }
+      }
+      return Long.parseLong(string(start, end));
+    }
+
+    private String string(int column) {
+      if (quoted[column]) {
+        return new String(scratch, 0, unquote(column), CHARSET);
+      }
+      return string(starts[column], ends[column]);
+    }
+
+    private String string(int start, int end) {
+      final int length = end - start;
+      ensureScratch(length);
+      final ByteBuffer view = buffer.duplicate();
+      view.position(start);
+      view.get(scratch, 0, length);
+      return new String(scratch, 0, length, CHARSET);
+    }
+
+    /** If a column is quoted, writes its unquoted bytes into the scratch
+     * buffer and returns their number; otherwise just returns the length of
+     * the column. */
+    private int unquote(int column) {
+      final int start = starts[column];
+      final int end = ends[column];
+      if (!quoted[column]) {
+        return end - start;
+      }
+      ensureScratch(end - start + 1);
+      int n = 0;
+      int state = OUT;
+      for (int p = start; p < end; p++) {
+        final byte b = buffer.get(p);
+        switch (state) {
+        case IN:
+          if (b == '"') {
+            state = QUOTE;
+          } else if (b == '\\') {
+            state = ESCAPE;
+          } else {
+            scratch[n++] = b;
+          }
+          break;
+        case ESCAPE:
+          if (b != '"' && b != '\\') {
+            scratch[n++] = '\\';
+          }
+          scratch[n++] = b;
+          state = IN;
+          break;
+        case QUOTE:
+          if (b == '"') {
+            scratch[n++] = b;
+            state = IN;
+            break;
+          }
+          // fall through
+        default:
+          state = OUT;
+          if (b == '"') {
+            state = IN;
+          } else {
+            scratch[n++] = b;
+          }
+        }
+      }
+      if (state == ESCAPE) {
+        scratch[n++] = '\\';
+      }
+      return n;
+    }
+
+    private void ensureScratch(int length) {
+      if (scratch.length < length) {
+        scratch = new byte[Math.max(length, scratch.length * 2)];
+      }
+    }
+  }
+}
+
+// End CsvParallelEnumerator.java
@@ -43,7 +43,7 @@ private CsvProjectTableScanRule() {
   @Override public void onMatch(RelOptRuleCall call) {
     final LogicalProject project = call.rel(0);
     final CsvTableScan scan = call.rel(1);
-    int[] fields = getProjectFields(project.getProjects());
+    int[] fields = getProjectFields(project.getProjects(), scan.fields);
     if (fields == null) {
       // Project contains expressions more complex than just field references.
       return;
@@ -53,15 +53,18 @@ private CsvProjectTableScanRule() {
             scan.getCluster(),
             scan.getTable(),
             scan.csvTable,
-            fields));
+            fields,
+            scan.filterValues));
   }
 
-  private int[] getProjectFields(List<RexNode> exps) {
+  /** Returns the columns of the file that each expression references, or
+   * null if any expression is not a field reference. */
+  private int[] getProjectFields(List<RexNode> exps, int[] scanFields) {
     final int[] fields = new int[exps.size()];
     for (int i = 0; i < exps.size(); i++) {
       final RexNode exp = exps.get(i);
       if (exp instanceof RexInputRef) {
-        fields[i] = ((RexInputRef) exp).getIndex();
+        fields[i] = scanFields[((RexInputRef) exp).getIndex()];
       } else {
         return null; // not a simple projection
       }
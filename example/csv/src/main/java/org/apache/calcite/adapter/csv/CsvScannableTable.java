@@ -38,6 +38,11 @@ public class CsvScannableTable extends CsvTable
     super(file, protoRowType);
   }
 
+  /** Creates a CsvScannableTable, optionally with a columnar cache. */
+  CsvScannableTable(File file, RelProtoDataType protoRowType, boolean cache) {
+    super(file, protoRowType, cache);
+  }
+
   public String toString() {
     return "CsvScannableTable";
   }
@@ -46,8 +51,7 @@ public Enumerable<Object[]> scan(DataContext root) {
     final int[] fields = CsvEnumerator.identityList(fieldTypes.size());
     return new AbstractEnumerable<Object[]>() {
       public Enumerator<Object[]> enumerator() {
-        return new CsvEnumerator<Object[]>(file,
-            null, new CsvEnumerator.ArrayRowConverter(fieldTypes, fields));
+        return newEnumerator(fields, null, true);
       }
     };
   }
@@ -32,6 +32,7 @@
 public class CsvSchema extends AbstractSchema {
   final File directoryFile;
   private final CsvTable.Flavor flavor;
+  private final boolean cache;
 
   /**
    * Creates a CSV schema.
@@ -41,9 +42,25 @@ public class CsvSchema extends AbstractSchema {
    *                   query optimization
    */
   public CsvSchema(File directoryFile, CsvTable.Flavor flavor) {
+    this(directoryFile, flavor, false);
+  }
+
+  /**
+   * Creates a CSV schema, optionally caching a columnar copy of each CSV
+   * file.
+   *
+   * @param directoryFile Directory that holds {@code .csv} files
+   * @param flavor     Whether to instantiate flavor tables that undergo
+   *                   query optimization
+   * @param cache      Whether to write, next to each CSV file, a columnar
+   *                   copy that later scans read instead of the file
+   */
+  public CsvSchema(File directoryFile, CsvTable.Flavor flavor,
+      boolean cache) {
     super();
     this.directoryFile = directoryFile;
     this.flavor = flavor;
+    this.cache = cache;
   }
 
   /** Looks for a suffix on a string and returns
@@ -100,11 +117,11 @@ public boolean accept(File dir, String name) {
   private Table createTable(File file) {
     switch (flavor) {
     case TRANSLATABLE:
-      return new CsvTranslatableTable(file, null);
+      return new CsvTranslatableTable(file, null, cache);
     case SCANNABLE:
-      return new CsvScannableTable(file, null);
+      return new CsvScannableTable(file, null, cache);
     case FILTERABLE:
-      return new CsvFilterableTable(file, null);
+      return new CsvFilterableTable(file, null, cache);
     default:
       throw new AssertionError("Unknown flavor " + flavor);
     }
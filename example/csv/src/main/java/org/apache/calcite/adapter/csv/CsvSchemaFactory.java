@@ -52,7 +52,9 @@ public Schema create(SchemaPlus parentSchema, String name,
     } else {
       flavor = CsvTable.Flavor.valueOf(flavorName.toUpperCase());
     }
-    return new CsvSchema(directoryFile, flavor);
+    final Boolean cache = (Boolean) operand.get("cache");
+    return new CsvSchema(directoryFile, flavor,
+        cache != null && cache);
   }
 }
 
@@ -16,28 +16,48 @@
  */
 package org.apache.calcite.adapter.csv;
 
+import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.plan.RelOptSamplingParameters;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.runtime.Sampler;
+import org.apache.calcite.schema.SampleableTable;
+import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.impl.AbstractTable;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Base class for table that reads CSV files.
  */
-public abstract class CsvTable extends AbstractTable {
+public abstract class CsvTable extends AbstractTable
+    implements SampleableTable {
   protected final File file;
   private final RelProtoDataType protoRowType;
   protected List<CsvFieldType> fieldTypes;
+  /** Whether to keep a columnar copy of the file; see
+   * {@link CsvColumnarCache}. */
+  private final boolean cache;
 
   /** Creates a CsvAbstractTable. */
   CsvTable(File file, RelProtoDataType protoRowType) {
+    this(file, protoRowType, false);
+  }
+
+  /** Creates a CsvAbstractTable, optionally with a columnar cache. */
+  CsvTable(File file, RelProtoDataType protoRowType, boolean cache) {
     this.file = file;
     this.protoRowType = protoRowType;
+    this.cache = cache;
   }
 
   public RelDataType getRowType(RelDataTypeFactory typeFactory) {
@@ -55,6 +75,109 @@ public RelDataType getRowType(RelDataTypeFactory typeFactory) {
     }
   }
 
+  /** Creates an enumerator over the rows of the file. If the table has a
+   * cache, reads from it, building it first if necessary; otherwise large
+   * uncompressed files are parsed in parallel.
+   *
+   * @param fields Columns to project
+   * @param filterValues For each column, the value it must equal, or null
+   * @param array Whether to return each row as an array even if there is
+   *              only one projected column
+   */
+  @SuppressWarnings("unchecked")
+  <E> Enumerator<E> newEnumerator(int[] fields, String[] filterValues,
+      boolean array) {
+    if (cache && fieldTypes != null && stringFilters(filterValues)) {
+      final DataInputStream in = openCache();
+      if (in != null) {
+        return (Enumerator<E>) new CsvColumnarEnumerator(in, fieldTypes,
+            fields, filterValues, array);
+      }
+    }
+    return textEnumerator(fields, filterValues, array);
+  }
+
+  /** Creates an enumerator that parses the file. */
+  @SuppressWarnings("unchecked")
+  private <E> Enumerator<E> textEnumerator(int[] fields,
+      String[] filterValues, boolean array) {
+    if (CsvParallelEnumerator.canScan(file)) {
+      return (Enumerator<E>) new CsvParallelEnumerator(file, fieldTypes,
+          fields, filterValues, array);
+    }
+    final CsvEnumerator.RowConverter<?> converter = array
+        ? new CsvEnumerator.ArrayRowConverter(fieldTypes, fields)
+        : CsvEnumerator.converter(fieldTypes, fields);
+    return new CsvEnumerator<>(file, filterValues,
+        (CsvEnumerator.RowConverter<E>) converter);
+  }
+
+  /** Returns whether every filter is on a string column. The cache stores
+   * other types in binary, so cannot compare them with the text of a filter
+   * value. */
+  private boolean stringFilters(String[] filterValues) {
+    if (filterValues != null) {
+      for (int i = 0; i < filterValues.length; i++) {
+        if (filterValues[i] != null
+            && CsvColumnarCache.kind(fieldTypes.get(i))
+                != CsvColumnarCache.Kind.STRING) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Opens the cache, first building it if it is missing or stale. Returns
+   * null if the cache cannot be written, for example because the directory
+   * is read-only. */
+  private synchronized DataInputStream openCache() {
+    final DataInputStream in = CsvColumnarCache.open(file, fieldTypes);
+    if (in != null) {
+      return in;
+    }
+    final int[] fields = CsvEnumerator.identityList(fieldTypes.size());
+    try (Enumerator<Object[]> rows = textEnumerator(fields, null, true)) {
+      CsvColumnarCache.write(file, fieldTypes, rows);
+    } catch (IOException e) {
+      return null;
+    }
+    return CsvColumnarCache.open(file, fieldTypes);
+  }
+
+  /** {@inheritDoc}
+   *
+   * <p>Reads the file sequentially, and converts only the rows that are
+   * chosen. A CSV file has no index from row number to file offset, so in
+   * system mode the lines of a block that is not chosen must still be
+   * read. */
+  public ScannableTable sample(RelOptSamplingParameters params) {
+    final boolean bernoulli = params.isBernoulli();
+    final double rate = params.getSamplingPercentage();
+    final Integer seed =
+        params.isRepeatable() ? params.getRepeatableSeed() : null;
+    return new SampledTable() {
+      public Enumerable<Object[]> scan(DataContext root) {
+        final int[] fields = CsvEnumerator.identityList(fieldTypes.size());
+        return new AbstractEnumerable<Object[]>() {
+          public Enumerator<Object[]> enumerator() {
+            return new CsvEnumerator<>(file, null,
+                new CsvEnumerator.ArrayRowConverter(fieldTypes, fields),
+                new Sampler(bernoulli, rate, seed));
+          }
+        };
+      }
+    };
+  }
+
+  /** Sample of the rows of this table. */
+  private abstract class SampledTable extends AbstractTable
+      implements ScannableTable {
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return CsvTable.this.getRowType(typeFactory);
+    }
+  }
+
   /** Various degrees of table "intelligence". */
   public enum Flavor {
     SCANNABLE, FILTERABLE, TRANSLATABLE
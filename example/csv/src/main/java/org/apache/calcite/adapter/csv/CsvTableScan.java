@@ -22,6 +22,7 @@
 import org.apache.calcite.adapter.enumerable.PhysType;
 import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
 import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.plan.RelOptCluster;
@@ -36,6 +37,8 @@
 import org.apache.calcite.rel.type.RelDataTypeField;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Relational expression representing a scan of a CSV file.
@@ -45,24 +48,48 @@
 public class CsvTableScan extends TableScan implements EnumerableRel {
   final CsvTranslatableTable csvTable;
   final int[] fields;
+  /** For each column of the file, the value it must equal, or null; or null
+   * if there are no filters. */
+  final String[] filterValues;
 
   protected CsvTableScan(RelOptCluster cluster, RelOptTable table,
       CsvTranslatableTable csvTable, int[] fields) {
+    this(cluster, table, csvTable, fields, null);
+  }
+
+  protected CsvTableScan(RelOptCluster cluster, RelOptTable table,
+      CsvTranslatableTable csvTable, int[] fields, String[] filterValues) {
     super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE), table);
     this.csvTable = csvTable;
     this.fields = fields;
+    this.filterValues = filterValues;
 
     assert csvTable != null;
   }
 
   @Override public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
     assert inputs.isEmpty();
-    return new CsvTableScan(getCluster(), table, csvTable, fields);
+    return new CsvTableScan(getCluster(), table, csvTable, fields,
+        filterValues);
   }
 
   @Override public RelWriter explainTerms(RelWriter pw) {
     return super.explainTerms(pw)
-        .item("fields", Primitive.asList(fields));
+        .item("fields", Primitive.asList(fields))
+        .itemIf("filters", filterMap(), filterValues != null);
+  }
+
+  /** Returns the filter values keyed by column ordinal, for display. */
+  private Map<Integer, String> filterMap() {
+    final Map<Integer, String> map = new TreeMap<>();
+    if (filterValues != null) {
+      for (int i = 0; i < filterValues.length; i++) {
+        if (filterValues[i] != null) {
+          map.put(i, filterValues[i]);
+        }
+      }
+    }
+    return map;
   }
 
   @Override public RelDataType deriveRowType() {
@@ -77,6 +104,7 @@ protected CsvTableScan(RelOptCluster cluster, RelOptTable table,
 
   @Override public void register(RelOptPlanner planner) {
     planner.addRule(CsvProjectTableScanRule.INSTANCE);
+    planner.addRule(CsvFilterTableScanRule.INSTANCE);
   }
 
   public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
@@ -93,11 +121,21 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
               Expressions.call(table.getExpression(JsonTable.class),
                   "enumerable")));
     }
+    final Expression tableExpression =
+        table.getExpression(CsvTranslatableTable.class);
+    if (filterValues == null) {
+      return implementor.result(
+          physType,
+          Blocks.toBlock(
+              Expressions.call(tableExpression, "project",
+                  Expressions.constant(fields))));
+    }
     return implementor.result(
         physType,
         Blocks.toBlock(
-            Expressions.call(table.getExpression(CsvTranslatableTable.class),
-                "project", Expressions.constant(fields))));
+            Expressions.call(tableExpression, "project",
+                Expressions.constant(fields),
+                Expressions.constant(filterValues))));
   }
 }
 
@@ -43,6 +43,11 @@ public class CsvTranslatableTable extends CsvTable
     super(file, protoRowType);
   }
 
+  /** Creates a CsvTranslatableTable, optionally with a columnar cache. */
+  CsvTranslatableTable(File file, RelProtoDataType protoRowType, boolean cache) {
+    super(file, protoRowType, cache);
+  }
+
   public String toString() {
     return "CsvTranslatableTable";
   }
@@ -51,9 +56,18 @@ public String toString() {
    *
    * <p>Called from generated code. */
   public Enumerable<Object> project(final int[] fields) {
+    return project(fields, null);
+  }
+
+  /** Returns an enumerable over a given projection of the fields, returning
+   * only rows whose columns equal the given values.
+   *
+   * <p>Called from generated code. */
+  public Enumerable<Object> project(final int[] fields,
+      final String[] filterValues) {
     return new AbstractEnumerable<Object>() {
       public Enumerator<Object> enumerator() {
-        return new CsvEnumerator<Object>(file, fieldTypes, fields);
+        return newEnumerator(fields, filterValues, false);
       }
     };
   }
@@ -22,14 +22,19 @@
 import org.apache.calcite.schema.Schema;
 import org.apache.calcite.sql2rel.SqlToRelConverter;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -41,6 +46,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -209,6 +215,168 @@ public Void apply(ResultSet resultSet) {
         "EMPNO=130; GENDER=F; NAME=Alice");
   }
 
+  /** Sample that is pushed into the scan of a CSV file. The file has fewer
+   * rows than a block, so system mode returns all rows or none. */
+  @Test public void testPushDownSample() throws SQLException {
+    checkSql("model", "explain plan for select * from EMPS\n"
+            + "tablesample system(75) repeatable(1)",
+        "PLAN=EnumerableInterpreter\n"
+            + "  BindableTableScan(table=[[SALES, EMPS, "
+            + "SYSTEM(75.0) REPEATABLE(1)]])\n");
+    final String sql = "select name from EMPS\n"
+        + "tablesample system(75) repeatable(1)";
+    checkSql("model", sql,
+        "NAME=Fred",
+        "NAME=Eric",
+        "NAME=John",
+        "NAME=Wilma",
+        "NAME=Alice");
+    checkSql("smart", sql,
+        "NAME=Fred",
+        "NAME=Eric",
+        "NAME=John",
+        "NAME=Wilma",
+        "NAME=Alice");
+  }
+
+  /** Filter that is pushed into CsvTableScan by CsvFilterTableScanRule. */
+  @Test public void testPushDownFilter() throws SQLException {
+    checkSql("smart",
+        "explain plan for select name, empno from EMPS where name = 'Fred'",
+        "PLAN=CsvTableScan(table=[[SALES, EMPS]], fields=[[1, 0]], "
+            + "filters=[{1=Fred}])\n");
+    checkSql("smart",
+        "select name, empno from EMPS where name = 'Fred'",
+        "NAME=Fred; EMPNO=100");
+  }
+
+  /** Filter that is partly pushed into CsvTableScan; the condition on an
+   * integer column remains. */
+  @Test public void testPushDownFilter2() throws SQLException {
+    checkSql("smart",
+        "select empno, gender, name from EMPS where gender = 'F' and empno > 125",
+        "EMPNO=130; GENDER=F; NAME=Alice");
+  }
+
+  /** Reads a file that is large enough to be split into chunks and parsed
+   * in parallel, using each flavor of table. */
+  @Test public void testParallelScan() throws Exception {
+    final int rowCount = 200000;
+    final File dir = Files.createTempDir();
+    final File file = new File(dir, "BIG.csv");
+    try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+      pw.print("ID:int,NAME:string,QTY:long,NOTE\r\n");
+      for (int i = 0; i < rowCount; i++) {
+        pw.print(i);
+        pw.print(",name");
+        pw.print(i % 10);
+        pw.print(',');
+        pw.print(i * 1000L);
+        pw.print(',');
+        // Quoted fields may contain separators, escaped quotes and newlines
+        pw.print(i % 1000 == 0 ? "\"a, \"\"b\"\"\nc\"" : "note");
+        pw.print("\r\n");
+      }
+    }
+    // Files of 4MB or more are parsed in parallel
+    assertThat(file.length() > 4L << 20, is(true));
+    try {
+      for (String flavor : Arrays.asList("scannable", "filterable",
+          "translatable")) {
+        checkSchemaSql(operand(dir, flavor, false),
+            "select count(*) as c, max(id) as m, sum(qty) as q from big",
+            "C=200000; M=199999; Q=19999900000000");
+        checkSchemaSql(operand(dir, flavor, false),
+            "select count(*) as c from big where name = 'name7'",
+            "C=20000");
+        checkSchemaSql(operand(dir, flavor, false),
+            "select id, note from big where id in (0, 1, 3000)",
+            "ID=0; NOTE=a, \"b\"\nc",
+            "ID=1; NOTE=note",
+            "ID=3000; NOTE=a, \"b\"\nc");
+      }
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      //noinspection ResultOfMethodCallIgnored
+      dir.delete();
+    }
+  }
+
+  /** Tests that a CSV file is cached in columnar form, that the cache is
+   * used for projections and filters, and that it is rebuilt when the file
+   * changes. */
+  @Test public void testColumnarCache() throws Exception {
+    final File dir = Files.createTempDir();
+    final File file = new File(dir, "EMP.csv");
+    final File cacheFile = new File(dir, "EMP.csv.cache");
+    try {
+      Files.write("EMPNO:int,NAME:string,SAL:double,HIREDATE:date,MGR:long\n"
+          + "100,Fred,1000.5,1996-08-03,\n"
+          + "110,\"Eric, Jr\",,2001-01-01,100\n"
+          + "120,Wilma,2500,,110\n",
+          file, Charsets.UTF_8);
+      for (String flavor : Arrays.asList("scannable", "filterable",
+          "translatable")) {
+        //noinspection ResultOfMethodCallIgnored
+        cacheFile.delete();
+        checkSchemaSql(operand(dir, flavor, true),
+            "select empno, name, sal, mgr from emp",
+            "EMPNO=100; NAME=Fred; SAL=1000.5; MGR=null",
+            "EMPNO=110; NAME=Eric, Jr; SAL=null; MGR=100",
+            "EMPNO=120; NAME=Wilma; SAL=2500.0; MGR=110");
+        assertThat(cacheFile.exists(), is(true));
+        checkSchemaSql(operand(dir, flavor, true),
+            "select empno from emp where hiredate is null",
+            "EMPNO=120");
+        checkSchemaSql(operand(dir, flavor, true),
+            "select name, empno from emp where name = 'Wilma'",
+            "NAME=Wilma; EMPNO=120");
+        checkSchemaSql(operand(dir, flavor, true),
+            "select empno from emp where name = 'Barney'");
+        checkSchemaSql(operand(dir, flavor, true),
+            "select name from emp where empno = 110",
+            "NAME=Eric, Jr");
+      }
+
+      // Change the file; the cache is stale, and is rebuilt
+      Files.append("130,Barney,,,\n", file, Charsets.UTF_8);
+      checkSchemaSql(operand(dir, "translatable", true),
+          "select count(*) as c from emp where name = 'Barney'",
+          "C=1");
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      cacheFile.delete();
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      //noinspection ResultOfMethodCallIgnored
+      dir.delete();
+    }
+  }
+
+  private static Map<String, Object> operand(File dir, String flavor,
+      boolean cache) {
+    return ImmutableMap.<String, Object>of("directory", dir.getAbsolutePath(),
+        "flavor", flavor, "cache", cache);
+  }
+
+  private void checkSchemaSql(Map<String, Object> operand, String sql,
+      String... expected) throws SQLException {
+    try (Connection connection = DriverManager.getConnection("jdbc:calcite:")) {
+      final CalciteConnection calciteConnection =
+          connection.unwrap(CalciteConnection.class);
+      final Schema schema =
+          new CsvSchemaFactory()
+              .create(calciteConnection.getRootSchema(), null, operand);
+      calciteConnection.getRootSchema().add("TEST", schema);
+      calciteConnection.setSchema("TEST");
+      try (Statement statement = connection.createStatement()) {
+        final ResultSet resultSet = statement.executeQuery(sql);
+        expect(expected).apply(resultSet);
+      }
+    }
+  }
+
   @Test public void testJson() throws SQLException {
     checkSql("bug", "select _MAP['id'] as id,\n"
             + " _MAP['title'] as title,\n"
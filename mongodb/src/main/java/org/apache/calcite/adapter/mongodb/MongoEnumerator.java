@@ -21,6 +21,7 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.Primitive;
 
+import com.mongodb.Cursor;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 
@@ -72,6 +73,10 @@ public void reset() {
   public void close() {
     if (cursor instanceof DBCursor) {
       ((DBCursor) cursor).close();
+    } else if (cursor instanceof Cursor) {
+      // Closing an aggregation cursor that has not been read to the end
+      // releases it on the server
+      ((Cursor) cursor).close();
     }
     // AggregationOutput implements Iterator but not DBCursor. There is no
     // available close() method -- apparently there is no open resource.
@@ -31,6 +31,8 @@
  */
 public class MongoSchema extends AbstractSchema {
   final DB mongoDb;
+  final Integer batchSize;
+  final boolean allowDiskUse;
 
   /**
    * Creates a MongoDB schema.
@@ -39,7 +41,25 @@ public class MongoSchema extends AbstractSchema {
    * @param database Mongo database name, e.g. "foodmart"
    */
   public MongoSchema(String host, String database) {
+    this(host, database, null, false);
+  }
+
+  /**
+   * Creates a MongoDB schema with options for reading results.
+   *
+   * @param host Mongo host, e.g. "localhost"
+   * @param database Mongo database name, e.g. "foodmart"
+   * @param batchSize Number of documents MongoDB returns in each batch of a
+   *                  cursor, or null to use the server's default
+   * @param allowDiskUse Whether aggregation stages such as $group and $sort
+   *                     may write temporary files when they exceed MongoDB's
+   *                     memory limit
+   */
+  public MongoSchema(String host, String database, Integer batchSize,
+      boolean allowDiskUse) {
     super();
+    this.batchSize = batchSize;
+    this.allowDiskUse = allowDiskUse;
     try {
       MongoClient mongo = new MongoClient(host);
       this.mongoDb = mongo.getDB(database);
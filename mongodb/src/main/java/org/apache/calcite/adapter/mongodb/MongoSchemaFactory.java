@@ -38,7 +38,11 @@ public Schema create(SchemaPlus parentSchema, String name,
     Map map = (Map) operand;
     String host = (String) map.get("host");
     String database = (String) map.get("database");
-    return new MongoSchema(host, database);
+    Integer batchSize = map.get("batchSize") == null
+        ? null
+        : ((Number) map.get("batchSize")).intValue();
+    boolean allowDiskUse = Boolean.TRUE.equals(map.get("allowDiskUse"));
+    return new MongoSchema(host, database, batchSize, allowDiskUse);
   }
 }
 
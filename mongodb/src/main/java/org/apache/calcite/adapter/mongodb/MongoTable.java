@@ -35,8 +35,6 @@
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.util.Util;
 
-import com.google.common.collect.Lists;
-
 import com.mongodb.AggregationOptions;
 import com.mongodb.AggregationOutput;
 import com.mongodb.BasicDBList;
@@ -95,16 +93,17 @@ public RelNode toRel(
    * <p>For example,
    * <code>zipsTable.find("{state: 'OR'}", "{city: 1, zipcode: 1}")</code></p>
    *
-   * @param mongoDb MongoDB connection
+   * @param schema MongoDB schema
    * @param filterJson Filter JSON string, or null
    * @param projectJson Project JSON string, or null
    * @param fields List of fields to project; or null to return map
    * @return Enumerator of results
    */
-  private Enumerable<Object> find(DB mongoDb, String filterJson,
+  private Enumerable<Object> find(MongoSchema schema, String filterJson,
       String projectJson, List<Map.Entry<String, Class>> fields) {
     final DBCollection collection =
-        mongoDb.getCollection(collectionName);
+        schema.mongoDb.getCollection(collectionName);
+    final Integer batchSize = schema.batchSize;
     final DBObject filter =
         filterJson == null ? null : (DBObject) JSON.parse(filterJson);
     final DBObject project =
@@ -113,6 +112,9 @@ private Enumerable<Object> find(DB mongoDb, String filterJson,
     return new AbstractEnumerable<Object>() {
       public Enumerator<Object> enumerator() {
         final DBCursor cursor = collection.find(filter, project);
+        if (batchSize != null) {
+          cursor.batchSize(batchSize);
+        }
         return new MongoEnumerator(cursor, getter);
       }
     };
@@ -126,14 +128,15 @@ public Enumerator<Object> enumerator() {
    * "{$group: {_id: '$city', c: {$sum: 1}, p: {$sum: '$pop'}}}")
    * </code></p>
    *
-   * @param mongoDb MongoDB connection
+   * @param schema MongoDB schema
    * @param fields List of fields to project; or null to return map
    * @param operations One or more JSON strings
    * @return Enumerator of results
    */
-  private Enumerable<Object> aggregate(final DB mongoDb,
+  private Enumerable<Object> aggregate(final MongoSchema schema,
       final List<Map.Entry<String, Class>> fields,
       final List<String> operations) {
+    final DB mongoDb = schema.mongoDb;
     final List<DBObject> list = new ArrayList<>();
     final BasicDBList versionArray = (BasicDBList) mongoDb
         .command("buildInfo").get("versionArray");
@@ -162,16 +165,17 @@ public Enumerator<Object> enumerator() {
           // and can return result sets of any size.
           // See: http://docs.mongodb.org/manual/core/aggregation-pipeline
           if (versionMajor > 1) {
-            // MongoDB version 2.6+
-            if (versionMinor > 5) {
+            // MongoDB version 2.6+, including 3.x
+            if (versionMajor > 2 || versionMinor > 5) {
+              // Read the cursor a batch at a time, rather than loading the
+              // whole result into memory
               AggregationOptions options = AggregationOptions.builder()
-                   .outputMode(AggregationOptions.OutputMode.CURSOR).build();
-              // Warning - this can result in a very large ArrayList!
-              // but you should know your data and aggregate accordingly
-              final List<DBObject> resultAsArrayList =
-                  Lists.newArrayList(mongoDb.getCollection(collectionName)
-                      .aggregate(list, options));
-              resultIterator = resultAsArrayList.iterator();
+                  .outputMode(AggregationOptions.OutputMode.CURSOR)
+                  .batchSize(schema.batchSize)
+                  .allowDiskUse(schema.allowDiskUse)
+                  .build();
+              resultIterator = mongoDb.getCollection(collectionName)
+                  .aggregate(list, options);
             } else { // Pre MongoDB version 2.6
               AggregationOutput result = aggregateOldWay(mongoDb
                    .getCollection(collectionName), first, rest);
@@ -228,12 +232,12 @@ private AggregationOutput aggregateOldWay(DBCollection dbCollection,
     public Enumerator<T> enumerator() {
       //noinspection unchecked
       final Enumerable<T> enumerable =
-          (Enumerable<T>) getTable().find(getMongoDb(), null, null, null);
+          (Enumerable<T>) getTable().find(getMongoSchema(), null, null, null);
       return enumerable.enumerator();
     }
 
-    private DB getMongoDb() {
-      return schema.unwrap(MongoSchema.class).mongoDb;
+    private MongoSchema getMongoSchema() {
+      return schema.unwrap(MongoSchema.class);
     }
 
     private MongoTable getTable() {
@@ -247,7 +251,7 @@ private MongoTable getTable() {
     @SuppressWarnings("UnusedDeclaration")
     public Enumerable<Object> aggregate(List<Map.Entry<String, Class>> fields,
         List<String> operations) {
-      return getTable().aggregate(getMongoDb(), fields, operations);
+      return getTable().aggregate(getMongoSchema(), fields, operations);
     }
 
     /** Called via code-generation.
@@ -257,7 +261,8 @@ public Enumerable<Object> aggregate(List<Map.Entry<String, Class>> fields,
     @SuppressWarnings("UnusedDeclaration")
     public Enumerable<Object> find(String filterJson,
         String projectJson, List<Map.Entry<String, Class>> fields) {
-      return getTable().find(getMongoDb(), filterJson, projectJson, fields);
+      return getTable().find(getMongoSchema(), filterJson, projectJson,
+          fields);
     }
   }
 }
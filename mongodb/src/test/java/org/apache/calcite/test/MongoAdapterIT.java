@@ -411,6 +411,33 @@ public Void apply(ResultSet resultSet) {
         .returnsCount(29353);
   }
 
+  /** Reads a large result through an aggregation cursor in small batches,
+   * with a $sort that may spill to disk. */
+  @Test public void testZipsBatchSize() {
+    final String model = "{\n"
+        + "  version: '1.0',\n"
+        + "  defaultSchema: 'mongo_raw',\n"
+        + "  schemas: [\n"
+        + "    {\n"
+        + "      type: 'custom',\n"
+        + "      name: 'mongo_raw',\n"
+        + "      factory: 'org.apache.calcite.adapter.mongodb.MongoSchemaFactory',\n"
+        + "      operand: {\n"
+        + "        host: 'localhost',\n"
+        + "        database: 'test',\n"
+        + "        batchSize: 100,\n"
+        + "        allowDiskUse: true\n"
+        + "      }\n"
+        + "    }\n"
+        + "  ]\n"
+        + "}";
+    CalciteAssert.model(model)
+        .enable(enabled())
+        .query("select cast(_MAP['state'] as varchar(2)) as state\n"
+            + "from \"zips\" order by 1")
+        .returnsCount(29353);
+  }
+
   @Test public void testCountGroupByEmpty() {
     CalciteAssert.that()
         .enable(enabled())
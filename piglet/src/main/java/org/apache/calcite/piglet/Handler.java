@@ -34,6 +34,7 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,7 @@
 public class Handler {
   private final PigRelBuilder builder;
   private final Map<String, RelNode> map = new HashMap<>();
+  private int spoolCount;
 
   public Handler(PigRelBuilder builder) {
     this.builder = builder;
@@ -155,9 +157,18 @@ public Handler handle(Ast.Node node) {
       return this;
     case PROGRAM:
       final Ast.Program program = (Ast.Program) node;
+      final List<RelNode> outputs = new ArrayList<>();
       for (Ast.Stmt stmt : program.stmtList) {
-        handle(stmt);
+        if (stmt.op == Ast.Op.DUMP) {
+          // Defer outputs until the whole script has been translated, so
+          // that relational expressions they have in common are evaluated
+          // only once.
+          outputs.add(map.get(((Ast.DumpStmt) stmt).relation.value));
+        } else {
+          handle(stmt);
+        }
       }
+      dump(outputs);
       return this;
     case DUMP:
       final Ast.DumpStmt dump = (Ast.DumpStmt) node;
@@ -178,6 +189,62 @@ public Handler handle(Ast.Node node) {
   protected void dump(RelNode rel) {
   }
 
+  /** Executes the outputs of a script, in order.
+   *
+   * <p>Each relational expression that is used more than once, by the
+   * outputs or by each other, is replaced by a {@link SpoolScan}, so that it
+   * is evaluated at most once; then {@link #dump(RelNode)} is called for each
+   * output.
+   *
+   * @param rels Relational expressions, one per DUMP statement
+   */
+  protected void dump(List<RelNode> rels) {
+    final Map<RelNode, Integer> uses = new IdentityHashMap<>();
+    for (RelNode rel : rels) {
+      countUses(rel, uses);
+    }
+    final Map<RelNode, RelNode> replacements = new IdentityHashMap<>();
+    final List<RelNode> outputs = new ArrayList<>();
+    for (RelNode rel : rels) {
+      outputs.add(share(rel, uses, replacements));
+    }
+    for (RelNode output : outputs) {
+      dump(output);
+    }
+  }
+
+  private static void countUses(RelNode rel, Map<RelNode, Integer> uses) {
+    final Integer count = uses.get(rel);
+    uses.put(rel, count == null ? 1 : count + 1);
+    if (count == null) {
+      for (RelNode input : rel.getInputs()) {
+        countUses(input, uses);
+      }
+    }
+  }
+
+  private RelNode share(RelNode rel, Map<RelNode, Integer> uses,
+      Map<RelNode, RelNode> replacements) {
+    RelNode replacement = replacements.get(rel);
+    if (replacement != null) {
+      return replacement;
+    }
+    final List<RelNode> inputs = new ArrayList<>();
+    for (RelNode input : rel.getInputs()) {
+      inputs.add(share(input, uses, replacements));
+    }
+    replacement = inputs.equals(rel.getInputs())
+        ? rel
+        : rel.copy(rel.getTraitSet(), inputs);
+    if (uses.get(rel) > 1 && Spool.canSpool(replacement)) {
+      final Spool spool = new Spool(spoolCount++, replacement,
+          Spool.DEFAULT_MEMORY_ROW_LIMIT);
+      replacement = new SpoolScan(rel.getCluster(), spool);
+    }
+    replacements.put(rel, replacement);
+    return replacement;
+  }
+
   private ImmutableList<ImmutableList<RexLiteral>>
   tuples(Ast.ValuesStmt valuesStmt, RelDataType rowType) {
     final ImmutableList.Builder<ImmutableList<RexLiteral>> listBuilder =
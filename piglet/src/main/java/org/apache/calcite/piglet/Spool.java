@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.piglet;
+
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Values;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.tools.RelRunners;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of a relational expression that are computed once and read many
+ * times.
+ *
+ * <p>The expression is executed the first time that its rows are read.
+ * The first {@code memoryRowLimit} rows are kept in memory, and any further
+ * rows are written to a temporary file; later reads replay the saved rows.
+ */
+public class Spool {
+  /** Default number of rows to keep in memory before writing to disk. */
+  public static final int DEFAULT_MEMORY_ROW_LIMIT = 100000;
+
+  public final int id;
+  public final RelNode rel;
+  private final int memoryRowLimit;
+
+  /** Rows held in memory; null until the expression has been executed. */
+  private List<Object[]> rows;
+  /** File that holds rows beyond the memory limit, or null. */
+  private File file;
+
+  public Spool(int id, RelNode rel, int memoryRowLimit) {
+    this.id = id;
+    this.rel = rel;
+    this.memoryRowLimit = memoryRowLimit;
+  }
+
+  /** Returns whether it is worth spooling a relational expression, and
+   * whether the types of its fields allow it. */
+  public static boolean canSpool(RelNode rel) {
+    if (rel instanceof Values || rel instanceof SpoolScan) {
+      return false; // as cheap to re-read as a spool
+    }
+    for (RelDataTypeField field : rel.getRowType().getFieldList()) {
+      switch (field.getType().getSqlTypeName()) {
+      case BOOLEAN:
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+      case BIGINT:
+      case DECIMAL:
+      case REAL:
+      case FLOAT:
+      case DOUBLE:
+      case CHAR:
+      case VARCHAR:
+        break;
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the rows, executing the expression if this is the first
+   * call. Called from generated code. */
+  public synchronized Enumerable<Object[]> enumerable() {
+    if (rows == null) {
+      fill();
+    }
+    final List<Object[]> rows = this.rows;
+    final File file = this.file;
+    return new AbstractEnumerable<Object[]>() {
+      public Enumerator<Object[]> enumerator() {
+        return new SpoolEnumerator(rows, file);
+      }
+    };
+  }
+
+  private void fill() {
+    final List<Object[]> list = new ArrayList<>();
+    final List<RelDataTypeField> fields = rel.getRowType().getFieldList();
+    ObjectOutputStream out = null;
+    try (PreparedStatement statement = RelRunners.run(rel);
+         ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        final Object[] row = new Object[fields.size()];
+        for (int i = 0; i < row.length; i++) {
+          row[i] = get(resultSet, i + 1,
+              fields.get(i).getType().getSqlTypeName());
+        }
+        if (list.size() < memoryRowLimit) {
+          list.add(row);
+          continue;
+        }
+        if (out == null) {
+          file = File.createTempFile("spool", ".ser");
+          file.deleteOnExit();
+          out = new ObjectOutputStream(
+              new BufferedOutputStream(new FileOutputStream(file)));
+        }
+        out.writeObject(row);
+        out.reset(); // don't retain references to rows already written
+      }
+      if (out != null) {
+        out.writeObject(null); // end marker
+        out.close();
+        out = null;
+      }
+    } catch (SQLException | IOException e) {
+      throw new RuntimeException("while spooling " + rel, e);
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+    rows = list;
+  }
+
+  private static Object get(ResultSet resultSet, int i, SqlTypeName typeName)
+      throws SQLException {
+    final Object o;
+    switch (typeName) {
+    case BOOLEAN:
+      o = resultSet.getBoolean(i);
+      break;
+    case TINYINT:
+      o = resultSet.getByte(i);
+      break;
+    case SMALLINT:
+      o = resultSet.getShort(i);
+      break;
+    case INTEGER:
+      o = resultSet.getInt(i);
+      break;
+    case BIGINT:
+      o = resultSet.getLong(i);
+      break;
+    case REAL:
+      o = resultSet.getFloat(i);
+      break;
+    case FLOAT:
+    case DOUBLE:
+      o = resultSet.getDouble(i);
+      break;
+    case DECIMAL:
+      return resultSet.getBigDecimal(i);
+    default:
+      return resultSet.getString(i);
+    }
+    return resultSet.wasNull() ? null : o;
+  }
+
+  /** Enumerator that reads the rows held in memory, then the rows in the
+   * overflow file, if any. */
+  private static class SpoolEnumerator implements Enumerator<Object[]> {
+    private final List<Object[]> rows;
+    private final File file;
+    private int index = -1;
+    private ObjectInputStream in;
+    private Object[] current;
+    private boolean exhausted;
+
+    SpoolEnumerator(List<Object[]> rows, File file) {
+      this.rows = rows;
+      this.file = file;
+    }
+
+    public Object[] current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      if (index + 1 < rows.size()) {
+        current = rows.get(++index);
+        return true;
+      }
+      if (file == null || exhausted) {
+        return false;
+      }
+      try {
+        if (in == null) {
+          in = new ObjectInputStream(
+              new BufferedInputStream(new FileInputStream(file)));
+        }
+        current = (Object[]) in.readObject();
+        exhausted = current == null;
+        return !exhausted;
+      } catch (IOException | ClassNotFoundException e) {
+        throw new RuntimeException("while reading spool file " + file, e);
+      }
+    }
+
+    public void reset() {
+      close();
+      index = -1;
+      current = null;
+      exhausted = false;
+    }
+
+    public void close() {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // ignore
+        }
+        in = null;
+      }
+    }
+  }
+}
+
+// End Spool.java
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.piglet;
+
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.JavaRowFormat;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.util.BuiltInMethod;
+
+import java.util.List;
+
+/**
+ * Relational expression that reads the rows of a {@link Spool}.
+ *
+ * <p>The {@link Handler} replaces each relational expression that several
+ * outputs of a script have in common by a {@code SpoolScan}, so that the
+ * expression is evaluated once however many outputs read it.
+ */
+public class SpoolScan extends AbstractRelNode implements EnumerableRel {
+  public final Spool spool;
+
+  public SpoolScan(RelOptCluster cluster, Spool spool) {
+    super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE));
+    this.spool = spool;
+  }
+
+  @Override protected RelDataType deriveRowType() {
+    return spool.rel.getRowType();
+  }
+
+  @Override public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+    assert traitSet.containsIfApplicable(EnumerableConvention.INSTANCE);
+    assert inputs.isEmpty();
+    return this;
+  }
+
+  @Override public double estimateRowCount(RelMetadataQuery mq) {
+    return mq.getRowCount(spool.rel);
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .item("spool", spool.id);
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    final BlockBuilder builder = new BlockBuilder();
+    final PhysType physType =
+        PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(),
+            JavaRowFormat.ARRAY);
+    final Expression enumerable_ = builder.append("spool",
+        Expressions.call(implementor.stash(spool, Spool.class),
+            "enumerable"));
+    final Expression sliced_ =
+        getRowType().getFieldCount() == 1
+            ? Expressions.call(BuiltInMethod.SLICE0.method, enumerable_)
+            : enumerable_;
+    builder.add(sliced_);
+    return implementor.result(physType, builder.toBlock());
+  }
+}
+
+// End SpoolScan.java
@@ -21,6 +21,7 @@
 import org.apache.calcite.piglet.parser.ParseException;
 import org.apache.calcite.piglet.parser.PigletParser;
 import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.tools.PigRelBuilder;
 import org.apache.calcite.util.Util;
 
@@ -30,6 +31,7 @@
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -57,6 +59,22 @@ public Fluent explainContains(String expected) throws ParseException {
     return this;
   }
 
+  /** Checks the plans of the outputs of a script, after relational
+   * expressions that they have in common have been replaced by spools. */
+  public Fluent dumpsContain(String... expected) throws ParseException {
+    final Ast.Program program = parseProgram(pig);
+    final PigRelBuilder builder =
+        PigRelBuilder.create(PigRelBuilderTest.config().build());
+    final List<String> plans = new ArrayList<>();
+    new Handler(builder) {
+      @Override protected void dump(RelNode rel) {
+        plans.add(Util.toLinux(RelOptUtil.toString(rel)));
+      }
+    }.handle(program);
+    assertThat(plans, is(Arrays.asList(expected)));
+    return this;
+  }
+
   public Fluent returns(final String out)
       throws ParseException {
     return returns(
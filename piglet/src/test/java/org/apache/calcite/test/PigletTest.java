@@ -16,11 +16,19 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.piglet.Spool;
 import org.apache.calcite.piglet.parser.ParseException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.tools.PigRelBuilder;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
 /** Unit tests for Piglet. */
 public class PigletTest {
   private static Fluent pig(String pig) {
@@ -294,6 +302,59 @@ private static Fluent pig(String pig) {
         "LogicalValues(tuples=[[{ 1, [['a', true], ['b', false]] }, { 2, [] }]])\n";
     pig(s).explainContains(expected);
   }
+
+  /** Tests that a relation that is used by two outputs is read once. */
+  @Test public void testMultipleDump() throws ParseException {
+    final String s = "A = LOAD 'DEPT';\n"
+        + "B = FOREACH A GENERATE DNAME;\n"
+        + "C = FOREACH A GENERATE LOC;\n"
+        + "DUMP B;\n"
+        + "DUMP C;";
+    final String plan0 = "LogicalProject(DNAME=[$1])\n"
+        + "  SpoolScan(spool=[0])\n";
+    final String plan1 = "LogicalProject(LOC=[$2])\n"
+        + "  SpoolScan(spool=[0])\n";
+    final String out = "(ACCOUNTING)\n"
+        + "(RESEARCH)\n"
+        + "(SALES)\n"
+        + "(OPERATIONS)\n"
+        + "(NEW YORK)\n"
+        + "(DALLAS)\n"
+        + "(CHICAGO)\n"
+        + "(BOSTON)\n";
+    pig(s).dumpsContain(plan0, plan1)
+        .returns(out);
+  }
+
+  /** Tests that a relation used only once, and a VALUES, are not spooled. */
+  @Test public void testMultipleDumpNoSpool() throws ParseException {
+    final String s = "A = VALUES (1, 'a'), (2, 'b') AS (x: int, y: string);\n"
+        + "B = FILTER A BY x > 1;\n"
+        + "DUMP A;\n"
+        + "DUMP B;";
+    final String plan0 = "LogicalValues(tuples=[[{ 1, 'a' }, { 2, 'b' }]])\n";
+    final String plan1 = "LogicalFilter(condition=[>($0, 1)])\n"
+        + "  LogicalValues(tuples=[[{ 1, 'a' }, { 2, 'b' }]])\n";
+    pig(s).dumpsContain(plan0, plan1)
+        .returns("(1,a)\n(2,b)\n(2,b)\n");
+  }
+
+  /** Tests a spool whose rows do not fit in memory, and so are partly
+   * written to disk. */
+  @Test public void testSpoolOverflow() {
+    final PigRelBuilder builder =
+        PigRelBuilder.create(PigRelBuilderTest.config().build());
+    final RelNode rel =
+        builder.values(new String[] {"x", "y"}, 1, "a", 2, "b", 3, "c")
+            .build();
+    final Spool spool = new Spool(0, rel, 2);
+    for (int i = 0; i < 2; i++) {
+      final List<Object[]> rows = spool.enumerable().toList();
+      assertThat(rows.size(), is(3));
+      assertThat(rows.get(0)[0], is((Object) 1));
+      assertThat(rows.get(2)[1], is((Object) "c"));
+    }
+  }
 }
 
 // End PigletTest.java
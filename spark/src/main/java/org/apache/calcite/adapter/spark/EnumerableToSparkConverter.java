@@ -70,7 +70,7 @@ public Result implementSpark(Implementor implementor) {
     final PhysType physType =
         PhysTypeImpl.of(
             implementor.getTypeFactory(), getRowType(),
-            JavaRowFormat.CUSTOM);
+            JavaRowFormat.ARRAY);
     final Expression source = null; // TODO:
     final Expression sparkContext =
         Expressions.call(
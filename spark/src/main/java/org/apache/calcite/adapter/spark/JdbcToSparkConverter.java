@@ -34,9 +34,11 @@
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.prepare.CalcitePrepareImpl;
+import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.convert.ConverterImpl;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.sql.SqlDialect;
 import org.apache.calcite.util.BuiltInMethod;
 
@@ -46,6 +48,10 @@
 /**
  * Relational expression representing a scan of a table in a JDBC data source
  * that returns its results as a Spark RDD.
+ *
+ * <p>If the query returns an integer column and its rows need not be in a
+ * particular order, the RDD reads the rows in several partitions, each of
+ * which reads the rows whose value of that column is in a range.
  */
 public class JdbcToSparkConverter
     extends ConverterImpl
@@ -67,21 +73,33 @@ protected JdbcToSparkConverter(RelOptCluster cluster, RelTraitSet traits,
 
   public SparkRel.Result implementSpark(SparkRel.Implementor implementor) {
     // Generate:
-    //   ResultSetEnumerable.of(schema.getDataSource(), "select ...")
+    //   SparkRuntime.createJdbcRdd(sparkContext, schema.getDataSource(),
+    //       "select ...", "select min(c), max(c) from (select ...) t",
+    //       "select * from (select ...) t where c", primitives)
     final BlockBuilder list = new BlockBuilder();
     final JdbcRel child = (JdbcRel) getInput();
     final PhysType physType =
         PhysTypeImpl.of(
             implementor.getTypeFactory(), getRowType(),
-            JavaRowFormat.CUSTOM);
+            JavaRowFormat.ARRAY);
     final JdbcConvention jdbcConvention =
         (JdbcConvention) child.getConvention();
-    String sql = generateSql(jdbcConvention.dialect);
+    final SqlDialect dialect = jdbcConvention.dialect;
+    String sql = generateSql(dialect);
     if (CalcitePrepareImpl.DEBUG) {
       System.out.println("[" + sql + "]");
     }
-    final Expression sqlLiteral =
-        list.append("sql", Expressions.constant(sql));
+    String boundsSql = null;
+    String partitionSql = null;
+    final RelDataTypeField partitionField = partitionField();
+    if (partitionField != null) {
+      final String table = " " + dialect.quoteIdentifier("T");
+      final String column = dialect.quoteIdentifier(partitionField.getName());
+      boundsSql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM ("
+          + sql + ")" + table;
+      partitionSql = "SELECT * FROM (" + sql + ")" + table + " WHERE "
+          + column;
+    }
     final List<Primitive> primitives = new ArrayList<Primitive>();
     for (int i = 0; i < getRowType().getFieldCount(); i++) {
       final Primitive primitive = Primitive.ofBoxOr(physType.fieldClass(i));
@@ -91,23 +109,57 @@ public SparkRel.Result implementSpark(SparkRel.Implementor implementor) {
         list.append("primitives",
             Expressions.constant(
                 primitives.toArray(new Primitive[primitives.size()])));
-    final Expression enumerable =
+    final Expression rdd =
         list.append(
-            "enumerable",
+            "rdd",
             Expressions.call(
-                BuiltInMethod.RESULT_SET_ENUMERABLE_OF.method,
+                SparkMethod.CREATE_JDBC_RDD.method,
+                Expressions.call(SparkMethod.GET_SPARK_CONTEXT.method,
+                    implementor.getRootExpression()),
                 Expressions.call(
                     Expressions.convert_(
                         jdbcConvention.expression,
                         JdbcSchema.class),
                     BuiltInMethod.JDBC_SCHEMA_DATA_SOURCE.method),
-                sqlLiteral,
+                Expressions.constant(sql),
+                Expressions.constant(boundsSql, String.class),
+                Expressions.constant(partitionSql, String.class),
                 primitivesLiteral));
     list.add(
-        Expressions.return_(null, enumerable));
+        Expressions.return_(null, rdd));
     return implementor.result(physType, list.toBlock());
   }
 
+  /** Returns the integer column whose values are used to split the query
+   * into partitions, or null if the query must be read in one piece
+   * because it has no such column or its rows are sorted.
+   *
+   * <p>The rows are sorted if the input has a collation, not only if the input
+   * is itself a sort; for example, a project on top of a sort. */
+  private RelDataTypeField partitionField() {
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final List<RelCollation> collations = mq.collations(getInput());
+    if (collations != null) {
+      for (RelCollation collation : collations) {
+        if (!collation.getFieldCollations().isEmpty()) {
+          return null;
+        }
+      }
+    }
+    for (RelDataTypeField field : getRowType().getFieldList()) {
+      switch (field.getType().getSqlTypeName()) {
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+      case BIGINT:
+        return field;
+      default:
+        break;
+      }
+    }
+    return null;
+  }
+
   private String generateSql(SqlDialect dialect) {
     final JdbcImplementor jdbcImplementor =
         new JdbcImplementor(dialect,
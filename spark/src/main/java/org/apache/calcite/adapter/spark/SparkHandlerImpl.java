@@ -42,8 +42,13 @@
 public class SparkHandlerImpl implements CalcitePrepare.SparkHandler {
   private final HttpServer classServer;
   private final AtomicInteger classId;
+  /** Spark context that runs in this JVM with a worker thread per core.
+   * (Equivalent to "local[*]", which this version of Spark does not
+   * accept.) */
   private final JavaSparkContext sparkContext =
-      new JavaSparkContext("local[1]", "calcite");
+      new JavaSparkContext(
+          "local[" + Runtime.getRuntime().availableProcessors() + "]",
+          "calcite");
 
   private static SparkHandlerImpl instance;
   private static final File SRC_DIR = new File("/tmp");
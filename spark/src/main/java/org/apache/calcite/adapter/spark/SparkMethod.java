@@ -18,6 +18,7 @@
 
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.linq4j.tree.Types;
 
 import org.apache.spark.api.java.JavaRDD;
@@ -26,6 +27,7 @@
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import javax.sql.DataSource;
 
 /**
  * Built-in methods in the Spark adapter.
@@ -38,6 +40,19 @@ public enum SparkMethod {
       Object[].class),
   CREATE_RDD(SparkRuntime.class, "createRdd", JavaSparkContext.class,
       Enumerable.class),
+  CREATE_JDBC_RDD(SparkRuntime.class, "createJdbcRdd", JavaSparkContext.class,
+      DataSource.class, String.class, String.class, String.class,
+      Primitive[].class),
+  SORT_RDD(SparkRuntime.class, "sortRdd", JavaSparkContext.class,
+      JavaRDD.class, boolean.class, int[].class, boolean[].class,
+      boolean[].class, int.class, int.class),
+  AGGREGATE_RDD(SparkRuntime.class, "aggregateRdd", JavaSparkContext.class,
+      JavaRDD.class, boolean.class, int[].class,
+      SparkRuntime.AggKind[].class, int[].class, Primitive[].class,
+      boolean.class),
+  JOIN_RDD(SparkRuntime.class, "joinRdd", JavaRDD.class, boolean.class,
+      int[].class, int.class, JavaRDD.class, boolean.class, int[].class,
+      int.class, boolean.class, boolean.class),
   GET_SPARK_CONTEXT(SparkRuntime.class, "getSparkContext", DataContext.class),
   RDD_FLAT_MAP(JavaRDD.class, "flatMap", FlatMapFunction.class),
   FLAT_MAP_FUNCTION_CALL(FlatMapFunction.class, "call", Object.class);
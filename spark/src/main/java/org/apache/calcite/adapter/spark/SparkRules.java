@@ -24,6 +24,8 @@
 import org.apache.calcite.adapter.enumerable.RexImpTable;
 import org.apache.calcite.adapter.enumerable.RexToLixTranslator;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.adapter.jdbc.JdbcToEnumerableConverter;
+import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.BlockStatement;
 import org.apache.calcite.linq4j.tree.Expression;
@@ -36,13 +38,25 @@
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.SingleRel;
 import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.CorrelationId;
+import org.apache.calcite.rel.core.EquiJoin;
+import org.apache.calcite.rel.core.JoinInfo;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Sort;
 import org.apache.calcite.rel.core.Values;
+import org.apache.calcite.rel.logical.LogicalAggregate;
 import org.apache.calcite.rel.logical.LogicalCalc;
+import org.apache.calcite.rel.logical.LogicalJoin;
 import org.apache.calcite.rel.logical.LogicalValues;
 import org.apache.calcite.rel.metadata.RelMdUtil;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
@@ -52,8 +66,11 @@
 import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexMultisetUtil;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexProgram;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.ImmutableIntList;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
@@ -72,6 +89,7 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Rules for the {@link SparkRel#CONVENTION Spark calling convention}.
@@ -89,8 +107,46 @@ public static List<RelOptRule> rules() {
         FilterToCalcRule.INSTANCE,
         EnumerableToSparkConverterRule.INSTANCE,
         SparkToEnumerableConverterRule.INSTANCE,
+        JdbcToSparkRule.INSTANCE,
         SPARK_VALUES_RULE,
-        SPARK_CALC_RULE);
+        SPARK_CALC_RULE,
+        SPARK_SORT_RULE,
+        SPARK_AGGREGATE_RULE,
+        SPARK_JOIN_RULE);
+  }
+
+  /** Returns whether each row of an RDD whose rows have a given physical type
+   * is a value, as opposed to an array of values. Relational expressions in
+   * Spark convention produce rows in {@link JavaRowFormat#ARRAY} format,
+   * which becomes {@link JavaRowFormat#SCALAR} if there is one field. */
+  static boolean isScalar(PhysType physType) {
+    switch (physType.getFormat()) {
+    case SCALAR:
+      return true;
+    case ARRAY:
+      return false;
+    default:
+      throw new AssertionError("unexpected format " + physType.getFormat());
+    }
+  }
+
+  /** Planner rule that reads the results of a JDBC query into an RDD, so
+   * that Spark can process them further. */
+  static class JdbcToSparkRule extends RelOptRule {
+    public static final JdbcToSparkRule INSTANCE = new JdbcToSparkRule();
+
+    private JdbcToSparkRule() {
+      super(operand(JdbcToEnumerableConverter.class, any()),
+          "JdbcToSparkRule");
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final JdbcToEnumerableConverter converter = call.rel(0);
+      call.transformTo(
+          new JdbcToSparkConverter(converter.getCluster(),
+              converter.getTraitSet().replace(SparkRel.CONVENTION),
+              converter.getInput()));
+    }
   }
 
   /** Planner rule that converts from enumerable to Spark convention. */
@@ -178,7 +234,7 @@ public Result implementSpark(Implementor implementor) {
       final PhysType physType =
           PhysTypeImpl.of(implementor.getTypeFactory(),
               getRowType(),
-              JavaRowFormat.CUSTOM);
+              JavaRowFormat.ARRAY);
       final Type rowClass = physType.getJavaRowType();
 
       final List<Expression> expressions = new ArrayList<Expression>();
@@ -306,7 +362,7 @@ public Result implementSpark(Implementor implementor) {
 
       final PhysType physType =
           PhysTypeImpl.of(
-              typeFactory, getRowType(), JavaRowFormat.CUSTOM);
+              typeFactory, getRowType(), JavaRowFormat.ARRAY);
 
       // final RDD<Employee> inputRdd = <<child adapter>>;
       // return inputRdd.flatMap(
@@ -387,6 +443,308 @@ public Result implementSpark(Implementor implementor) {
     }
   }
 
+  public static final SparkSortRule SPARK_SORT_RULE =
+      new SparkSortRule();
+
+  /**
+   * Rule to convert a {@link org.apache.calcite.rel.core.Sort} to a
+   * {@link org.apache.calcite.adapter.spark.SparkRules.SparkSort}.
+   */
+  private static class SparkSortRule extends ConverterRule {
+    private SparkSortRule() {
+      super(Sort.class, Convention.NONE, SparkRel.CONVENTION,
+          "SparkSortRule");
+    }
+
+    public RelNode convert(RelNode rel) {
+      final Sort sort = (Sort) rel;
+      if (sort.offset != null && !(sort.offset instanceof RexLiteral)
+          || sort.fetch != null && !(sort.fetch instanceof RexLiteral)) {
+        // Dynamic parameters are not supported
+        return null;
+      }
+      final RelNode input = sort.getInput();
+      return new SparkSort(
+          rel.getCluster(),
+          rel.getTraitSet().replace(SparkRel.CONVENTION),
+          convert(input,
+              input.getTraitSet().replace(SparkRel.CONVENTION)),
+          sort.getCollation(),
+          sort.offset,
+          sort.fetch);
+    }
+  }
+
+  /** Implementation of {@link org.apache.calcite.rel.core.Sort}
+   * in Spark convention.
+   *
+   * <p>Sorting shuffles the rows into ranges of the sort key, so that
+   * concatenating the partitions yields the sorted result. Offset and fetch
+   * are applied on the driver. */
+  public static class SparkSort extends Sort implements SparkRel {
+    public SparkSort(RelOptCluster cluster, RelTraitSet traitSet,
+        RelNode input, RelCollation collation, RexNode offset,
+        RexNode fetch) {
+      super(cluster, traitSet, input, collation, offset, fetch);
+      assert getConvention() == SparkRel.CONVENTION;
+    }
+
+    @Override public SparkSort copy(RelTraitSet traitSet, RelNode newInput,
+        RelCollation newCollation, RexNode offset, RexNode fetch) {
+      return new SparkSort(getCluster(), traitSet, newInput, newCollation,
+          offset, fetch);
+    }
+
+    public Result implementSpark(Implementor implementor) {
+      // return SparkRuntime.sortRdd(sparkContext, inputRdd, scalar,
+      //     keys, descending, nullsFirst, offset, fetch);
+      final BlockBuilder builder = new BlockBuilder();
+      final Result result =
+          implementor.visitInput(this, 0, (SparkRel) getInput());
+      final PhysType physType =
+          PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(),
+              JavaRowFormat.ARRAY);
+      final Expression inputRdd_ = builder.append("inputRdd", result.block);
+      final List<RelFieldCollation> fieldCollations =
+          collation.getFieldCollations();
+      final int[] keys = new int[fieldCollations.size()];
+      final boolean[] descending = new boolean[fieldCollations.size()];
+      final boolean[] nullsFirst = new boolean[fieldCollations.size()];
+      for (Ord<RelFieldCollation> fieldCollation : Ord.zip(fieldCollations)) {
+        keys[fieldCollation.i] = fieldCollation.e.getFieldIndex();
+        descending[fieldCollation.i] =
+            fieldCollation.e.getDirection().isDescending();
+        nullsFirst[fieldCollation.i] = fieldCollation.e.nullDirection
+            == RelFieldCollation.NullDirection.FIRST;
+      }
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(SparkMethod.SORT_RDD.method,
+                  Expressions.call(SparkMethod.GET_SPARK_CONTEXT.method,
+                      implementor.getRootExpression()),
+                  inputRdd_,
+                  Expressions.constant(isScalar(result.physType)),
+                  Expressions.constant(keys),
+                  Expressions.constant(descending),
+                  Expressions.constant(nullsFirst),
+                  Expressions.constant(
+                      offset == null ? 0 : RexLiteral.intValue(offset)),
+                  Expressions.constant(
+                      fetch == null ? -1 : RexLiteral.intValue(fetch)))));
+      return implementor.result(physType, builder.toBlock());
+    }
+  }
+
+  public static final SparkAggregateRule SPARK_AGGREGATE_RULE =
+      new SparkAggregateRule();
+
+  /**
+   * Rule to convert a {@link org.apache.calcite.rel.logical.LogicalAggregate}
+   * to a {@link org.apache.calcite.adapter.spark.SparkRules.SparkAggregate}.
+   */
+  private static class SparkAggregateRule extends ConverterRule {
+    private SparkAggregateRule() {
+      super(LogicalAggregate.class, Convention.NONE, SparkRel.CONVENTION,
+          "SparkAggregateRule");
+    }
+
+    public RelNode convert(RelNode rel) {
+      final LogicalAggregate agg = (LogicalAggregate) rel;
+      if (agg.indicator || agg.getGroupSets().size() != 1) {
+        return null;
+      }
+      for (AggregateCall aggCall : agg.getAggCallList()) {
+        if (aggCall.isDistinct()
+            || aggCall.filterArg >= 0
+            || aggCall.getArgList().size() > 1) {
+          return null;
+        }
+        switch (aggCall.getAggregation().getKind()) {
+        case COUNT:
+        case SUM:
+        case MIN:
+        case MAX:
+          break;
+        default:
+          return null;
+        }
+      }
+      final RelNode input = agg.getInput();
+      return new SparkAggregate(
+          rel.getCluster(),
+          rel.getTraitSet().replace(SparkRel.CONVENTION),
+          convert(input,
+              input.getTraitSet().replace(SparkRel.CONVENTION)),
+          agg.indicator,
+          agg.getGroupSet(),
+          agg.getGroupSets(),
+          agg.getAggCallList());
+    }
+  }
+
+  /** Implementation of {@link org.apache.calcite.rel.core.Aggregate}
+   * in Spark convention.
+   *
+   * <p>Each partition combines the rows of each group before they are
+   * shuffled, so only one row per group per partition crosses the network.
+   * Supports {@code COUNT}, {@code SUM}, {@code MIN} and {@code MAX}, without
+   * {@code DISTINCT}. */
+  public static class SparkAggregate extends Aggregate implements SparkRel {
+    public SparkAggregate(RelOptCluster cluster, RelTraitSet traitSet,
+        RelNode input, boolean indicator, ImmutableBitSet groupSet,
+        List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+      super(cluster, traitSet, input, indicator, groupSet, groupSets,
+          aggCalls);
+      assert getConvention() == SparkRel.CONVENTION;
+    }
+
+    @Override public SparkAggregate copy(RelTraitSet traitSet, RelNode input,
+        boolean indicator, ImmutableBitSet groupSet,
+        List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+      return new SparkAggregate(getCluster(), traitSet, input, indicator,
+          groupSet, groupSets, aggCalls);
+    }
+
+    public Result implementSpark(Implementor implementor) {
+      // return SparkRuntime.aggregateRdd(sparkContext, inputRdd, scalar,
+      //     groupKeys, kinds, args, primitives, scalarOutput);
+      final BlockBuilder builder = new BlockBuilder();
+      final Result result =
+          implementor.visitInput(this, 0, (SparkRel) getInput());
+      final PhysType physType =
+          PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(),
+              JavaRowFormat.ARRAY);
+      final Expression inputRdd_ = builder.append("inputRdd", result.block);
+      final int groupCount = getGroupCount();
+      final SparkRuntime.AggKind[] kinds =
+          new SparkRuntime.AggKind[aggCalls.size()];
+      final int[] args = new int[aggCalls.size()];
+      final Primitive[] primitives = new Primitive[aggCalls.size()];
+      for (Ord<AggregateCall> aggCall : Ord.zip(aggCalls)) {
+        kinds[aggCall.i] = SparkRuntime.AggKind.valueOf(
+            aggCall.e.getAggregation().getKind().name());
+        args[aggCall.i] = aggCall.e.getArgList().isEmpty()
+            ? -1
+            : aggCall.e.getArgList().get(0);
+        final Primitive primitive =
+            Primitive.ofBoxOr(physType.fieldClass(groupCount + aggCall.i));
+        primitives[aggCall.i] =
+            primitive != null ? primitive : Primitive.OTHER;
+      }
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(SparkMethod.AGGREGATE_RDD.method,
+                  Expressions.call(SparkMethod.GET_SPARK_CONTEXT.method,
+                      implementor.getRootExpression()),
+                  inputRdd_,
+                  Expressions.constant(isScalar(result.physType)),
+                  Expressions.constant(getGroupSet().toArray()),
+                  Expressions.constant(kinds),
+                  Expressions.constant(args),
+                  Expressions.constant(primitives),
+                  Expressions.constant(isScalar(physType)))));
+      return implementor.result(physType, builder.toBlock());
+    }
+  }
+
+  public static final SparkJoinRule SPARK_JOIN_RULE =
+      new SparkJoinRule();
+
+  /**
+   * Rule to convert a {@link org.apache.calcite.rel.logical.LogicalJoin} whose
+   * condition consists only of equalities between the inputs to a
+   * {@link org.apache.calcite.adapter.spark.SparkRules.SparkJoin}.
+   */
+  private static class SparkJoinRule extends ConverterRule {
+    private SparkJoinRule() {
+      super(LogicalJoin.class, Convention.NONE, SparkRel.CONVENTION,
+          "SparkJoinRule");
+    }
+
+    public RelNode convert(RelNode rel) {
+      final LogicalJoin join = (LogicalJoin) rel;
+      final List<RelNode> newInputs = new ArrayList<RelNode>();
+      for (RelNode input : join.getInputs()) {
+        newInputs.add(
+            convert(input,
+                input.getTraitSet().replace(SparkRel.CONVENTION)));
+      }
+      final RelNode left = newInputs.get(0);
+      final RelNode right = newInputs.get(1);
+      final JoinInfo info = JoinInfo.of(left, right, join.getCondition());
+      if (!info.isEqui()) {
+        return null;
+      }
+      return new SparkJoin(
+          rel.getCluster(),
+          rel.getTraitSet().replace(SparkRel.CONVENTION),
+          left,
+          right,
+          join.getCondition(),
+          info.leftKeys,
+          info.rightKeys,
+          join.getVariablesSet(),
+          join.getJoinType());
+    }
+  }
+
+  /** Implementation of {@link org.apache.calcite.rel.core.Join}
+   * in Spark convention.
+   *
+   * <p>Both inputs are shuffled on the join key, and rows with the same key
+   * are joined within each partition. Supports inner and outer equi-joins. */
+  public static class SparkJoin extends EquiJoin implements SparkRel {
+    public SparkJoin(RelOptCluster cluster, RelTraitSet traitSet,
+        RelNode left, RelNode right, RexNode condition,
+        ImmutableIntList leftKeys, ImmutableIntList rightKeys,
+        Set<CorrelationId> variablesSet, JoinRelType joinType) {
+      super(cluster, traitSet, left, right, condition, leftKeys, rightKeys,
+          variablesSet, joinType);
+      assert getConvention() == SparkRel.CONVENTION;
+    }
+
+    @Override public SparkJoin copy(RelTraitSet traitSet, RexNode condition,
+        RelNode left, RelNode right, JoinRelType joinType,
+        boolean semiJoinDone) {
+      final JoinInfo joinInfo = JoinInfo.of(left, right, condition);
+      assert joinInfo.isEqui();
+      return new SparkJoin(getCluster(), traitSet, left, right, condition,
+          joinInfo.leftKeys, joinInfo.rightKeys, variablesSet, joinType);
+    }
+
+    public Result implementSpark(Implementor implementor) {
+      // return SparkRuntime.joinRdd(leftRdd, leftScalar, leftKeys, leftCount,
+      //     rightRdd, rightScalar, rightKeys, rightCount,
+      //     generateNullsOnLeft, generateNullsOnRight);
+      final BlockBuilder builder = new BlockBuilder();
+      final Result leftResult =
+          implementor.visitInput(this, 0, (SparkRel) left);
+      final Expression leftRdd_ =
+          builder.append("leftRdd", leftResult.block);
+      final Result rightResult =
+          implementor.visitInput(this, 1, (SparkRel) right);
+      final Expression rightRdd_ =
+          builder.append("rightRdd", rightResult.block);
+      final PhysType physType =
+          PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(),
+              JavaRowFormat.ARRAY);
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(SparkMethod.JOIN_RDD.method,
+                  leftRdd_,
+                  Expressions.constant(isScalar(leftResult.physType)),
+                  Expressions.constant(leftKeys.toIntArray()),
+                  Expressions.constant(left.getRowType().getFieldCount()),
+                  rightRdd_,
+                  Expressions.constant(isScalar(rightResult.physType)),
+                  Expressions.constant(rightKeys.toIntArray()),
+                  Expressions.constant(right.getRowType().getFieldCount()),
+                  Expressions.constant(joinType.generatesNullsOnLeft()),
+                  Expressions.constant(joinType.generatesNullsOnRight()))));
+      return implementor.result(physType, builder.toBlock());
+    }
+  }
+
   // Play area
 
   public static void main(String[] args) {
@@ -17,15 +17,35 @@
 package org.apache.calcite.adapter.spark;
 
 import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.jdbc.JdbcSchema;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Primitive;
+import org.apache.calcite.runtime.ResultSetEnumerable;
 
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.Function2;
 
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import javax.sql.DataSource;
 
 /**
  * Runtime utilities for Calcite's Spark adapter. Generated code calls these
@@ -47,6 +67,172 @@ public static <T> JavaRDD<T> createRdd(JavaSparkContext sc,
     return sc.parallelize(list);
   }
 
+  /** Creates an RDD that reads the results of a SQL query from a JDBC data
+   * source.
+   *
+   * <p>If {@code boundsSql} is not null, the rows are split into ranges of
+   * a numeric column. {@code boundsSql} returns the minimum and maximum value
+   * of that column, and each partition reads the rows of one range by
+   * appending a condition to {@code partitionSql}, which ends with the column
+   * name. Each partition opens its own connection, so the data source must be
+   * a {@link BasicDataSource}, whose properties can be sent to the executors.
+   *
+   * <p>Otherwise, or if the data source is of another kind, the driver reads
+   * all rows and distributes them.
+   *
+   * @param sc Spark context
+   * @param dataSource Data source
+   * @param sql Query
+   * @param boundsSql Query that returns the bounds of the partitioning
+   *                  column, or null
+   * @param partitionSql Query, without the final condition, that returns the
+   *                     rows of one partition, or null
+   * @param primitives How to read each column
+   */
+  public static JavaRDD<Object> createJdbcRdd(JavaSparkContext sc,
+      DataSource dataSource, String sql, String boundsSql, String partitionSql,
+      Primitive[] primitives) {
+    if (boundsSql == null || !(dataSource instanceof BasicDataSource)) {
+      return createRdd(sc, ResultSetEnumerable.of(dataSource, sql, primitives));
+    }
+    final List<long[]> ranges = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(boundsSql)) {
+      if (resultSet.next()) {
+        final long min = resultSet.getLong(1);
+        final long max = resultSet.getLong(2);
+        if (!resultSet.wasNull()) {
+          final long span = max - min;
+          if (span < 0) {
+            // The range is too wide to split without overflow
+            ranges.add(new long[] {min, max});
+          } else {
+            final long step = span / sc.defaultParallelism() + 1;
+            for (long lo = min;; lo += step) {
+              if (max - lo < step) {
+                ranges.add(new long[] {lo, max});
+                break;
+              }
+              ranges.add(new long[] {lo, lo + step - 1});
+            }
+          }
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("while executing SQL [" + boundsSql + "]", e);
+    }
+    // An empty range denotes the rows whose value is null
+    ranges.add(new long[0]);
+    final BasicDataSource basicDataSource = (BasicDataSource) dataSource;
+    return sc.parallelize(ranges, ranges.size())
+        .flatMap(
+            new JdbcPartitionReader(basicDataSource.getUrl(),
+                basicDataSource.getDriverClassName(),
+                basicDataSource.getUsername(),
+                basicDataSource.getPassword(), partitionSql, primitives));
+  }
+
+  /** Sorts an RDD, then applies an offset and fetch.
+   *
+   * @param sc Spark context
+   * @param rdd Input
+   * @param scalar Whether each row is a value rather than an array
+   * @param keys Ordinals of the sort keys
+   * @param descending Whether each key is sorted in descending order
+   * @param nullsFirst Whether nulls sort before other values of each key
+   * @param offset Number of rows to skip
+   * @param fetch Maximum number of rows to return, or -1 for no limit
+   */
+  public static JavaRDD<Object> sortRdd(JavaSparkContext sc,
+      JavaRDD<Object> rdd, boolean scalar, int[] keys, boolean[] descending,
+      boolean[] nullsFirst, int offset, int fetch) {
+    if (keys.length > 0) {
+      rdd = rdd.keyBy(new IdentityFunction())
+          .sortByKey(
+              new RowComparator(scalar, keys, descending, nullsFirst), true)
+          .values();
+    }
+    if (offset == 0 && fetch < 0) {
+      return rdd;
+    }
+    final List<Object> list =
+        fetch < 0 ? rdd.collect() : rdd.take(offset + fetch);
+    final List<Object> rows = offset >= list.size()
+        ? Collections.<Object>emptyList()
+        : list.subList(offset, list.size());
+    return sc.parallelize(new ArrayList<>(rows));
+  }
+
+  /** Aggregates an RDD.
+   *
+   * <p>If there are no group keys, the result has precisely one row, even
+   * if the input is empty.
+   *
+   * @param sc Spark context
+   * @param rdd Input
+   * @param scalar Whether each input row is a value rather than an array
+   * @param groupKeys Ordinals of the group keys
+   * @param kinds Aggregate functions
+   * @param args Ordinal of the argument of each aggregate function, or -1
+   * @param primitives Type of the result of each aggregate function
+   * @param scalarOutput Whether each output row is a value rather than an
+   *                     array
+   */
+  public static JavaRDD<Object> aggregateRdd(JavaSparkContext sc,
+      JavaRDD<Object> rdd, boolean scalar, int[] groupKeys, AggKind[] kinds,
+      int[] args, Primitive[] primitives, boolean scalarOutput) {
+    final Aggregator aggregator =
+        new Aggregator(scalar, kinds, args, primitives, scalarOutput);
+    if (groupKeys.length > 0) {
+      return rdd.keyBy(new KeyFunction(scalar, groupKeys))
+          .mapValues(aggregator.initFunction())
+          .reduceByKey(aggregator)
+          .map(aggregator.finishFunction());
+    }
+    // Aggregate each partition, then combine the partial results on the
+    // driver.
+    Object[] accumulators = aggregator.empty();
+    for (Object[] partial
+        : rdd.mapPartitions(aggregator.partitionFunction()).collect()) {
+      accumulators = aggregator.call(accumulators, partial);
+    }
+    return sc.parallelize(
+        Collections.singletonList(
+            aggregator.finish(Collections.<Object>emptyList(), accumulators)));
+  }
+
+  /** Joins two RDDs on equal keys. Rows whose key contains null do not match
+   * any row.
+   *
+   * @param left Left input
+   * @param leftScalar Whether each row of the left input is a value
+   * @param leftKeys Ordinals of the keys in the left input
+   * @param leftCount Number of fields in the left input
+   * @param right Right input
+   * @param rightScalar Whether each row of the right input is a value
+   * @param rightKeys Ordinals of the keys in the right input
+   * @param rightCount Number of fields in the right input
+   * @param generateNullsOnLeft Whether to emit right rows that match no left
+   *                            row (right or full join)
+   * @param generateNullsOnRight Whether to emit left rows that match no
+   *                             right row (left or full join)
+   */
+  public static JavaRDD<Object> joinRdd(JavaRDD<Object> left,
+      boolean leftScalar, int[] leftKeys, int leftCount,
+      JavaRDD<Object> right, boolean rightScalar, int[] rightKeys,
+      int rightCount, boolean generateNullsOnLeft,
+      boolean generateNullsOnRight) {
+    final JavaPairRDD<List<Object>, Object> leftPairs =
+        left.keyBy(new KeyFunction(leftScalar, leftKeys));
+    final JavaPairRDD<List<Object>, Object> rightPairs =
+        right.keyBy(new KeyFunction(rightScalar, rightKeys));
+    return leftPairs.cogroup(rightPairs)
+        .flatMap(
+            new JoinFunction(leftScalar, leftCount, rightScalar, rightCount,
+                generateNullsOnLeft, generateNullsOnRight));
+  }
+
   /** Converts an RDD into an enumerable. */
   public static <T> Enumerable<T> asEnumerable(JavaRDD<T> rdd) {
     return Linq4j.asEnumerable(rdd.collect());
@@ -66,6 +252,325 @@ public static JavaSparkContext getSparkContext(DataContext root) {
       extends FlatMapFunction<T, R>
       implements org.apache.calcite.linq4j.function.Function {
   }
+
+  /** Returns the fields of a row, which is either an array or (if the row
+   * type has one field) a value. */
+  static Object[] fields(Object row, boolean scalar) {
+    return scalar ? new Object[] {row} : (Object[]) row;
+  }
+
+  /** Aggregate function that can be evaluated by {@link #aggregateRdd}. */
+  public enum AggKind {
+    COUNT, SUM, MIN, MAX
+  }
+
+  /** Function that returns its argument. */
+  private static class IdentityFunction extends Function<Object, Object> {
+    @Override public Object call(Object row) {
+      return row;
+    }
+  }
+
+  /** Function that returns the key of a row, as a list of values. */
+  private static class KeyFunction extends Function<Object, List<Object>> {
+    private final boolean scalar;
+    private final int[] keys;
+
+    KeyFunction(boolean scalar, int[] keys) {
+      this.scalar = scalar;
+      this.keys = keys;
+    }
+
+    @Override public List<Object> call(Object row) {
+      final Object[] fields = fields(row, scalar);
+      final List<Object> key = new ArrayList<>(keys.length);
+      for (int k : keys) {
+        key.add(fields[k]);
+      }
+      return key;
+    }
+  }
+
+  /** Comparator that sorts rows on several keys. */
+  private static class RowComparator implements Comparator<Object>,
+      Serializable {
+    private final boolean scalar;
+    private final int[] keys;
+    private final boolean[] descending;
+    private final boolean[] nullsFirst;
+
+    RowComparator(boolean scalar, int[] keys, boolean[] descending,
+        boolean[] nullsFirst) {
+      this.scalar = scalar;
+      this.keys = keys;
+      this.descending = descending;
+      this.nullsFirst = nullsFirst;
+    }
+
+    public int compare(Object row0, Object row1) {
+      final Object[] fields0 = fields(row0, scalar);
+      final Object[] fields1 = fields(row1, scalar);
+      for (int i = 0; i < keys.length; i++) {
+        final Object v0 = fields0[keys[i]];
+        final Object v1 = fields1[keys[i]];
+        final int c;
+        if (v0 == v1) {
+          continue;
+        } else if (v0 == null) {
+          c = nullsFirst[i] ? -1 : 1;
+        } else if (v1 == null) {
+          c = nullsFirst[i] ? 1 : -1;
+        } else {
+          //noinspection unchecked
+          final int c0 = ((Comparable) v0).compareTo(v1);
+          c = descending[i] ? -c0 : c0;
+        }
+        if (c != 0) {
+          return c;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /** Computes aggregate functions. Each group has an array of accumulators,
+   * one per function; the function that merges two such arrays is also the
+   * function that combines partial results in
+   * {@link JavaPairRDD#reduceByKey}. */
+  private static class Aggregator
+      extends Function2<Object[], Object[], Object[]> {
+    private final boolean scalar;
+    private final AggKind[] kinds;
+    private final int[] args;
+    private final Primitive[] primitives;
+    private final boolean scalarOutput;
+
+    Aggregator(boolean scalar, AggKind[] kinds, int[] args,
+        Primitive[] primitives, boolean scalarOutput) {
+      this.scalar = scalar;
+      this.kinds = kinds;
+      this.args = args;
+      this.primitives = primitives;
+      this.scalarOutput = scalarOutput;
+    }
+
+    /** Returns the accumulators of an empty group. */
+    Object[] empty() {
+      final Object[] accumulators = new Object[kinds.length];
+      for (int i = 0; i < kinds.length; i++) {
+        if (kinds[i] == AggKind.COUNT) {
+          accumulators[i] = 0L;
+        }
+      }
+      return accumulators;
+    }
+
+    /** Returns the accumulators of a group that contains one row. */
+    Object[] init(Object row) {
+      final Object[] fields = fields(row, scalar);
+      final Object[] accumulators = new Object[kinds.length];
+      for (int i = 0; i < kinds.length; i++) {
+        final Object v = args[i] < 0 ? null : fields[args[i]];
+        if (kinds[i] == AggKind.COUNT) {
+          accumulators[i] = args[i] < 0 || v != null ? 1L : 0L;
+        } else {
+          accumulators[i] = v;
+        }
+      }
+      return accumulators;
+    }
+
+    @Override public Object[] call(Object[] a0, Object[] a1) {
+      final Object[] accumulators = new Object[kinds.length];
+      for (int i = 0; i < kinds.length; i++) {
+        final Object v0 = a0[i];
+        final Object v1 = a1[i];
+        if (v0 == null || v1 == null) {
+          accumulators[i] = v0 == null ? v1 : v0;
+          continue;
+        }
+        switch (kinds[i]) {
+        case COUNT:
+        case SUM:
+          accumulators[i] = add((Number) v0, (Number) v1);
+          break;
+        case MIN:
+          //noinspection unchecked
+          accumulators[i] = ((Comparable) v0).compareTo(v1) <= 0 ? v0 : v1;
+          break;
+        case MAX:
+          //noinspection unchecked
+          accumulators[i] = ((Comparable) v0).compareTo(v1) >= 0 ? v0 : v1;
+          break;
+        default:
+          throw new AssertionError(kinds[i]);
+        }
+      }
+      return accumulators;
+    }
+
+    private static Number add(Number n0, Number n1) {
+      if (n0 instanceof BigDecimal || n1 instanceof BigDecimal) {
+        return toBigDecimal(n0).add(toBigDecimal(n1));
+      }
+      if (n0 instanceof Double || n0 instanceof Float
+          || n1 instanceof Double || n1 instanceof Float) {
+        return n0.doubleValue() + n1.doubleValue();
+      }
+      return n0.longValue() + n1.longValue();
+    }
+
+    private static BigDecimal toBigDecimal(Number n) {
+      return n instanceof BigDecimal
+          ? (BigDecimal) n
+          : new BigDecimal(n.toString());
+    }
+
+    /** Returns an output row, consisting of the group key followed by the
+     * value of each aggregate function. */
+    Object finish(List<Object> key, Object[] accumulators) {
+      final Object[] row = new Object[key.size() + kinds.length];
+      for (int i = 0; i < key.size(); i++) {
+        row[i] = key.get(i);
+      }
+      for (int i = 0; i < kinds.length; i++) {
+        Object v = accumulators[i];
+        if (v instanceof Number && primitives[i].isNumeric()) {
+          v = primitives[i].number((Number) v);
+        }
+        row[key.size() + i] = v;
+      }
+      return scalarOutput ? row[0] : row;
+    }
+
+    Function<Object, Object[]> initFunction() {
+      return new Function<Object, Object[]>() {
+        @Override public Object[] call(Object row) {
+          return init(row);
+        }
+      };
+    }
+
+    Function<Tuple2<List<Object>, Object[]>, Object> finishFunction() {
+      return new Function<Tuple2<List<Object>, Object[]>, Object>() {
+        @Override public Object call(Tuple2<List<Object>, Object[]> pair) {
+          return finish(pair._1(), pair._2());
+        }
+      };
+    }
+
+    FlatMapFunction<Iterator<Object>, Object[]> partitionFunction() {
+      return new FlatMapFunction<Iterator<Object>, Object[]>() {
+        @Override public Iterable<Object[]> call(Iterator<Object> rows) {
+          if (!rows.hasNext()) {
+            return Collections.emptyList();
+          }
+          Object[] accumulators = init(rows.next());
+          while (rows.hasNext()) {
+            accumulators =
+                Aggregator.this.call(accumulators, init(rows.next()));
+          }
+          return Collections.singletonList(accumulators);
+        }
+      };
+    }
+  }
+
+  /** Function that joins the rows of the left and right inputs that have the
+   * same key. */
+  private static class JoinFunction
+      extends FlatMapFunction<
+          Tuple2<List<Object>, Tuple2<List<Object>, List<Object>>>, Object> {
+    private final boolean leftScalar;
+    private final int leftCount;
+    private final boolean rightScalar;
+    private final int rightCount;
+    private final boolean generateNullsOnLeft;
+    private final boolean generateNullsOnRight;
+
+    JoinFunction(boolean leftScalar, int leftCount, boolean rightScalar,
+        int rightCount, boolean generateNullsOnLeft,
+        boolean generateNullsOnRight) {
+      this.leftScalar = leftScalar;
+      this.leftCount = leftCount;
+      this.rightScalar = rightScalar;
+      this.rightCount = rightCount;
+      this.generateNullsOnLeft = generateNullsOnLeft;
+      this.generateNullsOnRight = generateNullsOnRight;
+    }
+
+    @Override public Iterable<Object> call(
+        Tuple2<List<Object>, Tuple2<List<Object>, List<Object>>> group) {
+      final List<Object> lefts = group._2()._1();
+      final List<Object> rights = group._2()._2();
+      final boolean match = !group._1().contains(null)
+          && !lefts.isEmpty() && !rights.isEmpty();
+      final List<Object> rows = new ArrayList<>();
+      if (match) {
+        for (Object left : lefts) {
+          for (Object right : rights) {
+            rows.add(row(left, right));
+          }
+        }
+      } else {
+        if (generateNullsOnRight) {
+          for (Object left : lefts) {
+            rows.add(row(left, null));
+          }
+        }
+        if (generateNullsOnLeft) {
+          for (Object right : rights) {
+            rows.add(row(null, right));
+          }
+        }
+      }
+      return rows;
+    }
+
+    private Object[] row(Object left, Object right) {
+      final Object[] row = new Object[leftCount + rightCount];
+      if (left != null) {
+        System.arraycopy(fields(left, leftScalar), 0, row, 0, leftCount);
+      }
+      if (right != null) {
+        System.arraycopy(fields(right, rightScalar), 0, row, leftCount,
+            rightCount);
+      }
+      return row;
+    }
+  }
+
+  /** Function that reads one partition of a JDBC query. The input is a
+   * range of values of the partitioning column, or an empty array for
+   * null values. */
+  private static class JdbcPartitionReader
+      extends FlatMapFunction<long[], Object> {
+    private final String url;
+    private final String driverClassName;
+    private final String username;
+    private final String password;
+    private final String partitionSql;
+    private final Primitive[] primitives;
+
+    JdbcPartitionReader(String url, String driverClassName, String username,
+        String password, String partitionSql, Primitive[] primitives) {
+      this.url = url;
+      this.driverClassName = driverClassName;
+      this.username = username;
+      this.password = password;
+      this.partitionSql = partitionSql;
+      this.primitives = primitives;
+    }
+
+    @Override public Iterable<Object> call(long[] range) {
+      final String sql = range.length == 0
+          ? partitionSql + " IS NULL"
+          : partitionSql + " BETWEEN " + range[0] + " AND " + range[1];
+      final DataSource dataSource =
+          JdbcSchema.dataSource(url, driverClassName, username, password);
+      return ResultSetEnumerable.of(dataSource, sql, primitives).toList();
+    }
+  }
 }
 
 // End SparkRuntime.java
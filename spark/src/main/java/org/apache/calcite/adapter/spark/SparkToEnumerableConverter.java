@@ -18,9 +18,7 @@
 
 import org.apache.calcite.adapter.enumerable.EnumerableRel;
 import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
-import org.apache.calcite.adapter.enumerable.JavaRowFormat;
 import org.apache.calcite.adapter.enumerable.PhysType;
-import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.BlockStatement;
@@ -71,13 +69,11 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     //   return SparkRuntime.asEnumerable(rdd);
     final BlockBuilder list = new BlockBuilder();
     final SparkRel child = (SparkRel) getInput();
-    final PhysType physType =
-        PhysTypeImpl.of(implementor.getTypeFactory(),
-            getRowType(),
-            JavaRowFormat.CUSTOM);
     SparkRel.Implementor sparkImplementor =
         new SparkImplementorImpl(implementor);
     final SparkRel.Result result = child.implementSpark(sparkImplementor);
+    // The rows of the enumerable have the same format as the rows of the RDD
+    final PhysType physType = result.physType;
     final Expression rdd = list.append("rdd", result.block);
     final Expression enumerable =
         list.append(
@@ -16,9 +16,27 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.adapter.jdbc.JdbcSchema;
+import org.apache.calcite.adapter.spark.SparkHandlerImpl;
+import org.apache.calcite.adapter.spark.SparkRuntime;
+import org.apache.calcite.linq4j.tree.Primitive;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+
 import org.junit.Test;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for using Calcite with Spark as an internal engine, as implemented by
@@ -52,6 +70,100 @@ public class SparkAdapterTest {
             + "  SparkCalc(expr#0..1=[{inputs}], expr#2=[2], expr#3=[<($t0, $t2)], proj#0..1=[{exprs}], $condition=[$t3])\n"
             + "    SparkValues(tuples=[[{ 1, 'a' }, { 2, 'b' }]])\n");
   }
+
+  /** Tests a sort with a limit, evaluated by Spark. */
+  @Test public void testValuesSort() throws SQLException {
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SPARK)
+        .query("select *\n"
+            + "from (values (1, 'a'), (3, 'c'), (2, 'b'), (4, 'd'))\n"
+            + "  as t(x, y)\n"
+            + "order by x desc\n"
+            + "limit 3")
+        .returns("X=4; Y=d\n"
+            + "X=3; Y=c\n"
+            + "X=2; Y=b\n");
+  }
+
+  /** Tests an aggregate, evaluated by Spark. */
+  @Test public void testValuesAggregate() throws SQLException {
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SPARK)
+        .query("select y, count(*) as c, sum(x) as s, min(x) as m\n"
+            + "from (values (1, 'a'), (2, 'b'), (3, 'a')) as t(x, y)\n"
+            + "group by y")
+        .returnsUnordered("Y=a; C=2; S=4; M=1",
+            "Y=b; C=1; S=2; M=2")
+        .explainContains("SparkAggregate");
+  }
+
+  /** Tests an aggregate without GROUP BY on an empty input; it must return
+   * one row. */
+  @Test public void testValuesAggregateEmpty() throws SQLException {
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SPARK)
+        .query("select count(*) as c, sum(x) as s\n"
+            + "from (values (1, 'a'), (2, 'b')) as t(x, y)\n"
+            + "where y = 'z'")
+        .returns("C=0; S=null\n");
+  }
+
+  /** Tests an outer join, evaluated by Spark. */
+  @Test public void testValuesJoin() throws SQLException {
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SPARK)
+        .query("select t.x, t.y, u.z\n"
+            + "from (values (1, 'a'), (2, 'b'), (3, 'c')) as t(x, y)\n"
+            + "left join (values (1, 'p'), (1, 'q'), (3, 'r')) as u(x, z)\n"
+            + "on t.x = u.x")
+        .returnsUnordered("X=1; Y=a; Z=p",
+            "X=1; Y=a; Z=q",
+            "X=2; Y=b; Z=null",
+            "X=3; Y=c; Z=r");
+  }
+
+  /** Tests that an RDD that reads a JDBC query splits the rows into several
+   * partitions by ranges of an integer column, and that rows whose value is
+   * null are read too. */
+  @Test public void testJdbcPartitions() throws SQLException {
+    final DataSource dataSource =
+        JdbcSchema.dataSource("jdbc:hsqldb:mem:sparkPartitions",
+            "org.hsqldb.jdbcDriver", "SA", "");
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("create table t (id integer, name varchar(10))");
+      for (int i = 1; i <= 100; i++) {
+        statement.execute("insert into t values (" + i + ", 'n" + i + "')");
+      }
+      statement.execute("insert into t values (null, 'none')");
+    }
+    final JavaSparkContext sc =
+        (JavaSparkContext) SparkHandlerImpl.instance().sparkContext();
+    final String sql = "SELECT \"ID\", \"NAME\" FROM \"T\"";
+    final JavaRDD<Object> rdd =
+        SparkRuntime.createJdbcRdd(sc, dataSource, sql,
+            "SELECT MIN(\"ID\"), MAX(\"ID\") FROM (" + sql + ") \"T\"",
+            "SELECT * FROM (" + sql + ") \"T\" WHERE \"ID\"",
+            new Primitive[] {Primitive.OTHER, Primitive.OTHER});
+    // At least one range partition, plus one partition for null values
+    assertTrue(rdd.rdd().partitions().length >= 2);
+    final List<Integer> ids = new ArrayList<>();
+    int nullCount = 0;
+    for (Object row : rdd.collect()) {
+      final Object id = ((Object[]) row)[0];
+      if (id == null) {
+        ++nullCount;
+      } else {
+        ids.add((Integer) id);
+      }
+    }
+    assertThat(nullCount, is(1));
+    assertThat(ids.size(), is(100));
+    Collections.sort(ids);
+    for (int i = 0; i < ids.size(); i++) {
+      assertThat(ids.get(i), is(i + 1));
+    }
+  }
 }
 
 // End SparkAdapterTest.java
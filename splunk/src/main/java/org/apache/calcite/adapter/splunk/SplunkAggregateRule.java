@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.splunk;
+
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptRuleOperand;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Planner rule that converts an aggregate on a Splunk search into a
+ * {@code stats} command, for example
+ * {@code search sourcetype=x | stats count AS C, sum(bytes) AS S by host}.
+ *
+ * <p>Splunk returns every value as a string, so the rule places a projection
+ * on top of the new scan that casts each aggregate to the type that the
+ * original aggregate produced.
+ *
+ * <p>Splunk's {@code stats ... by} ignores events in which a grouping field
+ * is missing, whereas SQL places them in a group whose key is null. So the
+ * rule first fills missing grouping fields with a marker value,
+ * {@link #NULL_KEY}, and the projection converts that value back to null.
+ */
+public class SplunkAggregateRule extends RelOptRule {
+  /** Matches an aggregate directly on a scan. */
+  public static final SplunkAggregateRule INSTANCE =
+      new SplunkAggregateRule(
+          operand(LogicalAggregate.class,
+              operand(SplunkTableScan.class, none())),
+          "SplunkAggregateRule");
+
+  /** Matches an aggregate on a projection (whose expressions are field
+   * references, possibly cast) on a scan. */
+  public static final SplunkAggregateRule PROJECT_INSTANCE =
+      new SplunkAggregateRule(
+          operand(LogicalAggregate.class,
+              operand(LogicalProject.class,
+                  operand(SplunkTableScan.class, none()))),
+          "SplunkAggregateRule:project");
+
+  /** Value with which {@code fillnull} replaces a missing grouping field,
+   * so that {@code stats} does not ignore the event. A group with this key
+   * is returned with a null key. */
+  static final String NULL_KEY = "__calcite_null__";
+
+  /** Field names that can be used in a {@code stats} command without
+   * quoting. */
+  private static final Pattern SIMPLE_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+  /** Creates a SplunkAggregateRule. */
+  protected SplunkAggregateRule(RelOptRuleOperand operand, String id) {
+    super(operand, id);
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final LogicalAggregate aggregate = call.rel(0);
+    final SplunkTableScan scan = call.rel(call.rels.length - 1);
+    final LogicalProject project =
+        call.rels.length == 3 ? (LogicalProject) call.rel(1) : null;
+    if (aggregate.indicator
+        || aggregate.getGroupSets().size() != 1) {
+      return;
+    }
+
+    // Name of the Splunk field that underlies each input of the aggregate
+    final List<String> inputNames = new ArrayList<>();
+    if (project == null) {
+      inputNames.addAll(scan.fieldList);
+    } else {
+      for (RexNode e : project.getProjects()) {
+        inputNames.add(fieldName(e, scan.fieldList));
+      }
+    }
+
+    final StringBuilder buf = new StringBuilder(scan.search);
+    final List<String> nullableKeys = new ArrayList<>();
+    for (int key : aggregate.getGroupSet()) {
+      if (aggregate.getInput().getRowType().getFieldList().get(key).getType()
+          .isNullable()) {
+        nullableKeys.add(inputNames.get(key));
+      }
+    }
+    if (!nullableKeys.isEmpty()) {
+      buf.append(" | fillnull value=").append(NULL_KEY);
+      for (String name : nullableKeys) {
+        buf.append(' ').append(name);
+      }
+    }
+    buf.append(" | stats ");
+    final List<String> outputNames = aggregate.getRowType().getFieldNames();
+    int i = aggregate.getGroupCount();
+    for (AggregateCall aggCall : aggregate.getAggCallList()) {
+      final String function = function(aggCall, inputNames);
+      if (function == null) {
+        return;
+      }
+      if (i > aggregate.getGroupCount()) {
+        buf.append(", ");
+      }
+      buf.append(function)
+          .append(" AS ")
+          .append(SplunkPushDownRule.searchEscape(outputNames.get(i++)));
+    }
+    if (aggregate.getAggCallList().isEmpty()) {
+      // "stats" needs at least one function; the count is not returned
+      buf.append("count");
+    }
+    if (aggregate.getGroupCount() > 0) {
+      buf.append(" by ");
+      int j = 0;
+      for (int key : aggregate.getGroupSet()) {
+        final String name = inputNames.get(key);
+        // A grouping field must be a plain field, so that Splunk's output
+        // field has the same name and value as the SQL group key.
+        if (name == null
+            || !SIMPLE_NAME.matcher(name).matches()
+            || project != null
+                && !(project.getProjects().get(key) instanceof RexInputRef)
+            || !name.equals(outputNames.get(j))) {
+          return;
+        }
+        if (j++ > 0) {
+          buf.append(", ");
+        }
+        buf.append(name);
+      }
+    }
+
+    // Splunk returns strings; cast them to the types of the aggregate
+    final RelDataTypeFactory typeFactory = aggregate.getCluster()
+        .getTypeFactory();
+    final RelDataType stringType =
+        typeFactory.createTypeWithNullability(
+            ((JavaTypeFactory) typeFactory).createType(String.class), true);
+    final RelDataTypeFactory.FieldInfoBuilder builder = typeFactory.builder();
+    for (RelDataTypeField field : aggregate.getRowType().getFieldList()) {
+      builder.add(field.getName(),
+          field.getIndex() < aggregate.getGroupCount()
+              ? field.getType()
+              : stringType);
+    }
+    final RelDataType scanRowType = builder.build();
+    final SplunkTableScan newScan =
+        new SplunkTableScan(scan.getCluster(), scan.getTable(),
+            scan.splunkTable, buf.toString(), scan.earliest, scan.latest,
+            scanRowType.getFieldNames(), scanRowType);
+    final RexBuilder rexBuilder = aggregate.getCluster().getRexBuilder();
+    final List<RexNode> projects = new ArrayList<>();
+    for (RelDataTypeField field : aggregate.getRowType().getFieldList()) {
+      final RexNode ref = rexBuilder.makeInputRef(newScan, field.getIndex());
+      if (field.getIndex() < aggregate.getGroupCount()) {
+        if (field.getType().isNullable()) {
+          // CASE WHEN key = NULL_KEY THEN NULL ELSE key END
+          projects.add(
+              rexBuilder.makeCall(field.getType(), SqlStdOperatorTable.CASE,
+                  ImmutableList.of(
+                      rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, ref,
+                          rexBuilder.makeLiteral(NULL_KEY)),
+                      rexBuilder.makeCast(field.getType(),
+                          rexBuilder.constantNull()),
+                      ref)));
+        } else {
+          projects.add(ref);
+        }
+        continue;
+      }
+      projects.add(
+          field.getType().equals(ref.getType())
+              ? ref
+              : rexBuilder.makeCast(field.getType(), ref));
+    }
+    call.transformTo(
+        LogicalProject.create(newScan, projects, aggregate.getRowType()));
+  }
+
+  /** Returns the name of the field that an expression references, or null
+   * if it is not a (possibly cast) field reference. */
+  private static String fieldName(RexNode e, List<String> fieldList) {
+    switch (e.getKind()) {
+    case INPUT_REF:
+      return fieldList.get(((RexInputRef) e).getIndex());
+    case CAST:
+      return fieldName(((RexCall) e).getOperands().get(0), fieldList);
+    default:
+      return null;
+    }
+  }
+
+  /** Returns the Splunk function that implements an aggregate call, or null
+   * if there is none. */
+  private static String function(AggregateCall aggCall,
+      List<String> inputNames) {
+    if (aggCall.filterArg >= 0) {
+      return null;
+    }
+    final List<Integer> args = aggCall.getArgList();
+    final String arg;
+    switch (args.size()) {
+    case 0:
+      arg = null;
+      break;
+    case 1:
+      arg = inputNames.get(args.get(0));
+      if (arg == null || !SIMPLE_NAME.matcher(arg).matches()) {
+        return null;
+      }
+      break;
+    default:
+      return null;
+    }
+    final SqlKind kind = aggCall.getAggregation().getKind();
+    if (aggCall.isDistinct()) {
+      return kind == SqlKind.COUNT && arg != null ? "dc(" + arg + ")" : null;
+    }
+    switch (kind) {
+    case COUNT:
+      return arg == null ? "count" : "count(" + arg + ")";
+    case SUM:
+    case MIN:
+    case MAX:
+      return arg == null ? null : kind.name().toLowerCase() + "(" + arg + ")";
+    case AVG:
+      // Splunk's average is fractional, so it can only be cast to a type
+      // that can hold a fraction
+      switch (aggCall.getType().getSqlTypeName()) {
+      case DECIMAL:
+      case DOUBLE:
+      case FLOAT:
+      case REAL:
+        return arg == null ? null : "avg(" + arg + ")";
+      default:
+        return null;
+      }
+    default:
+      return null;
+    }
+  }
+}
+
+// End SplunkAggregateRule.java
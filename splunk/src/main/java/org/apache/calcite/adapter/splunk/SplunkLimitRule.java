@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.splunk;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.logical.LogicalSort;
+import org.apache.calcite.rex.RexLiteral;
+
+/**
+ * Planner rule that converts a LIMIT (without ORDER BY or OFFSET) on a
+ * Splunk search into a {@code head} command, so that Splunk stops returning
+ * results once it has found enough.
+ */
+public class SplunkLimitRule extends RelOptRule {
+  public static final SplunkLimitRule INSTANCE = new SplunkLimitRule();
+
+  private SplunkLimitRule() {
+    super(
+        operand(LogicalSort.class,
+            operand(SplunkTableScan.class, none())),
+        "SplunkLimitRule");
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final LogicalSort sort = call.rel(0);
+    final SplunkTableScan scan = call.rel(1);
+    if (!sort.getCollation().getFieldCollations().isEmpty()
+        || sort.offset != null
+        || !(sort.fetch instanceof RexLiteral)) {
+      return;
+    }
+    final long fetch = RexLiteral.intValue(sort.fetch);
+    call.transformTo(
+        new SplunkTableScan(scan.getCluster(), scan.getTable(),
+            scan.splunkTable, scan.search + " | head " + fetch,
+            scan.earliest, scan.latest, scan.fieldList, scan.getRowType()));
+  }
+}
+
+// End SplunkLimitRule.java
@@ -117,6 +117,12 @@ public void onMatch(RelOptRuleCall call) {
     int relLength = call.rels.length;
     SplunkTableScan splunkRel =
         (SplunkTableScan) call.rels[relLength - 1];
+    if (splunkRel.search.contains("|")) {
+      // The search already ends with a command such as "stats" or "head".
+      // Terms appended now would become arguments of that command, and
+      // would filter after rather than before it.
+      return;
+    }
 
     LogicalFilter filter;
     LogicalProject topProj    = null;
@@ -70,6 +70,24 @@ protected SplunkTableScan(
       String earliest,
       String latest,
       List<String> fieldList) {
+    this(cluster, table, splunkTable, search, earliest, latest, fieldList,
+        null);
+  }
+
+  /** Creates a SplunkTableScan whose fields are not necessarily fields of
+   * the table; for example, the output of a {@code stats} command.
+   *
+   * @param rowType Row type, or null to derive it from the table's fields
+   */
+  protected SplunkTableScan(
+      RelOptCluster cluster,
+      RelOptTable table,
+      SplunkTable splunkTable,
+      String search,
+      String earliest,
+      String latest,
+      List<String> fieldList,
+      RelDataType rowType) {
     super(
         cluster,
         cluster.traitSetOf(EnumerableConvention.INSTANCE),
@@ -79,9 +97,11 @@ protected SplunkTableScan(
     this.earliest = earliest;
     this.latest = latest;
     this.fieldList = fieldList;
+    this.rowType = rowType;
 
     assert splunkTable != null;
     assert search != null;
+    assert rowType == null || rowType.getFieldNames().equals(fieldList);
   }
 
   @Override public RelWriter explainTerms(RelWriter pw) {
@@ -89,7 +109,8 @@ protected SplunkTableScan(
         .item("table", table.getQualifiedName())
         .item("earliest", earliest)
         .item("latest", latest)
-        .item("fieldList", fieldList);
+        .item("fieldList", fieldList)
+        .item("search", search);
   }
 
   @Override public void register(RelOptPlanner planner) {
@@ -97,6 +118,9 @@ protected SplunkTableScan(
     planner.addRule(SplunkPushDownRule.FILTER_ON_PROJECT);
     planner.addRule(SplunkPushDownRule.PROJECT);
     planner.addRule(SplunkPushDownRule.PROJECT_ON_FILTER);
+    planner.addRule(SplunkAggregateRule.INSTANCE);
+    planner.addRule(SplunkAggregateRule.PROJECT_INSTANCE);
+    planner.addRule(SplunkLimitRule.INSTANCE);
   }
 
   @Override public RelDataType deriveRowType() {
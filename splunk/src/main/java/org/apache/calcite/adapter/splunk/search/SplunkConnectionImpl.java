@@ -23,6 +23,9 @@
 
 import au.com.bytecode.opencsv.CSVReader;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +43,11 @@
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,6 +61,17 @@ public class SplunkConnectionImpl implements SplunkConnection {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(SplunkConnectionImpl.class);
 
+  /** Number of results that the reader thread may read ahead of the
+   * consumer. */
+  private static final int QUEUE_CAPACITY = 1024;
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("splunk-result-reader-%d")
+              .setDaemon(true)
+              .build());
+
   private static final Pattern SESSION_KEY =
       Pattern.compile(
           "<response>\\s*<sessionKey>([0-9a-f]+)</sessionKey>\\s*</response>");
@@ -167,7 +186,8 @@ private Enumerator<Object> getSearchResults_(
       InputStream in =
           post(searchUrl, data, requestHeaders, 10000, 1800000);
       if (srl == null) {
-        return new SplunkResultEnumerator(in, wantedFields);
+        return new AsyncResultEnumerator(
+            new SplunkResultEnumerator(in, wantedFields), QUEUE_CAPACITY);
       } else {
         parseResults(
             in,
@@ -439,6 +459,113 @@ public void close() {
       }
     }
   }
+
+  /** Implementation of {@link org.apache.calcite.linq4j.Enumerator} that
+   * reads from another enumerator on a separate thread, so that parsing the
+   * response from Splunk overlaps with processing the results.
+   *
+   * <p>Results are handed over through a bounded queue; when the queue is
+   * full, the reader thread waits, so that a slow consumer does not cause
+   * the whole result to be buffered in memory. */
+  public static class AsyncResultEnumerator implements Enumerator<Object> {
+    /** Marks the end of the results. */
+    private static final Object END = new Object();
+    /** Stands in for a null result, which a queue cannot hold. */
+    private static final Object NULL = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean cancelled;
+    private boolean done;
+    private Object current;
+
+    public AsyncResultEnumerator(final Enumerator<Object> enumerator,
+        int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      EXECUTOR.execute(
+          new Runnable() {
+            public void run() {
+              try {
+                while (enumerator.moveNext()) {
+                  final Object o = enumerator.current();
+                  if (!offer(o == null ? NULL : o)) {
+                    return;
+                  }
+                }
+                offer(END);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } catch (Throwable e) {
+                try {
+                  offer(new ReaderFailure(e));
+                } catch (InterruptedException e2) {
+                  Thread.currentThread().interrupt();
+                }
+              } finally {
+                enumerator.close();
+              }
+            }
+          });
+    }
+
+    /** Places an object on the queue, waiting for space. Returns false if
+     * the consumer has closed this enumerator. */
+    private boolean offer(Object o) throws InterruptedException {
+      while (!cancelled) {
+        if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public Object current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      if (done) {
+        return false;
+      }
+      final Object o;
+      try {
+        o = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      if (o == END) {
+        done = true;
+        current = null;
+        return false;
+      }
+      if (o instanceof ReaderFailure) {
+        done = true;
+        throw Throwables.propagate(((ReaderFailure) o).cause);
+      }
+      current = o == NULL ? null : o;
+      return true;
+    }
+
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    /** Stops the reader thread. The thread notices after it has read its
+     * current result, then closes the underlying enumerator. */
+    public void close() {
+      cancelled = true;
+      queue.clear();
+    }
+
+    /** Failure of the reader thread, passed to the consumer. */
+    private static class ReaderFailure {
+      final Throwable cause;
+
+      ReaderFailure(Throwable cause) {
+        this.cause = cause;
+      }
+    }
+  }
 }
 
 // End SplunkConnectionImpl.java
@@ -20,17 +20,32 @@
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -280,6 +295,85 @@ public Void apply(ResultSet a0) {
             "host=mailsv; C=9829"));
   }
 
+  /** Tests that an aggregate is pushed down to Splunk as a "stats" command,
+   * using a stub server that replays a recorded result. Events whose
+   * grouping field is missing are filled with a marker value, so that they
+   * form a group whose key is null, as in SQL. */
+  @Test public void testStubAggregate() throws Exception {
+    try (StubSplunkServer server =
+             new StubSplunkServer("sourcetype,C\n"
+                 + "access_combined_wcookie,39532\n"
+                 + "vendor_sales,30244\n"
+                 + "__calcite_null__,12\n")) {
+      checkStubSql(server,
+          "select \"sourcetype\", count(*) as c\n"
+              + "from \"splunk\".\"splunk\"\n"
+              + "group by \"sourcetype\"",
+          expect("sourcetype=access_combined_wcookie; C=39532",
+              "sourcetype=vendor_sales; C=30244",
+              "sourcetype=null; C=12"));
+      assertThat(server.searches,
+          equalTo(
+              Arrays.asList("search | fillnull value=__calcite_null__ "
+                  + "sourcetype | stats count AS C by sourcetype")));
+    }
+  }
+
+  /** Tests that LIMIT is pushed down to Splunk as a "head" command. */
+  @Test public void testStubLimit() throws Exception {
+    try (StubSplunkServer server =
+             new StubSplunkServer("source\n/var/log/a\n/var/log/b\n")) {
+      checkStubSql(server,
+          "select \"source\" from \"splunk\".\"splunk\" limit 2",
+          expect("source=/var/log/a", "source=/var/log/b"));
+      assertThat(server.searches,
+          equalTo(Arrays.asList("search | head 2")));
+    }
+  }
+
+  /** Tests reading a result that is larger than the queue between the thread
+   * that parses Splunk's response and the consumer. */
+  @Test public void testStubLargeResult() throws Exception {
+    final StringBuilder buf = new StringBuilder("source,sourcetype\n");
+    for (int i = 0; i < 5000; i++) {
+      buf.append("s").append(i).append(",t").append(i % 3).append("\n");
+    }
+    try (StubSplunkServer server = new StubSplunkServer(buf.toString())) {
+      checkStubSql(server,
+          "select \"source\", \"sourcetype\" from \"splunk\".\"splunk\"",
+          new Function<ResultSet, Void>() {
+            public Void apply(ResultSet a0) {
+              try {
+                int n = 0;
+                while (a0.next()) {
+                  assertThat(a0.getString(1), equalTo("s" + n));
+                  ++n;
+                }
+                assertThat(n, is(5000));
+                return null;
+              } catch (SQLException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          });
+    }
+  }
+
+  private void checkStubSql(StubSplunkServer server, String sql,
+      Function<ResultSet, Void> f) throws SQLException {
+    loadDriverClass();
+    final Properties info = new Properties();
+    info.put("url", server.url());
+    info.put("user", SPLUNK_USER);
+    info.put("password", SPLUNK_PASSWORD);
+    try (Connection connection =
+             DriverManager.getConnection("jdbc:splunk:", info);
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(sql)) {
+      f.apply(resultSet);
+    }
+  }
+
   private void checkSql(String sql, Function<ResultSet, Void> f)
       throws SQLException {
     if (!enabled()) {
@@ -303,6 +397,60 @@ private void checkSql(String sql, Function<ResultSet, Void> f)
       close(connection, statement);
     }
   }
+
+  /** HTTP server that imitates Splunk's REST API. It accepts any login,
+   * records each search it is asked to export, and returns the same CSV
+   * result for every search. */
+  private static class StubSplunkServer implements AutoCloseable {
+    final HttpServer server;
+    final List<String> searches =
+        Collections.synchronizedList(new ArrayList<String>());
+
+    StubSplunkServer(final String result) throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/services/auth/login",
+          new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+              respond(exchange,
+                  "<response><sessionKey>0123abcd</sessionKey></response>");
+            }
+          });
+      server.createContext("/services/search/jobs/export",
+          new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+              final String body =
+                  CharStreams.toString(
+                      new InputStreamReader(exchange.getRequestBody(),
+                          StandardCharsets.UTF_8));
+              for (String arg : body.split("&")) {
+                final String[] pair = arg.split("=", 2);
+                if (pair[0].equals("search")) {
+                  searches.add(URLDecoder.decode(pair[1], "UTF-8"));
+                }
+              }
+              respond(exchange, result);
+            }
+          });
+      server.start();
+    }
+
+    private static void respond(HttpExchange exchange, String s)
+        throws IOException {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+
+    String url() {
+      return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void close() {
+      server.stop(0);
+    }
+  }
 }
 
 // End SplunkAdapterTest.java